@@ -0,0 +1,130 @@
+package com.infinitecampus.ccs.lingo.benchmarks;
+/* usage example:
+ * byte[] pdf = BenchmarkFixtures.textPdf(50);
+ * Path file = BenchmarkFixtures.randomFile(8 * 1024 * 1024);
+ * ResultSet rs = BenchmarkFixtures.resultSet(10000, 8);
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Random;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * Synthetic inputs for the benchmarks, generated from a fixed seed so every run measures the
+ * same data and nothing is read from the network or the database.
+ */
+public final class BenchmarkFixtures {
+    private static final long SEED = 20250601L;
+    private static final int LINES_PER_PAGE = 40;
+
+    // Text of a typical school notice, repeated and varied to fill pages
+    static final String[] SAMPLE_LINES = {
+        "Parent-teacher conferences are scheduled for Thursday, October 16.",
+        "Please return the signed field trip permission form by Friday.",
+        "Lunch account balances can be checked in the Campus Parent portal.",
+        "The school will be closed on Monday for staff development.",
+        "Students must bring a water bottle and comfortable shoes.",
+        "Contact the front office with any questions about bus routes.",
+        "Fall picture day retakes will take place in the library.",
+        "Report cards will be available online at the end of the term."
+    };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * A PDF of the given number of letter pages filled with text lines in Helvetica.
+     */
+    public static byte[] textPdf(int pages) throws IOException {
+        Random random = new Random(SEED);
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 11);
+                    content.setLeading(16);
+                    content.newLineAtOffset(54, 740);
+                    for (int line = 0; line < LINES_PER_PAGE; line++) {
+                        content.showText("Page " + (p + 1) + ": " + SAMPLE_LINES[random.nextInt(SAMPLE_LINES.length)]);
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * A temporary file of random bytes, deleted when the JVM exits.
+     */
+    public static Path randomFile(int size) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(SEED).nextBytes(bytes);
+        Path file = Files.createTempFile("lingo-benchmark", ".pdf");
+        file.toFile().deleteOnExit();
+        return Files.write(file, bytes);
+    }
+
+    /**
+     * A forward-only result set of the given size, enough for code that reads rows through
+     * next(), getObject(int) and getMetaData(). Columns are named col1..colN; odd columns
+     * hold strings and even columns integers.
+     */
+    public static ResultSet resultSet(int rows, int columns) {
+        String[][] values = new String[rows][columns];
+        Random random = new Random(SEED);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                values[r][c] = SAMPLE_LINES[random.nextInt(SAMPLE_LINES.length)];
+            }
+        }
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+            BenchmarkFixtures.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getColumnCount":
+                        return columns;
+                    case "getColumnName":
+                    case "getColumnLabel":
+                        return "COL" + args[0];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(
+            BenchmarkFixtures.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        return ++cursor[0] < rows;
+                    case "getMetaData":
+                        return metaData;
+                    case "getObject": {
+                        int column = (Integer) args[0];
+                        String value = values[cursor[0]][column - 1];
+                        return column % 2 == 0 ? (Object) value.length() : value;
+                    }
+                    case "close":
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
@@ -0,0 +1,60 @@
+package com.infinitecampus.ccs.lingo.benchmarks;
+/* usage example:
+ * java -jar target/benchmarks.jar EncryptDataBenchmark -p rows=10000
+ */
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.infinitecampus.ccs.lingo.utility.JsonResponseHelper;
+import com.infinitecampus.ccs.utility.JSONResponseHelper;
+
+/**
+ * EncryptData of ccs_lingo and of the utility module over a synthetic result set of eight
+ * columns, two of them encrypted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptDataBenchmark {
+    private static final int COLUMNS = 8;
+    private static final String[] ENCRYPT_COLUMNS = {"col1", "col4"};
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private final JSONResponseHelper utilityHelper = new JSONResponseHelper();
+    private ResultSet resultSet;
+
+    // EncryptData consumes the result set, so every call gets a fresh one
+    @Setup(Level.Invocation)
+    public void setup() {
+        resultSet = BenchmarkFixtures.resultSet(rows, COLUMNS);
+    }
+
+    @Benchmark
+    public JsonArray lingoEncryptData() throws Exception {
+        return JsonResponseHelper.EncryptData(resultSet, ENCRYPT_COLUMNS);
+    }
+
+    @Benchmark
+    public JsonArray utilityEncryptData() throws Exception {
+        return utilityHelper.EncryptData(resultSet, ENCRYPT_COLUMNS);
+    }
+}
@@ -0,0 +1,89 @@
+package com.infinitecampus.ccs.lingo.benchmarks;
+/* usage example:
+ * java -jar target/benchmarks.jar FileReadBenchmark -prof gc
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.infinitecampus.ccs.lingo.utility.FileUtilityHelper;
+
+/**
+ * FileUtilityHelper.getPDFBytes against the NIO ways of reading a whole file. The file stays
+ * in the page cache, so this measures copying and allocation rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileReadBenchmark {
+    @Param({"65536", "1048576", "16777216"})
+    public int size;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = BenchmarkFixtures.randomFile(size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] getPDFBytes() {
+        return FileUtilityHelper.getPDFBytes(file.toString());
+    }
+
+    @Benchmark
+    public byte[] readAllBytes() throws IOException {
+        return Files.readAllBytes(file);
+    }
+
+    @Benchmark
+    public ByteBuffer channelRead() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    // Maps the file and touches one byte per page, the cheapest way to get at every byte
+    @Benchmark
+    public long memoryMap() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long sum = 0;
+            for (int i = 0; i < mapped.limit(); i += 4096) {
+                sum += mapped.get(i);
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.infinitecampus.ccs.lingo.benchmarks;
+/* usage example:
+ * java -jar target/benchmarks.jar LogHelperBenchmark -prof gc
+ */
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+
+/**
+ * Cost of one LogHelper call against the helper it replaced, which took a full stack trace
+ * and ran String.format on every call. Run with -prof gc to compare allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogHelperBenchmark {
+    private LogHelper helper;
+    private LogHelper disabledHelper;
+    private LegacyLogHelper legacy;
+    private LegacyLogHelper legacyDisabled;
+    private final Integer rowId = 123456;
+
+    // The formatting of the previous LogHelper, kept here as the baseline
+    static final class LegacyLogHelper {
+        private final Logger logger;
+        private final String className;
+
+        LegacyLogHelper(Logger logger) {
+            this.logger = logger;
+            this.className = logger.getName().substring(logger.getName().lastIndexOf('.') + 1);
+        }
+
+        private String getCallerLocation() {
+            StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+            for (int i = 1; i < stackTrace.length; i++) {
+                String callerClassName = stackTrace[i].getClassName();
+                if (!callerClassName.equals(this.getClass().getName()) &&
+                    !callerClassName.contains("java.lang.Thread")) {
+                    return String.format("%s:%d",
+                        callerClassName.substring(callerClassName.lastIndexOf('.') + 1),
+                        stackTrace[i].getLineNumber());
+                }
+            }
+            return className;
+        }
+
+        void logInfo(String message, Object... params) {
+            if (logger.isInfoEnabled()) {
+                logger.info(String.format("[%s] %s", getCallerLocation(), message), params);
+            }
+        }
+
+        // The old logError had no level check
+        void logError(String message, Object... params) {
+            logger.error(String.format("[%s] %s", getCallerLocation(), message), params);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Configuration config = Configuration.getInstance();
+        helper = new LogHelper(config, LogManager.getLogger(LogHelperBenchmark.class));
+        disabledHelper = new LogHelper(config, LogManager.getLogger("benchmark.disabled.helper"));
+        legacy = new LegacyLogHelper(LogManager.getLogger(LogHelperBenchmark.class));
+        legacyDisabled = new LegacyLogHelper(LogManager.getLogger("benchmark.disabled.legacy"));
+    }
+
+    @Benchmark
+    public void legacyInfo() {
+        legacy.logInfo("Processing translation for ID: {}", rowId);
+    }
+
+    @Benchmark
+    public void helperInfo() {
+        helper.logInfo("Processing translation for ID: {}", rowId);
+    }
+
+    @Benchmark
+    public void helperInfoSampled() {
+        helper.logInfoSampled("Processing translation for ID: {}", rowId);
+    }
+
+    @Benchmark
+    public void legacyDisabled() {
+        legacyDisabled.logInfo("Processing translation for ID: {}", rowId);
+        legacyDisabled.logError("Translation failed for ID {}: {}", rowId, "timeout");
+    }
+
+    @Benchmark
+    public void helperDisabled() {
+        disabledHelper.logInfo("Processing translation for ID: {}", rowId);
+        disabledHelper.logError("Translation failed for ID {}: {}", rowId, "timeout");
+    }
+}
@@ -0,0 +1,90 @@
+package com.infinitecampus.ccs.lingo.benchmarks;
+/* usage example:
+ * java -jar target/benchmarks.jar PageImagingBenchmark -p dpi=72,300 -p colorMode=rgb,gray
+ */
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.tools.imageio.ImageIOUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.infinitecampus.ccs.lingo.utility.PageImageEncoder;
+import com.infinitecampus.ccs.lingo.utility.PageTextAnalyzer;
+
+/**
+ * The render and encode stages of the AWS document pipeline for one page, at the resolutions
+ * and color modes worth considering for OCR. encodePage is the PageImageEncoder the pipeline
+ * uses; encodeJpeg is ImageIOUtil with its default settings, which the pipeline used before
+ * and then encoded a second time for the output PDF. analyzeNativeText is what a page with a
+ * text layer costs instead, and depends on neither parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageImagingBenchmark {
+    @Param({"72", "150", "200", "300"})
+    public int dpi;
+
+    @Param({"rgb", "gray", "binary"})
+    public String colorMode;
+
+    private PDDocument document;
+    private PDFRenderer renderer;
+    private BufferedImage image;
+    private PageTextAnalyzer analyzer;
+    private PageImageEncoder encoder;
+
+    @Setup
+    public void setup() throws Exception {
+        document = PDDocument.load(BenchmarkFixtures.textPdf(1));
+        renderer = new PDFRenderer(document);
+        encoder = new PageImageEncoder(dpi, PageImageEncoder.ColorMode.parse(colorMode), 0.85f, 5 * 1000 * 1000);
+        image = renderer.renderImageWithDPI(0, dpi, encoder.getImageType());
+        analyzer = new PageTextAnalyzer(20, 30);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        document.close();
+    }
+
+    @Benchmark
+    public BufferedImage render() throws Exception {
+        return renderer.renderImageWithDPI(0, dpi, encoder.getImageType());
+    }
+
+    @Benchmark
+    public byte[] encodePage() throws Exception {
+        return encoder.encode(image).getBytes();
+    }
+
+    @Benchmark
+    public byte[] encodeJpeg() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIOUtil.writeImage(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<PageTextAnalyzer.Line> analyzeNativeText() throws Exception {
+        return analyzer.analyze(document, 0);
+    }
+}
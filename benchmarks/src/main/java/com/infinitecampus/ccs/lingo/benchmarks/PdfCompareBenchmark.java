@@ -0,0 +1,72 @@
+package com.infinitecampus.ccs.lingo.benchmarks;
+/* usage example:
+ * java -jar target/benchmarks.jar PdfCompareBenchmark -p pages=1,50
+ */
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.infinitecampus.ccs.lingo.utility.PDFHelper;
+import com.infinitecampus.ccs.lingo.utility.SpillBuffer;
+
+/**
+ * PDFHelper.comparePdfText on a small and a large document, from byte arrays and from a file
+ * against a SpillBuffer as DocumentChangeHistoryManager calls it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfCompareBenchmark {
+    @Param({"1", "50"})
+    public int pages;
+
+    private byte[] pdf;
+    private byte[] copy;
+    private Path file;
+    private SpillBuffer buffer;
+
+    @Setup
+    public void setup() throws Exception {
+        pdf = BenchmarkFixtures.textPdf(pages);
+        copy = pdf.clone();
+        file = Files.createTempFile("lingo-compare", ".pdf");
+        Files.write(file, pdf);
+        buffer = new SpillBuffer();
+        try (OutputStream out = buffer.getOutputStream()) {
+            out.write(pdf);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        buffer.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public boolean compareBytes() throws Exception {
+        return PDFHelper.comparePdfText(pdf, copy);
+    }
+
+    @Benchmark
+    public boolean compareFileToBuffer() throws Exception {
+        return PDFHelper.comparePdfText(file.toString(), buffer);
+    }
+}
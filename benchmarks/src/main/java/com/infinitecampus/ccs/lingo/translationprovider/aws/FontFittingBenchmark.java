@@ -0,0 +1,125 @@
+package com.infinitecampus.ccs.lingo.translationprovider.aws;
+/* usage example:
+ * java -Dbenchmark.font=/path/to/NotoSans-Regular.ttf -jar target/benchmarks.jar FontFittingBenchmark
+ */
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.infinitecampus.ccs.lingo.utility.TextLayout;
+
+/**
+ * Font-size fitting of AwsTranslateDocument over the lines of one page. TextLayout is measured
+ * with the glyph cache of a document already composing pages and with a new layout per page;
+ * legacyFit is the size-stepping loop it replaced. The type0 font is read from the
+ * benchmark.font system property; without it Helvetica is used for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FontFittingBenchmark {
+    private static final String[] LINES = {
+        "Las conferencias de padres y maestros son el jueves 16 de octubre.",
+        "Devuelva el formulario de permiso firmado antes del viernes.",
+        "El saldo de la cuenta de almuerzo está en el portal para padres.",
+        "La escuela estará cerrada el lunes por desarrollo profesional.",
+        "Los estudiantes deben traer una botella de agua y zapatos cómodos.",
+        "Comuníquese con la oficina si tiene preguntas sobre las rutas.",
+        "Las fotos de otoño se repetirán en la biblioteca.",
+        "Las boletas de calificaciones estarán en línea al final del período."
+    };
+    // Box sizes in points of OCR lines on a 612 x 792 page
+    private static final float[] BOX_WIDTHS = {420, 380, 400, 410, 450, 390, 300, 460};
+    private static final float BOX_HEIGHT = 14;
+
+    @Param({"helvetica", "type0"})
+    public String font;
+
+    private PDDocument document;
+    private PDFont pdFont;
+    private TextLayout layout;
+
+    @Setup
+    public void setup() throws Exception {
+        document = new PDDocument();
+        String fontFile = System.getProperty("benchmark.font");
+        pdFont = "type0".equals(font) && fontFile != null
+            ? PDType0Font.load(document, new File(fontFile))
+            : PDType1Font.HELVETICA;
+        layout = new TextLayout(pdFont);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        document.close();
+    }
+
+    @Benchmark
+    public void textLayoutFit(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < LINES.length; i++) {
+            blackhole.consume(layout.fit(LINES[i], BOX_WIDTHS[i], BOX_HEIGHT));
+        }
+    }
+
+    @Benchmark
+    public void textLayoutFitCold(Blackhole blackhole) throws Exception {
+        TextLayout pageLayout = new TextLayout(pdFont);
+        for (int i = 0; i < LINES.length; i++) {
+            blackhole.consume(pageLayout.fit(LINES[i], BOX_WIDTHS[i], BOX_HEIGHT));
+        }
+    }
+
+    @Benchmark
+    public void legacyFit(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < LINES.length; i++) {
+            blackhole.consume(legacyFontSize(LINES[i], BOX_WIDTHS[i], pdFont, blackhole));
+        }
+    }
+
+    // The fitting loop AwsTranslateDocument used before TextLayout
+    private static int legacyFontSize(String text, float boxWidth, PDFont font, Blackhole blackhole) throws Exception {
+        int fontSize = 20;
+        float textWidth = font.getStringWidth(text) / 1000 * fontSize;
+        float textHeight = font.getFontDescriptor().getFontBoundingBox().getHeight() / 1000 * fontSize;
+        if (textWidth > boxWidth) {
+            while (textWidth > boxWidth && fontSize > 6) {
+                fontSize -= 1;
+                textWidth = font.getStringWidth(text) / 1000 * fontSize;
+                textHeight = font.getFontDescriptor().getFontBoundingBox().getHeight() / 1000 * fontSize;
+            }
+        } else if (textWidth < boxWidth) {
+            while (textWidth < boxWidth && fontSize < 36) {
+                fontSize += 1;
+                textWidth = font.getStringWidth(text) / 1000 * fontSize;
+                textHeight = font.getFontDescriptor().getFontBoundingBox().getHeight() / 1000 * fontSize;
+                if (textWidth > boxWidth) {
+                    fontSize -= 1;
+                    break;
+                }
+            }
+        }
+        blackhole.consume(textWidth);
+        blackhole.consume(textHeight);
+        return fontSize;
+    }
+}
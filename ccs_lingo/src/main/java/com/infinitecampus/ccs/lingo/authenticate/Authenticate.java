@@ -1,36 +1,248 @@
 package com.infinitecampus.ccs.lingo.authenticate;
-
+/* usage example:
+ * Authenticate auth = Authenticate.getInstance();
+ * if (auth.isAuthenticated(connection, Authenticate.TRANSLATION_TEXT_TABLE, token)) { ... }
+ *
+ * Map<String, Boolean> decisions = auth.authenticateAll(connection, Authenticate.TRANSLATION_TEXT_TABLE, tokens);
+ */
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+
+/**
+ * Checks batch tokens against the request tables. The service keeps no connection of its own,
+ * so any number of batches can authenticate at the same time, each on its own connection.
+ * Decisions are cached per table and token: successes for authCacheTtlSeconds and failures
+ * for authNegativeCacheTtlSeconds. Database errors are never cached.
+ */
+public class Authenticate {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(Authenticate.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    public static final String REQUEST_TABLE = "CCS_Request";
+    public static final String TRANSLATION_TEXT_TABLE = "CCS_TranslationText";
+    public static final String TRANSLATION_DOCUMENT_TABLE = "CCS_TranslationDocument";
+
+    private static final Set<String> TABLES = Collections.unmodifiableSet(new HashSet<>(
+        Arrays.asList(REQUEST_TABLE, TRANSLATION_TEXT_TABLE, TRANSLATION_DOCUMENT_TABLE)));
+
+    // SQL Server accepts at most 2100 parameters per statement
+    private static final int MAX_TOKENS_PER_QUERY = 500;
+    // Expired decisions are purged once the cache grows past this size
+    private static final int PURGE_THRESHOLD = 10000;
+
+    private static volatile Authenticate instance;
+
+    private final Map<String, Decision> decisions = new ConcurrentHashMap<>();
+
+    private static class Decision {
+        private final boolean authenticated;
+        private final long expiresAt;
+
+        Decision(boolean authenticated, long expiresAt) {
+            this.authenticated = authenticated;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private Authenticate() {
+    }
+
+    public static Authenticate getInstance() {
+        if (instance == null) {
+            synchronized (Authenticate.class) {
+                if (instance == null) {
+                    instance = new Authenticate();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * True if the token exists in the given request table.
+     */
+    public boolean isAuthenticated(Connection connection, String tableName, String token) {
+        checkTable(tableName);
+        if (token == null || token.trim().isEmpty()) {
+            return false;
+        }
+        Boolean cached = lookup(tableName, token);
+        if (cached != null) {
+            return cached;
+        }
+
+        String sql = "SELECT 1 FROM [ccs_lng].[" + tableName + "] WHERE token = TRY_CAST(? as uniqueidentifier)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, token);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                boolean authenticated = rs.next();
+                remember(tableName, token, authenticated);
+                return authenticated;
+            }
+        } catch (SQLException e) {
+            logger.logError("Error authenticating token {} against {}: {}", token, tableName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Authenticates many tokens against the same table with as few queries as possible.
+     *
+     * @return the decision for each distinct token, in the order the tokens were given
+     */
+    public Map<String, Boolean> authenticateAll(Connection connection, String tableName, Collection<String> tokens) {
+        checkTable(tableName);
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        List<String> unresolved = new ArrayList<>();
+        for (String token : tokens) {
+            if (token == null || results.containsKey(token)) {
+                continue;
+            }
+            Boolean cached = token.trim().isEmpty() ? Boolean.FALSE : lookup(tableName, token);
+            results.put(token, cached);
+            if (cached == null) {
+                unresolved.add(token);
+            }
+        }
+
+        for (int start = 0; start < unresolved.size(); start += MAX_TOKENS_PER_QUERY) {
+            List<String> chunk = unresolved.subList(start, Math.min(start + MAX_TOKENS_PER_QUERY, unresolved.size()));
+            Set<String> found;
+            try {
+                found = findTokens(connection, tableName, chunk);
+            } catch (SQLException e) {
+                logger.logError("Error authenticating {} tokens against {}: {}", chunk.size(), tableName, e.getMessage());
+                for (String token : chunk) {
+                    results.put(token, Boolean.FALSE);
+                }
+                continue;
+            }
+            for (String token : chunk) {
+                boolean authenticated = found.contains(normalize(token));
+                remember(tableName, token, authenticated);
+                results.put(token, authenticated);
+            }
+        }
+        return results;
+    }
+
+    // Returns the normalized tokens of the chunk that exist in the table
+    private Set<String> findTokens(Connection connection, String tableName, List<String> tokens) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT CAST(token AS VARCHAR(36)) [token] FROM [ccs_lng].[")
+            .append(tableName).append("] WHERE token IN (");
+        for (int i = 0; i < tokens.size(); i++) {
+            sql.append(i == 0 ? "TRY_CAST(? as uniqueidentifier)" : ",TRY_CAST(? as uniqueidentifier)");
+        }
+        sql.append(')');
+
+        Set<String> found = new HashSet<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < tokens.size(); i++) {
+                pstmt.setString(i + 1, tokens.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    found.add(normalize(rs.getString("token")));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Records a decision made elsewhere, for example by TokenBootstrap, so later checks on
+     * the same token are answered from the cache.
+     */
+    public void remember(String tableName, String token, boolean authenticated) {
+        Configuration config = Configuration.getInstance();
+        int ttlSeconds = authenticated ? config.getAuthCacheTtlSeconds() : config.getAuthNegativeCacheTtlSeconds();
+        if (ttlSeconds <= 0 || token == null) {
+            return;
+        }
+        if (decisions.size() >= PURGE_THRESHOLD) {
+            purgeExpired();
+        }
+        decisions.put(cacheKey(tableName, token),
+            new Decision(authenticated, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds)));
+    }
+
+    /**
+     * Forgets all cached decisions.
+     */
+    public void clearCache() {
+        decisions.clear();
+    }
+
+    private Boolean lookup(String tableName, String token) {
+        String key = cacheKey(tableName, token);
+        Decision decision = decisions.get(key);
+        if (decision == null) {
+            return null;
+        }
+        if (decision.expiresAt <= System.currentTimeMillis()) {
+            decisions.remove(key, decision);
+            return null;
+        }
+        return decision.authenticated;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        decisions.values().removeIf(decision -> decision.expiresAt <= now);
+    }
+
+    private static void checkTable(String tableName) {
+        if (!TABLES.contains(tableName)) {
+            throw new IllegalArgumentException("Unknown token table: " + tableName);
+        }
+    }
+
+    private static String cacheKey(String tableName, String token) {
+        return tableName + '|' + normalize(token);
+    }
+
+    // Tokens are GUIDs, which SQL Server compares without regard to case or surrounding braces
+    private static String normalize(String token) {
+        String normalized = token.trim().toLowerCase(Locale.ROOT);
+        if (normalized.startsWith("{") && normalized.endsWith("}")) {
+            normalized = normalized.substring(1, normalized.length() - 1);
+        }
+        return normalized;
+    }
 
-public class Authenticate {  
-    private static Connection conn;
-
-    private static boolean isTokenAuthenticated(String token, String tableName) {
-      String sql = "SELECT 1 FROM [ccs_lng].[" + tableName + "] WHERE token = TRY_CAST(? as uniqueidentifier)";
-      try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-          pstmt.setString(1, token);
-          try (ResultSet rs = pstmt.executeQuery()) {
-              return rs.next();
-          }
-      } catch (SQLException e) {         
-          e.printStackTrace();
-          return false;
-      }
-  }
     public static boolean isGenerateOutputAuthenticated(Connection con, String token) {
-      conn = con;
-      return isTokenAuthenticated(token, "CCS_Request");
-     }
-  
-     public static boolean isTranslatedTextAuthenticated(Connection con,String token){
-      conn = con;
-      return isTokenAuthenticated(token, "CCS_TranslationText");
-     }
-     public static boolean isTranslatedDocumentAuthenticated(Connection con, String token) {
-      conn = con;
-      return isTokenAuthenticated(token, "CCS_TranslationDocument");
-     }
-   }
+        return getInstance().isAuthenticated(con, REQUEST_TABLE, token);
+    }
+
+    public static boolean isTranslatedTextAuthenticated(Connection con, String token) {
+        return getInstance().isAuthenticated(con, TRANSLATION_TEXT_TABLE, token);
+    }
+
+    public static boolean isTranslatedDocumentAuthenticated(Connection con, String token) {
+        return getInstance().isAuthenticated(con, TRANSLATION_DOCUMENT_TABLE, token);
+    }
+}
@@ -0,0 +1,94 @@
+package com.infinitecampus.ccs.lingo.authenticate;
+/* usage example:
+ * TokenContext context = TokenBootstrap.resolve(connection, TokenContext.TokenType.TEXT, token, config);
+ * AwsTranslateText translator = new AwsTranslateText.Builder()
+ *     .withConnection(connection)
+ *     .withContext(context)
+ *     .withConfiguration(config)
+ *     .build();
+ */
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+
+/**
+ * Resolves a batch token in one round trip: whether it exists, whether its translation
+ * config is active and still pending, and the provider, credentials and onCompleteSQL of
+ * that config. Replaces the separate authentication and configuration queries that the
+ * request classes and each provider used to run against the same row.
+ */
+public class TokenBootstrap {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(TokenBootstrap.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    // The pending row sorts first, so one row answers both "does the token exist" and "is there work"
+    private static final String SQL_RESOLVE_TOKEN =
+        "SELECT TOP 1 tc.serviceprovider, tc.serviceAccount, " +
+        "tc.onCompleteSQL, " +
+        "CASE WHEN tc.active = 1 AND td.completed = 0 THEN 1 ELSE 0 END [pending] " +
+        "FROM [ccs_lng].[%s] td " +
+        "LEFT OUTER JOIN ccs_lng.CCS_TranslationConfig tc ON td.translationConfigID = tc.translationConfigID " +
+        "WHERE td.token = TRY_CAST(? AS UNIQUEIDENTIFIER) " +
+        "ORDER BY [pending] DESC";
+
+    /**
+     * Thrown when the token is valid but has no active, uncompleted translation config.
+     */
+    public static class NoRecordsFoundException extends Exception {
+        public NoRecordsFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private TokenBootstrap() {
+    }
+
+    /**
+     * Resolves the token against the request table of the given type.
+     *
+     * @throws SecurityException if the token does not exist
+     * @throws NoRecordsFoundException if the token has nothing left to translate
+     */
+    public static TokenContext resolve(Connection connection, TokenContext.TokenType tokenType, String token,
+            Configuration config) throws SQLException, NoRecordsFoundException {
+        String sql = String.format(SQL_RESOLVE_TOKEN, tokenType.getTableName());
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, token);
+            try (ResultSet rs = stmt.executeQuery()) {
+                boolean authenticated = rs.next();
+                // Later checks on this token, such as a provider built without the context, hit the cache
+                Authenticate.getInstance().remember(tokenType.getTableName(), token, authenticated);
+                if (!authenticated) {
+                    logger.logError("Authentication failed for token: {}", token);
+                    throw new SecurityException("Invalid Token. Access Denied.");
+                }
+                String serviceProvider = rs.getString("serviceprovider");
+                if (rs.getInt("pending") != 1 || serviceProvider == null || serviceProvider.trim().isEmpty()) {
+                    logger.logWarn("No active configuration found for token: {}", token);
+                    throw new NoRecordsFoundException("No records found for token: " + token);
+                }
+                TokenContext context = new TokenContext(
+                    token,
+                    tokenType,
+                    serviceProvider.trim().toLowerCase(),
+                    rs.getString("serviceAccount"),
+                    rs.getString("onCompleteSQL"),
+                    config.getRequestOutputDirectory() + File.separator + token);
+                logger.logDebug("Resolved {}", context);
+                return context;
+            }
+        }
+    }
+}
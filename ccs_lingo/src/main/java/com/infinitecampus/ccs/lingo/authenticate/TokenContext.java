@@ -0,0 +1,165 @@
+package com.infinitecampus.ccs.lingo.authenticate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Everything a batch needs to know about its token, resolved once by TokenBootstrap and
+ * handed to the provider adapters. Instances are immutable and safe to share between threads.
+ */
+public final class TokenContext {
+
+    /**
+     * The request table a token belongs to.
+     */
+    public enum TokenType {
+        TEXT("CCS_TranslationText"),
+        DOCUMENT("CCS_TranslationDocument");
+
+        private final String tableName;
+
+        TokenType(String tableName) {
+            this.tableName = tableName;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+    }
+
+    private final String token;
+    private final TokenType tokenType;
+    private final String serviceProvider;
+    private final List<String> serviceProviders;
+    private final String serviceAccount;
+    private final String onCompleteTemplate;
+    private final String outputDirectory;
+    private final JsonObject serviceAccountJson;
+
+    TokenContext(String token, TokenType tokenType, String serviceProvider, String serviceAccount,
+            String onCompleteTemplate, String outputDirectory) {
+        this.token = token;
+        this.tokenType = tokenType;
+        this.serviceProviders = parseServiceProviders(serviceProvider);
+        this.serviceProvider = serviceProviders.isEmpty() ? serviceProvider : serviceProviders.get(0);
+        this.serviceAccount = serviceAccount;
+        this.onCompleteTemplate = onCompleteTemplate;
+        this.outputDirectory = outputDirectory;
+        this.serviceAccountJson = parseServiceAccount(serviceAccount);
+    }
+
+    private static List<String> parseServiceProviders(String serviceProvider) {
+        List<String> providers = new ArrayList<>();
+        if (serviceProvider != null) {
+            for (String provider : serviceProvider.split(",")) {
+                String name = provider.trim().toLowerCase();
+                if (!name.isEmpty() && !providers.contains(name)) {
+                    providers.add(name);
+                }
+            }
+        }
+        return Collections.unmodifiableList(providers);
+    }
+
+    private static JsonObject parseServiceAccount(String serviceAccount) {
+        if (serviceAccount == null || serviceAccount.trim().isEmpty()) {
+            return new JsonObject();
+        }
+        JsonElement parsed = JsonParser.parseString(serviceAccount);
+        return parsed.isJsonObject() ? parsed.getAsJsonObject() : new JsonObject();
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public TokenType getTokenType() {
+        return tokenType;
+    }
+
+    /**
+     * Lower case provider name: google, azure or aws. When the config lists several
+     * providers this is the first, preferred one.
+     */
+    public String getServiceProvider() {
+        return serviceProvider;
+    }
+
+    /**
+     * All providers the config allows, in order of preference. The serviceprovider column
+     * holds them comma separated, for example "azure,google".
+     */
+    public List<String> getServiceProviders() {
+        return serviceProviders;
+    }
+
+    /**
+     * The context for one of the listed providers. A config with several providers keeps
+     * the credentials of each under its name in the serviceAccount JSON, for example
+     * {"azure": {"keyId": ...}, "google": {...}}; a provider without its own entry uses
+     * the top level values.
+     */
+    public TokenContext forProvider(String provider) {
+        String name = provider.toLowerCase();
+        JsonElement nested = serviceAccountJson.get(name);
+        String account = nested != null && nested.isJsonObject() ? nested.toString() : serviceAccount;
+        return new TokenContext(token, tokenType, name, account, onCompleteTemplate, outputDirectory);
+    }
+
+    /**
+     * The raw serviceAccount JSON of the translation config.
+     */
+    public String getServiceAccount() {
+        return serviceAccount;
+    }
+
+    /**
+     * A top level string value of the serviceAccount JSON, or null if it is missing.
+     * Matches what JSON_VALUE(serviceAccount, '$.name') returns in the provider queries.
+     */
+    public String getServiceAccountValue(String name) {
+        JsonElement value = serviceAccountJson.get(name);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
+
+    /**
+     * Like getServiceAccountValue but returns the default when the value is missing.
+     */
+    public String getServiceAccountValue(String name, String defaultValue) {
+        String value = getServiceAccountValue(name);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * The onCompleteSQL of the translation config with {selectedID} replaced by a parameter marker.
+     */
+    public String getOnCompleteSQL() {
+        return onCompleteTemplate != null ? onCompleteTemplate.replace("{selectedID}", "?") : null;
+    }
+
+    /**
+     * The onCompleteSQL of the translation config as stored, with its {selectedID} or
+     * {selectedIDs} placeholder.
+     */
+    public String getOnCompleteTemplate() {
+        return onCompleteTemplate;
+    }
+
+    /**
+     * requestOutputDirectory/token, where the batch writes its working files.
+     */
+    public String getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    @Override
+    public String toString() {
+        // Never includes the service account
+        return "TokenContext[" + tokenType + ", " + serviceProvider + ", " + token + "]";
+    }
+}
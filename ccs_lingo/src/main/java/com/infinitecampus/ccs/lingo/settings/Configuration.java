@@ -5,6 +5,8 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,6 +30,47 @@ public class Configuration {
     private volatile String backpackUrl = null;
     private volatile String backpackUsername = null;
     private volatile String backpackPassword = null;
+    private volatile int translationConcurrency = 4;
+    private volatile int translationBatchSize = 100;
+    private final Map<String, Double> providerRateLimits = new ConcurrentHashMap<>();
+    private volatile boolean translationMemoryEnabled = true;
+    private volatile int translationMemoryMaxChars = 5000000;
+    private volatile int translationMemoryTtlDays = 90;
+    private volatile int documentRenderThreads = 2;
+    private volatile int documentEncodeThreads = 2;
+    private volatile int documentOcrThreads = 4;
+    private volatile int documentTranslateThreads = 4;
+    private volatile int documentPagesInFlight = 8;
+    private volatile int documentChunkMaxPages = 20;
+    private volatile int documentChunkMaxBytes = 10 * 1024 * 1024;
+    private volatile int documentChunkConcurrency = 4;
+    private volatile int documentChunkRetries = 2;
+    private volatile boolean documentNativeTextEnabled = true;
+    private volatile int documentNativeTextMinChars = 20;
+    private volatile int documentNativeTextMaxImagePercent = 30;
+    private volatile int documentRenderDpi = 72;
+    private volatile String documentImageColor = "rgb";
+    private volatile int documentJpegQuality = 85;
+    private volatile int documentOcrMaxBytes = 5 * 1000 * 1000;
+    private volatile String fontDirectory = "";
+    private volatile int pdfSpillThresholdBytes = 8 * 1024 * 1024;
+    private volatile int providerClientIdleMinutes = 10;
+    private volatile int authCacheTtlSeconds = 60;
+    private volatile int authNegativeCacheTtlSeconds = 10;
+    private volatile int resultFlushSize = 200;
+    private volatile int resultFlushIntervalMs = 2000;
+    private volatile boolean textJournalEnabled = true;
+    private volatile boolean awsTextJoinRows = false;
+    private volatile int textMaxThrottledRuns = 5;
+    private volatile int providerMaxRetries = 4;
+    private volatile int providerRetryBaseMs = 500;
+    private volatile int providerRetryMaxMs = 30000;
+    private volatile int routingHedgeAfterMs = 0;
+    private volatile int routingBreakerOpenSeconds = 30;
+    private volatile int routingBreakerErrorPercent = 50;
+    private final Map<String, Double> providerCostWeights = new ConcurrentHashMap<>();
+    private volatile boolean logCallerLocation = true;
+    private volatile int logSampledPerSecond = 5;
 
     private Configuration() {
         // Private constructor to prevent instantiation
@@ -139,6 +182,266 @@ public class Configuration {
     public String getVersion(){
         return version;
     }
+    /**
+     * Number of worker threads used to call the translation provider for text rows.
+     */
+    public int getTranslationConcurrency(){
+        return translationConcurrency;
+    }
+    /**
+     * Maximum number of text rows handed to a worker in one provider batch.
+     */
+    public int getTranslationBatchSize(){
+        return translationBatchSize;
+    }
+    /**
+     * Requests per second allowed for the given provider (azure, google, aws). 0 means unlimited.
+     */
+    public double getProviderRateLimit(String provider){
+        if (provider == null) {
+            return 0;
+        }
+        Double limit = providerRateLimits.get(provider.toLowerCase());
+        return limit == null ? 0 : limit;
+    }
+    /**
+     * Whether previously translated strings are reused from the translation memory.
+     */
+    public boolean isTranslationMemoryEnabled(){
+        return translationMemoryEnabled;
+    }
+    /**
+     * Size limit of the in-process translation memory, in characters.
+     */
+    public int getTranslationMemoryMaxChars(){
+        return translationMemoryMaxChars;
+    }
+    /**
+     * Days a remembered translation stays valid. 0 means it never expires.
+     */
+    public int getTranslationMemoryTtlDays(){
+        return translationMemoryTtlDays;
+    }
+    /**
+     * Threads rendering PDF pages to images. Each thread gets its own copy of the source document.
+     */
+    public int getDocumentRenderThreads(){
+        return documentRenderThreads;
+    }
+    /**
+     * Threads encoding rendered pages to JPEG.
+     */
+    public int getDocumentEncodeThreads(){
+        return documentEncodeThreads;
+    }
+    /**
+     * Threads sending page images to OCR.
+     */
+    public int getDocumentOcrThreads(){
+        return documentOcrThreads;
+    }
+    /**
+     * Threads translating the text found on each page.
+     */
+    public int getDocumentTranslateThreads(){
+        return documentTranslateThreads;
+    }
+    /**
+     * Maximum pages that may be between render and compose at the same time.
+     */
+    public int getDocumentPagesInFlight(){
+        return documentPagesInFlight;
+    }
+    /**
+     * Most pages sent to a whole-document provider in one request; longer documents are split.
+     */
+    public int getDocumentChunkMaxPages(){
+        return documentChunkMaxPages;
+    }
+    /**
+     * Largest file in bytes sent to a whole-document provider in one request; larger documents are split.
+     */
+    public int getDocumentChunkMaxBytes(){
+        return documentChunkMaxBytes;
+    }
+    /**
+     * Chunks of one split document translated at the same time.
+     */
+    public int getDocumentChunkConcurrency(){
+        return documentChunkConcurrency;
+    }
+    /**
+     * Times a failed chunk of a split document is retried before the document fails. 0 disables retries.
+     */
+    public int getDocumentChunkRetries(){
+        return documentChunkRetries;
+    }
+    /**
+     * Whether pages that carry their own text are translated from that text instead of OCR.
+     */
+    public boolean isDocumentNativeTextEnabled(){
+        return documentNativeTextEnabled;
+    }
+    /**
+     * Non-whitespace characters a page's text layer needs before it is used instead of OCR.
+     */
+    public int getDocumentNativeTextMinChars(){
+        return documentNativeTextMinChars;
+    }
+    /**
+     * Share of the page in percent that images may cover before the page goes to OCR even though it has text.
+     */
+    public int getDocumentNativeTextMaxImagePercent(){
+        return documentNativeTextMaxImagePercent;
+    }
+    /**
+     * Resolution in DPI that scanned pages are rendered at for OCR and the translated PDF.
+     */
+    public int getDocumentRenderDpi(){
+        return documentRenderDpi;
+    }
+    /**
+     * How scanned pages are rendered: rgb, gray or binary.
+     */
+    public String getDocumentImageColor(){
+        return documentImageColor;
+    }
+    /**
+     * JPEG quality, in percent, of rendered page images.
+     */
+    public int getDocumentJpegQuality(){
+        return documentJpegQuality;
+    }
+    /**
+     * Largest page image sent to OCR; larger images are scaled down. Textract accepts up to 5 MB.
+     */
+    public int getDocumentOcrMaxBytes(){
+        return documentOcrMaxBytes;
+    }
+    /**
+     * Directory holding the Noto TTF files translated documents are drawn with; needed for non-Latin scripts unless their fonts are on the classpath under /fonts.
+     */
+    public String getFontDirectory(){
+        return fontDirectory;
+    }
+    /**
+     * Size above which document content being passed around is moved from memory to a temporary file.
+     */
+    public int getPdfSpillThresholdBytes(){
+        return pdfSpillThresholdBytes;
+    }
+    /**
+     * Minutes a shared provider client may sit unused before it is closed.
+     */
+    public int getProviderClientIdleMinutes(){
+        return providerClientIdleMinutes;
+    }
+    /**
+     * Seconds a successful token authentication is remembered. 0 disables caching.
+     */
+    public int getAuthCacheTtlSeconds(){
+        return authCacheTtlSeconds;
+    }
+    /**
+     * Seconds a failed token authentication is remembered. 0 disables caching.
+     */
+    public int getAuthNegativeCacheTtlSeconds(){
+        return authNegativeCacheTtlSeconds;
+    }
+    /**
+     * Number of completed rows written back to the database per batch and transaction.
+     */
+    public int getResultFlushSize(){
+        return resultFlushSize;
+    }
+    /**
+     * Longest time in milliseconds a completed row waits before it is written back.
+     */
+    public int getResultFlushIntervalMs(){
+        return resultFlushIntervalMs;
+    }
+    /**
+     * Whether text batches journal provider results to disk so a restarted run can resume.
+     */
+    public boolean isTextJournalEnabled(){
+        return textJournalEnabled;
+    }
+    /**
+     * Runs a text row may be left pending because its provider keeps throttling it; the run
+     * that reaches this count completes it as failed. Runs are counted in the text journal,
+     * so with textJournalEnabled off a throttled row fails in its first run.
+     */
+    public int getTextMaxThrottledRuns(){
+        return textMaxThrottledRuns;
+    }
+    /**
+     * Whether AWS text batches join separate rows with line breaks into one request. Off by
+     * default: joined rows are translated together and can influence each other.
+     */
+    public boolean isAwsTextJoinRows(){
+        return awsTextJoinRows;
+    }
+    /**
+     * Times a throttled provider request is retried before the row fails. 0 disables retries.
+     */
+    public int getProviderMaxRetries(){
+        return providerMaxRetries;
+    }
+    /**
+     * First backoff in milliseconds after a throttled request when the provider gives no Retry-After.
+     */
+    public int getProviderRetryBaseMs(){
+        return providerRetryBaseMs;
+    }
+    /**
+     * Longest backoff in milliseconds between retries of a throttled request.
+     */
+    public int getProviderRetryMaxMs(){
+        return providerRetryMaxMs;
+    }
+    /**
+     * Longest time in milliseconds a routed request waits before a hedged duplicate is sent
+     * to the next provider. The provider's p99 latency is used when it is lower. Both providers
+     * bill every character of a hedged batch, so this is 0, hedging off, unless set.
+     */
+    public int getRoutingHedgeAfterMs(){
+        return routingHedgeAfterMs;
+    }
+    /**
+     * Seconds a provider stays out of rotation once its circuit breaker opens.
+     */
+    public int getRoutingBreakerOpenSeconds(){
+        return routingBreakerOpenSeconds;
+    }
+    /**
+     * Percentage of recent calls that must fail for a provider's circuit breaker to open.
+     */
+    public int getRoutingBreakerErrorPercent(){
+        return routingBreakerErrorPercent;
+    }
+    /**
+     * Whether log messages are prefixed with the class and line that logged them.
+     */
+    public boolean isLogCallerLocation(){
+        return logCallerLocation;
+    }
+    /**
+     * Messages per second and per message that the sampled log methods let through. 0 means unlimited.
+     */
+    public int getLogSampledPerSecond(){
+        return logSampledPerSecond;
+    }
+    /**
+     * Relative price of the given provider (azure, google, aws) used when routing between
+     * several providers; a provider is preferred while its latency times its weight is lowest. Defaults to 1.
+     */
+    public double getProviderCostWeight(String provider){
+        if (provider == null) {
+            return 1;
+        }
+        Double weight = providerCostWeights.get(provider.toLowerCase());
+        return weight == null ? 1 : weight;
+    }
 
    
    public void loadConfiguration(Connection con,String appName) throws Exception {
@@ -175,6 +478,135 @@ public class Configuration {
                 case "backpackpassword":
                     backpackPassword = settingValue;
                     break;                
+                case "translationconcurrency":
+                    translationConcurrency = parseIntSetting(settingName, settingValue, translationConcurrency, 1);
+                    break;
+                case "translationbatchsize":
+                    translationBatchSize = parseIntSetting(settingName, settingValue, translationBatchSize, 1);
+                    break;
+                case "translationmemoryenabled":
+                    translationMemoryEnabled = Boolean.parseBoolean(settingValue);
+                    break;
+                case "translationmemorymaxchars":
+                    translationMemoryMaxChars = parseIntSetting(settingName, settingValue, translationMemoryMaxChars, 0);
+                    break;
+                case "translationmemoryttldays":
+                    translationMemoryTtlDays = parseIntSetting(settingName, settingValue, translationMemoryTtlDays, 0);
+                    break;
+                case "documentrenderthreads":
+                    documentRenderThreads = parseIntSetting(settingName, settingValue, documentRenderThreads, 1);
+                    break;
+                case "documentencodethreads":
+                    documentEncodeThreads = parseIntSetting(settingName, settingValue, documentEncodeThreads, 1);
+                    break;
+                case "documentocrthreads":
+                    documentOcrThreads = parseIntSetting(settingName, settingValue, documentOcrThreads, 1);
+                    break;
+                case "documenttranslatethreads":
+                    documentTranslateThreads = parseIntSetting(settingName, settingValue, documentTranslateThreads, 1);
+                    break;
+                case "documentpagesinflight":
+                    documentPagesInFlight = parseIntSetting(settingName, settingValue, documentPagesInFlight, 1);
+                    break;
+                case "documentchunkmaxpages":
+                    documentChunkMaxPages = parseIntSetting(settingName, settingValue, documentChunkMaxPages, 1);
+                    break;
+                case "documentchunkmaxbytes":
+                    documentChunkMaxBytes = parseIntSetting(settingName, settingValue, documentChunkMaxBytes, 1);
+                    break;
+                case "documentchunkconcurrency":
+                    documentChunkConcurrency = parseIntSetting(settingName, settingValue, documentChunkConcurrency, 1);
+                    break;
+                case "documentchunkretries":
+                    documentChunkRetries = parseIntSetting(settingName, settingValue, documentChunkRetries, 0);
+                    break;
+                case "documentnativetextenabled":
+                    documentNativeTextEnabled = Boolean.parseBoolean(settingValue);
+                    break;
+                case "documentnativetextminchars":
+                    documentNativeTextMinChars = parseIntSetting(settingName, settingValue, documentNativeTextMinChars, 1);
+                    break;
+                case "documentnativetextmaximagepercent":
+                    documentNativeTextMaxImagePercent = parseIntSetting(settingName, settingValue, documentNativeTextMaxImagePercent, 0);
+                    break;
+                case "documentrenderdpi":
+                    documentRenderDpi = parseIntSetting(settingName, settingValue, documentRenderDpi, 1);
+                    break;
+                case "documentimagecolor":
+                    documentImageColor = settingValue;
+                    break;
+                case "documentjpegquality":
+                    documentJpegQuality = Math.min(100, parseIntSetting(settingName, settingValue, documentJpegQuality, 1));
+                    break;
+                case "documentocrmaxbytes":
+                    documentOcrMaxBytes = parseIntSetting(settingName, settingValue, documentOcrMaxBytes, 0);
+                    break;
+                case "fontdirectory":
+                    fontDirectory = settingValue;
+                    break;
+                case "pdfspillthresholdbytes":
+                    pdfSpillThresholdBytes = parseIntSetting(settingName, settingValue, pdfSpillThresholdBytes, 0);
+                    break;
+                case "providerclientidleminutes":
+                    providerClientIdleMinutes = parseIntSetting(settingName, settingValue, providerClientIdleMinutes, 0);
+                    break;
+                case "authcachettlseconds":
+                    authCacheTtlSeconds = parseIntSetting(settingName, settingValue, authCacheTtlSeconds, 0);
+                    break;
+                case "authnegativecachettlseconds":
+                    authNegativeCacheTtlSeconds = parseIntSetting(settingName, settingValue, authNegativeCacheTtlSeconds, 0);
+                    break;
+                case "resultflushsize":
+                    resultFlushSize = parseIntSetting(settingName, settingValue, resultFlushSize, 1);
+                    break;
+                case "resultflushintervalms":
+                    resultFlushIntervalMs = parseIntSetting(settingName, settingValue, resultFlushIntervalMs, 0);
+                    break;
+                case "textjournalenabled":
+                    textJournalEnabled = Boolean.parseBoolean(settingValue);
+                    break;
+                case "textmaxthrottledruns":
+                    textMaxThrottledRuns = parseIntSetting(settingName, settingValue, textMaxThrottledRuns, 1);
+                    break;
+                case "awstextjoinrows":
+                    awsTextJoinRows = Boolean.parseBoolean(settingValue);
+                    break;
+                case "providermaxretries":
+                    providerMaxRetries = parseIntSetting(settingName, settingValue, providerMaxRetries, 0);
+                    break;
+                case "providerretrybasems":
+                    providerRetryBaseMs = parseIntSetting(settingName, settingValue, providerRetryBaseMs, 1);
+                    break;
+                case "providerretrymaxms":
+                    providerRetryMaxMs = parseIntSetting(settingName, settingValue, providerRetryMaxMs, 1);
+                    break;
+                case "routinghedgeafterms":
+                    routingHedgeAfterMs = parseIntSetting(settingName, settingValue, routingHedgeAfterMs, 0);
+                    break;
+                case "routingbreakeropenseconds":
+                    routingBreakerOpenSeconds = parseIntSetting(settingName, settingValue, routingBreakerOpenSeconds, 1);
+                    break;
+                case "routingbreakererrorpercent":
+                    routingBreakerErrorPercent = parseIntSetting(settingName, settingValue, routingBreakerErrorPercent, 1);
+                    break;
+                case "logcallerlocation":
+                    logCallerLocation = Boolean.parseBoolean(settingValue);
+                    break;
+                case "logsampledpersecond":
+                    logSampledPerSecond = parseIntSetting(settingName, settingValue, logSampledPerSecond, 0);
+                    break;
+                case "azurecostweight":
+                case "googlecostweight":
+                case "awscostweight":
+                    providerCostWeights.put(settingName.substring(0, settingName.length() - "costweight".length()),
+                        parseDoubleSetting(settingName, settingValue, 1));
+                    break;
+                case "azureratelimit":
+                case "googleratelimit":
+                case "awsratelimit":
+                    providerRateLimits.put(settingName.substring(0, settingName.length() - "ratelimit".length()),
+                        parseDoubleSetting(settingName, settingValue, 0));
+                    break;
                 default:
                     logger.info("Unknown config key: " + settingName);                  
                     break;
@@ -191,6 +623,22 @@ public class Configuration {
    throw new Exception("Error loading configuration: " + e.getMessage(), e);
 }
    }
+   private int parseIntSetting(String settingName, String settingValue, int defaultValue, int minimum) {
+    try {
+        return Math.max(minimum, Integer.parseInt(settingValue.trim()));
+    } catch (Exception e) {
+        logger.warn("Invalid value '{}' for config key {}, using {}", settingValue, settingName, defaultValue);
+        return defaultValue;
+    }
+   }
+   private double parseDoubleSetting(String settingName, String settingValue, double defaultValue) {
+    try {
+        return Math.max(0, Double.parseDouble(settingValue.trim()));
+    } catch (Exception e) {
+        logger.warn("Invalid value '{}' for config key {}, using {}", settingValue, settingName, defaultValue);
+        return defaultValue;
+    }
+   }
    public void reconnectBackpack() throws SQLException {
     if (backpackUrl != null && backpackUsername != null && backpackPassword != null) {
         if (backpackConnection != null && !backpackConnection.isClosed()) {
@@ -0,0 +1,525 @@
+package com.infinitecampus.ccs.lingo.translationmemory;
+/* usage example:
+ * TranslationMemory memory = TranslationMemory.getInstance();
+ * Map<Integer, String> hits = memory.lookup(connection, "azure", "es", texts);
+ * ...translate the texts that were not found...
+ * try (TranslationMemory.Writer writer = memory.newWriter(connection)) {
+ *     writer.store("azure", "es", sourceText, translatedText);
+ *     writer.flushIfDue();
+ * }   // close() writes what is left
+ */
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.DigestHelper;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+
+/**
+ * Remembers previous translations so repeated strings are not sent to the provider again.
+ * Entries are keyed by the SHA-256 of the normalized source text, the target language and
+ * the provider. An in-process LRU tier bounded by character count sits in front of the
+ * ccs_lng.CCS_TranslationMemory table:
+ *
+ * <pre>
+ * CREATE TABLE ccs_lng.CCS_TranslationMemory (
+ *     sourceHash      CHAR(64)      NOT NULL,
+ *     targetLanguage  VARCHAR(20)   NOT NULL,
+ *     provider        VARCHAR(20)   NOT NULL,
+ *     translatedText  NVARCHAR(MAX) NOT NULL,
+ *     createdDate     DATETIME      NOT NULL DEFAULT GETDATE(),
+ *     expiresDate     DATETIME      NULL,
+ *     CONSTRAINT PK_CCS_TranslationMemory PRIMARY KEY (sourceHash, targetLanguage, provider)
+ * )
+ * </pre>
+ *
+ * Database access uses the caller's connection and must happen on the thread that owns it.
+ * New translations go to the LRU tier at once and are written to the table by a Writer in
+ * JDBC batches, one transaction per resultFlushSize entries. If the table is missing (SQL
+ * Server error 208) the database tier is switched off and only the LRU tier is used; any
+ * other database error is logged and only costs the lookup or the entries of that write.
+ */
+public class TranslationMemory {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(TranslationMemory.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    // SQL Server allows 2,100 parameters per statement
+    private static final int MAX_HASHES_PER_QUERY = 500;
+    // Approximate per-entry overhead (key plus bookkeeping) counted against the size limit
+    private static final int ENTRY_OVERHEAD_CHARS = 96;
+
+    private static final String SQL_LOOKUP_PREFIX =
+        "SELECT sourceHash, translatedText, expiresDate FROM [ccs_lng].[CCS_TranslationMemory] " +
+        "WHERE provider = ? AND targetLanguage = ? " +
+        "AND (expiresDate IS NULL OR expiresDate > GETDATE()) AND sourceHash IN (";
+
+    // HOLDLOCK keeps two batches storing the same new string from both taking the insert branch
+    private static final String SQL_STORE =
+        "MERGE [ccs_lng].[CCS_TranslationMemory] WITH (HOLDLOCK) AS t " +
+        "USING (SELECT ? AS sourceHash, ? AS targetLanguage, ? AS provider) AS s " +
+        "ON t.sourceHash = s.sourceHash AND t.targetLanguage = s.targetLanguage AND t.provider = s.provider " +
+        "WHEN MATCHED THEN UPDATE SET translatedText = ?, createdDate = GETDATE(), expiresDate = ? " +
+        "WHEN NOT MATCHED THEN INSERT (sourceHash, targetLanguage, provider, translatedText, createdDate, expiresDate) " +
+        "VALUES (s.sourceHash, s.targetLanguage, s.provider, ?, GETDATE(), ?);";
+
+    private static final String SQL_INVALIDATE =
+        "DELETE FROM [ccs_lng].[CCS_TranslationMemory] WHERE provider = ? AND targetLanguage = ?";
+
+    private static final String SQL_PURGE_EXPIRED =
+        "DELETE FROM [ccs_lng].[CCS_TranslationMemory] WHERE expiresDate IS NOT NULL AND expiresDate <= GETDATE()";
+
+    // SQL Server: Invalid object name
+    private static final int ERROR_OBJECT_NOT_FOUND = 208;
+
+    private static volatile TranslationMemory instance;
+
+    private final Configuration config;
+    private final LinkedHashMap<String, MemoryEntry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long cachedChars;
+    private volatile boolean databaseTierAvailable = true;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // A translation waiting for the database tier
+    private static class StoredEntry {
+        private final String hash;
+        private final String targetLanguage;
+        private final String provider;
+        private final String translatedText;
+        private final long expiresAt;
+
+        StoredEntry(String hash, String targetLanguage, String provider, String translatedText, long expiresAt) {
+            this.hash = hash;
+            this.targetLanguage = targetLanguage;
+            this.provider = provider;
+            this.translatedText = translatedText;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Buffers new translations of one batch and writes them to the database tier as JDBC
+     * batches. Like the connection it writes to, a writer belongs to a single thread.
+     */
+    public class Writer implements AutoCloseable {
+        private final Connection connection;
+        private final int flushSize;
+        private final long flushIntervalMillis;
+        private final List<StoredEntry> pending = new ArrayList<>();
+        private long lastFlush = System.currentTimeMillis();
+
+        private Writer(Connection connection) {
+            this.connection = connection;
+            this.flushSize = Math.max(1, config.getResultFlushSize());
+            this.flushIntervalMillis = Math.max(0, config.getResultFlushIntervalMs());
+        }
+
+        /**
+         * Remembers a translation in the in-process tier now and queues it for the database tier.
+         */
+        public void store(String provider, String targetLanguage, String sourceText, String translatedText) {
+            if (!isEnabled() || sourceText == null || translatedText == null || translatedText.trim().isEmpty()) {
+                return;
+            }
+            String hash = hash(sourceText);
+            long expiresAt = expiresAt();
+            putInMemory(key(provider, targetLanguage, hash), translatedText, expiresAt);
+            stores.incrementAndGet();
+
+            if (!databaseTierAvailable || connection == null) {
+                return;
+            }
+            pending.add(new StoredEntry(hash, targetLanguage, provider.toLowerCase(), translatedText, expiresAt));
+            if (pending.size() >= flushSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the queued entries if they have been waiting longer than resultFlushIntervalMs.
+         */
+        public void flushIfDue() {
+            if (!pending.isEmpty() && System.currentTimeMillis() - lastFlush >= flushIntervalMillis) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the queued entries in one transaction. A failure drops them from the database
+         * tier only; they stay in the in-process tier.
+         */
+        public void flush() {
+            lastFlush = System.currentTimeMillis();
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<StoredEntry> entries = new ArrayList<>(pending);
+            pending.clear();
+            if (!databaseTierAvailable) {
+                return;
+            }
+            // The same order in every batch keeps concurrent writers from locking each other in a cycle
+            entries.sort((a, b) -> {
+                int order = a.hash.compareTo(b.hash);
+                if (order == 0) {
+                    order = a.targetLanguage.compareTo(b.targetLanguage);
+                }
+                return order != 0 ? order : a.provider.compareTo(b.provider);
+            });
+            try {
+                writeEntries(connection, entries);
+                logger.logDebug("Stored {} translation memory entries", entries.size());
+            } catch (SQLException e) {
+                handleDatabaseError("store " + entries.size() + " entries", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    private static class MemoryEntry {
+        private final String translatedText;
+        private final long expiresAt;
+
+        MemoryEntry(String translatedText, long expiresAt) {
+            this.translatedText = translatedText;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt > 0 && expiresAt <= now;
+        }
+
+        int size() {
+            return translatedText.length() + ENTRY_OVERHEAD_CHARS;
+        }
+    }
+
+    private TranslationMemory(Configuration config) {
+        this.config = config;
+    }
+
+    public static TranslationMemory getInstance() {
+        if (instance == null) {
+            synchronized (TranslationMemory.class) {
+                if (instance == null) {
+                    instance = new TranslationMemory(Configuration.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return config.isTranslationMemoryEnabled();
+    }
+
+    /**
+     * Looks up previous translations for the given texts.
+     *
+     * @return map of index in sourceTexts to the remembered translation; texts not found are absent
+     */
+    public Map<Integer, String> lookup(Connection connection, String provider, String targetLanguage, List<String> sourceTexts) {
+        Map<Integer, String> found = new HashMap<>();
+        if (!isEnabled() || sourceTexts.isEmpty()) {
+            return found;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<String, List<Integer>> pendingByHash = new LinkedHashMap<>();
+        for (int i = 0; i < sourceTexts.size(); i++) {
+            String hash = hash(sourceTexts.get(i));
+            String translated = getFromMemory(key(provider, targetLanguage, hash), now);
+            if (translated != null) {
+                memoryHits.incrementAndGet();
+                found.put(i, translated);
+            } else {
+                List<Integer> indexes = pendingByHash.get(hash);
+                if (indexes == null) {
+                    indexes = new ArrayList<>();
+                    pendingByHash.put(hash, indexes);
+                }
+                indexes.add(i);
+            }
+        }
+
+        if (!pendingByHash.isEmpty() && databaseTierAvailable && connection != null) {
+            try {
+                lookupDatabase(connection, provider, targetLanguage, pendingByHash, found);
+            } catch (SQLException e) {
+                handleDatabaseError("look up " + pendingByHash.size() + " texts", e);
+            }
+        }
+
+        misses.addAndGet(sourceTexts.size() - found.size());
+        return found;
+    }
+
+    private void lookupDatabase(Connection connection, String provider, String targetLanguage,
+            Map<String, List<Integer>> pendingByHash, Map<Integer, String> found) throws SQLException {
+        List<String> hashes = new ArrayList<>(pendingByHash.keySet());
+        for (int start = 0; start < hashes.size(); start += MAX_HASHES_PER_QUERY) {
+            List<String> chunk = hashes.subList(start, Math.min(start + MAX_HASHES_PER_QUERY, hashes.size()));
+            StringBuilder sql = new StringBuilder(SQL_LOOKUP_PREFIX);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            sql.append(')');
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+                stmt.setString(1, provider.toLowerCase());
+                stmt.setString(2, targetLanguage);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 3, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String hash = rs.getString("sourceHash");
+                        String translated = rs.getString("translatedText");
+                        List<Integer> indexes = pendingByHash.get(hash);
+                        if (indexes == null || translated == null) {
+                            continue;
+                        }
+                        // Keep the row's own expiry so memory never outlives the database copy
+                        Timestamp expiresDate = rs.getTimestamp("expiresDate");
+                        putInMemory(key(provider, targetLanguage, hash), translated,
+                            expiresDate != null ? expiresDate.getTime() : 0);
+                        for (Integer index : indexes) {
+                            databaseHits.incrementAndGet();
+                            found.put(index, translated);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A writer that stores new translations for one batch over the given connection.
+     * Pass a null connection to use the in-process tier only.
+     */
+    public Writer newWriter(Connection connection) {
+        return new Writer(connection);
+    }
+
+    private void writeEntries(Connection connection, List<StoredEntry> entries) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(SQL_STORE)) {
+            for (StoredEntry entry : entries) {
+                stmt.setString(1, entry.hash);
+                stmt.setString(2, entry.targetLanguage);
+                stmt.setString(3, entry.provider);
+                stmt.setString(4, entry.translatedText);
+                setExpires(stmt, 5, entry.expiresAt);
+                stmt.setString(6, entry.translatedText);
+                setExpires(stmt, 7, entry.expiresAt);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                logger.logWarn("Rollback failed: {}", rollbackError.getMessage());
+            }
+            throw e;
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Drops all remembered translations for a provider and language, for example after a
+     * glossary change. Pass a null connection to clear only the in-process tier.
+     */
+    public void invalidate(Connection connection, String provider, String targetLanguage) throws SQLException {
+        String prefix = provider.toLowerCase() + '|' + targetLanguage + '|';
+        synchronized (entries) {
+            Iterator<Map.Entry<String, MemoryEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, MemoryEntry> entry = iterator.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    cachedChars -= entry.getValue().size();
+                    iterator.remove();
+                }
+            }
+        }
+        if (connection != null && databaseTierAvailable) {
+            try (PreparedStatement stmt = connection.prepareStatement(SQL_INVALIDATE)) {
+                stmt.setString(1, provider.toLowerCase());
+                stmt.setString(2, targetLanguage);
+                int deleted = stmt.executeUpdate();
+                logger.logInfo("Invalidated {} translation memory rows for {} / {}", deleted, provider, targetLanguage);
+            }
+        }
+    }
+
+    /**
+     * Removes expired rows from the database tier.
+     */
+    public int purgeExpired(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SQL_PURGE_EXPIRED)) {
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Clears the in-process tier only.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            cachedChars = 0;
+        }
+    }
+
+    public long getHitCount() {
+        return memoryHits.get() + databaseHits.get();
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long getDatabaseHitCount() {
+        return databaseHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getStoreCount() {
+        return stores.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public void logStatistics() {
+        logger.logInfo("Translation memory - memory hits: {}, database hits: {}, misses: {}, stores: {}, evictions: {}",
+            memoryHits.get(), databaseHits.get(), misses.get(), stores.get(), evictions.get());
+    }
+
+    private String getFromMemory(String key, long now) {
+        synchronized (entries) {
+            MemoryEntry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(now)) {
+                entries.remove(key);
+                cachedChars -= entry.size();
+                return null;
+            }
+            return entry.translatedText;
+        }
+    }
+
+    private void putInMemory(String key, String translatedText, long expiresAt) {
+        MemoryEntry entry = new MemoryEntry(translatedText, expiresAt);
+        long maxChars = config.getTranslationMemoryMaxChars();
+        if (entry.size() > maxChars) {
+            return;
+        }
+        synchronized (entries) {
+            MemoryEntry previous = entries.put(key, entry);
+            if (previous != null) {
+                cachedChars -= previous.size();
+            }
+            cachedChars += entry.size();
+
+            // Evict least recently used entries until the tier fits again
+            Iterator<Map.Entry<String, MemoryEntry>> iterator = entries.entrySet().iterator();
+            while (cachedChars > maxChars && iterator.hasNext()) {
+                Map.Entry<String, MemoryEntry> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                cachedChars -= eldest.getValue().size();
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private long expiresAt() {
+        int ttlDays = config.getTranslationMemoryTtlDays();
+        return ttlDays > 0 ? System.currentTimeMillis() + TimeUnit.DAYS.toMillis(ttlDays) : 0;
+    }
+
+    private void setExpires(PreparedStatement stmt, int index, long expiresAt) throws SQLException {
+        if (expiresAt > 0) {
+            stmt.setTimestamp(index, new Timestamp(expiresAt));
+        } else {
+            stmt.setNull(index, Types.TIMESTAMP);
+        }
+    }
+
+    // Only a missing table turns the database tier off; deadlocks, timeouts and the like cost this one call
+    private void handleDatabaseError(String action, SQLException e) {
+        if (isObjectNotFound(e)) {
+            databaseTierAvailable = false;
+            logger.logWarn("Translation memory table unavailable, continuing with in-process cache only: {}", e.getMessage());
+        } else {
+            logger.logWarn("Translation memory could not {}: {}", action, e.getMessage());
+        }
+    }
+
+    private static boolean isObjectNotFound(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            if (next.getErrorCode() == ERROR_OBJECT_NOT_FOUND) {
+                return true;
+            }
+            if (next.getCause() instanceof SQLException
+                    && ((SQLException) next.getCause()).getErrorCode() == ERROR_OBJECT_NOT_FOUND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(String provider, String targetLanguage, String hash) {
+        return provider.toLowerCase() + '|' + targetLanguage + '|' + hash;
+    }
+
+    /**
+     * Hash of the source text with surrounding whitespace removed and inner whitespace collapsed.
+     */
+    static String hash(String sourceText) {
+        return DigestHelper.sha256Hex(sourceText.trim().replaceAll("\\s+", " "));
+    }
+}
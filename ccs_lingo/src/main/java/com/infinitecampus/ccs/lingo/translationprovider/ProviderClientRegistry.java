@@ -0,0 +1,227 @@
+package com.infinitecampus.ccs.lingo.translationprovider;
+/* usage example:
+ * ProviderClientRegistry.Lease<TranslateClient> lease = ProviderClientRegistry.getInstance()
+ *     .acquire("aws", "translate", accessKey + ":" + secretKey, () -> TranslateClient.builder()...build());
+ * TranslateClient client = lease.get();
+ * ...
+ * lease.close();   // returns the client to the registry, it is not closed
+ */
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.AwsClientUtils;
+import com.infinitecampus.ccs.lingo.utility.DigestHelper;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.NamedThreadFactory;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Shares vendor clients (AWS SDK clients, Google gRPC clients, Azure HTTP and blob clients)
+ * across batches in the same JVM. Clients are keyed by provider, client type and a SHA-256
+ * fingerprint of the credentials they were built with, so the credentials themselves are
+ * never kept as keys. Each acquire returns a lease; a client whose leases have all been
+ * closed stays cached until it has been idle for the providerClientIdleMinutes setting.
+ */
+public class ProviderClientRegistry {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(ProviderClientRegistry.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final long EVICTION_INTERVAL_SECONDS = 60;
+
+    private static volatile ProviderClientRegistry instance;
+    private static volatile OkHttpClient sharedHttpClient;
+
+    private final Map<String, Entry<?>> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor =
+        Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("provider-client-evictor"));
+
+    /**
+     * Builds a new client.
+     */
+    public interface ClientFactory<T> {
+        T create() throws IOException;
+    }
+
+    /**
+     * Releases the resources of an evicted client.
+     */
+    public interface ClientCloser<T> {
+        void close(T client) throws Exception;
+    }
+
+    private static class Entry<T> {
+        private final String description;
+        private final T client;
+        private final ClientCloser<T> closer;
+        private int leases;
+        private long lastReleased = System.currentTimeMillis();
+
+        Entry(String description, T client, ClientCloser<T> closer) {
+            this.description = description;
+            this.client = client;
+            this.closer = closer;
+        }
+    }
+
+    /**
+     * A reference to a shared client. Closing the lease hands the client back to the
+     * registry; it must not be used afterwards.
+     */
+    public static class Lease<T> implements AutoCloseable {
+        private final ProviderClientRegistry registry;
+        private final Entry<T> entry;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Lease(ProviderClientRegistry registry, Entry<T> entry) {
+            this.registry = registry;
+            this.entry = entry;
+        }
+
+        public T get() {
+            return entry.client;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                registry.release(entry);
+            }
+        }
+    }
+
+    private ProviderClientRegistry() {
+        evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static ProviderClientRegistry getInstance() {
+        if (instance == null) {
+            synchronized (ProviderClientRegistry.class) {
+                if (instance == null) {
+                    instance = new ProviderClientRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The OkHttp client all REST providers derive their clients from. Clients built from it
+     * with newBuilder() keep their own timeouts but share its connection pool and dispatcher,
+     * so TLS connections to the same host are reused across batches. Authentication is sent
+     * per request, which is why this client is not keyed by credential.
+     */
+    public static OkHttpClient getSharedHttpClient() {
+        if (sharedHttpClient == null) {
+            synchronized (ProviderClientRegistry.class) {
+                if (sharedHttpClient == null) {
+                    sharedHttpClient = new OkHttpClient();
+                }
+            }
+        }
+        return sharedHttpClient;
+    }
+
+    /**
+     * Leases a client that is closed through AutoCloseable, or a close() method if the
+     * client has one, when it is evicted.
+     */
+    public <T> Lease<T> acquire(String provider, String clientType, String credential, ClientFactory<T> factory) throws IOException {
+        return acquire(provider, clientType, credential, factory, client -> AwsClientUtils.safeClose(client, logger));
+    }
+
+    /**
+     * Leases the client for the provider, client type and credential, building it on first use.
+     *
+     * @param provider provider name (azure, google, aws)
+     * @param clientType distinguishes clients of the same provider, such as translate and textract
+     * @param credential the credential material the client is built with; only its digest is kept
+     * @param factory builds the client when none is cached
+     * @param closer releases the client when it is evicted
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Lease<T> acquire(String provider, String clientType, String credential,
+            ClientFactory<T> factory, ClientCloser<T> closer) throws IOException {
+        String key = provider.toLowerCase() + '|' + clientType + '|'
+            + DigestHelper.sha256Hex(credential == null ? "" : credential);
+        synchronized (entries) {
+            Entry<T> entry = (Entry<T>) entries.get(key);
+            if (entry == null) {
+                String description = provider.toLowerCase() + ' ' + clientType;
+                logger.logInfo("Creating shared {} client", description);
+                entry = new Entry<>(description, factory.create(), closer);
+                entries.put(key, entry);
+            }
+            entry.leases++;
+            return new Lease<>(this, entry);
+        }
+    }
+
+    private void release(Entry<?> entry) {
+        synchronized (entries) {
+            entry.leases--;
+            entry.lastReleased = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Closes clients that have had no lease for longer than the idle timeout.
+     */
+    public void evictIdle() {
+        long idleMillis = TimeUnit.MINUTES.toMillis(Configuration.getInstance().getProviderClientIdleMinutes());
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Iterator<Entry<?>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry<?> entry = iterator.next();
+                if (entry.leases <= 0 && now - entry.lastReleased >= idleMillis) {
+                    iterator.remove();
+                    closeClient(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every client that is not leased, for example after credentials were rotated.
+     */
+    public void clear() {
+        synchronized (entries) {
+            Iterator<Entry<?>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry<?> entry = iterator.next();
+                if (entry.leases <= 0) {
+                    iterator.remove();
+                    closeClient(entry);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static <T> void closeClient(Entry<T> entry) {
+        try {
+            entry.closer.close(entry.client);
+            logger.logInfo("Closed idle shared {} client", entry.description);
+        } catch (Exception e) {
+            logger.logWarn("Error closing shared {} client: {}", entry.description, e.getMessage());
+        }
+    }
+}
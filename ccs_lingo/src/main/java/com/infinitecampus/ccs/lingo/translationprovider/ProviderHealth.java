@@ -0,0 +1,334 @@
+package com.infinitecampus.ccs.lingo.translationprovider;
+/* usage example:
+ * ProviderHealth health = ProviderHealth.getInstance();
+ * String azure = ProviderHealth.key("azure", serviceAccount);
+ * ProviderHealth.Permit permit = health.allowRequest(azure);
+ * if (permit != null) {
+ *     long start = System.nanoTime();
+ *     ... call the provider ...
+ *     health.record(permit, "es", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), succeeded);
+ * }
+ * long p99 = health.latencyPercentile(azure, "es", 0.99);   // -1 until enough calls were seen
+ */
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.DigestHelper;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+
+/**
+ * Rolling latency and error statistics of the translation providers, shared by every batch
+ * in the JVM, plus a circuit breaker per provider.
+ *
+ * A provider here is the provider name together with the credential it is called with, as
+ * returned by key(): one district's expired key or exhausted quota opens only its own breaker,
+ * and its latencies are not mixed with those of other accounts.
+ *
+ * Statistics cover the last calls per provider and target language. The breaker opens when
+ * the recent calls of a provider fail at or above routingBreakerErrorPercent, or several fail
+ * in a row, and stays open for routingBreakerOpenSeconds. After that a single trial call is
+ * let through; its outcome closes the breaker or opens it again. Only the permit handed out
+ * for the trial decides this, so calls let through before the breaker opened cannot close it.
+ */
+public class ProviderHealth {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(ProviderHealth.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    // Calls kept per provider and language, and per provider for the breaker
+    private static final int WINDOW = 256;
+    // Percentiles and error rates are not trusted before this many calls
+    private static final int MIN_SAMPLES = 20;
+    private static final int MAX_CONSECUTIVE_FAILURES = 5;
+
+    // Hex digits of the credential digest kept in a key, enough to tell accounts apart in the log
+    private static final int FINGERPRINT_CHARS = 12;
+
+    private static volatile ProviderHealth instance;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * State of a provider's circuit breaker.
+     */
+    public enum BreakerState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // Ring buffer of the most recent call outcomes
+    private static class Window {
+        private final long[] latencies = new long[WINDOW];
+        private final boolean[] failures = new boolean[WINDOW];
+        private int next;
+        private int size;
+        private int failureCount;
+
+        synchronized void add(long latencyMillis, boolean failed) {
+            if (size == WINDOW && failures[next]) {
+                failureCount--;
+            }
+            latencies[next] = latencyMillis;
+            failures[next] = failed;
+            if (failed) {
+                failureCount++;
+            }
+            next = (next + 1) % WINDOW;
+            size = Math.min(WINDOW, size + 1);
+        }
+
+        synchronized long percentile(double p) {
+            if (size < MIN_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, (int) Math.ceil(p * size) - 1)];
+        }
+
+        synchronized double errorRate() {
+            return size < MIN_SAMPLES ? -1 : (double) failureCount / size;
+        }
+
+        synchronized void clear() {
+            next = 0;
+            size = 0;
+            failureCount = 0;
+        }
+    }
+
+    /**
+     * Permission to send one call to a provider, handed back with its outcome.
+     */
+    public static final class Permit {
+        private final String provider;
+        private final boolean trial;
+
+        private Permit(String provider, boolean trial) {
+            this.provider = provider;
+            this.trial = trial;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        /**
+         * True for the single call let through by a half open breaker.
+         */
+        public boolean isTrial() {
+            return trial;
+        }
+    }
+
+    private static class Breaker {
+        private final Window recent = new Window();
+        private BreakerState state = BreakerState.CLOSED;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean trialInFlight;
+    }
+
+    private ProviderHealth() {
+    }
+
+    public static ProviderHealth getInstance() {
+        if (instance == null) {
+            synchronized (ProviderHealth.class) {
+                if (instance == null) {
+                    instance = new ProviderHealth();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The key a provider's statistics and breaker are kept under for a credential, for
+     * example azure#3f2a9c01b7de. Only a digest of the credential is kept.
+     *
+     * @param provider provider name (azure, google, aws)
+     * @param credential the key or account the calls are made with
+     */
+    public static String key(String provider, String credential) {
+        return provider.toLowerCase() + '#'
+            + DigestHelper.sha256Hex(credential == null ? "" : credential).substring(0, FINGERPRINT_CHARS);
+    }
+
+    /**
+     * Records the outcome of a provider call.
+     *
+     * @param permit the permit the call was sent with
+     * @param targetLanguage target language of the call
+     * @param latencyMillis time the call took, including failed calls
+     * @param succeeded whether the provider returned a translation
+     */
+    public void record(Permit permit, String targetLanguage, long latencyMillis, boolean succeeded) {
+        String provider = permit.provider;
+        windows.computeIfAbsent(windowKey(provider, targetLanguage), k -> new Window()).add(latencyMillis, !succeeded);
+        Breaker breaker = breaker(provider);
+        synchronized (breaker) {
+            breaker.recent.add(latencyMillis, !succeeded);
+            boolean trial = permit.trial && breaker.state == BreakerState.HALF_OPEN;
+            if (trial) {
+                breaker.trialInFlight = false;
+            }
+            if (succeeded) {
+                breaker.consecutiveFailures = 0;
+                if (trial) {
+                    breaker.state = BreakerState.CLOSED;
+                    breaker.recent.clear();
+                    logger.logInfo("Circuit for provider {} closed", provider);
+                }
+                return;
+            }
+            breaker.consecutiveFailures++;
+            if (trial) {
+                open(provider, breaker);
+                return;
+            }
+            // Calls that started before the breaker opened leave it to its timer and trial call
+            if (breaker.state != BreakerState.CLOSED) {
+                return;
+            }
+            double errorRate = breaker.recent.errorRate();
+            double threshold = Configuration.getInstance().getRoutingBreakerErrorPercent() / 100.0;
+            if (breaker.consecutiveFailures >= MAX_CONSECUTIVE_FAILURES || errorRate >= threshold) {
+                open(provider, breaker);
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit whose call ended without an outcome worth recording. A trial
+     * permit lets the next caller make the trial call.
+     */
+    public void release(Permit permit) {
+        if (!permit.trial) {
+            return;
+        }
+        Breaker breaker = breaker(permit.provider);
+        synchronized (breaker) {
+            if (breaker.state == BreakerState.HALF_OPEN) {
+                breaker.trialInFlight = false;
+            }
+        }
+    }
+
+    private static void open(String provider, Breaker breaker) {
+        int openSeconds = Configuration.getInstance().getRoutingBreakerOpenSeconds();
+        if (breaker.state != BreakerState.OPEN) {
+            logger.logWarn("Circuit for provider {} opened for {} seconds after {} consecutive failures",
+                provider, openSeconds, breaker.consecutiveFailures);
+        }
+        breaker.state = BreakerState.OPEN;
+        breaker.openUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(openSeconds);
+    }
+
+    /**
+     * A permit to send a call to the provider, or null if it is refused. Once an open
+     * breaker's time is up, the first caller gets the trial permit and everyone else is
+     * still refused until that call is recorded or released.
+     */
+    public Permit allowRequest(String provider) {
+        Breaker breaker = breaker(provider);
+        synchronized (breaker) {
+            switch (breaker.state) {
+                case CLOSED:
+                    return new Permit(provider, false);
+                case OPEN:
+                    if (System.currentTimeMillis() < breaker.openUntil) {
+                        return null;
+                    }
+                    breaker.state = BreakerState.HALF_OPEN;
+                    breaker.trialInFlight = true;
+                    logger.logInfo("Circuit for provider {} half open, sending a trial call", provider);
+                    return new Permit(provider, true);
+                default:
+                    if (breaker.trialInFlight) {
+                        return null;
+                    }
+                    breaker.trialInFlight = true;
+                    return new Permit(provider, true);
+            }
+        }
+    }
+
+    /**
+     * A permit for a call sent although the breaker refuses the provider, as a last resort.
+     * Its outcome is recorded but never closes the breaker.
+     */
+    public Permit bypass(String provider) {
+        return new Permit(provider, false);
+    }
+
+    /**
+     * True if the provider is in rotation, without claiming the trial call of a breaker
+     * that is about to half open.
+     */
+    public boolean isAvailable(String provider) {
+        Breaker breaker = breaker(provider);
+        synchronized (breaker) {
+            switch (breaker.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    return System.currentTimeMillis() >= breaker.openUntil;
+                default:
+                    return !breaker.trialInFlight;
+            }
+        }
+    }
+
+    public BreakerState getState(String provider) {
+        Breaker breaker = breaker(provider);
+        synchronized (breaker) {
+            return breaker.state;
+        }
+    }
+
+    /**
+     * Latency percentile in milliseconds of the provider for a language, or -1 while fewer
+     * than 20 calls have been recorded.
+     *
+     * @param percentile between 0 and 1, for example 0.5 for the median
+     */
+    public long latencyPercentile(String provider, String targetLanguage, double percentile) {
+        Window window = windows.get(windowKey(provider, targetLanguage));
+        return window == null ? -1 : window.percentile(percentile);
+    }
+
+    /**
+     * Share of recent calls of the provider for a language that failed, or -1 while fewer
+     * than 20 calls have been recorded.
+     */
+    public double errorRate(String provider, String targetLanguage) {
+        Window window = windows.get(windowKey(provider, targetLanguage));
+        return window == null ? -1 : window.errorRate();
+    }
+
+    /**
+     * Forgets all statistics and closes every breaker.
+     */
+    public void reset() {
+        windows.clear();
+        breakers.clear();
+    }
+
+    private Breaker breaker(String provider) {
+        return breakers.computeIfAbsent(provider.toLowerCase(), k -> new Breaker());
+    }
+
+    private static String windowKey(String provider, String targetLanguage) {
+        return provider.toLowerCase() + '|' + (targetLanguage == null ? "" : targetLanguage.toLowerCase());
+    }
+}
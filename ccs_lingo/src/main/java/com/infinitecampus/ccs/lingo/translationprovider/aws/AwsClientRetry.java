@@ -0,0 +1,36 @@
+package com.infinitecampus.ccs.lingo.translationprovider.aws;
+
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+
+/**
+ * Client configuration shared by the AWS Translate and Textract clients.
+ * Throttled calls are retried by the RequestRateLimiter the call runs under, which also slows
+ * the whole credential down. The SDK keeps retrying network and server errors with its default
+ * policy but gives throttling errors straight back, so the two never stack their retries.
+ */
+final class AwsClientRetry {
+
+    private AwsClientRetry() {
+    }
+
+    /**
+     * The override configuration for a client whose calls go through a RequestRateLimiter.
+     */
+    static ClientOverrideConfiguration overrideConfiguration() {
+        RetryCondition sdkDefault = RetryCondition.defaultRetryCondition();
+        RetryPolicy retryPolicy = RetryPolicy.defaultRetryPolicy().toBuilder()
+            .retryCondition(context -> !isThrottling(context.exception()) && sdkDefault.shouldRetry(context))
+            .build();
+        return ClientOverrideConfiguration.builder()
+            .retryPolicy(retryPolicy)
+            .build();
+    }
+
+    private static boolean isThrottling(SdkException exception) {
+        return exception instanceof SdkServiceException && ((SdkServiceException) exception).isThrottlingException();
+    }
+}
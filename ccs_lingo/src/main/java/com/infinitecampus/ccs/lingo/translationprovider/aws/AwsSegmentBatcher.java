@@ -0,0 +1,179 @@
+package com.infinitecampus.ccs.lingo.translationprovider.aws;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.infinitecampus.ccs.lingo.utility.PartialBatchException;
+import com.infinitecampus.ccs.lingo.utility.ProviderThrottledException;
+
+/**
+ * Packs single-line segments, such as the Textract lines of one page, into newline-delimited
+ * AWS Translate requests.
+ * The synchronous TranslateText API takes one text of up to 10,000 UTF-8 bytes and keeps
+ * line breaks intact, so several segments joined by '\n' come back as the same number of
+ * lines. When a response does not split back into exactly one line per segment, the
+ * segments of that request are translated one call at a time instead.
+ *
+ * A failed request does not stop the ones after it unless it was throttled. If other
+ * requests succeeded, a PartialBatchException with their translations is thrown.
+ */
+class AwsSegmentBatcher {
+
+    // Stay below the 10,000 byte service limit to leave room for the delimiters
+    static final int MAX_REQUEST_BYTES = 9000;
+    private static final String DELIMITER = "\n";
+
+    /**
+     * A single TranslateText call for the target language.
+     */
+    interface SegmentTranslator {
+        String translate(String text) throws Exception;
+    }
+
+    private final SegmentTranslator translator;
+    private final boolean joinSegments;
+    private int requestCount;
+    private int fallbackCount;
+
+    AwsSegmentBatcher(SegmentTranslator translator) {
+        this(translator, true);
+    }
+
+    /**
+     * @param joinSegments false to send every segment on its own, for segments that are not
+     *        parts of the same text and must not be translated in each other's context
+     */
+    AwsSegmentBatcher(SegmentTranslator translator, boolean joinSegments) {
+        this.translator = translator;
+        this.joinSegments = joinSegments;
+    }
+
+    /**
+     * Translates the segments, returning results in the same order. Blank segments are
+     * returned unchanged and segments that contain line breaks are always sent on their own.
+     */
+    List<String> translate(List<String> segments) throws Exception {
+        String[] results = new String[segments.size()];
+        List<List<Integer>> packs = new ArrayList<>();
+        List<Integer> pack = new ArrayList<>();
+        int packBytes = 0;
+
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (isBlank(segment)) {
+                results[i] = segment;
+                continue;
+            }
+            if (!joinSegments || segment.indexOf('\n') >= 0 || segment.indexOf('\r') >= 0) {
+                packs.add(Collections.singletonList(i));
+                continue;
+            }
+
+            int segmentBytes = segment.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (!pack.isEmpty() && packBytes + segmentBytes > MAX_REQUEST_BYTES) {
+                packs.add(pack);
+                pack = new ArrayList<>();
+                packBytes = 0;
+            }
+            pack.add(i);
+            packBytes += segmentBytes;
+        }
+        if (!pack.isEmpty()) {
+            packs.add(pack);
+        }
+
+        Exception failure = null;
+        for (List<Integer> next : packs) {
+            try {
+                translatePack(segments, next, results);
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                if (ProviderThrottledException.isThrottled(e)) {
+                    // The requests after it would only be throttled as well
+                    break;
+                }
+            }
+        }
+
+        List<String> translated = new ArrayList<>(results.length);
+        int translatedCount = 0;
+        for (int i = 0; i < results.length; i++) {
+            translated.add(results[i]);
+            if (results[i] != null && !isBlank(segments.get(i))) {
+                translatedCount++;
+            }
+        }
+        if (failure != null) {
+            if (translatedCount == 0) {
+                throw failure;
+            }
+            throw new PartialBatchException("Translated " + translatedCount + " of " + segments.size() + " segments",
+                translated, failure);
+        }
+        return translated;
+    }
+
+    int getRequestCount() {
+        return requestCount;
+    }
+
+    int getFallbackCount() {
+        return fallbackCount;
+    }
+
+    private void translatePack(List<String> segments, List<Integer> pack, String[] results) throws Exception {
+        if (pack.size() == 1) {
+            results[pack.get(0)] = translateSingle(segments.get(pack.get(0)));
+            return;
+        }
+
+        StringBuilder joined = new StringBuilder();
+        for (Integer index : pack) {
+            if (joined.length() > 0) {
+                joined.append(DELIMITER);
+            }
+            joined.append(segments.get(index));
+        }
+
+        String[] parts = split(translateSingle(joined.toString()));
+        if (parts != null && parts.length == pack.size()) {
+            for (int i = 0; i < parts.length; i++) {
+                results[pack.get(i)] = parts[i];
+            }
+            return;
+        }
+
+        // Line count changed, so the result cannot be mapped back reliably
+        fallbackCount++;
+        for (Integer index : pack) {
+            results[index] = translateSingle(segments.get(index));
+        }
+    }
+
+    private static boolean isBlank(String segment) {
+        return segment == null || segment.trim().isEmpty();
+    }
+
+    private String translateSingle(String text) throws Exception {
+        requestCount++;
+        return translator.translate(text);
+    }
+
+    private static String[] split(String translated) {
+        if (translated == null) {
+            return null;
+        }
+        String normalized = translated.replace("\r\n", "\n").replaceAll("^\n+|\n+$", "");
+        String[] parts = normalized.split("\n", -1);
+        for (String part : parts) {
+            if (part.trim().isEmpty()) {
+                return null;
+            }
+        }
+        return parts;
+    }
+}
@@ -1,17 +1,13 @@
 package com.infinitecampus.ccs.lingo.translationprovider.aws;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.ByteBuffer;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 
@@ -22,24 +18,41 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.infinitecampus.ccs.lingo.authenticate.Authenticate;
+import com.infinitecampus.ccs.lingo.authenticate.TokenContext;
 import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationprovider.ProviderClientRegistry;
 import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.MetricsRegistry;
+import com.infinitecampus.ccs.lingo.utility.PageImageEncoder;
+import com.infinitecampus.ccs.lingo.utility.PageTextAnalyzer;
+import com.infinitecampus.ccs.lingo.utility.SpillBuffer;
+import com.infinitecampus.ccs.lingo.utility.TextLayout;
 import com.infinitecampus.ccs.lingo.utility.FileUtilityHelper;
+import com.infinitecampus.ccs.lingo.utility.PDFPageHelper;
+import com.infinitecampus.ccs.lingo.utility.FontAssetManager;
+import com.infinitecampus.ccs.lingo.utility.NamedThreadFactory;
+import com.infinitecampus.ccs.lingo.utility.ProviderThrottledException;
+import com.infinitecampus.ccs.lingo.utility.RequestRateLimiter;
 
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.TextractClientBuilder;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.textract.model.Document;
 import software.amazon.awssdk.services.translate.TranslateClient;
+import software.amazon.awssdk.services.translate.TranslateClientBuilder;
 
 import software.amazon.awssdk.services.textract.model.*;
 import software.amazon.awssdk.services.translate.model.*;
@@ -48,16 +61,11 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.FontCache;
-import org.apache.pdfbox.pdmodel.font.FontInfo;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
 import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
-import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.pdfbox.tools.imageio.ImageIOUtil;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
 /**
@@ -80,8 +88,6 @@ public class AwsTranslateDocument implements AutoCloseable {
     // Constants
     private static final Region AWS_REGION = Region.US_EAST_2;
     private static final String DEFAULT_SOURCE_LANGUAGE = "en";
-    private static final String FONT_URL = "https://github.com/googlefonts/noto-fonts/raw/main/hinted/ttf/NotoSans/NotoSans-Regular.ttf";
-    //"https://github.com/googlefonts/noto-fonts/raw/main/hinted/ttf/NotoSans/NotoSans-Regular.ttf";
     private static final String SQL_FETCH_CONFIG = 
         "SELECT TOP 1 JSON_VALUE(serviceAccount,'$.access_key') [access_key], " +
         "JSON_VALUE(serviceAccount,'$.secret_key') [secret_key], " +
@@ -95,18 +101,26 @@ public class AwsTranslateDocument implements AutoCloseable {
     private final Connection campusConnection;
     private final Connection backpackConnection;
     private final String authToken;
+    private final TokenContext tokenContext;
     private final Configuration config;
     private String outputFileLocation;
     
     // AWS services
+    private ProviderClientRegistry.Lease<TextractClient> textractClientLease;
+    private ProviderClientRegistry.Lease<TranslateClient> translateClientLease;
     private TextractClient awsTextractClient;
     private TranslateClient awsTranslateClient;
     private AwsConfiguration awsConfig;
+    // Shared with the text path for the same access key; Textract is metered apart from Translate
+    private RequestRateLimiter translateRateLimiter;
+    private RequestRateLimiter textractRateLimiter;
     
     // PDF processing
     private PDDocument translatedDocument;
     private PDFont unicodeFont;
-    private boolean isUnicodeFontAvailable = false;
+    private String fontLanguage;
+    // Fits translated lines into their OCR boxes with the font of the current document
+    private TextLayout textLayout;
 
     /**
      * Custom exception for translation-related errors.
@@ -126,23 +140,6 @@ public class AwsTranslateDocument implements AutoCloseable {
         }
     }
 
-    /**
- * Constants for font handling
- */
-private static class FontConstants {
-    // Primary font URL from Google Fonts
-    static final String PRIMARY_FONT_URL = "https://github.com/googlefonts/noto-fonts/raw/main/hinted/ttf/NotoSans/NotoSans-Regular.ttf";
-    
-    // Backup font URLs in case primary fails
-    static final String[] BACKUP_FONT_URLS = {
-        "https://raw.githubusercontent.com/googlefonts/noto-fonts/main/hinted/ttf/NotoSans/NotoSans-Regular.ttf",
-        "https://fonts.gstatic.com/s/notosans/v28/o-0IIpQlx3QUlC5A4PNr5TRA.woff2"
-    };
-
-    // Local font path in resources
-    static final String LOCAL_FONT_RESOURCE = "/fonts/NotoSans-Regular.ttf";
-}
-
     /**
      * Configuration class for AWS credentials and settings.
      */
@@ -150,11 +147,14 @@ private static class FontConstants {
         private final String accessKey;
         private final String secretKey;
         private final Region region;
+        // Set only to send requests to a stand-in instead of AWS
+        private final URI endpoint;
 
-        public AwsConfiguration(String accessKey, String secretKey, Region region) {
+        public AwsConfiguration(String accessKey, String secretKey, Region region, String endpoint) {
             this.accessKey = accessKey;
             this.secretKey = secretKey;
             this.region = region;
+            this.endpoint = endpoint == null || endpoint.trim().isEmpty() ? null : URI.create(endpoint.trim());
         }
     }
 
@@ -180,13 +180,178 @@ private static class FontConstants {
     }
 
     /**
-     * Helper class to store font information.
+     * State carried through the page pipeline for a single page. Pages read from their
+     * native text layer have lines but no image. The JPEG is kept after OCR because the
+     * same bytes become the page image of the translated PDF.
+     */
+    private static class PageWork {
+        private final int pageIndex;
+        private BufferedImage image;
+        private byte[] jpeg;
+        // Size of the rendered page in points
+        private float pageWidth;
+        private float pageHeight;
+        private List<TextLine> lines;
+
+        PageWork(int pageIndex) {
+            this.pageIndex = pageIndex;
+        }
+    }
+
+    /**
+     * A copy of the source document with the renderer and text analyzer that read it.
+     */
+    private static class PageSource {
+        private final PDDocument document;
+        private final PDFRenderer renderer;
+        private final PageTextAnalyzer analyzer;
+
+        PageSource(PDDocument document, PageTextAnalyzer analyzer) {
+            this.document = document;
+            this.renderer = new PDFRenderer(document);
+            this.analyzer = analyzer;
+        }
+    }
+
+    /**
+     * Runs the render, encode, OCR and translate stages for each page on their own
+     * thread pools. The render stage first reads the page's native text layer and only
+     * renders pages without one; those pages skip encode and OCR. Rendered pages are
+     * encoded once by the PageImageEncoder, and the rendered image is dropped as soon
+     * as its JPEG exists. PDFRenderer and
+     * PDFTextStripper are not thread-safe, so every render thread borrows its own copy
+     * of the source document and the source document itself is left to compose.
      */
-    private static class FontInfo {
-        int fontSize;
-        float textHeight;
-        float textWidth;
+    private class PagePipeline implements AutoCloseable {
+        private final BlockingQueue<PageSource> sources;
+        private final List<PDDocument> documentCopies = new ArrayList<>();
+        private final ExecutorService renderPool;
+        private final ExecutorService encodePool;
+        private final ExecutorService ocrPool;
+        private final ExecutorService translatePool;
+        private final String targetLanguage;
+        private final PageImageEncoder imageEncoder;
+        private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+
+        PagePipeline(File inputFile, PDDocument inputDocument, String targetLanguage) throws IOException {
+            int pageCount = Math.max(1, inputDocument.getNumberOfPages());
+            int renderThreads = Math.max(1, Math.min(config.getDocumentRenderThreads(), pageCount));
+            this.targetLanguage = targetLanguage;
+            this.imageEncoder = PageImageEncoder.fromConfiguration(config);
+            this.sources = new ArrayBlockingQueue<>(renderThreads);
+            try {
+                for (int i = 0; i < renderThreads; i++) {
+                    PDDocument copy = PDDocument.load(inputFile);
+                    documentCopies.add(copy);
+                    sources.add(new PageSource(copy, config.isDocumentNativeTextEnabled()
+                        ? new PageTextAnalyzer(config.getDocumentNativeTextMinChars(),
+                            config.getDocumentNativeTextMaxImagePercent()) : null));
+                }
+            } catch (IOException e) {
+                closeDocumentCopies();
+                throw e;
+            }
+            this.renderPool = Executors.newFixedThreadPool(renderThreads, new NamedThreadFactory("ccs-lingo-aws-render"));
+            this.encodePool = Executors.newFixedThreadPool(config.getDocumentEncodeThreads(), new NamedThreadFactory("ccs-lingo-aws-encode"));
+            this.ocrPool = Executors.newFixedThreadPool(config.getDocumentOcrThreads(), new NamedThreadFactory("ccs-lingo-aws-ocr"));
+            this.translatePool = Executors.newFixedThreadPool(config.getDocumentTranslateThreads(), new NamedThreadFactory("ccs-lingo-aws-translate"));
+        }
+
+        CompletableFuture<PageWork> submit(int pageIndex) {
+            return CompletableFuture.supplyAsync(() -> render(new PageWork(pageIndex)), renderPool)
+                .thenApplyAsync(this::encode, encodePool)
+                .thenApplyAsync(this::recognize, ocrPool)
+                .thenApplyAsync(this::translate, translatePool);
+        }
+
+        private PageWork render(PageWork work) {
+            PageSource source = null;
+            try {
+                source = sources.take();
+                if (source.analyzer != null) {
+                    List<PageTextAnalyzer.Line> nativeLines = source.analyzer.analyze(source.document, work.pageIndex);
+                    if (nativeLines != null) {
+                        work.lines = new ArrayList<>(nativeLines.size());
+                        for (PageTextAnalyzer.Line line : nativeLines) {
+                            work.lines.add(new TextLine(line.getLeft(), line.getTop(), line.getWidth(),
+                                line.getHeight(), line.getText(), null));
+                        }
+                        metrics.counter("document.pages.native").increment();
+                        return work;
+                    }
+                }
+                long start = System.nanoTime();
+                float scale = imageEncoder.getRenderScale();
+                work.image = source.renderer.renderImage(work.pageIndex, scale, imageEncoder.getImageType());
+                work.pageWidth = work.image.getWidth() / scale;
+                work.pageHeight = work.image.getHeight() / scale;
+                metrics.histogram("document.render.latency").recordSince(start);
+                metrics.counter("document.pages.rendered").increment();
+                return work;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (source != null) {
+                    sources.add(source);
+                }
+            }
+        }
+
+        private PageWork encode(PageWork work) {
+            if (work.image == null) {
+                return work;
+            }
+            try {
+                long start = System.nanoTime();
+                work.jpeg = imageEncoder.encode(work.image).getBytes();
+                work.image = null;
+                metrics.histogram("document.encode.latency").recordSince(start);
+                metrics.counter("document.image.bytes").add(work.jpeg.length);
+                return work;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private PageWork recognize(PageWork work) {
+            if (work.jpeg == null) {
+                return work;
+            }
+            long start = System.nanoTime();
+            work.lines = extractTextLines(work.jpeg);
+            metrics.histogram("document.ocr.latency").recordSince(start);
+            return work;
+        }
+
+        private PageWork translate(PageWork work) {
+            translateTextLines(work.lines, targetLanguage);
+            return work;
+        }
+
+        private void closeDocumentCopies() {
+            for (PDDocument copy : documentCopies) {
+                try {
+                    copy.close();
+                } catch (IOException e) {
+                    logger.logWarn("Error closing render copy of document: {}", e.getMessage());
+                }
+            }
+            documentCopies.clear();
+        }
+
+        @Override
+        public void close() {
+            renderPool.shutdownNow();
+            encodePool.shutdownNow();
+            ocrPool.shutdownNow();
+            translatePool.shutdownNow();
+            closeDocumentCopies();
+        }
     }
+
         /**
      * Builder class for AwsTranslateDocument.
      */
@@ -195,6 +360,7 @@ private static class FontConstants {
         private Connection backpackConnection;
         private String token;
         private Configuration config;
+        private TokenContext context;
 
         public Builder withCampusConnection(Connection connection) {
             this.campusConnection = connection;
@@ -216,17 +382,28 @@ private static class FontConstants {
             return this;
         }
 
+        /**
+         * Uses a token already resolved by TokenBootstrap, which skips the authentication
+         * and configuration queries.
+         */
+        public Builder withContext(TokenContext context) {
+            this.context = context;
+            this.token = context.getToken();
+            return this;
+        }
+
         public AwsTranslateDocument build() throws SecurityException {
             logger.logInfo("Building AwsTranslateDocument with token: {}", token);
-            return new AwsTranslateDocument(campusConnection, backpackConnection, token, config);
+            return new AwsTranslateDocument(campusConnection, backpackConnection, token, config, context);
         }
     }
 
     /**
      * Private constructor - use Builder to create instances.
      */
-    private AwsTranslateDocument(Connection campusConnection, Connection backpackConnection, String token, Configuration configuration) {
-        if (!Authenticate.isTranslatedDocumentAuthenticated(campusConnection, token)) {
+    private AwsTranslateDocument(Connection campusConnection, Connection backpackConnection, String token, Configuration configuration,
+            TokenContext context) {
+        if (context == null && !Authenticate.isTranslatedDocumentAuthenticated(campusConnection, token)) {
             logger.logError("Authentication failed for token: {}", token);
             throw new SecurityException("Invalid Token. Access Denied.");
         }
@@ -235,6 +412,7 @@ private static class FontConstants {
         this.backpackConnection = backpackConnection;
         this.authToken = token;
         this.config = configuration;
+        this.tokenContext = context;
 
         try {
             initialize();
@@ -251,7 +429,6 @@ private static class FontConstants {
         logger.logDebug("Initializing AWS document translation service");
         fetchConfigInfo();
         initializeTranslationServices();
-        initializeFont();
         logger.logDebug("Initialization completed successfully");
     }
 
@@ -260,6 +437,18 @@ private static class FontConstants {
      */
     private void fetchConfigInfo() throws NoRecordsFoundException, SQLException {
         logger.logDebug("Fetching configuration information");
+        if (tokenContext != null) {
+            awsConfig = new AwsConfiguration(
+                tokenContext.getServiceAccountValue("access_key"),
+                tokenContext.getServiceAccountValue("secret_key"),
+                AWS_REGION,
+                tokenContext.getServiceAccountValue("endpoint_override")
+            );
+            outputFileLocation = tokenContext.getOutputDirectory();
+            FileUtilityHelper.createFolderIfNotExists(outputFileLocation);
+            logger.logDebug("Configuration taken from token context");
+            return;
+        }
         try (PreparedStatement pstmt = campusConnection.prepareStatement(SQL_FETCH_CONFIG)) {
             pstmt.setString(1, authToken);
             logger.logDebug("Executing query with token: {}", authToken);
@@ -272,7 +461,8 @@ private static class FontConstants {
                 awsConfig = new AwsConfiguration(
                     rs.getString("access_key"),
                     rs.getString("secret_key"),
-                    AWS_REGION
+                    AWS_REGION,
+                    null
                 );
                 
                 // Setup output directory
@@ -294,124 +484,48 @@ private static class FontConstants {
             awsConfig.secretKey
         );
 
-        awsTextractClient = TextractClient.builder()
-            .region(awsConfig.region)
-            .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
-            .build();
+        String credential = awsConfig.region + ":" + awsConfig.accessKey + ":" + awsConfig.secretKey + ":" + awsConfig.endpoint;
+        ProviderClientRegistry registry = ProviderClientRegistry.getInstance();
+        textractClientLease = registry.acquire("aws", "textract", credential, () -> {
+            TextractClientBuilder builder = TextractClient.builder()
+                .region(awsConfig.region)
+                .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
+                .overrideConfiguration(AwsClientRetry.overrideConfiguration());
+            if (awsConfig.endpoint != null) {
+                builder.endpointOverride(awsConfig.endpoint);
+            }
+            return builder.build();
+        });
+        awsTextractClient = textractClientLease.get();
             
-        awsTranslateClient = TranslateClient.builder()
-            .region(awsConfig.region)
-            .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
-            .build();
+        translateClientLease = registry.acquire("aws", "translate", credential, () -> {
+            TranslateClientBuilder builder = TranslateClient.builder()
+                .region(awsConfig.region)
+                .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
+                .overrideConfiguration(AwsClientRetry.overrideConfiguration());
+            if (awsConfig.endpoint != null) {
+                builder.endpointOverride(awsConfig.endpoint);
+            }
+            return builder.build();
+        });
+        awsTranslateClient = translateClientLease.get();
+
+        double rateLimit = config.getProviderRateLimit("aws");
+        translateRateLimiter = RequestRateLimiter.forProvider("aws", awsConfig.accessKey, rateLimit);
+        textractRateLimiter = RequestRateLimiter.forProvider("aws-textract", awsConfig.accessKey, rateLimit);
             
-        translatedDocument = new PDDocument();
-        
         logger.logDebug("Translation services initialized");
     }
-/**
- * Initializes the font system for document translation.
- * Attempts to load Unicode font with retry mechanism and fallback options.
- */
-private void initializeFont() {
-    int maxRetries = 3;
-    boolean fontInitialized = false;
-    
-    for (int attempt = 1; attempt <= maxRetries && !fontInitialized; attempt++) {
-        try {
-            logger.logDebug("Initializing Unicode font for document translation (Attempt {}/{})", attempt, maxRetries);
-            
-            File tempFont = File.createTempFile("NotoSans_" + System.currentTimeMillis(), ".ttf");
-            tempFont.deleteOnExit();
-
-            URL fontUrl = new URL(FONT_URL);
-            downloadFontWithVerification(fontUrl, tempFont);
-
-            if (tempFont.length() > 0) {
-                try (FileInputStream fis = new FileInputStream(tempFont)) {
-                    unicodeFont = PDType0Font.load(translatedDocument, fis);
-                    if (verifyFont(unicodeFont)) {
-                        isUnicodeFontAvailable = true;
-                        fontInitialized = true;
-                        logger.logInfo("Successfully loaded Unicode font");
-                        return; // Exit method on successful initialization
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.logWarn("Unicode font initialization attempt {} failed: {}", attempt, e.getMessage());
-            if (attempt < maxRetries) {
-                try {
-                    Thread.sleep(1000 * attempt);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        }
-    }
-    // If we get here, Unicode font initialization failed
-    logger.logWarn("Unicode font initialization failed after {} attempts. Switching to basic font...", maxRetries);
-    fallbackToBasicFont();
-    logger.logInfo("Successfully initialized fallback font. Translation will continue with limited character support.");
-}
-/**
- * Verifies that the font can handle both ASCII and Unicode characters.
- * @param font The font to verify
- * @return true if font passes verification, false otherwise
- */
-private boolean verifyFont(PDFont font) {
-    try {
-        // Test string contains both ASCII and Unicode characters
-        String testString = "Hello世界";
-        font.encode(testString);
-        return true;
-    } catch (Exception e) {
-        logger.logWarn("Font verification failed: {}", e.getMessage());
-        return false;
-    }
-}
-/**
- * Downloads the font file with verification checks.
- * @param url The URL to download the font from
- * @param destination The file to save the font to
- * @throws IOException if download fails or verification fails
- */
-private void downloadFontWithVerification(URL url, File destination) throws IOException {
-    // Setup connection with reasonable timeouts
-    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-    connection.setRequestProperty("User-Agent", "Mozilla/5.0");
-    connection.setConnectTimeout(5000);
-    connection.setReadTimeout(5000);
-
-    // Download with buffered streams for better performance
-    try (InputStream in = new BufferedInputStream(connection.getInputStream());
-         OutputStream out = new BufferedOutputStream(new FileOutputStream(destination))) {
-        
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        long totalBytes = 0;
-        while ((bytesRead = in.read(buffer)) != -1) {
-            out.write(buffer, 0, bytesRead);
-            totalBytes += bytesRead;
-        }
-        
-        // Verify the downloaded file size is reasonable
-        // Noto Sans font should be at least 100KB
-        if (totalBytes < 100000) {
-            throw new IOException("Downloaded font file is too small: " + totalBytes + " bytes");
-        }
-    }
-}
-
      /**
      * Translate a document from Campus.
      */
     public void translateCampusDocument(String inputFilePath, 
                                         String outputFileName, String targetLanguage) throws IOException, SQLException {
        // logger.logInfo("Processing Campus document translation for ID: {}", translationDocumentID);
-        System.out.println("!!Processing Campus document translation for ID: {}");
-        try (PDDocument inputDocument = PDDocument.load(new File(inputFilePath))) {
-            processDocument(inputDocument, targetLanguage);
+        logger.logDebug("Processing Campus document translation");
+        File inputFile = new File(inputFilePath);
+        try (PDDocument inputDocument = PDDocument.load(inputFile)) {
+            processDocument(inputFile, inputDocument, targetLanguage);
             
             // Save to file
             File outFile = new File(outputFileName);
@@ -422,13 +536,15 @@ private void downloadFontWithVerification(URL url, File destination) throws IOEx
             try (OutputStream outputStream = new FileOutputStream(outFile)) {
                 FileUtilityHelper.deleteFileIfExists(outputFileName);
                 translatedDocument.save(outputStream);
+            } finally {
+                closeTranslatedDocument();
             }
             
           //  markRequestCompleted(translationDocumentID, FileUtilityHelper.getFileName(outputFileName));
           //  logger.logInfo("Successfully completed translation for ID: {}", translationDocumentID);
         } catch (IOException e) {
            logger.logError("Error during translation process: " + e.getMessage());
-          System.out.println("Error during translation process: " + e.getMessage());
+          logger.logError("Error during translation process: {}", e.getMessage());
             throw new IOException("Error during translation process", e);
            
         }
@@ -442,19 +558,22 @@ private void downloadFontWithVerification(URL url, File destination) throws IOEx
                                          String fullLanguage) throws IOException, SQLException {
         logger.logInfo("Processing Backpack document translation for ID: {}", translationDocumentID);
         
-        try (PDDocument inputDocument = PDDocument.load(new File(inputFilePath))) {
-            processDocument(inputDocument, targetLanguage);
+        File inputFile = new File(inputFilePath);
+        try (PDDocument inputDocument = PDDocument.load(inputFile)) {
+            processDocument(inputFile, inputDocument, targetLanguage);
             
-            // Get translated document as bytes
-            byte[] translatedData;
-            try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                translatedDocument.save(outputStream);
-                translatedData = outputStream.toByteArray();
+            // Buffer the translated document, spilling large ones to disk
+            try (SpillBuffer translatedData = new SpillBuffer()) {
+                try (OutputStream outputStream = translatedData.getOutputStream()) {
+                    translatedDocument.save(outputStream);
+                } finally {
+                    closeTranslatedDocument();
+                }
+                
+                // Process database operations
+                processBackpackDatabase(translationDocumentID, documentID, translatedData, targetLanguage, fullLanguage);
             }
             
-            // Process database operations
-            processBackpackDatabase(translationDocumentID, documentID, translatedData, targetLanguage, fullLanguage);
-            
             logger.logInfo("Successfully completed translation for ID: {}", translationDocumentID);
         } catch (IOException e) {
             logger.logError("Error during document translation for ID: {}", translationDocumentID, e);
@@ -462,56 +581,107 @@ private void downloadFontWithVerification(URL url, File destination) throws IOEx
         }
     }
 /**
- * Processes a document for translation, handling font initialization and caching.
+ * Starts a new output document and loads the font for the target language into it.
+ * Fonts are bound to their document, so each translation gets its own font instance
+ * built from the JVM-wide font bytes. Fails when the language's font is not installed,
+ * rather than writing the translation in a Latin font as question marks.
+ */
+    private void startTranslatedDocument(String targetLanguage) throws IOException {
+        closeTranslatedDocument();
+        translatedDocument = new PDDocument();
+        unicodeFont = FontAssetManager.loadFont(translatedDocument, targetLanguage);
+        fontLanguage = targetLanguage;
+        logger.logDebug("Loaded Unicode font {} for language {}", unicodeFont.getName(), targetLanguage);
+        textLayout = new TextLayout(unicodeFont);
+    }
+
+    private void closeTranslatedDocument() {
+        if (translatedDocument != null) {
+            try {
+                translatedDocument.close();
+            } catch (IOException e) {
+                logger.logError("Error closing PDF document", e);
+            }
+            translatedDocument = null;
+        }
+    }
+
+/**
+ * Processes a document for translation, loading a per-document font for the target language.
+ * Pages move through the render, encode, OCR and translate stages in parallel, with at most
+ * documentPagesInFlight pages between render and compose. Compose runs on the calling thread
+ * in page order because PDDocument is not thread-safe. Pages with a native text layer are
+ * copied from the input document as they are, so it must stay open until the output is saved.
+ * @param inputFile The file the document was loaded from, used to give render threads their own copy
  * @param inputDocument The document to process
  * @param targetLanguage The target language for translation
  * @throws IOException if document processing fails
  */
-    private void processDocument(PDDocument inputDocument, String targetLanguage) throws IOException {
-        // Try to get font from cache first
-        String fontCacheKey = "default_font";
-        PDFont cachedFont = FontCache.get(fontCacheKey);
-        if (cachedFont != null) {
-            // Use cached font if available
-            unicodeFont = cachedFont;
-            isUnicodeFontAvailable = true;
-        } else {
-            // Initialize new font if not in cache
-            initializeFont();
-            if (isUnicodeFontAvailable) {
-                FontCache.put(fontCacheKey, unicodeFont);
+    private void processDocument(File inputFile, PDDocument inputDocument, String targetLanguage) throws IOException {
+        startTranslatedDocument(targetLanguage);
+
+        int pageCount = inputDocument.getNumberOfPages();
+        int pagesInFlight = Math.max(1, config.getDocumentPagesInFlight());
+        List<CompletableFuture<PageWork>> pages = new ArrayList<>(pageCount);
+        MetricsRegistry.Gauge pagesInFlightGauge = MetricsRegistry.getInstance().gauge("document.pages.inflight");
+        int submitted = 0;
+        int composed = 0;
+        try (PagePipeline pipeline = new PagePipeline(inputFile, inputDocument, targetLanguage)) {
+            for (int page = 0; page < pageCount; ++page) {
+                while (submitted < pageCount && submitted < page + pagesInFlight) {
+                    pages.add(pipeline.submit(submitted++));
+                    pagesInFlightGauge.increment();
+                }
+                int pageNumber = page + 1;
+                logger.logDebugSampled("Processing page: {}", pageNumber);
+
+                PageWork work = awaitPage(pages.get(page));
+                pages.set(page, null);
+                composed++;
+                pagesInFlightGauge.decrement();
+                if (work.jpeg == null) {
+                    addNativePage(inputDocument.getPage(work.pageIndex), work.lines);
+                } else {
+                    addPageWithFormatting(work.jpeg, work.pageWidth, work.pageHeight, work.lines);
+                }
+
+                logger.logDebugSampled("Page {} processed successfully", pageNumber);
+            }
+        } finally {
+            for (CompletableFuture<PageWork> pending : pages) {
+                if (pending != null) {
+                    pending.cancel(true);
+                }
             }
+            // Pages cancelled above are no longer in flight
+            pagesInFlightGauge.add(composed - submitted);
         }
-        PDFRenderer pdfRenderer = new PDFRenderer(inputDocument);
-        
-        for (int page = 0; page < inputDocument.getNumberOfPages(); ++page) {
-            int pageNumber = page + 1;
-            logger.logDebug("Processing page: {}", pageNumber);
-            
-            BufferedImage image = pdfRenderer.renderImage(page, 1.0f, ImageType.RGB);
-            
-            ByteBuffer imageBytes;
-            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
-                ImageIOUtil.writeImage(image, "jpeg", byteArrayOutputStream);
-                imageBytes = ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+    }
+
+    private PageWork awaitPage(CompletableFuture<PageWork> page) throws IOException {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
             }
-            
-            List<TextLine> lines = extractTextAndTranslate(imageBytes, targetLanguage);
-            addPageWithFormatting(image, lines);
-            
-            logger.logDebug("Page {} processed successfully", pageNumber);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Page processing failed", cause);
         }
     }
 
     /**
-     * Extract text from image and translate it.
+     * Extract text lines from a page image with Textract, under the Textract rate limiter.
      */
-    private List<TextLine> extractTextAndTranslate(ByteBuffer imageBytes, String targetLanguage) {
+    private List<TextLine> extractTextLines(byte[] imageBytes) {
         List<TextLine> lines = new ArrayList<>();
         
         // Create document from image bytes
         Document document = Document.builder()
-                .bytes(SdkBytes.fromByteBuffer(imageBytes))
+                .bytes(SdkBytes.fromByteArray(imageBytes))
                 .build();
                 
         // Detect text in document
@@ -519,22 +689,28 @@ private void downloadFontWithVerification(URL url, File destination) throws IOEx
                 .document(document)
                 .build();
                 
-        DetectDocumentTextResponse response = awsTextractClient.detectDocumentText(request);
+        DetectDocumentTextResponse response;
+        try {
+            response = textractRateLimiter.call(() -> {
+                try {
+                    return awsTextractClient.detectDocumentText(request);
+                } catch (TextractException e) {
+                    // The SDK does not retry these; the rate limiter does
+                    if (e.isThrottlingException()) {
+                        throw new ProviderThrottledException("aws", 0, e.getMessage(), e);
+                    }
+                    throw e;
+                }
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
         
         // Process each text block
         for (Block block : response.blocks()) {
             if (block.blockType() == BlockType.LINE) {
-                String sourceText = block.text();
-                
-                // Translate the text
-                TranslateTextRequest translateRequest = TranslateTextRequest.builder()
-                        .sourceLanguageCode(DEFAULT_SOURCE_LANGUAGE)
-                        .targetLanguageCode(targetLanguage)
-                        .text(sourceText)
-                        .build();
-                        
-                TranslateTextResponse translateResponse = awsTranslateClient.translateText(translateRequest);
-                
                 // Get bounding box information
                 BoundingBox boundingBox = block.geometry().boundingBox();
                 
@@ -544,20 +720,63 @@ private void downloadFontWithVerification(URL url, File destination) throws IOEx
                     boundingBox.top(),
                     boundingBox.width(),
                     boundingBox.height(),
-                    sourceText,
-                    translateResponse.translatedText()
+                    block.text(),
+                    null
                 ));
             }
         }
         
         return lines;
     }
+
+    /**
+     * Translate the text of each line. Lines are joined into as few requests as the
+     * TranslateText size limit allows and split back onto their bounding boxes. Requests
+     * share the rate limiter of the text path for the same access key.
+     */
+    private void translateTextLines(List<TextLine> lines, String targetLanguage) {
+        List<String> sourceTexts = new ArrayList<>(lines.size());
+        for (TextLine line : lines) {
+            sourceTexts.add(line.originalText);
+        }
+
+        AwsSegmentBatcher batcher = new AwsSegmentBatcher(text -> {
+            TranslateTextRequest translateRequest = TranslateTextRequest.builder()
+                    .sourceLanguageCode(DEFAULT_SOURCE_LANGUAGE)
+                    .targetLanguageCode(targetLanguage)
+                    .text(text)
+                    .build();
+            return translateRateLimiter.call(() -> {
+                try {
+                    return awsTranslateClient.translateText(translateRequest).translatedText();
+                } catch (TranslateException e) {
+                    if (e instanceof TooManyRequestsException || e.isThrottlingException()) {
+                        throw new ProviderThrottledException("aws", 0, e.getMessage(), e);
+                    }
+                    throw e;
+                }
+            });
+        });
+
+        try {
+            List<String> translated = batcher.translate(sourceTexts);
+            for (int i = 0; i < lines.size(); i++) {
+                lines.get(i).translatedText = translated.get(i);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        logger.logDebug("Translated {} lines in {} requests ({} batches fell back to per-line calls)",
+            lines.size(), batcher.getRequestCount(), batcher.getFallbackCount());
+    }
+
         /**
-     * Add a page to the translated document with formatting.
+     * Add a page to the translated document with formatting. The JPEG sent to OCR is
+     * embedded as it is and stretched over the page, whatever resolution it was rendered at.
      */
-    private void addPageWithFormatting(BufferedImage image, List<TextLine> lines) throws IOException {
-        float width = image.getWidth();
-        float height = image.getHeight();
+    private void addPageWithFormatting(byte[] jpeg, float width, float height, List<TextLine> lines) throws IOException {
         
         // Create new page
         PDRectangle box = new PDRectangle(width, height);
@@ -565,233 +784,108 @@ private void downloadFontWithVerification(URL url, File destination) throws IOEx
         translatedDocument.addPage(page);
         
         // Add image to page
-        PDImageXObject pdImage = JPEGFactory.createFromImage(translatedDocument, image);
+        PDImageXObject pdImage = JPEGFactory.createFromByteArray(translatedDocument, jpeg);
         
         try (PDPageContentStream contentStream = new PDPageContentStream(
                 translatedDocument, page, PDPageContentStream.AppendMode.OVERWRITE, false)) {
             
             // Draw background image
-            contentStream.drawImage(pdImage, 0, 0);
-            contentStream.setRenderingMode(RenderingMode.FILL);
-            
-            // Process each text line
-            for (TextLine line : lines) {
-                String textToDisplay = line.translatedText;
-                
-                // Calculate absolute positions
-                float absX = (float) (line.left * width);
-                float absY = (float) (height - line.top * height - line.height * height);
-                float boxWidth = (float) (line.width * width);
-                float boxHeight = (float) (line.height * height);
-                
-                // Choose font
-                PDFont fontToUse = isUnicodeFontAvailable ? unicodeFont : PDType1Font.HELVETICA;
-                
-                // Calculate font size
-                FontInfo fontInfo = calculateFontSize(textToDisplay, boxWidth, boxHeight, fontToUse);
-                
-                // Draw white background for text
-                contentStream.setNonStrokingColor(Color.WHITE);
-                contentStream.addRect(absX, absY - 2, boxWidth + 2, boxHeight + 2);
-                contentStream.fill();
-                
-                // Draw text
-                contentStream.setNonStrokingColor(Color.BLACK);
-                contentStream.beginText();
-                
-                try {
-                    // Test if font can encode the text
-                    fontToUse.encode(textToDisplay);
-                    
-                    contentStream.setFont(fontToUse, fontInfo.fontSize);
-                    contentStream.newLineAtOffset(absX, absY);
-                    
-                    if (isUnicodeFontAvailable) {
-                        contentStream.showText(textToDisplay);
-                    } else {
-                        String substitutedText = substituteCharacters(textToDisplay);
-                        contentStream.showText(substitutedText);
-                    }
-                } catch (IllegalArgumentException e) {
-                    logger.logError("Font encoding error for text: {}", textToDisplay);
-                    
-                    // Fallback to substituted text
-                    String substitutedText = substituteCharacters(textToDisplay);
-                    contentStream.setFont(PDType1Font.HELVETICA, fontInfo.fontSize);
-                    contentStream.newLineAtOffset(absX, absY);
-                    contentStream.showText(substitutedText);
-                }
-                
-                contentStream.endText();
-            }
+            contentStream.drawImage(pdImage, 0, 0, width, height);
+            drawTextLines(contentStream, lines, 0, 0, width, height, true);
         }
     }
-    /**
- * Cache system for fonts to improve performance when processing multiple documents.
- * Uses a concurrent map to ensure thread safety.
- */
-private static class FontCache {
-    // Thread-safe map to store fonts
-    private static final Map<String, PDFont> cache = new ConcurrentHashMap<>();
-    private static final int MAX_CACHE_SIZE = 5;
 
     /**
-     * Retrieves a font from the cache.
-     * @param key The cache key for the font
-     * @return The cached font or null if not found
+     * Add a copy of a page that has its own text layer, with the original text taken out and
+     * the translated lines drawn in its place. The page keeps its vector content, so nothing
+     * is rendered, and copying or extracting its text returns only the translation.
      */
-    public static PDFont get(String key) {
-        return cache.get(key);
-    }
-
-    /**
-     * Stores a font in the cache, managing cache size.
-     * @param key The cache key for the font
-     * @param font The font to cache
-     */
-    public static void put(String key, PDFont font) {
-        // Implement cache size management
-        if (cache.size() >= MAX_CACHE_SIZE) {
-            // Remove oldest entry if cache is full
-            String oldestKey = cache.keySet().iterator().next();
-            cache.remove(oldestKey);
-        }
-        cache.put(key, font);
+    private void addNativePage(PDPage sourcePage, List<TextLine> lines) throws IOException {
+        PDPage page = translatedDocument.importPage(sourcePage);
+        PDFPageHelper.removeText(translatedDocument, page);
+        PDRectangle cropBox = page.getCropBox();
+        
+        try (PDPageContentStream contentStream = new PDPageContentStream(
+                translatedDocument, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+            drawTextLines(contentStream, lines, cropBox.getLowerLeftX(), cropBox.getLowerLeftY(),
+                cropBox.getWidth(), cropBox.getHeight(), false);
+        }
     }
 
     /**
-     * Clears all cached fonts.
+     * Fit each line's translation into its box, covering the box in white first when the
+     * original text is still on the page image. Line positions are fractions of the given area.
      */
-    public static void clear() {
-        cache.clear();
-    }
-}
-        /**
-     * Calculate appropriate font size for text.
-     */
-    private FontInfo calculateFontSize(String text, float boxWidth, float boxHeight, PDFont font) throws IOException {
-        int fontSize = 20;
-        float textWidth = font.getStringWidth(text) / 1000 * fontSize;
-        float textHeight = font.getFontDescriptor().getFontBoundingBox().getHeight() / 1000 * fontSize;
-
-        if (textWidth > boxWidth) {
-            while (textWidth > boxWidth && fontSize > 6) {
-                fontSize -= 1;
-                textWidth = font.getStringWidth(text) / 1000 * fontSize;
-                textHeight = font.getFontDescriptor().getFontBoundingBox().getHeight() / 1000 * fontSize;
+    private void drawTextLines(PDPageContentStream contentStream, List<TextLine> lines, float originX, float originY,
+            float width, float height, boolean coverOriginal) throws IOException {
+        contentStream.setRenderingMode(RenderingMode.FILL);
+        
+        // Process each text line
+        for (TextLine line : lines) {
+            String textToDisplay = line.translatedText;
+            
+            // Calculate absolute positions
+            float absX = (float) (originX + line.left * width);
+            float absY = (float) (originY + height - line.top * height - line.height * height);
+            float boxWidth = (float) (line.width * width);
+            float boxHeight = (float) (line.height * height);
+            
+            // Choose font and fit the text into the box; a glyph the font lacks fails the page
+            PDFont fontToUse = textLayout.getFont();
+            try {
+                fontToUse.encode(textToDisplay);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Font " + fontToUse.getName() + " for language " + fontLanguage
+                    + " has no glyph for " + firstUnencodable(fontToUse, textToDisplay), e);
             }
-        } else if (textWidth < boxWidth) {
-            while (textWidth < boxWidth && fontSize < 36) {
-                fontSize += 1;
-                textWidth = font.getStringWidth(text) / 1000 * fontSize;
-                textHeight = font.getFontDescriptor().getFontBoundingBox().getHeight() / 1000 * fontSize;
-                
-                if (textWidth > boxWidth) {
-                    fontSize -= 1;
-                    break;
-                }
+            TextLayout.Fit fit = textLayout.fit(textToDisplay, boxWidth, boxHeight);
+            
+            // Draw white background for text
+            if (coverOriginal) {
+                contentStream.setNonStrokingColor(Color.WHITE);
+                contentStream.addRect(absX, absY - 2, boxWidth + 2, boxHeight + 2);
+                contentStream.fill();
             }
+            
+            // Draw text; wrapped lines stack upwards from the bottom of the box
+            contentStream.setNonStrokingColor(Color.BLACK);
+            contentStream.beginText();
+            contentStream.setFont(fontToUse, fit.getFontSize());
+            showLines(contentStream, fit, absX, absY);
+            
+            contentStream.endText();
         }
-
-        FontInfo fontInfo = new FontInfo();
-        fontInfo.fontSize = fontSize;
-        fontInfo.textHeight = textHeight;
-        fontInfo.textWidth = textWidth;
-        return fontInfo;
     }
 
     /**
-     * Substitute characters that can't be displayed with the current font.
+     * Shows the fitted lines so the last one sits on the bottom of the box.
      */
-    private String substituteCharacters(String text) {
-        Map<String, String> charMap = new HashMap<>();
-        StringBuilder result = new StringBuilder();
-        
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            if (c > 127) {
-                // Replace non-ASCII characters with closest ASCII equivalent or '?'
-                result.append(charMap.getOrDefault(String.valueOf(c), "?"));
-            } else {
-                result.append(c);
+    private static void showLines(PDPageContentStream contentStream, TextLayout.Fit fit, float x, float bottom)
+            throws IOException {
+        List<String> lines = fit.getLines();
+        contentStream.newLineAtOffset(x, bottom + (lines.size() - 1) * fit.getLineHeight());
+        for (int i = 0; i < lines.size(); i++) {
+            if (i > 0) {
+                contentStream.newLineAtOffset(0, -fit.getLineHeight());
             }
+            contentStream.showText(lines.get(i));
         }
-        
-        return result.toString();
     }
 
-/**
- * Provides fallback fonts when the primary Unicode font fails to load.
- * Attempts multiple standard fonts in order of preference.
- */
-private void fallbackToBasicFont() {
-    try {
-        // Array of fallback fonts in order of preference
-        PDFont[] fallbackFonts = {
-            PDType1Font.HELVETICA,      // Most common, good general support
-            PDType1Font.TIMES_ROMAN,    // Good readability
-            PDType1Font.COURIER         // Last resort, fixed-width
-        };
-
-        for (PDFont font : fallbackFonts) {
-            try {
-                unicodeFont = font;
-                if (verifyFont(font)) {
-                    isUnicodeFontAvailable = false;
-                    logger.logInfo("Using {} as fallback font. Basic character support enabled.", 
-                                 font.getName());
-                    return;
-                }
-            } catch (Exception e) {
-                logger.logDebug("Skipping fallback font {}: {}", font.getName(), e.getMessage());
-            }
-        }
-
-        // Last resort
-        unicodeFont = PDType1Font.HELVETICA;
-        isUnicodeFontAvailable = false;
-        logger.logInfo("Using Helvetica as final fallback. Basic ASCII character support only.");
-
-    } catch (Exception e) {
-        logger.logError("Critical error in fallback font initialization", e);
-        throw new RuntimeException("No usable font available", e);
-    }
-}
-        /**
-     * Download a file with retry mechanism.
+    /**
+     * Names the first character of the text the font cannot encode, as U+XXXX.
      */
-    private void downloadWithRetry(URL url, File destination) throws IOException {
-        int maxRetries = 3;
-        int retryDelayMs = 1000; // 1 second
-
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+    private static String firstUnencodable(PDFont font, String text) {
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
             try {
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestProperty("User-Agent", "Mozilla/5.0");
-                
-                try (InputStream in = connection.getInputStream();
-                     FileOutputStream out = new FileOutputStream(destination)) {
-                    byte[] buffer = new byte[8192];
-                    int bytesRead;
-                    while ((bytesRead = in.read(buffer)) != -1) {
-                        out.write(buffer, 0, bytesRead);
-                    }
-                    return; // Success
-                }
-            } catch (IOException e) {
-                if (attempt == maxRetries) {
-                    throw e; // Rethrow on last attempt
-                }
-                logger.logWarn("Download attempt {} failed, retrying in {}ms", attempt, retryDelayMs);
-                try {
-                    Thread.sleep(retryDelayMs);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("Download interrupted", ie);
-                }
-                retryDelayMs *= 2; // Exponential backoff
+                font.encode(new String(Character.toChars(codePoint)));
+            } catch (IllegalArgumentException | IOException e) {
+                return String.format("U+%04X", codePoint);
             }
+            i += Character.charCount(codePoint);
         }
+        return "a character of \"" + text + "\"";
     }
 
     /**
@@ -825,8 +919,8 @@ private void fallbackToBasicFont() {
         /**
      * Process database operations for Backpack document translation.
      */
-    private void processBackpackDatabase(int translationDocumentID, int documentID, byte[] translatedData, 
-                                        String targetLanguage, String fullLanguage) throws SQLException {
+    private void processBackpackDatabase(int translationDocumentID, int documentID, SpillBuffer translatedData, 
+                                        String targetLanguage, String fullLanguage) throws SQLException, IOException {
         int translatedScheduleID = -1;
         String scheduleName = "";
         int docPersonID = 0;
@@ -925,19 +1019,23 @@ private void fallbackToBasicFont() {
                     // Update existing document
                     sql = "UPDATE document SET doc_object=?, doc_updatedt=GETDATE() WHERE doc_personID=? AND scheduleID=?";
                     try (PreparedStatement updateStmt = backpackConnection.prepareStatement(sql)) {
-                        updateStmt.setBytes(1, translatedData);
-                        updateStmt.setInt(2, docPersonID);
-                        updateStmt.setInt(3, translatedScheduleID);
-                        updateStmt.executeUpdate();
+                        try (InputStream translatedStream = translatedData.openInputStream()) {
+                            updateStmt.setBinaryStream(1, translatedStream, translatedData.length());
+                            updateStmt.setInt(2, docPersonID);
+                            updateStmt.setInt(3, translatedScheduleID);
+                            updateStmt.executeUpdate();
+                        }
                     }
                 } else {
                     // Create new document
                     sql = "INSERT INTO document (doc_object, doc_personID, scheduleID, doc_createdt, doc_updatedt) VALUES(?,?,?,GETDATE(),GETDATE())";
                     try (PreparedStatement insertStmt = backpackConnection.prepareStatement(sql)) {
-                        insertStmt.setBytes(1, translatedData);
-                        insertStmt.setInt(2, docPersonID);
-                        insertStmt.setInt(3, translatedScheduleID);
-                        insertStmt.executeUpdate();
+                        try (InputStream translatedStream = translatedData.openInputStream()) {
+                            insertStmt.setBinaryStream(1, translatedStream, translatedData.length());
+                            insertStmt.setInt(2, docPersonID);
+                            insertStmt.setInt(3, translatedScheduleID);
+                            insertStmt.executeUpdate();
+                        }
                     }
                 }
             }
@@ -954,26 +1052,21 @@ private void fallbackToBasicFont() {
     public void close() {
         logger.logDebug("Closing AWS document translation service resources");
         
-        if (awsTextractClient != null) {
-          // not available until later version  awsTextractClient.close();
-          com.infinitecampus.ccs.lingo.utility.AwsClientUtils.safeClose(awsTextractClient, logger);
-          //AwsClientUtils.safeClose(awsTranslateClient, logger);
-            logger.logDebug("AWS Textract client closed successfully");
+        // The clients are shared; the registry closes them once they have been idle
+        if (textractClientLease != null) {
+            textractClientLease.close();
+            textractClientLease = null;
+            awsTextractClient = null;
+            logger.logDebug("AWS Textract client released");
         }
         
-        if (awsTranslateClient != null) {
-             // not available until later version   awsTranslateClient.close();
-                com.infinitecampus.ccs.lingo.utility.AwsClientUtils.safeClose(awsTranslateClient, logger);
-            logger.logDebug("AWS Translate client closed successfully");
+        if (translateClientLease != null) {
+            translateClientLease.close();
+            translateClientLease = null;
+            awsTranslateClient = null;
+            logger.logDebug("AWS Translate client released");
         }
         
-        if (translatedDocument != null) {
-            try {
-                translatedDocument.close();
-                logger.logDebug("PDF document closed successfully");
-            } catch (IOException e) {
-                logger.logError("Error closing PDF document", e);
-            }
-        }
+        closeTranslatedDocument();
     }
 }
\ No newline at end of file
@@ -12,19 +12,27 @@ package com.infinitecampus.ccs.lingo.translationprovider.aws;
     logger.error("Translation failed", e);
 } */
 import java.io.IOException;
+import java.net.URI;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import com.infinitecampus.ccs.lingo.authenticate.Authenticate;
+import com.infinitecampus.ccs.lingo.authenticate.TokenContext;
 import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationprovider.ProviderClientRegistry;
 import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.ProviderThrottledException;
+import com.infinitecampus.ccs.lingo.utility.RequestRateLimiter;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.translate.TranslateClient;
+import software.amazon.awssdk.services.translate.TranslateClientBuilder;
+import software.amazon.awssdk.services.translate.model.TooManyRequestsException;
 import software.amazon.awssdk.services.translate.model.TranslateException;
 import software.amazon.awssdk.services.translate.model.TranslateTextRequest;
 import software.amazon.awssdk.services.translate.model.TranslateTextResponse;
@@ -63,9 +71,12 @@ public class AwsTranslateText implements AutoCloseable {
     // Instance fields
     private final Connection campusConnection;
     private final String authToken;
+    private final TokenContext tokenContext;
     //private final Configuration config;
+    private ProviderClientRegistry.Lease<TranslateClient> translateClientLease;
     private TranslateClient awsTranslateClient;
     private AwsConfiguration awsConfig;
+    private final RequestRateLimiter rateLimiter;
 
     /**
      * Custom exception for translation-related errors.
@@ -92,11 +103,14 @@ public class AwsTranslateText implements AutoCloseable {
         private final String accessKey;
         private final String secretKey;
         private final Region region;
+        // Set only to send requests to a stand-in instead of AWS
+        private final URI endpoint;
 
-        public AwsConfiguration(String accessKey, String secretKey, Region region) {
+        public AwsConfiguration(String accessKey, String secretKey, Region region, String endpoint) {
             this.accessKey = accessKey;
             this.secretKey = secretKey;
             this.region = region;
+            this.endpoint = endpoint == null || endpoint.trim().isEmpty() ? null : URI.create(endpoint.trim());
         }
     }
 
@@ -107,6 +121,7 @@ public class AwsTranslateText implements AutoCloseable {
         private Connection connection;
         private String token;
         private Configuration config;
+        private TokenContext context;
 
         public Builder withConnection(Connection connection) {
             this.connection = connection;
@@ -123,24 +138,35 @@ public class AwsTranslateText implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Uses a token already resolved by TokenBootstrap, which skips the authentication
+         * and configuration queries.
+         */
+        public Builder withContext(TokenContext context) {
+            this.context = context;
+            this.token = context.getToken();
+            return this;
+        }
+
         public AwsTranslateText build() throws SecurityException {
             logger.logInfo("Building AwsTranslateText with token: {}", token);
-            return new AwsTranslateText(connection, token, config);
+            return new AwsTranslateText(connection, token, config, context);
         }
     }
 
     /**
      * Private constructor - use Builder to create instances.
      */
-    private AwsTranslateText(Connection connection, String token, Configuration configuration) {
+    private AwsTranslateText(Connection connection, String token, Configuration configuration, TokenContext context) {
         this.instanceLogger = new LogHelper(configuration).createLogger(this.getClass());
         instanceLogger.logInfo("Initializing AWSTranslateText with token: {}", token);
-        if (!Authenticate.isTranslatedTextAuthenticated(connection, token)) {
+        if (context == null && !Authenticate.isTranslatedTextAuthenticated(connection, token)) {
             throw new SecurityException("Invalid Token. Access Denied.");
         }
 
         this.campusConnection = connection;
         this.authToken = token;
+        this.tokenContext = context;
         //this.config = configuration;
         //this.logger = new LogHelper(configuration).createLogger(this.getClass());
 
@@ -151,6 +177,8 @@ public class AwsTranslateText implements AutoCloseable {
              logger.logError("Error during initialization: ", e);
             throw new RuntimeException("Failed to initialize AWS translation service", e);
         }
+        // Quota is metered per account, so each access key gets its own bucket
+        this.rateLimiter = RequestRateLimiter.forProvider("aws", awsConfig.accessKey, configuration.getProviderRateLimit("aws"));
     }
 
     /**
@@ -168,6 +196,16 @@ public class AwsTranslateText implements AutoCloseable {
      */    
      private void fetchConfigInfo() throws NoRecordsFoundException, SQLException {
         instanceLogger.logDebug("Fetching configuration information");
+        if (tokenContext != null) {
+            awsConfig = new AwsConfiguration(
+                tokenContext.getServiceAccountValue("access_key"),
+                tokenContext.getServiceAccountValue("secret_key"),
+                AWS_REGION,
+                tokenContext.getServiceAccountValue("endpoint_override")
+            );
+            instanceLogger.logDebug("Configuration taken from token context");
+            return;
+        }
         try (PreparedStatement pstmt = campusConnection.prepareStatement(SQL_FETCH_CONFIG)) {
             pstmt.setString(1, authToken);
             instanceLogger.logDebug("Executing query with token: {}", authToken);
@@ -180,7 +218,8 @@ public class AwsTranslateText implements AutoCloseable {
                 awsConfig = new AwsConfiguration(
                     rs.getString("access_key"),
                     rs.getString("secret_key"),
-                    AWS_REGION
+                    AWS_REGION,
+                    null
                 );
                 instanceLogger.logDebug("Configuration fetched successfully");
             } catch (SQLException e) {
@@ -201,10 +240,19 @@ public class AwsTranslateText implements AutoCloseable {
             awsConfig.secretKey
         );
 
-        awsTranslateClient = TranslateClient.builder()
-            .region(awsConfig.region)
-            .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
-            .build();
+        translateClientLease = ProviderClientRegistry.getInstance().acquire("aws", "translate",
+            awsConfig.region + ":" + awsConfig.accessKey + ":" + awsConfig.secretKey + ":" + awsConfig.endpoint,
+            () -> {
+                TranslateClientBuilder builder = TranslateClient.builder()
+                    .region(awsConfig.region)
+                    .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
+                    .overrideConfiguration(AwsClientRetry.overrideConfiguration());
+                if (awsConfig.endpoint != null) {
+                    builder.endpointOverride(awsConfig.endpoint);
+                }
+                return builder.build();
+            });
+        awsTranslateClient = translateClientLease.get();
 
             instanceLogger.logDebug("Translation services initialized");
     }
@@ -218,14 +266,24 @@ public class AwsTranslateText implements AutoCloseable {
      * @throws TranslationException if translation fails
      */    
     public String translateText(String sourceText, String targetLanguage) throws TranslationException {
-        instanceLogger.logInfo("Translating text to language: {}", targetLanguage);
+        instanceLogger.logInfoSampled("Translating text to language: {}", targetLanguage);
         validateInput(sourceText, targetLanguage);
         
         try {
             TranslateTextRequest request = createTranslationRequest(sourceText, targetLanguage);
-            instanceLogger.logDebug("Sending translation request to AWS");
-            TranslateTextResponse response = awsTranslateClient.translateText(request);
-            instanceLogger.logDebug("Translation completed successfully");
+            instanceLogger.logDebugSampled("Sending translation request to AWS");
+            TranslateTextResponse response = rateLimiter.call(() -> {
+                try {
+                    return awsTranslateClient.translateText(request);
+                } catch (TranslateException e) {
+                    // The SDK does not retry these; the rate limiter does
+                    if (e instanceof TooManyRequestsException || e.isThrottlingException()) {
+                        throw new ProviderThrottledException("aws", 0, e.getMessage(), e);
+                    }
+                    throw e;
+                }
+            });
+            instanceLogger.logDebugSampled("Translation completed successfully");
             return response.translatedText();
         } catch (TranslateException e) {
             instanceLogger.logError("AWS translation failed: " + e.awsErrorDetails().errorMessage(), e);
@@ -236,6 +294,38 @@ public class AwsTranslateText implements AutoCloseable {
         }
     }
 
+    /**
+     * Translate a list of texts to the target language.
+     * The synchronous TranslateText API accepts a single text per call, so each text is sent
+     * on its own. Texts are separate rows that must not be translated in each other's context;
+     * only with the awsTextJoinRows setting are single-line texts joined with line breaks into
+     * as few requests as the size limit allows.
+     *
+     * @param sourceTexts The texts to translate
+     * @param targetLanguage The target language code
+     * @return The translated texts, in the same order as the source texts
+     * @throws TranslationException if any translation fails; its cause is a PartialBatchException
+     *         when some of the requests were translated
+     */
+    public List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws TranslationException {
+        instanceLogger.logInfoSampled("Translating batch of {} texts to language: {}", sourceTexts.size(), targetLanguage);
+        for (String sourceText : sourceTexts) {
+            validateInput(sourceText, targetLanguage);
+        }
+
+        AwsSegmentBatcher batcher = new AwsSegmentBatcher(text -> translateText(text, targetLanguage),
+            Configuration.getInstance().isAwsTextJoinRows());
+        try {
+            List<String> results = batcher.translate(sourceTexts);
+            instanceLogger.logDebugSampled("Translated {} texts in {} requests", sourceTexts.size(), batcher.getRequestCount());
+            return results;
+        } catch (TranslationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new TranslationException("AWS batch translation failed", e);
+        }
+    }
+
     /**
      * Create a translation request.
      */
@@ -265,16 +355,12 @@ public class AwsTranslateText implements AutoCloseable {
     @Override
 public void close() {
     instanceLogger.logDebug("Closing AWS translation service resources");
-    if (awsTranslateClient != null) {
-        try{
-          // not available until later version  ->2.20.81
-            awsTranslateClient.close();
-            //if we comment out the line above use this..
-            //com.infinitecampus.ccs.lingo.utility.AwsClientUtils.safeClose(awsTranslateClient, instanceLogger);
-        } catch (Exception e) {
-            instanceLogger.logError("Error closing AWS Translate client: ", e);
-        }
-        instanceLogger.logDebug("AWS Translate client closed successfully");
+    if (translateClientLease != null) {
+        // The client is shared; the registry closes it once it has been idle
+        translateClientLease.close();
+        translateClientLease = null;
+        awsTranslateClient = null;
+        instanceLogger.logDebug("AWS Translate client released");
     }
 }
 }
\ No newline at end of file
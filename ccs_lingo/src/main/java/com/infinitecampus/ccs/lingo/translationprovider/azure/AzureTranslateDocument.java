@@ -16,11 +16,26 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import com.infinitecampus.ccs.lingo.authenticate.Authenticate;
+import com.infinitecampus.ccs.lingo.authenticate.TokenContext;
 import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationprovider.ProviderClientRegistry;
 import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.NamedThreadFactory;
+import com.infinitecampus.ccs.lingo.utility.PdfChunkTranslator;
+import com.infinitecampus.ccs.lingo.utility.RequestRateLimiter;
+import com.infinitecampus.ccs.lingo.utility.SpillBuffer;
 import com.infinitecampus.ccs.lingo.utility.FileUtilityHelper;
 
 import okhttp3.MediaType;
@@ -75,11 +90,13 @@ public class AzureTranslateDocument implements AutoCloseable {
     private final Connection campusConnection;
     private final Connection backpackConnection;
     private final String authToken;
+    private final TokenContext tokenContext;
     private final Configuration config;
     private String outputFileLocation;
     
     // Azure services
     private OkHttpClient httpClient;
+    private ProviderClientRegistry.Lease<BlobServiceClient> blobServiceClientLease;
     private BlobServiceClient blobServiceClient;
     private BlobContainerClient sourceContainerClient;
     
@@ -95,6 +112,19 @@ public class AzureTranslateDocument implements AutoCloseable {
     private String sourceSasToken;
     private String targetSasToken;
     private String blobConnectionString;
+    // Set only to send blob traffic to a stand-in such as Azurite instead of Azure
+    private String storageEndpoint;
+    private JobPoller jobPoller;
+    // Downloads finished jobs and cleans up their blobs, so the poller thread only checks status
+    private ExecutorService downloadPool;
+    // Splits documents over the job size and page limits
+    private PdfChunkTranslator chunkTranslator;
+
+    // Job polling: start quickly, back off while the job is running
+    private static final long INITIAL_POLL_MILLIS = 2000;
+    private static final long MAX_POLL_MILLIS = 30000;
+    private static final double POLL_BACKOFF_FACTOR = 1.5;
+    private static final long JOB_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
 
     /**
      * Custom exception for when no translation records are found.
@@ -113,6 +143,7 @@ public class AzureTranslateDocument implements AutoCloseable {
         private Connection backpackConnection;
         private String token;
         private Configuration config;
+        private TokenContext context;
 
         public Builder withCampusConnection(Connection connection) {
             this.campusConnection = connection;
@@ -134,17 +165,28 @@ public class AzureTranslateDocument implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Uses a token already resolved by TokenBootstrap, which skips the authentication
+         * and configuration queries.
+         */
+        public Builder withContext(TokenContext context) {
+            this.context = context;
+            this.token = context.getToken();
+            return this;
+        }
+
         public AzureTranslateDocument build() throws SecurityException {
             logger.logInfo("Building AzureTranslateDocument with token: {}", token);
-            return new AzureTranslateDocument(campusConnection, backpackConnection, token, config);
+            return new AzureTranslateDocument(campusConnection, backpackConnection, token, config, context);
         }
     }
 
     /**
      * Private constructor - use Builder to create instances.
      */
-    private AzureTranslateDocument(Connection campusConnection, Connection backpackConnection, String token, Configuration configuration) {
-        if (!Authenticate.isTranslatedDocumentAuthenticated(campusConnection, token)) {
+    private AzureTranslateDocument(Connection campusConnection, Connection backpackConnection, String token, Configuration configuration,
+            TokenContext context) {
+        if (context == null && !Authenticate.isTranslatedDocumentAuthenticated(campusConnection, token)) {
             logger.logError("Authentication failed for token: {}", token);
             throw new SecurityException("Invalid Token. Access Denied.");
         }
@@ -153,6 +195,7 @@ public class AzureTranslateDocument implements AutoCloseable {
         this.backpackConnection = backpackConnection;
         this.authToken = token;
         this.config = configuration;
+        this.tokenContext = context;
 
         try {
             initialize();
@@ -176,6 +219,24 @@ public class AzureTranslateDocument implements AutoCloseable {
      * Fetch configuration information from the database.
      */
     private void fetchConfigInfo() throws NoRecordsFoundException, SQLException {
+        if (tokenContext != null) {
+            translatorKeyId = tokenContext.getServiceAccountValue("translator_key_id");
+            translatorEndpoint = tokenContext.getServiceAccountValue("document_translation_endpoint");
+            translatorEndpoint = translatorEndpoint.endsWith("/") ? translatorEndpoint : translatorEndpoint + "/";
+            translatorRegion = tokenContext.getServiceAccountValue("text_translation_location", "eastus");
+            apiVersion = tokenContext.getServiceAccountValue("document_translation_apiversion", "2024-05-01");
+            storageAccountName = tokenContext.getServiceAccountValue("document_storage_name");
+            storageAccountKeyId = tokenContext.getServiceAccountValue("document_storage_key_id");
+            sourceContainerName = tokenContext.getServiceAccountValue("document_source_storage_name");
+            targetContainerName = tokenContext.getServiceAccountValue("document_target_storage_name");
+            sourceSasToken = tokenContext.getServiceAccountValue("source_sasToken");
+            targetSasToken = tokenContext.getServiceAccountValue("target_sasToken");
+            storageEndpoint = tokenContext.getServiceAccountValue("document_storage_endpoint");
+            outputFileLocation = tokenContext.getOutputDirectory();
+            FileUtilityHelper.createFolderIfNotExists(outputFileLocation);
+            logger.logDebug("Configuration taken from token context");
+            return;
+        }
        
         try (PreparedStatement pstmt = campusConnection.prepareStatement(SQL_FETCH_CONFIG)) {
             pstmt.setString(1, authToken);
@@ -216,8 +277,8 @@ public class AzureTranslateDocument implements AutoCloseable {
     private void initializeTranslationServices() throws IOException {
         logger.logDebug("Initializing translation services");
         
-        // Initialize HTTP client with longer timeouts
-        httpClient = new OkHttpClient.Builder()
+        // Initialize HTTP client with longer timeouts, sharing the JVM wide connection pool
+        httpClient = ProviderClientRegistry.getSharedHttpClient().newBuilder()
             .connectTimeout(60, TimeUnit.SECONDS)
             .readTimeout(180, TimeUnit.SECONDS)
             .writeTimeout(180, TimeUnit.SECONDS)
@@ -243,14 +304,23 @@ public class AzureTranslateDocument implements AutoCloseable {
         }
         
         // Initialize Azure Blob Storage client with the processed key
-        blobConnectionString = String.format(
-            "DefaultEndpointsProtocol=https;AccountName=%s;AccountKey=%s;EndpointSuffix=core.windows.net",
-            storageAccountName, processedStorageKey);
+        if (storageEndpoint == null || storageEndpoint.isEmpty()) {
+            blobConnectionString = String.format(
+                "DefaultEndpointsProtocol=https;AccountName=%s;AccountKey=%s;EndpointSuffix=core.windows.net",
+                storageAccountName, processedStorageKey);
+        } else {
+            blobConnectionString = String.format(
+                "DefaultEndpointsProtocol=http;AccountName=%s;AccountKey=%s;BlobEndpoint=%s",
+                storageAccountName, processedStorageKey, storageEndpoint);
+        }
             
         try {
-            blobServiceClient = new BlobServiceClientBuilder()
-                .connectionString(blobConnectionString)
-                .buildClient();
+            String connectionString = blobConnectionString;
+            blobServiceClientLease = ProviderClientRegistry.getInstance().acquire("azure", "blob",
+                connectionString, () -> new BlobServiceClientBuilder()
+                    .connectionString(connectionString)
+                    .buildClient());
+            blobServiceClient = blobServiceClientLease.get();
             logger.logDebug("Blob service client created successfully");
         } catch (Exception e) {
             logger.logError("Failed to create blob service client: {}", e.getMessage());
@@ -262,6 +332,12 @@ public class AzureTranslateDocument implements AutoCloseable {
         
         // Validate SAS tokens
         validateSasTokens();
+
+        chunkTranslator = new PdfChunkTranslator("azure", config, (source, translated, language) -> {
+            try (OutputStream outputStream = new FileOutputStream(translated)) {
+                translatePdf(source.getPath(), source.getName(), language, outputStream);
+            }
+        });
             
         logger.logDebug("Translation services initialized");
     }
@@ -324,10 +400,10 @@ private void validateSasToken(String sasToken, String tokenType) {
 }
 private String constructBlobUrl(String containerName, String fileName) {
     try {
-        String url = String.format("https://%s.blob.core.windows.net/%s/%s",
-            storageAccountName,
-            containerName,
-            fileName);
+        String baseUrl = storageEndpoint == null || storageEndpoint.isEmpty()
+            ? String.format("https://%s.blob.core.windows.net", storageAccountName)
+            : storageEndpoint.replaceAll("/+$", "");
+        String url = String.format("%s/%s/%s", baseUrl, containerName, fileName);
         logger.logDebug("Constructed base blob URL: {}", url);
         return url;
     } catch (Exception e) {
@@ -362,39 +438,24 @@ private String constructBlobUrl(String containerName, String fileName) {
      */
     public void translateCampusDocument(String inputFilePath, 
                                     String outputFileName, String targetLanguage) throws IOException, SQLException {
-    System.out.println("!Processing Campus document translation for ID: " + inputFilePath);
+    logger.logDebug("Processing Campus document translation for ID: {}", inputFilePath);
     
     try {
         // Debug: Test container client
         BlobContainerClient testClient = blobServiceClient.getBlobContainerClient(sourceContainerName);
-        System.out.println("Successfully created test container client");
+        logger.logDebug("Successfully created test container client");
         
         // Debug: Get file name
         String fileName = FileUtilityHelper.getFileName(inputFilePath);
-        System.out.println("File name extracted: " + fileName);
+        logger.logDebug("File name extracted: {}", fileName);
         
-        // Debug: Read PDF
-        byte[] pdfData = null;
-        try {
-            pdfData = getPdfBytes(inputFilePath);
-            System.out.println("PDF read successfully, size: " + pdfData.length + " bytes");
-        } catch (Exception e) {
-            System.out.println("Error reading PDF: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
-        }
-        
-        // Debug: Translate PDF
-        byte[] translatedData = null;
-        try {
-            System.out.println("Starting translatePdf method...");
-            translatedData = translatePdf(pdfData, fileName, targetLanguage);
-            System.out.println("Translation completed successfully");
-        } catch (Exception e) {
-            System.out.println("Error in translatePdf: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+        // Debug: Check PDF
+        File inputFile = new File(inputFilePath);
+        if (!inputFile.isFile()) {
+            logger.logError("Error reading PDF: {} not found", inputFilePath);
+            throw new IOException("Input file not found: " + inputFilePath);
         }
+        logger.logDebug("PDF found, size: {} bytes", inputFile.length());
 
         String outputFilePath = outputFileLocation + File.separator + outputFileName;
         logger.logDebug("Output file path: {}", outputFilePath);
@@ -402,15 +463,24 @@ private String constructBlobUrl(String containerName, String fileName) {
         // Ensure the output file does not already exist
         FileUtilityHelper.deleteFileIfExists(outputFilePath);
         
-        // Write the translated content to the output location
-        FileUtilityHelper.WriteFilesOut(outputFilePath, translatedData);
-        System.out.println("!COMPLETED");
+        // Debug: Translate PDF, downloading the result straight to the output location
+        try (OutputStream outputStream = new FileOutputStream(outputFilePath)) {
+            logger.logDebug("Starting translatePdf method...");
+            chunkTranslator.translate(inputFilePath, targetLanguage, outputStream);
+            logger.logDebug("Translation completed successfully");
+        } catch (Exception e) {
+            logger.logError("Error in translatePdf: {}", e.getMessage());
+            e.printStackTrace();
+            FileUtilityHelper.deleteFileIfExists(outputFilePath);
+            throw e;
+        }
+        logger.logDebug("COMPLETED");
     } catch (IOException e) {
-        System.out.println("Error during document translation for azure: " + e);
+        logger.logError("Error during document translation for azure", e);
         e.printStackTrace();
         throw new IOException("Error during translation process", e);
     } catch(Exception ex) {
-        System.out.println("Error during document translation for azure: " + ex);
+        logger.logError("Error during document translation for azure", ex);
         ex.printStackTrace();
         throw new IOException("Error during translation process", ex);
     }
@@ -418,11 +488,11 @@ private String constructBlobUrl(String containerName, String fileName) {
     public void translateCampusDocument_DEP(String inputFilePath, 
                                         String outputFileName, String targetLanguage) throws IOException, SQLException {
         //logger.logInfo("Processing Campus document translation for ID: {}", translationDocumentID);
-        System.out.println("!Processing Campus document translation for ID: " + inputFilePath);
+        logger.logDebug("Processing Campus document translation for ID: {}", inputFilePath);
         try {
             String fileName = FileUtilityHelper.getFileName(inputFilePath);
             byte[] pdfData = getPdfBytes(inputFilePath);
-            byte[] translatedData = translatePdf(pdfData, fileName, targetLanguage);
+            byte[] translatedData = translatePdf_DEP(pdfData, fileName, targetLanguage);
 
             String outputFilePath = outputFileLocation + File.separator + outputFileName;
             logger.logDebug("Output file path: {}", outputFilePath);
@@ -432,15 +502,15 @@ private String constructBlobUrl(String containerName, String fileName) {
             
             // Write the translated content to the output location
             FileUtilityHelper.WriteFilesOut(outputFilePath, translatedData);
-            System.out.println("!COMPLETED");
+            logger.logDebug("COMPLETED");
          //   markRequestCompleted(translationDocumentID, FileUtilityHelper.getFileName(outputFilePath));
        //     logger.logInfo("Successfully completed translation for ID: {}", translationDocumentID);
         } catch (IOException e) {
-              System.out.println("Error during document translation for azure {}"+ e);
+              logger.logError("Error during document translation for azure", e);
             throw new IOException("Error during translation process", e);
         }
         catch(Exception ex){
-            System.out.println("Error during document translation for azure {}"+ ex);
+            logger.logError("Error during document translation for azure", ex);
             throw new IOException("Error during translation process", ex);
         }
     }
@@ -454,12 +524,15 @@ private String constructBlobUrl(String containerName, String fileName) {
         logger.logInfo("Processing Backpack document translation for ID: {}", translationDocumentID);
         
         try {
-            String fileName = FileUtilityHelper.getFileName(inputFilePath);
-            byte[] pdfData = getPdfBytes(inputFilePath);
-            byte[] translatedData = translatePdf(pdfData, fileName, targetLanguage);
-            
-            // Process database operations
-            processBackpackDatabase(translationDocumentID, documentID, translatedData, targetLanguage, fullLanguage);
+            // Buffer the translated document, spilling large ones to disk
+            try (SpillBuffer translatedData = new SpillBuffer()) {
+                try (OutputStream outputStream = translatedData.getOutputStream()) {
+                    chunkTranslator.translate(inputFilePath, targetLanguage, outputStream);
+                }
+                
+                // Process database operations
+                processBackpackDatabase(translationDocumentID, documentID, translatedData, targetLanguage, fullLanguage);
+            }
             
             logger.logInfo("Successfully completed translation for ID: {}", translationDocumentID);
         } catch (IOException e) {
@@ -484,30 +557,32 @@ private String constructBlobUrl(String containerName, String fileName) {
     }
 
     /**
-     * Translate PDF document using Azure services.
+     * Translate PDF document using Azure services. The file is uploaded from disk and the
+     * translated document is streamed into the given output.
      */
-    private byte[] translatePdf(byte[] pdfData, String inputFileName, String targetLanguage) throws IOException {
-        String uploadedFileName = authToken + "_" + inputFileName;
-        System.out.println("Uploaded file name will be: " + uploadedFileName);
+    private void translatePdf(String inputFilePath, String inputFileName, String targetLanguage,
+                              OutputStream translatedOutput) throws IOException {
+        String uploadedFileName = blobName(inputFileName, targetLanguage);
+        logger.logDebug("Uploaded file name will be: {}", uploadedFileName);
         
         try {
             // Debug: Delete existing document
             try {
                 deleteDocument(sourceContainerName, uploadedFileName);
-                System.out.println("Deleted existing source document (if any)");
+                logger.logDebug("Deleted existing source document (if any)");
             } catch (Exception e) {
-                System.out.println("Error deleting source document: " + e.getMessage());
+                logger.logError("Error deleting source document: {}", e.getMessage());
             }
             
             // Debug: Upload document
             try {
-                System.out.println("Uploading document to blob storage...");
+                logger.logDebug("Uploading document to blob storage...");
                 sourceContainerClient = blobServiceClient.getBlobContainerClient(sourceContainerName);
                 BlobClient blobClient = sourceContainerClient.getBlobClient(uploadedFileName);
-                blobClient.upload(BinaryData.fromBytes(pdfData), true);
-                System.out.println("File uploaded successfully");
+                blobClient.uploadFromFile(inputFilePath, true);
+                logger.logDebug("File uploaded successfully");
             } catch (Exception e) {
-                System.out.println("Error uploading file: " + e.getMessage());
+                logger.logError("Error uploading file: {}", e.getMessage());
                 e.printStackTrace();
                 throw e;
             }
@@ -515,45 +590,39 @@ private String constructBlobUrl(String containerName, String fileName) {
             // Debug: Delete target document
             try {
                 deleteDocument(targetContainerName, uploadedFileName);
-                System.out.println("Deleted existing target document (if any)");
+                logger.logDebug("Deleted existing target document (if any)");
             } catch (Exception e) {
-                System.out.println("Error deleting target document: " + e.getMessage());
+                logger.logError("Error deleting target document: {}", e.getMessage());
             }
             
             // Debug: Request translation
             String translationJobId = null;
             try {
-                System.out.println("Requesting translation...");
+                logger.logDebug("Requesting translation...");
                 translationJobId = requestSingleDocumentTranslation(uploadedFileName, targetLanguage);
-                System.out.println("Translation job ID: " + translationJobId);
+                logger.logDebug("Translation job ID: {}", translationJobId);
             } catch (Exception e) {
-                System.out.println("Error requesting translation: " + e.getMessage());
+                logger.logError("Error requesting translation: {}", e.getMessage());
                 e.printStackTrace();
                 throw e;
             }
             
             // Debug: Check job status
             try {
-                System.out.println("Checking job status...");
+                logger.logDebug("Checking job status...");
                 checkJobStatus(translationJobId);
-                System.out.println("Job completed successfully");
+                logger.logDebug("Job completed successfully");
             } catch (Exception e) {
-                System.out.println("Error checking job status: " + e.getMessage());
+                logger.logError("Error checking job status: {}", e.getMessage());
                 e.printStackTrace();
                 throw e;
             }
             
             // Download translated document
-            BlobClient blobClient = new BlobClientBuilder()
-                .connectionString(blobConnectionString)
-                .containerName(targetContainerName)
-                .blobName(uploadedFileName)
-                .buildClient();
+            BlobClient blobClient = blobServiceClient.getBlobContainerClient(targetContainerName)
+                .getBlobClient(uploadedFileName);
                 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            blobClient.downloadStream(outputStream);
-            
-            return outputStream.toByteArray();
+            blobClient.downloadStream(translatedOutput);
         } catch (InterruptedException e) {
             logger.logError("Translation process interrupted: {}", e.getMessage());
             Thread.currentThread().interrupt();
@@ -564,12 +633,12 @@ private String constructBlobUrl(String containerName, String fileName) {
                 deleteDocument(targetContainerName, uploadedFileName);
                 deleteDocument(sourceContainerName, uploadedFileName);
             } catch (Exception e) {
-                System.out.println("Error during cleanup: " + e.getMessage());
+                logger.logError("Error during cleanup: {}", e.getMessage());
             }
         }
     }
     private byte[] translatePdf_DEP(byte[] pdfData, String inputFileName, String targetLanguage) throws IOException {
-        String uploadedFileName = authToken + "_" + inputFileName;
+        String uploadedFileName = blobName(inputFileName, targetLanguage);
         
         try {
             // Delete document if it exists
@@ -624,6 +693,15 @@ private String constructBlobUrl(String containerName, String fileName) {
         }
     }
 
+    /**
+     * Name of the source and target blob of one submission. Every language of a document and
+     * every chunk is submitted at the same time, so the name carries the language and a UUID;
+     * the file name stays last so the service still sees the document's extension.
+     */
+    private String blobName(String fileName, String targetLanguage) {
+        return authToken + "_" + targetLanguage + "_" + UUID.randomUUID() + "_" + fileName;
+    }
+
     /**
      * Request translation for a single document.
      */
@@ -774,19 +852,138 @@ private String constructBlobUrl(String containerName, String fileName) {
         }
     }
 
-       /**
-     * Check the status of a translation job.
+    /**
+     * Wait for a translation job to finish. Polling happens on the shared job poller thread.
      */
     private void checkJobStatus(String jobId) throws IOException, InterruptedException {
         logger.logDebug("Checking status for translation job ID: {}", jobId);
-        
-        String jobUrl = String.format(translatorEndpoint + "translator/document/batches/%s?api-version=" + apiVersion, jobId);
-        
-        int maxAttempts = 60; // Maximum number of attempts to check the status
-        int delayBetweenAttempts = 10; // Delay in seconds between attempts
-        int attempts = 0;
-        
-        while (attempts++ < maxAttempts) {
+        try {
+            getJobPoller().watch(jobId).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Translation failed for job ID " + jobId + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Start translating a Campus document without waiting for it. The document is uploaded
+     * and the translation job created on the calling thread; the job is then polled on the
+     * job poller thread, and once it finishes a download thread writes the result to the
+     * output location and completes the returned future. Documents that have to be split are handed to the chunk translator.
+     */
+    public CompletableFuture<Void> submitCampusDocument(String inputFilePath,
+                                                        String outputFileName, String targetLanguage) {
+        String fileName = FileUtilityHelper.getFileName(inputFilePath);
+        String uploadedFileName = blobName(fileName, targetLanguage);
+        String outputFilePath = outputFileLocation + File.separator + outputFileName;
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        try {
+            if (chunkTranslator.needsSplitting(inputFilePath)) {
+                return chunkTranslator.submit(inputFilePath, targetLanguage, outputFilePath);
+            }
+        } catch (IOException e) {
+            logger.logError("Failed to read document {}: {}", fileName, e.getMessage());
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        String translationJobId;
+        try {
+            deleteDocument(sourceContainerName, uploadedFileName);
+            sourceContainerClient = blobServiceClient.getBlobContainerClient(sourceContainerName);
+            sourceContainerClient.getBlobClient(uploadedFileName).uploadFromFile(inputFilePath, true);
+            logger.logDebug("File uploaded successfully: {} as {}", fileName, uploadedFileName);
+
+            deleteDocument(targetContainerName, uploadedFileName);
+            translationJobId = requestSingleDocumentTranslation(uploadedFileName, targetLanguage);
+            logger.logInfo("Submitted translation job {} for {}", translationJobId, fileName);
+        } catch (Exception e) {
+            logger.logError("Failed to submit document {} for translation: {}", fileName, e.getMessage());
+            deleteDocument(sourceContainerName, uploadedFileName);
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        getJobPoller().watch(translationJobId).whenCompleteAsync((ignored, error) -> {
+            try {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                FileUtilityHelper.deleteFileIfExists(outputFilePath);
+                BlobClient blobClient = blobServiceClient.getBlobContainerClient(targetContainerName)
+                    .getBlobClient(uploadedFileName);
+                blobClient.downloadToFile(outputFilePath, true);
+                result.complete(null);
+            } catch (Exception e) {
+                logger.logError("Failed to download translated document {}: {}", uploadedFileName, e.getMessage());
+                result.completeExceptionally(e);
+            } finally {
+                deleteDocument(targetContainerName, uploadedFileName);
+                deleteDocument(sourceContainerName, uploadedFileName);
+            }
+        }, getDownloadPool());
+        return result;
+    }
+
+    private synchronized JobPoller getJobPoller() {
+        if (jobPoller == null) {
+            jobPoller = new JobPoller();
+        }
+        return jobPoller;
+    }
+
+    private synchronized ExecutorService getDownloadPool() {
+        if (downloadPool == null) {
+            downloadPool = Executors.newFixedThreadPool(config.getDocumentChunkConcurrency(),
+                new NamedThreadFactory("azure-document-download"));
+        }
+        return downloadPool;
+    }
+
+    /**
+     * Polls all outstanding translation jobs from a single thread. Each job starts with a
+     * short poll interval that grows while the job is still running, and a Retry-After
+     * header from the service always takes precedence. Jobs that run longer than
+     * JOB_TIMEOUT_MILLIS fail.
+     */
+    private class JobPoller {
+        private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("azure-document-poll"));
+        private final Set<TrackedJob> outstanding = ConcurrentHashMap.newKeySet();
+
+        private class TrackedJob {
+            private final String jobId;
+            private final long deadline = System.currentTimeMillis() + JOB_TIMEOUT_MILLIS;
+            private final CompletableFuture<Void> future = new CompletableFuture<>();
+            private long intervalMillis = INITIAL_POLL_MILLIS;
+
+            TrackedJob(String jobId) {
+                this.jobId = jobId;
+            }
+        }
+
+        CompletableFuture<Void> watch(String jobId) {
+            TrackedJob job = new TrackedJob(jobId);
+            outstanding.add(job);
+            schedule(job, INITIAL_POLL_MILLIS);
+            return job.future;
+        }
+
+        private void schedule(TrackedJob job, long delayMillis) {
+            try {
+                scheduler.schedule(() -> poll(job), delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                finish(job, new IOException("Job poller stopped before job " + job.jobId + " finished"));
+            }
+        }
+
+        private void poll(TrackedJob job) {
+            String jobUrl = String.format(translatorEndpoint + "translator/document/batches/%s?api-version=" + apiVersion, job.jobId);
             Request request = new Request.Builder()
                 .url(jobUrl)
                 .get()
@@ -794,30 +991,72 @@ private String constructBlobUrl(String containerName, String fileName) {
                 .addHeader("Ocp-Apim-Subscription-Region", translatorRegion)
                 .addHeader("Content-Type", "application/json")
                 .build();
-            
+
+            long retryAfterMillis = 0;
             try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    throw new IOException("Translation status check failed: " + response.message());
-                }
-                
-                JsonObject responseJson = JsonParser.parseString(response.body().string()).getAsJsonObject();
-                String status = responseJson.get("status").getAsString();
-                
-                logger.logDebug("Current translation status: {} for job ID: {}", status, jobId);
-                
-                if ("Succeeded".equalsIgnoreCase(status)) {
-                    logger.logInfo("Translation completed successfully for job ID: {}", jobId);
+                retryAfterMillis = RequestRateLimiter.parseRetryAfter(response.header("Retry-After"));
+                if (response.code() == 429) {
+                    logger.logDebug("Status check for job {} throttled, retrying in {} ms", job.jobId, retryAfterMillis);
+                } else if (!response.isSuccessful()) {
+                    finish(job, new IOException("Translation status check failed: " + response.message()));
                     return;
-                } else if ("Failed".equalsIgnoreCase(status) || "ValidationFailed".equalsIgnoreCase(status)) {
-                    logger.logError("Translation failed for job ID: {}", jobId);
-                    throw new RuntimeException("Translation failed with status: " + status);
+                } else {
+                    JsonObject responseJson = JsonParser.parseString(response.body().string()).getAsJsonObject();
+                    String status = responseJson.get("status").getAsString();
+                    logger.logDebug("Current translation status: {} for job ID: {}", status, job.jobId);
+
+                    if ("Succeeded".equalsIgnoreCase(status)) {
+                        if (getFailedCount(responseJson) > 0) {
+                            finish(job, new IOException("Translation failed for the document in job " + job.jobId));
+                        } else {
+                            logger.logInfo("Translation completed successfully for job ID: {}", job.jobId);
+                            finish(job, null);
+                        }
+                        return;
+                    } else if ("Failed".equalsIgnoreCase(status) || "ValidationFailed".equalsIgnoreCase(status)
+                            || "Cancelled".equalsIgnoreCase(status)) {
+                        logger.logError("Translation failed for job ID: {}", job.jobId);
+                        finish(job, new IOException("Translation failed with status: " + status));
+                        return;
+                    }
                 }
-                
-                TimeUnit.SECONDS.sleep(delayBetweenAttempts);
+            } catch (Exception e) {
+                // Transient network errors are retried until the job times out
+                logger.logWarn("Status check for job {} failed: {}", job.jobId, e.getMessage());
+            }
+
+            if (System.currentTimeMillis() > job.deadline) {
+                finish(job, new IOException("Translation timed out after " + (JOB_TIMEOUT_MILLIS / 1000) + " seconds"));
+                return;
+            }
+            long delay = Math.max(job.intervalMillis, retryAfterMillis);
+            job.intervalMillis = Math.min(MAX_POLL_MILLIS, (long) (job.intervalMillis * POLL_BACKOFF_FACTOR));
+            schedule(job, delay);
+        }
+
+        private void finish(TrackedJob job, Exception error) {
+            outstanding.remove(job);
+            if (error == null) {
+                job.future.complete(null);
+            } else {
+                job.future.completeExceptionally(error);
+            }
+        }
+
+        void shutdown() {
+            scheduler.shutdownNow();
+            for (TrackedJob job : outstanding) {
+                finish(job, new IOException("Job poller closed before job " + job.jobId + " finished"));
             }
         }
-        
-        throw new IOException("Translation timed out after " + maxAttempts + " attempts");
+    }
+
+    private static int getFailedCount(JsonObject responseJson) {
+        JsonObject summary = responseJson.getAsJsonObject("summary");
+        if (summary == null || !summary.has("failed")) {
+            return 0;
+        }
+        return summary.get("failed").getAsInt();
     }
 
     /**
@@ -825,13 +1064,8 @@ private String constructBlobUrl(String containerName, String fileName) {
      */
     private void deleteDocument(String containerName, String documentName) {
         try {
-            BlobClientBuilder blobClientBuilder = new BlobClientBuilder()
-                .connectionString(blobConnectionString)
-                .containerName(containerName)
-                .blobName(documentName);
-                
-            // Delete the blob
-            blobClientBuilder.buildClient().delete();
+            // Delete the blob through the shared service client so no new pipeline is built
+            blobServiceClient.getBlobContainerClient(containerName).getBlobClient(documentName).delete();
             logger.logDebug("Document {} deleted successfully from container {}", documentName, containerName);
         } catch (BlobStorageException e) {
             if (e.getStatusCode() == 404) {
@@ -849,8 +1083,8 @@ private String constructBlobUrl(String containerName, String fileName) {
     /**
      * Process database operations for Backpack document translation.
      */
-    private void processBackpackDatabase(int translationDocumentID, int documentID, byte[] translatedData, 
-                                        String targetLanguage, String fullLanguage) throws SQLException {
+    private void processBackpackDatabase(int translationDocumentID, int documentID, SpillBuffer translatedData, 
+                                        String targetLanguage, String fullLanguage) throws SQLException, IOException {
         int translatedScheduleID = -1;
         String scheduleName = "";
         int docPersonID = 0;
@@ -949,19 +1183,23 @@ private String constructBlobUrl(String containerName, String fileName) {
                     // Update existing document
                     sql = "UPDATE document SET doc_object=?, doc_updatedt=GETDATE() WHERE doc_personID=? AND scheduleID=?";
                     try (PreparedStatement updateStmt = backpackConnection.prepareStatement(sql)) {
-                        updateStmt.setBytes(1, translatedData);
-                        updateStmt.setInt(2, docPersonID);
-                        updateStmt.setInt(3, translatedScheduleID);
-                        updateStmt.executeUpdate();
+                        try (InputStream translatedStream = translatedData.openInputStream()) {
+                            updateStmt.setBinaryStream(1, translatedStream, translatedData.length());
+                            updateStmt.setInt(2, docPersonID);
+                            updateStmt.setInt(3, translatedScheduleID);
+                            updateStmt.executeUpdate();
+                        }
                     }
                 } else {
                     // Create new document
                     sql = "INSERT INTO document (doc_object, doc_personID, scheduleID, doc_createdt, doc_updatedt) VALUES(?,?,?,GETDATE(),GETDATE())";
                     try (PreparedStatement insertStmt = backpackConnection.prepareStatement(sql)) {
-                        insertStmt.setBytes(1, translatedData);
-                        insertStmt.setInt(2, docPersonID);
-                        insertStmt.setInt(3, translatedScheduleID);
-                        insertStmt.executeUpdate();
+                        try (InputStream translatedStream = translatedData.openInputStream()) {
+                            insertStmt.setBinaryStream(1, translatedStream, translatedData.length());
+                            insertStmt.setInt(2, docPersonID);
+                            insertStmt.setInt(3, translatedScheduleID);
+                            insertStmt.executeUpdate();
+                        }
                     }
                 }
             }
@@ -977,9 +1215,27 @@ private String constructBlobUrl(String containerName, String fileName) {
     @Override
     public void close() {
         logger.logDebug("Closing Azure document translation service resources");
+        if (chunkTranslator != null) {
+            chunkTranslator.close();
+            chunkTranslator = null;
+        }
+        synchronized (this) {
+            if (jobPoller != null) {
+                jobPoller.shutdown();
+                jobPoller = null;
+            }
+            // After the poller, whose shutdown hands its outstanding jobs to this pool to fail
+            if (downloadPool != null) {
+                downloadPool.shutdown();
+                downloadPool = null;
+            }
+        }
         
-        // OkHttpClient doesn't need explicit closing
-        // BlobServiceClient doesn't need explicit closing
+        // The HTTP and blob clients are shared; the registry closes them once they have been idle
+        if (blobServiceClientLease != null) {
+            blobServiceClientLease.close();
+            blobServiceClientLease = null;
+        }
         
         logger.logDebug("Azure resources closed successfully");
     }
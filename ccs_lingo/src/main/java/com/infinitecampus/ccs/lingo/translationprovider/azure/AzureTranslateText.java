@@ -18,10 +18,19 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.infinitecampus.ccs.lingo.authenticate.Authenticate;
+import com.infinitecampus.ccs.lingo.authenticate.TokenContext;
 import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationprovider.ProviderClientRegistry;
 import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.PartialBatchException;
+import com.infinitecampus.ccs.lingo.utility.ProviderThrottledException;
+import com.infinitecampus.ccs.lingo.utility.RequestRateLimiter;
+import com.infinitecampus.ccs.lingo.utility.TranslationBatchHelper;
 
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -60,6 +69,9 @@ public class AzureTranslateText implements AutoCloseable {
     private static final String DEFAULT_LOCATION = "eastus";
     private static final String DEFAULT_API_VERSION = "3.0";
     private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json");
+    // Translator v3 request limits: 1,000 array elements and 50,000 characters per call
+    private static final int MAX_BATCH_ELEMENTS = 1000;
+    private static final int MAX_BATCH_CHARACTERS = 50000;
     
     private static final String SQL_FETCH_CONFIG = 
         "SELECT TOP 1 " +
@@ -76,8 +88,10 @@ public class AzureTranslateText implements AutoCloseable {
     // Instance fields
     private final Connection connection;
     private final String authToken;
+    private final TokenContext tokenContext;
     //private final Configuration config;
     private final OkHttpClient httpClient;
+    private final RequestRateLimiter rateLimiter;
     private AzureConfiguration azureConfig;
 
     /**
@@ -123,6 +137,7 @@ public class AzureTranslateText implements AutoCloseable {
         private Connection connection;
         private String token;
         private Configuration config;
+        private TokenContext context;
 
         public Builder withConnection(Connection connection) {
             this.connection = connection;
@@ -139,24 +154,34 @@ public class AzureTranslateText implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Uses a token already resolved by TokenBootstrap, which skips the authentication
+         * and configuration queries.
+         */
+        public Builder withContext(TokenContext context) {
+            this.context = context;
+            this.token = context.getToken();
+            return this;
+        }
+
         public AzureTranslateText build() throws SecurityException {            
             logger.logInfo("Building AzureTranslateText with token: {}", token);
-            return new AzureTranslateText(connection, token, config);
+            return new AzureTranslateText(connection, token, config, context);
         }
     }
 
-    private AzureTranslateText(Connection connection, String token, Configuration configuration) {
+    private AzureTranslateText(Connection connection, String token, Configuration configuration, TokenContext context) {
         this.instanceLogger = new LogHelper(configuration).createLogger(this.getClass());
         instanceLogger.logInfo("Initializing AzureTranslateText with token: {}", token);
-        if (!Authenticate.isTranslatedTextAuthenticated(connection, token)) {
+        if (context == null && !Authenticate.isTranslatedTextAuthenticated(connection, token)) {
             instanceLogger.logError("Authentication failed for token: {}", token);
             throw new SecurityException("Invalid Token. Access Denied.");
         }
         this.connection = connection;
         this.authToken = token;
+        this.tokenContext = context;
        // this.config = configuration;
-        this.httpClient = new OkHttpClient();
-        
+        this.httpClient = ProviderClientRegistry.getSharedHttpClient();
 
         try {
             initialize();
@@ -165,6 +190,8 @@ public class AzureTranslateText implements AutoCloseable {
             instanceLogger.logError("Error during initialization: ", e);
             throw new RuntimeException("Failed to initialize Azure translation service", e);
         }
+        // Quota is metered per subscription key, so each key gets its own bucket
+        this.rateLimiter = RequestRateLimiter.forProvider("azure", azureConfig.keyId, configuration.getProviderRateLimit("azure"));
     }
 
     private void initialize() throws SQLException, NoRecordsFoundException {
@@ -176,6 +203,16 @@ public class AzureTranslateText implements AutoCloseable {
 
     private void fetchConfigInfo() throws NoRecordsFoundException, SQLException {
         instanceLogger.logDebug("Fetching configuration information");
+        if (tokenContext != null) {
+            azureConfig = new AzureConfiguration(
+                tokenContext.getServiceAccountValue("translator_key_id"),
+                tokenContext.getServiceAccountValue("text_translation_endpoint"),
+                tokenContext.getServiceAccountValue("text_translation_apiversion", DEFAULT_API_VERSION),
+                tokenContext.getServiceAccountValue("text_translation_location", DEFAULT_LOCATION)
+            );
+            instanceLogger.logDebug("Configuration taken from token context");
+            return;
+        }
         try (PreparedStatement pstmt = connection.prepareStatement(SQL_FETCH_CONFIG)) {
             // Set both default values as parameters
             pstmt.setString(1, DEFAULT_API_VERSION);
@@ -207,24 +244,81 @@ public class AzureTranslateText implements AutoCloseable {
      * Translates text to the target language.
      */
     public String translateText(String sourceText, String targetLanguage) throws TranslationException {
-        instanceLogger.logInfo("Translating text to language: {}", targetLanguage);
+        instanceLogger.logInfoSampled("Translating text to language: {}", targetLanguage);
         validateInput(sourceText, targetLanguage);
 
         try {
             JsonArray requestBody = createRequestBody(sourceText);
             Request request = createTranslationRequest(requestBody, targetLanguage);
-            instanceLogger.logDebug("Sending translation request to Azure");
-            try (Response response = httpClient.newCall(request).execute()) {
-                String result = handleTranslationResponse(response);
-                instanceLogger.logDebug("Translation completed successfully");
-                return result;
-            }
+            instanceLogger.logDebugSampled("Sending translation request to Azure");
+            String result = rateLimiter.call(() -> {
+                try (Response response = httpClient.newCall(request).execute()) {
+                    checkThrottled(response);
+                    return handleTranslationResponse(response);
+                }
+            });
+            instanceLogger.logDebugSampled("Translation completed successfully");
+            return result;
         } catch (Exception e) {
             instanceLogger.logError("Translation failed", e);
             throw new TranslationException("Translation failed", e);
         }
     }
 
+    /**
+     * Translates a list of texts to the target language. The texts are packed into as few
+     * requests as the Translator limits allow; results are returned in the same order.
+     * A failed request does not stop the ones after it unless it was throttled; if any
+     * request succeeded, the TranslationException carries a PartialBatchException with
+     * the translations that were made.
+     */
+    public List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws TranslationException {
+        instanceLogger.logInfoSampled("Translating batch of {} texts to language: {}", sourceTexts.size(), targetLanguage);
+        for (String sourceText : sourceTexts) {
+            validateInput(sourceText, targetLanguage);
+        }
+
+        List<String> results = new ArrayList<>(Collections.<String>nCopies(sourceTexts.size(), null));
+        Exception failure = null;
+        int translatedCount = 0;
+        for (int[] range : TranslationBatchHelper.partition(sourceTexts, MAX_BATCH_ELEMENTS, MAX_BATCH_CHARACTERS)) {
+            List<String> chunk = sourceTexts.subList(range[0], range[1]);
+            try {
+                Request request = createTranslationRequest(createRequestBody(chunk), targetLanguage);
+                instanceLogger.logDebugSampled("Sending batch translation request to Azure with {} texts", chunk.size());
+                List<String> chunkResults = rateLimiter.call(() -> {
+                    try (Response response = httpClient.newCall(request).execute()) {
+                        checkThrottled(response);
+                        return handleBatchTranslationResponse(response, chunk.size());
+                    }
+                });
+                for (int i = 0; i < chunkResults.size(); i++) {
+                    results.set(range[0] + i, chunkResults.get(i));
+                }
+                translatedCount += chunk.size();
+            } catch (Exception e) {
+                instanceLogger.logWarn("Batch translation of texts {} to {} failed: {}", range[0], range[1] - 1, e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                }
+                if (ProviderThrottledException.isThrottled(e)) {
+                    // The requests after it would only be throttled as well
+                    break;
+                }
+            }
+        }
+        if (failure == null) {
+            instanceLogger.logDebugSampled("Batch translation completed successfully");
+            return results;
+        }
+        instanceLogger.logError("Batch translation failed", failure);
+        if (translatedCount == 0) {
+            throw new TranslationException("Batch translation failed", failure);
+        }
+        throw new TranslationException("Batch translation failed",
+            new PartialBatchException("Translated " + translatedCount + " of " + sourceTexts.size() + " texts", results, failure));
+    }
+
     private JsonArray createRequestBody(String sourceText) {
         JsonArray jsonArray = new JsonArray();
         JsonObject textObject = new JsonObject();
@@ -233,14 +327,22 @@ public class AzureTranslateText implements AutoCloseable {
         return jsonArray;
     }
 
+    private JsonArray createRequestBody(List<String> sourceTexts) {
+        JsonArray jsonArray = new JsonArray();
+        for (String sourceText : sourceTexts) {
+            JsonObject textObject = new JsonObject();
+            textObject.add("Text", new JsonPrimitive(sourceText));
+            jsonArray.add(textObject);
+        }
+        return jsonArray;
+    }
+
     private Request createTranslationRequest(JsonArray requestBody, String targetLanguage) {
         String url = String.format("%stranslate?api-version=%s&from=%s&to=%s",
         azureConfig.endpoint, azureConfig.apiVersion, DEFAULT_SOURCE_LANGUAGE, targetLanguage);
     
-        instanceLogger.logDebug("Request URL: {}", url);
-        instanceLogger.logDebug("Request Body: {}", requestBody.toString());
-        instanceLogger.logDebug("API Key (first 10 chars): {}", azureConfig.keyId.substring(0, Math.min(10, azureConfig.keyId.length())));
-        instanceLogger.logDebug("Region: {}", azureConfig.location);
+        // The body is only turned into text if the line is written
+        instanceLogger.logDebugSampled("Request URL: {}, region: {}, body: {}", url, azureConfig.location, requestBody);
     
         return new Request.Builder()
             .url(url)
@@ -251,6 +353,18 @@ public class AzureTranslateText implements AutoCloseable {
             .build();
     }
 
+    /**
+     * Turns a 429 (request or character quota exceeded) or 503 (service busy) into a
+     * ProviderThrottledException carrying the Retry-After the service sent.
+     */
+    private void checkThrottled(Response response) throws ProviderThrottledException {
+        if (response.code() == 429 || response.code() == 503) {
+            long retryAfterMillis = RequestRateLimiter.parseRetryAfter(response.header("Retry-After"));
+            instanceLogger.logWarn("Azure throttled the request with code {}, Retry-After {} ms", response.code(), retryAfterMillis);
+            throw new ProviderThrottledException("azure", retryAfterMillis, "Azure request throttled: " + response.code(), null);
+        }
+    }
+
     private String handleTranslationResponse(Response response) throws IOException {
         if (!response.isSuccessful()) {
             ResponseBody errorBody = response.body();
@@ -274,6 +388,32 @@ public class AzureTranslateText implements AutoCloseable {
         return translationObject.get("text").getAsString();
     }
 
+    private List<String> handleBatchTranslationResponse(Response response, int expectedCount) throws IOException {
+        if (!response.isSuccessful()) {
+            ResponseBody errorBody = response.body();
+            String errorMessage = errorBody != null ? errorBody.string() : "No error body";
+            instanceLogger.logError("Azure API Error - Code: {}, Body: {}", response.code(), errorMessage);
+            throw new IOException("Unexpected response code: " + response + ", Error: " + errorMessage);
+        }
+
+        ResponseBody responseBody = response.body();
+        if (responseBody == null) {
+            throw new IOException("Response body is null");
+        }
+
+        JsonArray responseArray = JsonParser.parseString(responseBody.string()).getAsJsonArray();
+        if (responseArray.size() != expectedCount) {
+            throw new IOException("Expected " + expectedCount + " translations but received " + responseArray.size());
+        }
+
+        List<String> translations = new ArrayList<>(expectedCount);
+        for (JsonElement element : responseArray) {
+            JsonArray translationsArray = element.getAsJsonObject().getAsJsonArray("translations");
+            translations.add(translationsArray.get(0).getAsJsonObject().get("text").getAsString());
+        }
+        return translations;
+    }
+
     private void validateInput(String sourceText, String targetLanguage) {
         if (sourceText == null || sourceText.trim().isEmpty()) {
             throw new IllegalArgumentException("Source text cannot be empty");
@@ -286,13 +426,7 @@ public class AzureTranslateText implements AutoCloseable {
 
     @Override
     public void close() {
-       // httpClient.cl
-       if (httpClient != null) {
-        try{
-            httpClient.connectionPool().evictAll();
-        }catch (Exception e){
-            instanceLogger.logError("Error closing httpClient", e);
-        }}
+        // httpClient is shared through ProviderClientRegistry, its pooled connections stay open
         instanceLogger.logDebug("Closing Azure translation service resources");
         // Clean up resources if needed
     }
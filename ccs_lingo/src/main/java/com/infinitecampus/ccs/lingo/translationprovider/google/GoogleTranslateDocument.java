@@ -1,7 +1,6 @@
 package com.infinitecampus.ccs.lingo.translationprovider.google;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -17,8 +16,12 @@ import java.sql.SQLException;
 import java.sql.Types;
 
 import com.infinitecampus.ccs.lingo.authenticate.Authenticate;
+import com.infinitecampus.ccs.lingo.authenticate.TokenContext;
 import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationprovider.ProviderClientRegistry;
 import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.PdfChunkTranslator;
+import com.infinitecampus.ccs.lingo.utility.SpillBuffer;
 import com.infinitecampus.ccs.lingo.utility.FileUtilityHelper;
 
 import com.google.cloud.translate.v3.*;
@@ -56,16 +59,22 @@ public class GoogleTranslateDocument implements AutoCloseable {
     private final Connection campusConnection;
     private final Connection backpackConnection;
     private final String authToken;
+    private final TokenContext tokenContext;
     private final Configuration config;
     private String outputFileLocation;
     
     // Google services
+    private ProviderClientRegistry.Lease<TranslationServiceClient> translationClientLease;
     private TranslationServiceClient translationClient;
     private LocationName parentLocation;
+    // Splits documents over the request size and page limits
+    private PdfChunkTranslator chunkTranslator;
     
     // Google configuration
     private String projectId;
     private String serviceAccountJson;
+    // Set only to send requests to a stand-in over HTTP/JSON instead of Google
+    private String translateEndpoint;
 
     /**
      * Custom exception for when no translation records are found.
@@ -84,6 +93,7 @@ public class GoogleTranslateDocument implements AutoCloseable {
         private Connection backpackConnection;
         private String token;
         private Configuration config;
+        private TokenContext context;
 
         public Builder withCampusConnection(Connection connection) {
             this.campusConnection = connection;
@@ -105,17 +115,28 @@ public class GoogleTranslateDocument implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Uses a token already resolved by TokenBootstrap, which skips the authentication
+         * and configuration queries.
+         */
+        public Builder withContext(TokenContext context) {
+            this.context = context;
+            this.token = context.getToken();
+            return this;
+        }
+
         public GoogleTranslateDocument build() throws SecurityException {
             logger.logInfo("Building GoogleTranslateDocument with token: {}", token);
-            return new GoogleTranslateDocument(campusConnection, backpackConnection, token, config);
+            return new GoogleTranslateDocument(campusConnection, backpackConnection, token, config, context);
         }
     }
 
     /**
      * Private constructor - use Builder to create instances.
      */
-    private GoogleTranslateDocument(Connection campusConnection, Connection backpackConnection, String token, Configuration configuration) {
-        if (!Authenticate.isTranslatedDocumentAuthenticated(campusConnection, token)) {
+    private GoogleTranslateDocument(Connection campusConnection, Connection backpackConnection, String token, Configuration configuration,
+            TokenContext context) {
+        if (context == null && !Authenticate.isTranslatedDocumentAuthenticated(campusConnection, token)) {
             logger.logError("Authentication failed for token: {}", token);
             throw new SecurityException("Invalid Token. Access Denied.");
         }
@@ -124,6 +145,7 @@ public class GoogleTranslateDocument implements AutoCloseable {
         this.backpackConnection = backpackConnection;
         this.authToken = token;
         this.config = configuration;
+        this.tokenContext = context;
 
         try {
             initialize();
@@ -148,6 +170,15 @@ public class GoogleTranslateDocument implements AutoCloseable {
      */
     private void fetchConfigInfo() throws NoRecordsFoundException, SQLException {
         logger.logDebug("Fetching configuration information");
+        if (tokenContext != null) {
+            projectId = tokenContext.getServiceAccountValue("project_id");
+            serviceAccountJson = tokenContext.getServiceAccount();
+            translateEndpoint = tokenContext.getServiceAccountValue("translate_endpoint");
+            outputFileLocation = tokenContext.getOutputDirectory();
+            FileUtilityHelper.createFolderIfNotExists(outputFileLocation);
+            logger.logDebug("Configuration taken from token context");
+            return;
+        }
         try (PreparedStatement pstmt = campusConnection.prepareStatement(SQL_FETCH_CONFIG)) {
             pstmt.setString(1, authToken);
             logger.logDebug("Executing query with token: {}", authToken);
@@ -176,25 +207,39 @@ public class GoogleTranslateDocument implements AutoCloseable {
     private void initializeTranslationServices() throws IOException {
         logger.logDebug("Initializing translation services");
         
-        try (InputStream serviceAccountStream = 
-            new ByteArrayInputStream(serviceAccountJson.getBytes(StandardCharsets.UTF_8))) {
-            
-            // Create credentials from the service account JSON
-            GoogleCredentials credentials = ServiceAccountCredentials.fromStream(serviceAccountStream);
-            
-            // Create translation service settings
-            TranslationServiceSettings settings = TranslationServiceSettings.newBuilder()
-                .setCredentialsProvider(() -> credentials)
-                .build();
-                
-            // Create translation client
-            translationClient = TranslationServiceClient.create(settings);
+        // Channel setup is the expensive part, so the client is shared per service account and endpoint
+        String serviceAccount = serviceAccountJson;
+        String endpoint = translateEndpoint;
+        translationClientLease = ProviderClientRegistry.getInstance().acquire("google", "translate",
+            serviceAccount + ":" + endpoint, () -> {
+                try (InputStream serviceAccountStream = 
+                    new ByteArrayInputStream(serviceAccount.getBytes(StandardCharsets.UTF_8))) {
+                    
+                    // Create credentials from the service account JSON
+                    GoogleCredentials credentials = ServiceAccountCredentials.fromStream(serviceAccountStream);
+                    
+                    // Create translation service settings
+                    TranslationServiceSettings.Builder settings = endpoint == null
+                        ? TranslationServiceSettings.newBuilder()
+                        : TranslationServiceSettings.newHttpJsonBuilder().setEndpoint(endpoint);
+                        
+                    return TranslationServiceClient.create(settings
+                        .setCredentialsProvider(() -> credentials)
+                        .build());
+                }
+            });
+        translationClient = translationClientLease.get();
             
-            // Set parent location
-            parentLocation = LocationName.of(projectId, "global");
+        // Set parent location
+        parentLocation = LocationName.of(projectId, "global");
+
+        chunkTranslator = new PdfChunkTranslator("google", config, (source, translated, language) -> {
+            try (OutputStream outputStream = new FileOutputStream(translated)) {
+                translatePdf(source.getPath(), language).writeTo(outputStream);
+            }
+        });
             
-            logger.logDebug("Translation services initialized");
-        }
+        logger.logDebug("Translation services initialized");
     }
 
     /**
@@ -204,23 +249,23 @@ public class GoogleTranslateDocument implements AutoCloseable {
                                         String outputFileName, String targetLanguage) throws IOException, SQLException {
        // logger.logInfo("Processing Campus document translation for ID: {}", translationDocumentID);
         
+        String outputFilePath = outputFileLocation + File.separator + outputFileName;
         try {
-            byte[] pdfData = getPdfBytes(inputFilePath);
-            byte[] translatedData = translatePdf(pdfData, targetLanguage);
-
-            String outputFilePath = outputFileLocation + File.separator + outputFileName;
             logger.logDebug("Output file path: {}", outputFilePath);
             
             // Ensure the output file does not already exist
             FileUtilityHelper.deleteFileIfExists(outputFilePath);
             
             // Write the translated content to the output location
-            FileUtilityHelper.WriteFilesOut(outputFilePath, translatedData);
+            try (OutputStream outputStream = new FileOutputStream(outputFilePath)) {
+                chunkTranslator.translate(inputFilePath, targetLanguage, outputStream);
+            }
             
            // markRequestCompleted(translationDocumentID, FileUtilityHelper.getFileName(outputFilePath));
           //  logger.logInfo("Successfully completed translation for ID: {}", translationDocumentID);
         } catch (IOException e) {
             //logger.logError("Error during document translation for ID: {}", translationDocumentID, e);
+            FileUtilityHelper.deleteFileIfExists(outputFilePath);
             throw new IOException("Error during translation process", e);
         }
     }
@@ -234,11 +279,15 @@ public class GoogleTranslateDocument implements AutoCloseable {
         logger.logInfo("Processing Backpack document translation for ID: {}", translationDocumentID);
         
         try {
-            byte[] pdfData = getPdfBytes(inputFilePath);
-            byte[] translatedData = translatePdf(pdfData, targetLanguage);
-            
-            // Process database operations
-            processBackpackDatabase(translationDocumentID, documentID, translatedData, targetLanguage, fullLanguage);
+            // Buffer the translated document, spilling large ones to disk
+            try (SpillBuffer translatedData = new SpillBuffer()) {
+                try (OutputStream outputStream = translatedData.getOutputStream()) {
+                    chunkTranslator.translate(inputFilePath, targetLanguage, outputStream);
+                }
+                
+                // Process database operations
+                processBackpackDatabase(translationDocumentID, documentID, translatedData, targetLanguage, fullLanguage);
+            }
             
             logger.logInfo("Successfully completed translation for ID: {}", translationDocumentID);
         } catch (IOException e) {
@@ -248,29 +297,20 @@ public class GoogleTranslateDocument implements AutoCloseable {
     }
 
     /**
-     * Get PDF file as byte array.
-     */
-    private byte[] getPdfBytes(String filePath) throws IOException {
-        try (InputStream stream = new FileInputStream(filePath);
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = stream.read(buffer)) != -1) {
-                baos.write(buffer, 0, bytesRead);
-            }
-            return baos.toByteArray();
-        }
-    }
-
-    /**
-     * Translate PDF document using Google Cloud Translation API.
+     * Translate PDF document using Google Cloud Translation API in a single request.
      */
-    private byte[] translatePdf(byte[] pdfData, String targetLanguage) throws IOException {
+    private ByteString translatePdf(String inputFilePath, String targetLanguage) throws IOException {
         logger.logDebug("Translating PDF document to language: {}", targetLanguage);
         
+        // Read the file straight into the request content without an intermediate array
+        ByteString pdfContent;
+        try (InputStream stream = new FileInputStream(inputFilePath)) {
+            pdfContent = ByteString.readFrom(stream);
+        }
+        
         // Create document input configuration
         DocumentInputConfig docInputConfig = DocumentInputConfig.newBuilder()
-            .setContent(ByteString.copyFrom(pdfData))
+            .setContent(pdfContent)
             .setMimeType("application/pdf")
             .build();
             
@@ -296,7 +336,7 @@ public class GoogleTranslateDocument implements AutoCloseable {
         ByteString translatedContent = response.getDocumentTranslation().getByteStreamOutputs(0);
         
         logger.logDebug("PDF document translation completed successfully");
-        return translatedContent.toByteArray();
+        return translatedContent;
     }
 
    
@@ -304,8 +344,8 @@ public class GoogleTranslateDocument implements AutoCloseable {
     /**
      * Process database operations for Backpack document translation.
      */
-    private void processBackpackDatabase(int translationDocumentID, int documentID, byte[] translatedData, 
-                                        String targetLanguage, String fullLanguage) throws SQLException {
+    private void processBackpackDatabase(int translationDocumentID, int documentID, SpillBuffer translatedData, 
+                                        String targetLanguage, String fullLanguage) throws SQLException, IOException {
         int translatedScheduleID = -1;
         String scheduleName = "";
         int docPersonID = 0;
@@ -404,19 +444,23 @@ public class GoogleTranslateDocument implements AutoCloseable {
                     // Update existing document
                     sql = "UPDATE document SET doc_object=?, doc_updatedt=GETDATE() WHERE doc_personID=? AND scheduleID=?";
                     try (PreparedStatement updateStmt = backpackConnection.prepareStatement(sql)) {
-                        updateStmt.setBytes(1, translatedData);
-                        updateStmt.setInt(2, docPersonID);
-                        updateStmt.setInt(3, translatedScheduleID);
-                        updateStmt.executeUpdate();
+                        try (InputStream translatedStream = translatedData.openInputStream()) {
+                            updateStmt.setBinaryStream(1, translatedStream, translatedData.length());
+                            updateStmt.setInt(2, docPersonID);
+                            updateStmt.setInt(3, translatedScheduleID);
+                            updateStmt.executeUpdate();
+                        }
                     }
                 } else {
                     // Create new document
                     sql = "INSERT INTO document (doc_object, doc_personID, scheduleID, doc_createdt, doc_updatedt) VALUES(?,?,?,GETDATE(),GETDATE())";
                     try (PreparedStatement insertStmt = backpackConnection.prepareStatement(sql)) {
-                        insertStmt.setBytes(1, translatedData);
-                        insertStmt.setInt(2, docPersonID);
-                        insertStmt.setInt(3, translatedScheduleID);
-                        insertStmt.executeUpdate();
+                        try (InputStream translatedStream = translatedData.openInputStream()) {
+                            insertStmt.setBinaryStream(1, translatedStream, translatedData.length());
+                            insertStmt.setInt(2, docPersonID);
+                            insertStmt.setInt(3, translatedScheduleID);
+                            insertStmt.executeUpdate();
+                        }
                     }
                 }
             }
@@ -431,13 +475,16 @@ public class GoogleTranslateDocument implements AutoCloseable {
      */
     @Override
     public void close() {
-        if (translationClient != null) {
-            try {
-                translationClient.close();
-                logger.logDebug("Translation client closed successfully");
-            } catch (Exception e) {
-                logger.logWarn("Error closing translation client", e);
-            }
+        if (chunkTranslator != null) {
+            chunkTranslator.close();
+            chunkTranslator = null;
+        }
+        if (translationClientLease != null) {
+            // The client is shared; the registry closes it once it has been idle
+            translationClientLease.close();
+            translationClientLease = null;
+            translationClient = null;
+            logger.logDebug("Translation client released");
         }
     }
 }
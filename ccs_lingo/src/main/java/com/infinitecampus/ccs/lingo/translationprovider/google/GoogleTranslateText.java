@@ -21,16 +21,26 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.infinitecampus.ccs.lingo.authenticate.Authenticate;
+import com.infinitecampus.ccs.lingo.authenticate.TokenContext;
 import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationprovider.ProviderClientRegistry;
 //import com.infinitecampus.ccs.lingo.translationprovider.aws.AwsTranslateText;
 import com.google.cloud.translate.v3.*;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials;
 import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
 
 import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.PartialBatchException;
+import com.infinitecampus.ccs.lingo.utility.ProviderThrottledException;
+import com.infinitecampus.ccs.lingo.utility.RequestRateLimiter;
+import com.infinitecampus.ccs.lingo.utility.TranslationBatchHelper;
 
 //import software.amazon.awssdk.services.translate.model.TranslateException;
 
@@ -55,6 +65,9 @@ public class GoogleTranslateText implements AutoCloseable {
     // Constants
     private static final String DEFAULT_LOCATION = "global";
     private static final String DEFAULT_MIME_TYPE = "text/plain";
+    // Translation v3 recommends at most 1,024 contents and 30,000 code points per request
+    private static final int MAX_BATCH_SEGMENTS = 1024;
+    private static final int MAX_BATCH_CODEPOINTS = 30000;
     
     private static final String SQL_FETCH_CONFIG = 
         "SELECT TOP 1 " +
@@ -68,9 +81,12 @@ public class GoogleTranslateText implements AutoCloseable {
     // Instance fields
     private final Connection connection;
     private final String authToken;
+    private final TokenContext tokenContext;
     //private final Configuration config;
+    private ProviderClientRegistry.Lease<TranslationServiceClient> translationClientLease;
     private TranslationServiceClient translationClient;
     private GoogleConfiguration googleConfig;
+    private final RequestRateLimiter rateLimiter;
 
     /**
      * Google configuration class
@@ -78,8 +94,10 @@ public class GoogleTranslateText implements AutoCloseable {
     private static class GoogleConfiguration {
         private final LocationName parentLocation;
         private final String serviceAccount;
+        // Set only to send requests to a stand-in over HTTP/JSON instead of Google
+        private final String endpoint;
 
-        public GoogleConfiguration(String projectId, String serviceAccount) {
+        public GoogleConfiguration(String projectId, String serviceAccount, String endpoint) {
             if (projectId == null || projectId.trim().isEmpty()) {
                 throw new IllegalArgumentException("Project ID cannot be empty");
             }
@@ -88,6 +106,7 @@ public class GoogleTranslateText implements AutoCloseable {
             }
 
             this.serviceAccount = serviceAccount;
+            this.endpoint = endpoint;
             // projectId is used here to create the LocationName
             this.parentLocation = LocationName.of(projectId, DEFAULT_LOCATION);
         }
@@ -115,6 +134,7 @@ public class GoogleTranslateText implements AutoCloseable {
         private Connection connection;
         private String token;
         private Configuration config;
+        private TokenContext context;
 
         public Builder withConnection(Connection connection) {
             this.connection = connection;
@@ -131,22 +151,33 @@ public class GoogleTranslateText implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Uses a token already resolved by TokenBootstrap, which skips the authentication
+         * and configuration queries.
+         */
+        public Builder withContext(TokenContext context) {
+            this.context = context;
+            this.token = context.getToken();
+            return this;
+        }
+
         public GoogleTranslateText build() throws SecurityException {
             logger.logInfo("Building GoogleTranslateText with token: {}", token);
-            return new GoogleTranslateText(connection, token, config);
+            return new GoogleTranslateText(connection, token, config, context);
         }
     }
 
-    private GoogleTranslateText(Connection connection, String token, Configuration configuration) {
+    private GoogleTranslateText(Connection connection, String token, Configuration configuration, TokenContext context) {
         this.instanceLogger = new LogHelper(configuration).createLogger(this.getClass());
         instanceLogger.logInfo("Initializing GoogleTranslateText with token: {}", token);
-        if (!Authenticate.isTranslatedTextAuthenticated(connection, token)) {
+        if (context == null && !Authenticate.isTranslatedTextAuthenticated(connection, token)) {
             instanceLogger.logError("Authentication failed for token: {}", token);
             throw new SecurityException("Invalid Token. Access Denied.");
         }
 
         this.connection = connection;
         this.authToken = token;
+        this.tokenContext = context;
         //this.config = configuration;
 
         try {
@@ -156,6 +187,8 @@ public class GoogleTranslateText implements AutoCloseable {
             instanceLogger.logError("Error during initialization: ", e);
             throw new RuntimeException("Failed to initialize Google translation service", e);
         }
+        // Quota is metered per project, so each service account gets its own bucket
+        this.rateLimiter = RequestRateLimiter.forProvider("google", googleConfig.serviceAccount, configuration.getProviderRateLimit("google"));
     }
 
     private void initialize() throws SQLException, NoRecordsFoundException, IOException {
@@ -167,6 +200,15 @@ public class GoogleTranslateText implements AutoCloseable {
 
     private void fetchConfigInfo() throws NoRecordsFoundException, SQLException {
         instanceLogger.logDebug("Fetching configuration information");
+        if (tokenContext != null) {
+            googleConfig = new GoogleConfiguration(
+                tokenContext.getServiceAccountValue("project_id"),
+                tokenContext.getServiceAccount(),
+                tokenContext.getServiceAccountValue("translate_endpoint")
+                );
+            instanceLogger.logDebug("Configuration taken from token context");
+            return;
+        }
         try (PreparedStatement pstmt = connection.prepareStatement(SQL_FETCH_CONFIG)) {
             pstmt.setString(1, authToken);
             instanceLogger.logDebug("Executing query with token: {}", authToken);
@@ -185,7 +227,8 @@ public class GoogleTranslateText implements AutoCloseable {
 
                 googleConfig = new GoogleConfiguration(
                     rs.getString("Google_projectID"),  
-                    rs.getString("serviceAccount")
+                    rs.getString("serviceAccount"),
+                    null
                     );
                 instanceLogger.logDebug("Configuration fetched successfully");              
             } catch (SQLException e) {
@@ -199,17 +242,26 @@ public class GoogleTranslateText implements AutoCloseable {
     private void initializeTranslationServices() throws IOException {
         logger.logDebug("Initializing translation services");
 
-        GoogleCredentials credentials;
-        try (InputStream serviceAccountStream = 
-            new ByteArrayInputStream(googleConfig.serviceAccount.getBytes(StandardCharsets.UTF_8))) {
-            credentials = ServiceAccountCredentials.fromStream(serviceAccountStream);
-        }
+        String serviceAccount = googleConfig.serviceAccount;
+        String endpoint = googleConfig.endpoint;
+        // The endpoint is part of the key, so a stand-in endpoint never gets the production client
+        translationClientLease = ProviderClientRegistry.getInstance().acquire("google", "translate",
+            serviceAccount + ":" + endpoint, () -> {
+                GoogleCredentials credentials;
+                try (InputStream serviceAccountStream = 
+                    new ByteArrayInputStream(serviceAccount.getBytes(StandardCharsets.UTF_8))) {
+                    credentials = ServiceAccountCredentials.fromStream(serviceAccountStream);
+                }
 
-        TranslationServiceSettings settings = TranslationServiceSettings.newBuilder()
-            .setCredentialsProvider(() -> credentials)
-            .build();
+                TranslationServiceSettings.Builder settings = endpoint == null
+                    ? TranslationServiceSettings.newBuilder()
+                    : TranslationServiceSettings.newHttpJsonBuilder().setEndpoint(endpoint);
 
-        translationClient = TranslationServiceClient.create(settings);
+                return TranslationServiceClient.create(settings
+                    .setCredentialsProvider(() -> credentials)
+                    .build());
+            });
+        translationClient = translationClientLease.get();
         logger.logDebug("Translation services initialized");
         
     }
@@ -218,14 +270,14 @@ public class GoogleTranslateText implements AutoCloseable {
      * Translates text to the target language.
      */
     public String translateText(String sourceText, String targetLanguage) throws TranslationException {
-        instanceLogger.logInfo("Translating text to language: {}", targetLanguage);
+        instanceLogger.logInfoSampled("Translating text to language: {}", targetLanguage);
         validateInput(sourceText, targetLanguage);
         
         try {
             TranslateTextRequest request = createTranslationRequest(sourceText, targetLanguage);
-            System.out.println("Sending translation request to Google");
-            TranslateTextResponse response = translationClient.translateText(request);
-            System.out.println("Translation completed successfully");            
+            instanceLogger.logDebugSampled("Sending translation request to Google");
+            TranslateTextResponse response = callTranslate(request);
+            instanceLogger.logDebugSampled("Translation completed successfully");
             return extractTranslation(response);
        } catch (ApiException e) { 
             logger.logError("Google translation failed: " + e.getMessage(), e);
@@ -236,6 +288,88 @@ public class GoogleTranslateText implements AutoCloseable {
         }
     }
 
+    /**
+     * Translates a list of texts to the target language using as few requests as the
+     * API limits allow. Results are returned in the same order as the source texts.
+     * A failed request does not stop the ones after it unless it was throttled; if any
+     * request succeeded, the TranslationException carries a PartialBatchException with
+     * the translations that were made.
+     */
+    public List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws TranslationException {
+        instanceLogger.logInfoSampled("Translating batch of {} texts to language: {}", sourceTexts.size(), targetLanguage);
+        for (String sourceText : sourceTexts) {
+            validateInput(sourceText, targetLanguage);
+        }
+
+        List<String> results = new ArrayList<>(Collections.<String>nCopies(sourceTexts.size(), null));
+        Exception failure = null;
+        int translatedCount = 0;
+        for (int[] range : TranslationBatchHelper.partition(sourceTexts, MAX_BATCH_SEGMENTS, MAX_BATCH_CODEPOINTS)) {
+            List<String> chunk = sourceTexts.subList(range[0], range[1]);
+            try {
+                instanceLogger.logDebugSampled("Sending batch translation request to Google with {} texts", chunk.size());
+                TranslateTextResponse response = callTranslate(createTranslationRequest(chunk, targetLanguage));
+                if (response.getTranslationsCount() != chunk.size()) {
+                    throw new TranslationException("Expected " + chunk.size() + " translations but received "
+                        + response.getTranslationsCount(), null);
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.set(range[0] + i, response.getTranslations(i).getTranslatedText());
+                }
+                translatedCount += chunk.size();
+            } catch (Exception e) {
+                logger.logWarn("Google batch translation of texts {} to {} failed: {}", range[0], range[1] - 1, e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                }
+                if (ProviderThrottledException.isThrottled(e)) {
+                    // The requests after it would only be throttled as well
+                    break;
+                }
+            }
+        }
+        if (failure == null) {
+            return results;
+        }
+        if (failure instanceof TranslationException && translatedCount == 0) {
+            throw (TranslationException) failure;
+        }
+        String message = failure instanceof ApiException ? "Google batch translation failed" : "Unexpected error during batch translation";
+        logger.logError(message + ": " + failure.getMessage(), failure);
+        if (translatedCount == 0) {
+            throw new TranslationException(message, failure);
+        }
+        throw new TranslationException(message,
+            new PartialBatchException("Translated " + translatedCount + " of " + sourceTexts.size() + " texts", results, failure));
+    }
+
+    /**
+     * Sends a request through the rate limiter. RESOURCE_EXHAUSTED (quota) and UNAVAILABLE
+     * are reported as throttling so the limiter backs off and retries them.
+     */
+    private TranslateTextResponse callTranslate(TranslateTextRequest request) throws Exception {
+        return rateLimiter.call(() -> {
+            try {
+                return translationClient.translateText(request);
+            } catch (ApiException e) {
+                StatusCode.Code code = e.getStatusCode().getCode();
+                if (code == StatusCode.Code.RESOURCE_EXHAUSTED || code == StatusCode.Code.UNAVAILABLE) {
+                    throw new ProviderThrottledException("google", 0, e.getMessage(), e);
+                }
+                throw e;
+            }
+        });
+    }
+
+    private TranslateTextRequest createTranslationRequest(List<String> sourceTexts, String targetLanguage) {
+        return TranslateTextRequest.newBuilder()
+            .setParent(googleConfig.parentLocation.toString())
+            .setMimeType(DEFAULT_MIME_TYPE)
+            .setTargetLanguageCode(targetLanguage)
+            .addAllContents(sourceTexts)
+            .build();
+    }
+
     private TranslateTextRequest createTranslationRequest(String sourceText, String targetLanguage) {
         return TranslateTextRequest.newBuilder()
             .setParent(googleConfig.parentLocation.toString())
@@ -265,9 +399,12 @@ public class GoogleTranslateText implements AutoCloseable {
     @Override
     public void close() {
         instanceLogger.logDebug("Closing Google translation service resources");
-        if (translationClient != null) {
-            translationClient.close();
-            instanceLogger.logDebug("Google Translate client closed successfully");
+        if (translationClientLease != null) {
+            // The client is shared; the registry closes it once it has been idle
+            translationClientLease.close();
+            translationClientLease = null;
+            translationClient = null;
+            instanceLogger.logDebug("Google Translate client released");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,314 @@
+package com.infinitecampus.ccs.lingo.translationrequest;
+/* usage example:
+ * Map<String, TranslateText.TranslationServiceProvider> providers = new LinkedHashMap<>();
+ * providers.put("azure", azureProvider);     // preferred
+ * providers.put("google", googleProvider);
+ * Map<String, String> credentials = new HashMap<>();
+ * credentials.put("azure", azureKey);
+ * credentials.put("google", googleServiceAccount);
+ * try (ProviderRouter router = new ProviderRouter(providers, credentials)) {
+ *     List<String> results = router.translateBatch(texts, "es");
+ * }
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationprovider.ProviderHealth;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.NamedThreadFactory;
+import com.infinitecampus.ccs.lingo.utility.PartialBatchException;
+import com.infinitecampus.ccs.lingo.utility.ProviderThrottledException;
+
+/**
+ * Spreads the calls of a batch over the providers its translation config allows.
+ *
+ * Each call goes to the provider in rotation with the lowest median latency for the target
+ * language, weighted by its cost weight and recent error rate; until enough calls have been
+ * seen the configured order decides. When routingHedgeAfterMs is set and the call has not
+ * answered after the provider's p99 latency (at most that setting), a hedged duplicate goes to
+ * the next provider and whichever answers first wins. Both calls are billed, so a hedged batch
+ * costs up to twice its characters; hedging is off by default. A failed call fails over to the next provider right away,
+ * except a batch that was partly translated: it is returned to the caller, which retries only
+ * the rows that are missing.
+ * Providers whose circuit breaker is open are skipped; when every breaker is open the
+ * configured order is tried anyway so the batch still makes progress. getServedBy names the
+ * provider that answered, or that partly translated a failed batch, so each translation is
+ * kept in memory under the provider that made it.
+ * Health is tracked per provider and credential, so a district whose key is revoked or
+ * throttled does not open the breaker for districts sharing the JVM with their own keys.
+ * A batch is routed as a whole rather than segment by segment, so providers keep their
+ * batched requests; the segments a failed batch left untranslated are routed again.
+ */
+public class ProviderRouter implements TranslateText.TranslationServiceProvider {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(ProviderRouter.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    // Calls run here so the caller can stop waiting for a slow provider
+    private static final ExecutorService callExecutor =
+        Executors.newCachedThreadPool(new NamedThreadFactory("provider-router"));
+    private static final long MIN_HEDGE_MILLIS = 50;
+
+    private final Map<String, TranslateText.TranslationServiceProvider> providers;
+    // ProviderHealth key of each provider: its name and a fingerprint of the credential it calls with
+    private final Map<String, String> healthKeys = new HashMap<>();
+    private final ProviderHealth health = ProviderHealth.getInstance();
+    private final AtomicInteger hedgedCount = new AtomicInteger();
+    private final AtomicInteger failoverCount = new AtomicInteger();
+    // Provider of the last call's result, per calling thread
+    private final ThreadLocal<String> servedBy = new ThreadLocal<>();
+
+    private interface ProviderCall<T> {
+        T call(TranslateText.TranslationServiceProvider provider) throws Exception;
+    }
+
+    // One call to one provider
+    private static class Attempt {
+        private final String provider;
+        private final ProviderHealth.Permit permit;
+        // Set when another provider answered first and this call was cancelled
+        private volatile boolean abandoned;
+
+        Attempt(String provider, ProviderHealth.Permit permit) {
+            this.provider = provider;
+            this.permit = permit;
+        }
+    }
+
+    /**
+     * @param providers the providers by name (azure, google, aws), in order of preference
+     * @param credentials the credential each provider calls with, by provider name
+     */
+    public ProviderRouter(Map<String, TranslateText.TranslationServiceProvider> providers,
+            Map<String, String> credentials) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one provider is required");
+        }
+        this.providers = Collections.unmodifiableMap(new LinkedHashMap<>(providers));
+        for (String name : providers.keySet()) {
+            healthKeys.put(name, ProviderHealth.key(name, credentials.get(name)));
+        }
+    }
+
+    @Override
+    public String translateText(String sourceText, String targetLanguage) throws Exception {
+        return route(targetLanguage, provider -> provider.translateText(sourceText, targetLanguage));
+    }
+
+    @Override
+    public List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws Exception {
+        return route(targetLanguage, provider -> provider.translateBatch(sourceTexts, targetLanguage));
+    }
+
+    private <T> T route(String targetLanguage, ProviderCall<T> call) throws Exception {
+        List<String> order = rank(targetLanguage);
+        boolean lastResort = order.isEmpty();
+        if (lastResort) {
+            logger.logWarn("Every provider circuit is open, trying them in configured order");
+            order = new ArrayList<>(providers.keySet());
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(callExecutor);
+        Map<Future<T>, Attempt> inFlight = new HashMap<>();
+        int next = launchNext(order, 0, lastResort, targetLanguage, call, completion, inFlight);
+        String preferred = inFlight.isEmpty() ? null : inFlight.values().iterator().next().provider;
+        boolean hedged = false;
+        Exception failure = null;
+        String failedProvider = null;
+        servedBy.remove();
+
+        try {
+            while (!inFlight.isEmpty()) {
+                long hedgeDelay = !hedged && next < order.size() ? hedgeDelay(preferred, targetLanguage) : 0;
+                Future<T> done = hedgeDelay > 0 ? completion.poll(hedgeDelay, TimeUnit.MILLISECONDS) : completion.take();
+                if (done == null) {
+                    hedged = true;
+                    int before = inFlight.size();
+                    next = launchNext(order, next, lastResort, targetLanguage, call, completion, inFlight);
+                    if (inFlight.size() > before) {
+                        hedgedCount.incrementAndGet();
+                        logger.logDebug("Provider {} slower than {} ms for {}, hedging", preferred, hedgeDelay, targetLanguage);
+                    }
+                    continue;
+                }
+                String provider = inFlight.remove(done).provider;
+                try {
+                    T result = done.get();
+                    servedBy.set(provider);
+                    return result;
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    boolean partial = PartialBatchException.find(cause) != null;
+                    // A throttled or partly translated failure wins, so rows are left pending rather than
+                    // written empty and translations already paid for are kept
+                    if (failure == null || !(ProviderThrottledException.isThrottled(failure)
+                            || PartialBatchException.find(failure) != null)) {
+                        failure = cause;
+                        failedProvider = provider;
+                    }
+                    logger.logWarn("Provider {} failed for {}: {}", provider, targetLanguage, cause.getMessage());
+                    // The caller retries only the untranslated rows of a partial result, which fail over row by row
+                    if (inFlight.isEmpty() && next < order.size() && !partial) {
+                        failoverCount.incrementAndGet();
+                        next = launchNext(order, next, lastResort, targetLanguage, call, completion, inFlight);
+                    }
+                }
+            }
+        } finally {
+            // The losing side of a hedge, or everything if the caller was interrupted
+            for (Map.Entry<Future<T>, Attempt> other : inFlight.entrySet()) {
+                other.getValue().abandoned = true;
+                other.getKey().cancel(true);
+            }
+        }
+        if (failure == null) {
+            throw new IllegalStateException("No provider available for " + targetLanguage);
+        }
+        // Names the provider whose partial results the caller keeps
+        servedBy.set(failedProvider);
+        throw failure;
+    }
+
+    // Starts the call on the first provider from the given position that accepts it; returns the next position
+    private <T> int launchNext(List<String> order, int from, boolean lastResort, String targetLanguage,
+            ProviderCall<T> call, CompletionService<T> completion, Map<Future<T>, Attempt> inFlight) {
+        for (int i = from; i < order.size(); i++) {
+            String name = order.get(i);
+            ProviderHealth.Permit permit = health.allowRequest(healthKeys.get(name));
+            if (permit == null) {
+                if (!lastResort) {
+                    continue;
+                }
+                permit = health.bypass(healthKeys.get(name));
+            }
+            TranslateText.TranslationServiceProvider provider = providers.get(name);
+            Attempt attempt = new Attempt(name, permit);
+            inFlight.put(completion.submit(timed(attempt, targetLanguage, () -> call.call(provider))), attempt);
+            return i + 1;
+        }
+        return order.size();
+    }
+
+    // Every call hands its permit back, so a breaker never stays half open waiting for a trial
+    private <T> Callable<T> timed(Attempt attempt, String targetLanguage, Callable<T> task) {
+        return () -> {
+            long start = System.nanoTime();
+            boolean succeeded = false;
+            try {
+                T result = task.call();
+                succeeded = true;
+                return result;
+            } finally {
+                if (attempt.abandoned) {
+                    // Cancelled because another provider answered first; its outcome says nothing either way
+                    health.release(attempt.permit);
+                } else {
+                    health.record(attempt.permit, targetLanguage,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), succeeded);
+                }
+            }
+        };
+    }
+
+    // Providers in rotation, the one with the best weighted latency first, the rest in configured order
+    private List<String> rank(String targetLanguage) {
+        List<String> order = new ArrayList<>();
+        for (String name : providers.keySet()) {
+            if (health.isAvailable(healthKeys.get(name))) {
+                order.add(name);
+            }
+        }
+        if (order.size() < 2) {
+            return order;
+        }
+        double firstScore = score(order.get(0), targetLanguage);
+        if (firstScore < 0) {
+            return order;
+        }
+        String best = null;
+        double bestScore = firstScore;
+        for (String name : order.subList(1, order.size())) {
+            double score = score(name, targetLanguage);
+            if (score >= 0 && score < bestScore) {
+                best = name;
+                bestScore = score;
+            }
+        }
+        if (best != null) {
+            order.remove(best);
+            order.add(0, best);
+        }
+        return order;
+    }
+
+    // Median latency scaled by cost weight and error rate; -1 while not enough is known
+    private double score(String provider, String targetLanguage) {
+        long median = health.latencyPercentile(healthKeys.get(provider), targetLanguage, 0.5);
+        double errorRate = health.errorRate(healthKeys.get(provider), targetLanguage);
+        if (median < 0 || errorRate < 0) {
+            return -1;
+        }
+        double weight = Configuration.getInstance().getProviderCostWeight(provider);
+        return Math.max(1, median) * weight / Math.max(0.01, 1 - errorRate);
+    }
+
+    private long hedgeDelay(String provider, String targetLanguage) {
+        long hedgeAfter = Configuration.getInstance().getRoutingHedgeAfterMs();
+        if (hedgeAfter <= 0 || provider == null) {
+            return 0;
+        }
+        long p99 = health.latencyPercentile(healthKeys.get(provider), targetLanguage, 0.99);
+        return p99 < 0 ? hedgeAfter : Math.min(hedgeAfter, Math.max(MIN_HEDGE_MILLIS, p99));
+    }
+
+    @Override
+    public String getServedBy() {
+        return servedBy.get();
+    }
+
+    public int getHedgedCount() {
+        return hedgedCount.get();
+    }
+
+    public int getFailoverCount() {
+        return failoverCount.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        logger.logInfo("Routing over {} finished: {} hedged calls, {} failovers",
+            providers.keySet(), hedgedCount.get(), failoverCount.get());
+        Exception failure = null;
+        for (Map.Entry<String, TranslateText.TranslationServiceProvider> entry : providers.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (Exception e) {
+                logger.logWarn("Error closing provider {}: {}", entry.getKey(), e.getMessage());
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
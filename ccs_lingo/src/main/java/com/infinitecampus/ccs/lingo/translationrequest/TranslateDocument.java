@@ -21,6 +21,7 @@ package com.infinitecampus.ccs.lingo.translationrequest;
  */
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Blob;
@@ -32,10 +33,15 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import com.infinitecampus.learnerPlanning.DocumentFile;
 //import com.infinitecampus.ccs.lingo.CAMPUSTESTING.TranslateTextRequestTEST;
-import com.infinitecampus.ccs.lingo.authenticate.Authenticate;
+import com.infinitecampus.ccs.lingo.authenticate.TokenBootstrap;
+import com.infinitecampus.ccs.lingo.authenticate.TokenContext;
 import com.infinitecampus.ccs.lingo.settings.Configuration;
 import com.infinitecampus.ccs.lingo.translationprovider.aws.AwsTranslateDocument;
 import com.infinitecampus.ccs.lingo.translationprovider.azure.AzureTranslateDocument;
@@ -43,7 +49,11 @@ import com.infinitecampus.ccs.lingo.translationprovider.google.GoogleTranslateDo
 import com.infinitecampus.ccs.lingo.utility.DocumentChangeHistoryManager;
 import com.infinitecampus.ccs.lingo.utility.FileUtilityHelper;
 import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.MetricsRegistry;
 import com.infinitecampus.ccs.lingo.utility.PDFHelper;
+import com.infinitecampus.ccs.lingo.utility.PDFPageHelper;
+import com.infinitecampus.ccs.lingo.utility.PdfFingerprint;
+import com.infinitecampus.ccs.lingo.utility.ResultSink;
 import com.infinitecampus.ccs.lingo.prism.TranslateTextRequest;
 
 
@@ -56,11 +66,6 @@ public class TranslateDocument implements AutoCloseable{
     private final LogHelper logger;
     
     // SQL Queries
-    private static final String SQL_FETCH_CONFIG = 
-        "SELECT TOP 1 serviceAccount, serviceprovider " +
-        "FROM [ccs_lng].[CCS_TranslationDocument] td " +
-        "INNER JOIN ccs_lng.CCS_TranslationConfig tc ON td.translationConfigID = tc.translationConfigID " +
-        "WHERE tc.active = 1 AND completed = 0 AND token = TRY_CAST(? AS UNIQUEIDENTIFIER)";
     private static final String SQL_GET_TRANSLATIONS =  "{call ccs_lng.CCS_Get_TranslationDocument(?)}";
     private static final String SQL_UPDATE_TRANSLATION = 
        "UPDATE [ccs_lng].CCS_TranslationDocument " +
@@ -70,12 +75,15 @@ public class TranslateDocument implements AutoCloseable{
     private static final String SQL_GET_TRANSLATEDSCHEDULENAME="SELECT JSON_VALUE(tt.translationData,'$.keyID')[scheduleID],outputData FROM ccs_lng.CCS_TranslationText tt "
         +"WHERE completed=1 AND token=TRY_CAST(? AS UNIQUEIDENTIFIER)";
     private static final String SQL_UPDATE_SCHEDULENAME="UPDATE [schedule] SET schedule_name=CONCAT(?,' ',schedule_name) WHERE scheduleID=?";  
+    // Above this share of changed pages a document is translated in full
+    private static final double MAX_INCREMENTAL_CHANGED_RATIO = 0.5;
     // Instance fields
     private final Connection campusConnection;
     private final Connection backpackConnection;
     private final String authToken;
     private final Configuration config;
     private DocumentTranslationServiceProvider documentTranslationServiceProvider;
+    private TokenContext tokenContext;
 
     /**
      * Constructor for TranslateDocument
@@ -98,6 +106,30 @@ public class TranslateDocument implements AutoCloseable{
                                       String inputFilePath, String targetLanguage, 
                                       String fullLanguage) 
                                       throws IOException, SQLException;
+
+        /**
+         * Whether submitCampusDocument returns before the document is translated. Documents of
+         * a synchronous provider are written back one at a time as each finishes.
+         */
+        default boolean isAsynchronous() {
+            return false;
+        }
+
+        /**
+         * Starts translating a Campus document. Providers without an asynchronous API
+         * translate on the calling thread and return a completed future.
+         */
+        default CompletableFuture<Void> submitCampusDocument(String inputFilePath,
+                                                             String outputFileName, String targetLanguage) {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            try {
+                translateCampusDocument(inputFilePath, outputFileName, targetLanguage);
+                result.complete(null);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
                                       
     }
 
@@ -107,14 +139,15 @@ public class TranslateDocument implements AutoCloseable{
     private class GoogleDocumentTranslationProvider implements DocumentTranslationServiceProvider {
         private final GoogleTranslateDocument translator;
 
-        public GoogleDocumentTranslationProvider(Connection campusConn, Connection backpackConn, String token, Configuration config) {
+        public GoogleDocumentTranslationProvider(Connection campusConn, Connection backpackConn, TokenContext context, Configuration config) {
+            String token = context.getToken();
             logger.logDebug("GoogleDocumentTranslationProvider initialized with Campus connection: {}, token: {}", campusConn, token);
             logger.logDebug("GoogleDocumentTranslationProvider initialized with Backpack connection: {}, token: {}", backpackConn, token);
 
             this.translator = new GoogleTranslateDocument.Builder()
                 .withCampusConnection(campusConn)
                 .withBackpackConnection(backpackConn)
-                .withToken(token)
+                .withContext(context)
                 .withConfiguration(config)
                 .build();
         }
@@ -146,14 +179,15 @@ public class TranslateDocument implements AutoCloseable{
     private class AzureDocumentTranslationProvider implements DocumentTranslationServiceProvider {
         private final AzureTranslateDocument translator;
 
-        public AzureDocumentTranslationProvider(Connection campusConn, Connection backpackConn, String token, Configuration config) {
+        public AzureDocumentTranslationProvider(Connection campusConn, Connection backpackConn, TokenContext context, Configuration config) {
+            String token = context.getToken();
             logger.logDebug("AzureDocumentTranslationProvider initialized with Campus connection: {}, token: {}", campusConn, token);
             logger.logDebug("AzureDocumentTranslationProvider initialized with Backpack connection: {}, token: {}", backpackConn, token);
 
             this.translator= new AzureTranslateDocument.Builder()
             .withCampusConnection(campusConn)
             .withBackpackConnection(backpackConn)
-            .withToken(token)
+            .withContext(context)
             .withConfiguration(config)
             .build();
             
@@ -165,6 +199,17 @@ public class TranslateDocument implements AutoCloseable{
                                            throws IOException, SQLException {
             translator.translateCampusDocument(inputFilePath, outputFileName, targetLanguage);
         }
+
+        @Override
+        public CompletableFuture<Void> submitCampusDocument(String inputFilePath,
+                                                            String outputFileName, String targetLanguage) {
+            return translator.submitCampusDocument(inputFilePath, outputFileName, targetLanguage);
+        }
+
+        @Override
+        public boolean isAsynchronous() {
+            return true;
+        }
         
         @Override
         public void translateBackpackDocument(int translationDocumentID, int documentID, 
@@ -186,14 +231,15 @@ public class TranslateDocument implements AutoCloseable{
     private class AwsDocumentTranslationProvider implements DocumentTranslationServiceProvider {
         private final AwsTranslateDocument translator;
 
-        public AwsDocumentTranslationProvider(Connection campusConn, Connection backpackConn, String token, Configuration config) {
+        public AwsDocumentTranslationProvider(Connection campusConn, Connection backpackConn, TokenContext context, Configuration config) {
+            String token = context.getToken();
             logger.logDebug("AwsDocumentTranslationProvider initialized with Campus connection: {}, token: {}", campusConn, token);
             logger.logDebug("AwsDocumentTranslationProvider initialized with Backpack connection: {}, token: {}", backpackConn, token);
 //System.out.println("AwsDocumentTranslationProvider initialized with bp connection: " + backpackConn + ", token: " + token);
             this.translator = new AwsTranslateDocument.Builder()
                 .withCampusConnection(campusConn)
                 .withBackpackConnection(backpackConn)
-                .withToken(token)
+                .withContext(context)
                 .withConfiguration(config)
                 .build();
             
@@ -283,16 +329,6 @@ public class TranslateDocument implements AutoCloseable{
         logger.logDebug("TranslateDocument initialized with Backpack connection: {}, token: {}", backpackConnection, token);
 
         logger.logInfo("Initializing TranslateDocument with token: {}", token);
-        try{
-            if (!Authenticate.isTranslatedDocumentAuthenticated(campusConnection, token)) {
-                logger.logError("Authentication failed for token: {}", token);
-                throw new SecurityException("Invalid Token. Access Denied.");
-            }
-        } catch (Exception e) {
-            logger.logError("Authentication verification failed", e);
-            throw new SecurityException("Authentication process failed", e);
-        }
-
         this.campusConnection = campusConnection;
         this.backpackConnection = backpackConnection;
         this.authToken = token;
@@ -305,30 +341,29 @@ public class TranslateDocument implements AutoCloseable{
         } catch (NoRecordsFoundException e) {
             logger.logError("No Records Found during initialization: {}", e.getMessage());
             throw e;
+        } catch (SecurityException e) {
+            throw e;
+        } catch (SQLException e) {
+            logger.logError("Authentication verification failed", e);
+            throw new SecurityException("Authentication process failed", e);
         } catch (Exception e) {
             logger.logError("Initialization error for token {}: {}", token, e.getMessage());
             throw new RuntimeException("Failed to initialize document translation service", e);
         }
     }
 
+    // One query authenticates the token and reads its configuration
     private void initialize() throws SQLException, NoRecordsFoundException {
-        logger.logDebug("Fetching translation configuration for token: {}", authToken);
-        
-        try (PreparedStatement stmt = campusConnection.prepareStatement(SQL_FETCH_CONFIG)) {
-            stmt.setString(1, authToken);
-          //  System.out.println("SQL_FETCH_CONFIG: " + SQL_FETCH_CONFIG);
-          //  System.out.println("Auth Token: " + authToken);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (!rs.next()) {
-                    logger.logError("No configuration found for token: {}", authToken);
-                    throw new NoRecordsFoundException("No records found for token: " + authToken);
-                }
-                String serviceProvider = rs.getString("serviceprovider");
-                logger.logInfo("Found service provider: {} for token: {}", serviceProvider, authToken);
-                //  System.out.println("Found service provider: " + serviceProvider + " for token: " + authToken);  
-                initializeTranslationServiceProvider(serviceProvider);
-            }
-        }
+        logger.logDebug("Resolving token context for token: {}", authToken);
+        try {
+            tokenContext = TokenBootstrap.resolve(campusConnection, TokenContext.TokenType.DOCUMENT, authToken, config);
+        } catch (TokenBootstrap.NoRecordsFoundException e) {
+            logger.logError("No configuration found for token: {}", authToken);
+            throw new NoRecordsFoundException(e.getMessage());
+        }
+        String serviceProvider = tokenContext.getServiceProvider();
+        logger.logInfo("Found service provider: {} for token: {}", serviceProvider, authToken);
+        initializeTranslationServiceProvider(serviceProvider);
         logger.logDebug("Document translation service provider fetched from database: {}", authToken);
     }
 
@@ -340,13 +375,13 @@ public class TranslateDocument implements AutoCloseable{
         }
         switch (provider.toLowerCase()) {
             case "google":
-                documentTranslationServiceProvider = new GoogleDocumentTranslationProvider(campusConnection, backpackConnection, authToken, config);
+                documentTranslationServiceProvider = new GoogleDocumentTranslationProvider(campusConnection, backpackConnection, tokenContext, config);
                 break;
             case "azure":
-                documentTranslationServiceProvider = new AzureDocumentTranslationProvider(campusConnection, backpackConnection, authToken, config);
+                documentTranslationServiceProvider = new AzureDocumentTranslationProvider(campusConnection, backpackConnection, tokenContext, config);
                 break;
             case "aws":
-                documentTranslationServiceProvider = new AwsDocumentTranslationProvider(campusConnection, backpackConnection, authToken, config);
+                documentTranslationServiceProvider = new AwsDocumentTranslationProvider(campusConnection, backpackConnection, tokenContext, config);
                 break;
             default:
                 throw new NoRecordsFoundException("Unsupported service provider: " + provider);
@@ -359,6 +394,7 @@ public class TranslateDocument implements AutoCloseable{
      */
     public void procedure() throws TranslationException, NoRecordsFoundException {
         logger.logDebug("Starting translation Document procedure for token: {}", authToken);
+        MetricsRegistry.Mark batchStart = MetricsRegistry.getInstance().mark();
          
         List<TranslationData> translationsToProcess = new ArrayList<>();
 
@@ -378,43 +414,92 @@ public class TranslateDocument implements AutoCloseable{
             logger.logWarn("No records found for token: {}", authToken);
             throw new NoRecordsFoundException("No records found for token: " + authToken);
         }
-        // Process cached records
+        // Asynchronous providers get every document up front and translate them concurrently;
+        // a synchronous provider's document is written back before the next one is started
         int processedCount = 0;
         int successCount = 0;
         int failureCount = 0;
-        for (TranslationData data : translationsToProcess) {
-            processedCount++;
-            try {
-                boolean success = processTranslation(data);
-                if (success) {
+        int pendingCount = 0;
+        boolean asynchronous = documentTranslationServiceProvider.isAsynchronous();
+        BlockingQueue<TranslationData> completedTranslations = new LinkedBlockingQueue<>();
+        MetricsRegistry.Gauge documentsInFlight = MetricsRegistry.getInstance().gauge("documents.inflight");
+        try (ResultSink resultSink = new ResultSink.Builder()
+                .withConnection(campusConnection)
+                .withUpdateSql(SQL_UPDATE_TRANSLATION)
+                .build()) {
+            for (TranslationData data : translationsToProcess) {
+                processedCount++;
+                try {
+                    if (submitTranslation(data)) {
+                        documentsInFlight.increment();
+                        data.translation.whenComplete((ignored, error) -> {
+                            documentsInFlight.decrement();
+                            completedTranslations.add(data);
+                        });
+                        pendingCount++;
+                    } else {
+                        failureCount++;
+                    }
+                } catch (Exception e) {
+                    failureCount++;
+                    logger.logError("Error processing translation for ID {}: {}", 
+                        data.translationDocumentID, e.getMessage());
+                }
+                if (!asynchronous) {
+                    TranslationData finished;
+                    while ((finished = completedTranslations.poll()) != null) {
+                        pendingCount--;
+                        if (completeTranslation(resultSink, finished)) {
+                            successCount++;
+                        } else {
+                            failureCount++;
+                        }
+                    }
+                    resultSink.flush();
+                }
+            }
+
+            // Write the rest back on this thread, in the order the translations finish
+            while (pendingCount > 0) {
+                TranslationData data = completedTranslations.take();
+                pendingCount--;
+                if (completeTranslation(resultSink, data)) {
                     successCount++;
                 } else {
                     failureCount++;
                 }
-            } catch (Exception e) {
-                failureCount++;
-                logger.logError("Error processing translation for ID {}: {}", 
-                    data.translationDocumentID, e.getMessage());
             }
+            resultSink.flush();
+            // Documents are counted as they are buffered; a row the sink could not write is a failure
+            successCount -= resultSink.getFailedCount();
+            failureCount += resultSink.getFailedCount();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranslationException("Interrupted while waiting for document translations", e);
+        } catch (SQLException e) {
+            logger.logError("Failed to write translation results: {}", e.getMessage());
+            throw new TranslationException("Failed to write translation results", e);
         }
         logger.logInfo("Translation procedure completed. Total: {}, Success: {}, Failed: {}", 
         processedCount, successCount, failureCount);
+        MetricsRegistry.getInstance().logSummary(batchStart);
     }
 
-    private boolean processTranslation(TranslationData data) {    
+    /**
+     * Checks a translation request and starts translating the document if it needs it.
+     * @return false if the request failed before translation could start
+     */
+    private boolean submitTranslation(TranslationData data) {    
         
         logger.logInfo("Processing translation for ID: {}", data.translationDocumentID);
         
         try {
             String requestedDocumentFile = config.getRequestOutputDirectory() + 
                 File.separator + data.requestToken + File.separator + data.completedName;
-    
-            //    System.out.printf("Request document file path: "+ requestedDocumentFile);
-            //    System.out.printf("File exists: "+ FileUtilityHelper.fileExists(requestedDocumentFile));
-           // logger.logInfo("Request document file path: {}", requestedDocumentFile);
-           // logger.logInfo("File exists: {}", FileUtilityHelper.fileExists(requestedDocumentFile));
 
             String translatedDocumentName = data.completedName.replace(".pdf", "_" + data.language + ".pdf");
+            data.requestedDocumentFile = requestedDocumentFile;
+            data.translatedDocumentName = translatedDocumentName;
     
             if (!FileUtilityHelper.fileExists(requestedDocumentFile)) {
                 logger.logError("Original file doesn't exist: {}", requestedDocumentFile);
@@ -424,6 +509,7 @@ public class TranslateDocument implements AutoCloseable{
             //or if the english version of the document is different than the translated version
             //currently we are doing this for the backpack documents only
             DocumentChangeHistoryManager changeHistoryManager = new DocumentChangeHistoryManager(backpackConnection,Integer.parseInt(data.keyID));
+            data.changeHistoryManager = changeHistoryManager;
             boolean shouldTranslate = true;
             if (data.type.equalsIgnoreCase("backpack")) {
                 shouldTranslate = changeHistoryManager.shouldTranslate(
@@ -436,17 +522,48 @@ public class TranslateDocument implements AutoCloseable{
                     requestedDocumentFile
                 );
             }
-            System.out.println("btranslate: " + shouldTranslate);
+            data.shouldTranslate = shouldTranslate;
+            logger.logDebug("Translation required for ID {}: {}", data.translationDocumentID, shouldTranslate);
             // Proceed with translation if needed
-            if (shouldTranslate) {                
-                translateCampusDocument(requestedDocumentFile, translatedDocumentName, data.language);
-            }   
+            if (shouldTranslate && (!data.type.equalsIgnoreCase("backpack")
+                    || !translateChangedPages(changeHistoryManager, data, requestedDocumentFile, translatedDocumentName))) {
+                data.translation = documentTranslationServiceProvider.submitCampusDocument(
+                    requestedDocumentFile, translatedDocumentName, data.language);
+            } else {
+                data.translation = CompletableFuture.completedFuture(null);
+            }
+            return true;
+        } catch (Exception e) {
+            logger.logError("Failed to process translation ID {}: {}", 
+                data.translationDocumentID, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes a finished translation back to Backpack or Campus and marks the request completed.
+     */
+    private boolean completeTranslation(ResultSink resultSink, TranslationData data) {
+        try {
+            try {
+                data.translation.get();
+            } catch (ExecutionException e) {
+                logger.logError("Document translation failed for ID {}: {}", 
+                    data.translationDocumentID, e.getCause().getMessage());
+                return false;
+            }
+            String translatedDocumentName = data.translatedDocumentName;
+
+            if (data.shouldTranslate && data.type.equalsIgnoreCase("backpack")) {
+                data.changeHistoryManager.updateTranslationHistory(data.fullLanguage, data.requestedDocumentFile,
+                    getWorkFile(translatedDocumentName));
+            }
             // Update translation status           
-            updateTranslationStatus(data.translationDocumentID, translatedDocumentName,data.outcome);
+            updateTranslationStatus(resultSink, data.translationDocumentID, translatedDocumentName,data.outcome);
 
             // Handle based on document type            
             if (data.type.equalsIgnoreCase("backpack")) {
-                if(shouldTranslate){                    
+                if(data.shouldTranslate){                    
                     updateBackpackDocument(
                         data.translationDocumentID, 
                         translatedDocumentName, 
@@ -456,6 +573,8 @@ public class TranslateDocument implements AutoCloseable{
                     );
                 }
             } else {
+                // The staple procedure reads the completed request row, so write it first
+                resultSink.flush();
                 updateCampusDocument(
                     data.translationDocumentID,
                     data.personID, 
@@ -475,10 +594,67 @@ public class TranslateDocument implements AutoCloseable{
     }
         
     
+    /**
+     * Re-translates only the pages that changed since the last translation into the same
+     * language, splicing them into that translation.
+     * @return false if there is no usable previous translation, in which case nothing was written
+     */
+    private boolean translateChangedPages(DocumentChangeHistoryManager changeHistoryManager, TranslationData data,
+            String requestedDocumentFile, String translatedDocumentName) {
+        PdfFingerprint current = changeHistoryManager.getFingerprint(requestedDocumentFile);
+        if (current == null) {
+            return false;
+        }
+        String previousFile = getWorkFile("previous_" + translatedDocumentName);
+        String changedFile = getWorkFile("changed_" + data.completedName);
+        String changedTranslatedName = "changed_" + translatedDocumentName;
+        try {
+            List<String> previousPages = changeHistoryManager.retrievePreviousTranslation(data.fullLanguage, previousFile);
+            if (previousPages == null) {
+                return false;
+            }
+            if (PDFPageHelper.getPageCount(previousFile) != previousPages.size()) {
+                logger.logInfo("Previous translation of document {} does not match its page digests, translating in full", data.keyID);
+                return false;
+            }
+            List<Integer> changedPages = current.changedPagesSince(previousPages);
+            if (changedPages.size() > current.getPageCount() * MAX_INCREMENTAL_CHANGED_RATIO) {
+                logger.logInfo("{} of {} pages changed in document {}, translating in full",
+                    changedPages.size(), current.getPageCount(), data.keyID);
+                return false;
+            }
+
+            String changedTranslatedFile = null;
+            if (!changedPages.isEmpty()) {
+                PDFPageHelper.extractPages(requestedDocumentFile, changedPages, changedFile);
+                translateCampusDocument(changedFile, changedTranslatedName, data.language);
+                changedTranslatedFile = getWorkFile(changedTranslatedName);
+            }
+            PDFPageHelper.splicePages(previousFile, changedTranslatedFile, changedPages,
+                current.getPageCount(), getWorkFile(translatedDocumentName));
+            logger.logInfo("Re-translated {} of {} pages of document {}",
+                changedPages.size(), current.getPageCount(), data.keyID);
+            return true;
+        } catch (Exception e) {
+            logger.logWarn("Incremental translation of document {} failed, translating in full: {}", data.keyID, e.getMessage());
+            FileUtilityHelper.deleteFileIfExists(getWorkFile(translatedDocumentName));
+            return false;
+        } finally {
+            FileUtilityHelper.deleteFileIfExists(previousFile);
+            FileUtilityHelper.deleteFileIfExists(changedFile);
+            FileUtilityHelper.deleteFileIfExists(getWorkFile(changedTranslatedName));
+        }
+    }
+
+    private String getWorkFile(String fileName) {
+        return config.getRequestOutputDirectory() + File.separator + authToken + File.separator + fileName;
+    }
+
     private void updateBackpackDocument(int translationDocumentID, String translatedName,int DocumentID,String fullLanguage,String targetLanguage) throws SQLException, NoRecordsFoundException {
         logger.logInfo("Processing translation for backpack translation ID: {}", translationDocumentID);
         //String BackpackDocumentDirectory=config.getRequestOutputDirectory() + File.separator + authToken + File.separator + translatedName;
-        byte[] pdfTranslatedDoc = FileUtilityHelper.getPDFBytes(config.getRequestOutputDirectory() + File.separator + authToken + File.separator + translatedName);
+        // Streamed into the statements below rather than read into memory
+        File pdfTranslatedDoc = new File(config.getRequestOutputDirectory() + File.separator + authToken + File.separator + translatedName);
         int translatedScheduleID = -1; // Default value if not found     
         logger.logInfo("Backpack connection: {}", backpackConnection);
         try (PreparedStatement stmt = backpackConnection.prepareStatement(
@@ -541,7 +717,7 @@ public class TranslateDocument implements AutoCloseable{
                       // TranslateTextRequest translateText = new TranslateTextRequest(campusConnection, config.getCampusApplicationName());
                       //  translateText.translatetextProcedure();
                     } catch (Exception e) {
-                        System.out.println("Error during translation process: " + e.getMessage());
+                        logger.logError("Error during translation process: {}", e.getMessage());
                     }
                     try(CallableStatement cstmt = campusConnection.prepareCall(SQL_GET_TRANSLATEDSCHEDULENAME)){                    
                         cstmt.setString(1, tokenUUID);
@@ -580,30 +756,34 @@ public class TranslateDocument implements AutoCloseable{
                             try (PreparedStatement updateDoc = backpackConnection.prepareStatement(
                                     "UPDATE document SET doc_object=?, doc_updatedt=GETDATE() WHERE doc_personID=? AND scheduleID=?")) {
     
-                                updateDoc.setBytes(1, pdfTranslatedDoc);
-                                updateDoc.setInt(2, personID);
-                                updateDoc.setInt(3, translatedScheduleID);
-                                updateDoc.executeUpdate();
+                                try (InputStream pdfStream = new FileInputStream(pdfTranslatedDoc)) {
+                                    updateDoc.setBinaryStream(1, pdfStream, pdfTranslatedDoc.length());
+                                    updateDoc.setInt(2, personID);
+                                    updateDoc.setInt(3, translatedScheduleID);
+                                    updateDoc.executeUpdate();
+                                }
                             }
                         } else {
                             try (PreparedStatement insertDoc = backpackConnection.prepareStatement(
                                     "INSERT INTO document (doc_object, doc_personID, scheduleID, doc_createdt, doc_updatedt) " +
                                     "VALUES (?, ?, ?, GETDATE(), GETDATE())")) {
     
-                                insertDoc.setBytes(1, pdfTranslatedDoc);
-                                insertDoc.setInt(2, personID);
-                                insertDoc.setInt(3, translatedScheduleID);
-                                insertDoc.executeUpdate();
+                                try (InputStream pdfStream = new FileInputStream(pdfTranslatedDoc)) {
+                                    insertDoc.setBinaryStream(1, pdfStream, pdfTranslatedDoc.length());
+                                    insertDoc.setInt(2, personID);
+                                    insertDoc.setInt(3, translatedScheduleID);
+                                    insertDoc.executeUpdate();
+                                }
                             }
                         }
                     }
                 }
     
-                System.out.println("Successfully completed translation for translation ID: " + translationDocumentID);
+                logger.logInfo("Successfully completed translation for translation ID: {}", translationDocumentID);
             }
         }
-    } catch (SQLException e) {
-        System.out.println("Failed to fetch translated schedule ID: " + e.getMessage());
+    } catch (SQLException | IOException e) {
+        logger.logError("Failed to fetch translated schedule ID: {}", e.getMessage());
     }
     
 
@@ -619,9 +799,6 @@ public class TranslateDocument implements AutoCloseable{
             int rowsUpdated = stmt.executeUpdate();
             logger.logDebug("Stapling campus with translationdocument ID {} updated successfully", translationDocumentID);
             logger.logDebug("Rows updated: {}", rowsUpdated);
-            
-            System.out.println("Stapling campus with translationdocument ID "+translationDocumentID+" translationDocumentID");
-            System.out.println("Rows updated: "+ rowsUpdated);
 
             //copy file to special ed directory
             String specialEdDirectory = "";
@@ -637,12 +814,10 @@ public class TranslateDocument implements AutoCloseable{
             logger.logDebug("File Sent to:{} ", specialEdDirectory+File.separator+translatedName);
 
         } catch (SQLException e) {
-            System.out.println("Failed to Staple campus document ID:"+ translationDocumentID+" "+ e.getMessage());
-            logger.logError("Failed to Staple campus document ID {}: {}", translationDocumentID, e.getMessage());
+            logger.logError("Failed to Staple campus document ID {}", e, translationDocumentID);
         }
         catch(Exception e) {
-            System.out.println("Failed to Staple campus document ID:"+ translationDocumentID+" "+ e.getMessage());
-            logger.logError("Failed to copy document to special ed directory: {}", e.getMessage());
+            logger.logError("Failed to copy campus document ID {} to special ed directory", e, translationDocumentID);
         }
         
       //  DocumentFile documentFile = new DocumentFile();       
@@ -652,28 +827,15 @@ public class TranslateDocument implements AutoCloseable{
     }
        
   /**
-     * Mark a translation request as completed.
+     * Mark a translation request as completed. The row is written when the result sink flushes.
      */
-    private void updateTranslationStatus(int translationID, String completedName, String outcome) throws SQLException {
+    private void updateTranslationStatus(ResultSink resultSink, int translationID, String completedName, String outcome) throws SQLException {
         logger.logDebug("Updating translation status for ID: {}", translationID);
-
-         try (PreparedStatement stmt = campusConnection.prepareStatement(SQL_UPDATE_TRANSLATION)) {
-            if (completedName == null || completedName.trim().isEmpty()) {
-                logger.logWarn("No translated document for ID: {}. Setting to null.", translationID);
-                stmt.setNull(1, Types.NVARCHAR);
-            } else {
-                stmt.setString(1, completedName);
-            }
-            stmt.setString(2, outcome);
-            stmt.setInt(3, translationID);
-
-            int rowsUpdated = stmt.executeUpdate();
-            if (rowsUpdated > 0) {
-                logger.logDebug("Translation ID {} completed successfully", translationID);
-            } else {
-                logger.logWarn("Translation ID {} not found or not updated", translationID);
-            }
-        }      
+        if (completedName == null || completedName.trim().isEmpty()) {
+            logger.logWarn("No translated document for ID: {}. Setting to null.", translationID);
+            completedName = null;
+        }
+        resultSink.add(translationID, completedName, outcome, translationID);
     }
     
     /**
@@ -746,6 +908,12 @@ public class TranslateDocument implements AutoCloseable{
         private final String fullLanguage;
         private final String type;
         private String outcome=null;
+        // Set while the request is being translated
+        private String requestedDocumentFile;
+        private String translatedDocumentName;
+        private boolean shouldTranslate;
+        private DocumentChangeHistoryManager changeHistoryManager;
+        private CompletableFuture<Void> translation;
     
         public TranslationData(ResultSet rs) throws SQLException {
             this.translationDocumentID = rs.getInt("translationDocumentID");
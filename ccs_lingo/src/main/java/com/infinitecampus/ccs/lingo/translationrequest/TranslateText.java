@@ -10,11 +10,11 @@ try (TranslateText translator = new TranslateText.Builder()
     // Inside build():
     // 1. Creates new TranslateText instance
     // 2. Calls initialize()
-    // 3. initialize() calls fetchConfigInfo()
-    // 4. fetchConfigInfo() gets the provider type from database
+    // 3. initialize() resolves the token with TokenBootstrap in one query
+    // 4. The TokenContext holds the provider type, credentials and onCompleteSQL
     // 5. initializeTranslationServiceProvider() is called with the provider type
     // 6. The appropriate adapter is created based on the provider
-    // 7. The adapter creates the actual translation service instance
+    // 7. The adapter creates the actual translation service instance from the same context
     
     // Now we can use the translator
     translator.procedure();
@@ -24,35 +24,47 @@ try (TranslateText translator = new TranslateText.Builder()
 }
  */
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.CallableStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 
 import com.google.gson.Gson;
-import com.infinitecampus.ccs.lingo.authenticate.Authenticate;
+import com.infinitecampus.ccs.lingo.authenticate.TokenBootstrap;
+import com.infinitecampus.ccs.lingo.authenticate.TokenContext;
 import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationmemory.TranslationMemory;
 import com.infinitecampus.ccs.lingo.translationprovider.azure.AzureTranslateText;
 import com.infinitecampus.ccs.lingo.translationprovider.google.GoogleTranslateText;
 import com.infinitecampus.ccs.lingo.translationprovider.aws.AwsTranslateText;
 import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.MetricsRegistry;
+import com.infinitecampus.ccs.lingo.utility.NamedThreadFactory;
+import com.infinitecampus.ccs.lingo.utility.PartialBatchException;
+import com.infinitecampus.ccs.lingo.utility.ProviderThrottledException;
+import com.infinitecampus.ccs.lingo.utility.ResultSink;
+import com.infinitecampus.ccs.lingo.utility.TranslationJournal;
 
 
 public class TranslateText implements AutoCloseable {
     private final LogHelper logger;
 
     // SQL Queries
-    private static final String SQL_FETCH_CONFIG = 
-        "SELECT TOP 1 serviceAccount, serviceprovider, REPLACE(tc.onCompleteSQL,'{selectedID}','?')[onCompleteSQL] " +
-        "FROM [ccs_lng].[CCS_TranslationText] td " +
-        "INNER JOIN ccs_lng.CCS_TranslationConfig tc ON td.translationConfigID = tc.translationConfigID " +
-        "WHERE tc.active = 1 AND completed = 0 AND token = TRY_CAST(? AS UNIQUEIDENTIFIER)";
-
     private static final String SQL_GET_TRANSLATIONS = 
         "{call ccs_lng.CCS_Get_OLR_TranslationText(?)}";
 
@@ -60,19 +72,45 @@ public class TranslateText implements AutoCloseable {
         "UPDATE [ccs_lng].[CCS_TranslationText] " +
         "SET [completed] = 1, [completedDate] = GETDATE(), outputData = ? " +
         "WHERE translationTextID = ?";
-    private static String SQL_UPDATE_CAMPUS ="";
 
     // Instance fields
     private final Connection connection;
     private final String authToken;
     private final Configuration config;
     private TranslationServiceProvider translationServiceProvider;
+    private String serviceProviderName;
+    // Providers whose translations memory may answer with, in order of preference
+    private List<String> memoryProviders;
+    private TokenContext tokenContext;
+    private TranslationJournal journal;
+    private final TranslationMemory translationMemory = TranslationMemory.getInstance();
 
     /**
      * Interface for translation services
      */
     public interface TranslationServiceProvider extends AutoCloseable {
         String translateText(String sourceText, String targetLanguage) throws Exception;
+
+        /**
+         * Translates several texts to the same language. Results are returned in the
+         * same order as the source texts. Providers that can send multiple segments
+         * per request override this; the default translates one text at a time.
+         */
+        default List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws Exception {
+            List<String> results = new ArrayList<>(sourceTexts.size());
+            for (String sourceText : sourceTexts) {
+                results.add(translateText(sourceText, targetLanguage));
+            }
+            return results;
+        }
+
+        /**
+         * Name of the provider that answered the last call made on the calling thread, including
+         * the requests of a batch that was partly translated, or null if it is not known.
+         */
+        default String getServedBy() {
+            return null;
+        }
     }
 
     /**
@@ -81,11 +119,11 @@ public class TranslateText implements AutoCloseable {
     private class GoogleTranslationProvider implements TranslationServiceProvider {
         private final GoogleTranslateText translator;
 
-        public GoogleTranslationProvider(Connection conn, String token, Configuration config) {
-            logger.logDebug("GoogleTranslationProvider initialized with connection: {}, token: {}", conn, token);
+        public GoogleTranslationProvider(Connection conn, TokenContext context, Configuration config) {
+            logger.logDebug("GoogleTranslationProvider initialized with connection: {}, token: {}", conn, context.getToken());
             this.translator = new GoogleTranslateText.Builder()
                 .withConnection(conn)
-                .withToken(token)
+                .withContext(context)
                 .withConfiguration(config)
                 .build();
         }
@@ -95,6 +133,11 @@ public class TranslateText implements AutoCloseable {
             return translator.translateText(sourceText, targetLanguage);
         }
 
+        @Override
+        public List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws Exception {
+            return translator.translateBatch(sourceTexts, targetLanguage);
+        }
+
         @Override
         public void close() throws Exception {
             if (translator instanceof AutoCloseable) {
@@ -106,11 +149,11 @@ public class TranslateText implements AutoCloseable {
     private class AzureTranslationProvider implements TranslationServiceProvider {
         private final AzureTranslateText translator;
 
-        public AzureTranslationProvider(Connection conn, String token, Configuration config) {
-            logger.logDebug("AzureTranslationProvider initialized with connection: {}, token: {}", conn, token);
+        public AzureTranslationProvider(Connection conn, TokenContext context, Configuration config) {
+            logger.logDebug("AzureTranslationProvider initialized with connection: {}, token: {}", conn, context.getToken());
             this.translator = new AzureTranslateText.Builder()
                 .withConnection(conn)
-                .withToken(token)
+                .withContext(context)
                 .withConfiguration(config)
                 .build();
         }
@@ -120,6 +163,11 @@ public class TranslateText implements AutoCloseable {
             return translator.translateText(sourceText, targetLanguage);
         }
 
+        @Override
+        public List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws Exception {
+            return translator.translateBatch(sourceTexts, targetLanguage);
+        }
+
         @Override
         public void close() throws Exception {
             if (translator instanceof AutoCloseable) {
@@ -131,11 +179,11 @@ public class TranslateText implements AutoCloseable {
     private class AwsTranslationProvider implements TranslationServiceProvider {
         private final AwsTranslateText translator;
 
-        public AwsTranslationProvider(Connection conn, String token, Configuration config) {
-            logger.logDebug("AwsTranslationProvider initialized with connection: {}, token: {}", conn, token);
+        public AwsTranslationProvider(Connection conn, TokenContext context, Configuration config) {
+            logger.logDebug("AwsTranslationProvider initialized with connection: {}, token: {}", conn, context.getToken());
             this.translator = new AwsTranslateText.Builder()
                 .withConnection(conn)
-                .withToken(token)
+                .withContext(context)
                 .withConfiguration(config)
                 .build();
         }
@@ -145,6 +193,11 @@ public class TranslateText implements AutoCloseable {
             return translator.translateText(sourceText, targetLanguage);
         }
 
+        @Override
+        public List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws Exception {
+            return translator.translateBatch(sourceTexts, targetLanguage);
+        }
+
         @Override
         public void close() throws Exception {
             if (translator instanceof AutoCloseable) {
@@ -153,6 +206,90 @@ public class TranslateText implements AutoCloseable {
         }
     }
 
+    /**
+     * Records latency, calls, errors and characters of the provider it wraps in the metrics registry.
+     */
+    private static class MeteredTranslationProvider implements TranslationServiceProvider {
+        private final String providerName;
+        private final TranslationServiceProvider provider;
+        private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+
+        MeteredTranslationProvider(String providerName, TranslationServiceProvider provider) {
+            this.providerName = providerName;
+            this.provider = provider;
+        }
+
+        @Override
+        public String translateText(String sourceText, String targetLanguage) throws Exception {
+            long start = System.nanoTime();
+            try {
+                String result = provider.translateText(sourceText, targetLanguage);
+                metrics.counter("characters.translated." + providerName).add(sourceText.length());
+                return result;
+            } catch (Exception e) {
+                metrics.counter("provider.errors." + providerName).increment();
+                throw e;
+            } finally {
+                record(targetLanguage, start);
+            }
+        }
+
+        @Override
+        public List<String> translateBatch(List<String> sourceTexts, String targetLanguage) throws Exception {
+            long start = System.nanoTime();
+            try {
+                List<String> results = provider.translateBatch(sourceTexts, targetLanguage);
+                long characters = 0;
+                for (String sourceText : sourceTexts) {
+                    characters += sourceText.length();
+                }
+                metrics.counter("characters.translated." + providerName).add(characters);
+                return results;
+            } catch (Exception e) {
+                metrics.counter("provider.errors." + providerName).increment();
+                throw e;
+            } finally {
+                record(targetLanguage, start);
+            }
+        }
+
+        private void record(String targetLanguage, long start) {
+            metrics.histogram("provider.latency." + providerName + "." + targetLanguage).recordSince(start);
+            metrics.counter("provider.calls." + providerName).increment();
+        }
+
+        @Override
+        public String getServedBy() {
+            return providerName;
+        }
+
+        @Override
+        public void close() throws Exception {
+            provider.close();
+        }
+    }
+
+    /**
+     * A row read from CCS_Get_OLR_TranslationText
+     */
+    private static class TranslationRow {
+        private final int translationTextID;
+        private final String sourceText;
+        private final String targetLanguage;
+        private String translatedText;
+        private boolean translated;
+        // Provider that made the translation, the key it is kept under in translation memory
+        private String provider;
+        // Still throttled after all retries; left pending for the next run instead of written as NULL
+        private boolean throttled;
+
+        TranslationRow(int translationTextID, String sourceText, String targetLanguage) {
+            this.translationTextID = translationTextID;
+            this.sourceText = sourceText;
+            this.targetLanguage = targetLanguage;
+        }
+    }
+
     // Custom exceptions remain the same
     public static class TranslationException extends Exception {
         public TranslationException(String message, Throwable cause) {
@@ -200,17 +337,6 @@ public class TranslateText implements AutoCloseable {
         
         logger.logInfo("Initializing TranslateText with token: {}", token);
 
-        // Authentication check with logging
-        try {
-            if (!Authenticate.isTranslatedTextAuthenticated(connection, token)) {
-                logger.logError("Authentication failed for token: {}", token);
-                throw new SecurityException("Invalid Token. Access Denied.");
-            }
-        } catch (Exception e) {
-            logger.logError("Authentication verification failed", e);
-            throw new SecurityException("Authentication process failed", e);
-        }
-
         // Set instance fields
         this.connection = connection;
         this.authToken = token;
@@ -223,176 +349,487 @@ public class TranslateText implements AutoCloseable {
         } catch (NoRecordsFoundException e) {
             logger.logError("No Records Found during initialization: {}", e.getMessage());
             throw e;
+        } catch (SecurityException e) {
+            throw e;
+        } catch (SQLException e) {
+            logger.logError("Authentication verification failed", e);
+            throw new SecurityException("Authentication process failed", e);
         } catch (Exception e) {
             logger.logError("Initialization error for token {}: {}", token, e.getMessage());
             throw new RuntimeException("Failed to initialize translation service", e);
         }
     }
 
-    // Initialization method 
+    // Initialization method: one query authenticates the token and reads its configuration
     private void initialize() throws SQLException, NoRecordsFoundException {
-        logger.logDebug("Fetching translation configuration for token: {}", authToken);
-        
-        try (PreparedStatement stmt = connection.prepareStatement(SQL_FETCH_CONFIG)) {
-            stmt.setString(1, authToken);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (!rs.next()) {
-                    logger.logError("No configuration found for token: {}", authToken);
-                    throw new NoRecordsFoundException("No records found for token: " + authToken);
-                }
-                
-                String serviceProvider = rs.getString("serviceprovider");
-                logger.logInfo("Found service provider: {} for token: {}", serviceProvider, authToken);
-                                
-                initializeTranslationServiceProvider(serviceProvider);
-
-                SQL_UPDATE_CAMPUS = rs.getString("onCompleteSQL");
-                logger.logDebug("SQL_UPDATE_CAMPUS_TEXT set to: {}", SQL_UPDATE_CAMPUS);
-            }
+        logger.logDebug("Resolving token context for token: {}", authToken);
+        try {
+            tokenContext = TokenBootstrap.resolve(connection, TokenContext.TokenType.TEXT, authToken, config);
+        } catch (TokenBootstrap.NoRecordsFoundException e) {
+            logger.logError("No configuration found for token: {}", authToken);
+            throw new NoRecordsFoundException(e.getMessage());
         }
+
+        String serviceProvider = tokenContext.getServiceProvider();
+        logger.logInfo("Found service provider: {} for token: {}", serviceProvider, authToken);
+                        
+        initializeTranslationServiceProvider(serviceProvider);
+        serviceProviderName = serviceProvider;
+
+        logger.logDebug("OnComplete SQL set to: {}", tokenContext.getOnCompleteTemplate());
     }
 
-    // Service provider initialization
+    // Service provider initialization; a config that lists several providers gets a router over all of them
     private void initializeTranslationServiceProvider(String provider) throws NoRecordsFoundException {
         logger.logDebug("Initializing translation service provider: {}", provider);
         if (provider == null || provider.isEmpty()) {
             logger.logError("Service provider is null or empty for token: {}", authToken);
             throw new NoRecordsFoundException("Service provider is null or empty for token: " + authToken);
         }
-        try {
-            switch (provider.toLowerCase()) {
-                case "google":
-                    translationServiceProvider = new GoogleTranslationProvider(connection, authToken, config);
-                    break;
-                case "azure":
-                    translationServiceProvider = new AzureTranslationProvider(connection, authToken, config);
-                    break;
-                case "aws":
-                    translationServiceProvider = new AwsTranslationProvider(connection, authToken, config);
-                    break;
-                default:
-                    logger.logError("Unsupported service provider: {}", provider);
-                    throw new NoRecordsFoundException("Unsupported service provider: " + provider);
-            }
-            
-            logger.logInfo("Translation service provider initialized: {}", provider);
-        } catch (Exception e) {
-            logger.logError("Failed to initialize translation service provider: {}", provider, e);
-            throw new NoRecordsFoundException("Failed to initialize service provider: " + provider);
+        List<String> providers = tokenContext.getServiceProviders();
+        if (providers.size() < 2) {
+            try {
+                translationServiceProvider = createServiceProvider(provider, tokenContext);
+                memoryProviders = Collections.singletonList(provider.toLowerCase());
+                logger.logInfo("Translation service provider initialized: {}", provider);
+            } catch (NoRecordsFoundException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.logError("Failed to initialize translation service provider: {}", provider, e);
+                throw new NoRecordsFoundException("Failed to initialize service provider: " + provider);
+            }
+            return;
+        }
+
+        Map<String, TranslationServiceProvider> routed = new LinkedHashMap<>();
+        Map<String, String> credentials = new HashMap<>();
+        for (String name : providers) {
+            try {
+                TokenContext providerContext = tokenContext.forProvider(name);
+                routed.put(name, createServiceProvider(name, providerContext));
+                credentials.put(name, providerContext.getServiceAccount());
+            } catch (Exception e) {
+                logger.logWarn("Provider {} left out of routing for token {}: {}", name, authToken, e.getMessage());
+            }
+        }
+        if (routed.isEmpty()) {
+            throw new NoRecordsFoundException("Failed to initialize any of the service providers: " + providers);
+        }
+        translationServiceProvider = new ProviderRouter(routed, credentials);
+        memoryProviders = new ArrayList<>();
+        for (String name : routed.keySet()) {
+            memoryProviders.add(name.toLowerCase());
+        }
+        logger.logInfo("Routing translations over providers: {}", routed.keySet());
+    }
+
+    private TranslationServiceProvider createServiceProvider(String provider, TokenContext context) throws NoRecordsFoundException {
+        switch (provider.toLowerCase()) {
+            case "google":
+                return new MeteredTranslationProvider("google", new GoogleTranslationProvider(connection, context, config));
+            case "azure":
+                return new MeteredTranslationProvider("azure", new AzureTranslationProvider(connection, context, config));
+            case "aws":
+                return new MeteredTranslationProvider("aws", new AwsTranslationProvider(connection, context, config));
+            default:
+                logger.logError("Unsupported service provider: {}", provider);
+                throw new NoRecordsFoundException("Unsupported service provider: " + provider);
         }
     }
 
     /**
-     * Executes the translation procedure
+     * Executes the translation procedure. Rows are read up front, grouped by target
+     * language and split into batches that a bounded worker pool sends to the provider.
+     * Results are written back on the calling thread only, so the connection is never shared,
+     * and are buffered in a ResultSink that writes them as JDBC batches; new translations go to
+     * translation memory through a Writer that batches them the same way. Provider results are
+     * journaled as they arrive, so a run that was interrupted resumes without paying for them twice.
+     * Rows the provider is still throttling after all retries are not written, so the next run
+     * picks them up instead of completing them with a NULL translation. After textMaxThrottledRuns
+     * such runs a row is completed as failed, so a row that is always throttled is not retried forever.
      */
     public void procedure() throws TranslationException {
         logger.logInfo("Starting translation procedure for token: {}", authToken);
+        MetricsRegistry.Mark batchStart = MetricsRegistry.getInstance().mark();
         
-        try (CallableStatement stmt = connection.prepareCall(SQL_GET_TRANSLATIONS)) {
-            stmt.setString(1, authToken);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                int processedCount = 0;
-                int successCount = 0;
-                int failureCount = 0;
-                   // Check if there are any records
-                   boolean hasRecords = rs.next();
-
-                   if (!hasRecords) {
-                       logger.logWarn("No records found for token: {}", authToken);
-                       throw new NoRecordsFoundException("No records found for token: " + authToken);
-                   }  
-                do{
-                    processedCount++;
-                    boolean success = processTranslation(rs);
-                    if (success) {
-                        successCount++;
-                    } else {
-                        failureCount++;
+        ExecutorService executor = null;
+        Map<Future<List<TranslationRow>>, List<TranslationRow>> pending = new HashMap<>();
+        try (ResultSink resultSink = new ResultSink.Builder()
+                .withConnection(connection)
+                .withUpdateSql(SQL_UPDATE_TRANSLATION)
+                .withOnCompleteTemplate(tokenContext.getOnCompleteTemplate())
+                .build();
+             TranslationMemory.Writer memoryWriter = translationMemory.newWriter(connection)) {
+            List<TranslationRow> rows = fetchTranslationRows();
+            if (rows.isEmpty()) {
+                logger.logWarn("No records found for token: {}", authToken);
+                throw new NoRecordsFoundException("No records found for token: " + authToken);
+            }
+
+            int processedCount = 0;
+            int successCount = 0;
+            int failureCount = 0;
+            int throttledCount = 0;
+            List<TranslationRow> deferredRows = new ArrayList<>();
+
+            journal = TranslationJournal.open(config.getRequestOutputDirectory(), authToken);
+            List<TranslationRow> journaledRows = applyJournal(rows);
+            for (TranslationRow row : journaledRows) {
+                processedCount++;
+                if (writeTranslation(resultSink, row)) {
+                    storeInMemory(memoryWriter, row);
+                    successCount++;
+                }
+            }
+
+            List<TranslationRow> emptyRows = new ArrayList<>();
+            List<TranslationRow> rememberedRows = new ArrayList<>();
+            List<List<TranslationRow>> workUnits = buildWorkUnits(rows, emptyRows, rememberedRows);
+            for (TranslationRow row : emptyRows) {
+                logger.logError("Translation failed for ID {}: {}", row.translationTextID, "Source text or language is empty");
+                processedCount++;
+                failureCount++;
+                writeTranslation(resultSink, row);
+            }
+            for (TranslationRow row : rememberedRows) {
+                processedCount++;
+                successCount++;
+                writeTranslation(resultSink, row);
+            }
+
+            if (!workUnits.isEmpty()) {
+                int concurrency = Math.max(1, Math.min(config.getTranslationConcurrency(), workUnits.size()));
+                logger.logInfo("Dispatching {} batches over {} worker threads for token: {}",
+                    workUnits.size(), concurrency, authToken);
+                executor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("ccs-lingo-translate"));
+                CompletionService<List<TranslationRow>> completionService = new ExecutorCompletionService<>(executor);
+                for (List<TranslationRow> unit : workUnits) {
+                    pending.put(completionService.submit(() -> translateUnit(unit)), unit);
+                }
+
+                // Single writer: completed batches are written here as the workers finish them
+                long flushIntervalMillis = Math.max(1, config.getResultFlushIntervalMs());
+                MetricsRegistry.Gauge queueDepth = MetricsRegistry.getInstance().gauge("text.queue.depth");
+                queueDepth.set(pending.size());
+                for (int i = 0; i < workUnits.size(); i++) {
+                    Future<List<TranslationRow>> future;
+                    while ((future = completionService.poll(flushIntervalMillis, TimeUnit.MILLISECONDS)) == null) {
+                        resultSink.flushIfDue();
+                        memoryWriter.flushIfDue();
                     }
-                }while (rs.next());
-                    
-                
-                
-                logger.logInfo("Translation procedure completed. " +
-                    "Total records: {}, Successful: {}, Failed: {} for token: {}", 
-                    processedCount, successCount, failureCount, authToken);
+                    List<TranslationRow> unit = pending.remove(future);
+                    queueDepth.set(pending.size());
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        logger.logError("Translation batch failed unexpectedly: {}", e.getCause().getMessage());
+                        for (TranslationRow row : unit) {
+                            row.translated = false;
+                        }
+                    }
+                    for (TranslationRow row : unit) {
+                        processedCount++;
+                        if (row.throttled && deferThrottled(row)) {
+                            throttledCount++;
+                            deferredRows.add(row);
+                        } else if (writeTranslation(resultSink, row)) {
+                            storeInMemory(memoryWriter, row);
+                            successCount++;
+                        } else {
+                            failureCount++;
+                        }
+                    }
+                }
             }
+
+            recordDeferred(deferredRows);
+            resultSink.flush();
+            memoryWriter.flush();
+            // Rows are counted as they are buffered; a row the sink could not write is a failure
+            successCount -= resultSink.getFailedCount();
+            failureCount += resultSink.getFailedCount();
+            if (resultSink.getFailedCount() == 0 && deferredRows.isEmpty()) {
+                // Every result is in the database, nothing left to resume
+                journal.delete();
+            }
+            logger.logInfo("Translation procedure completed. " +
+                "Total records: {}, Successful: {}, Failed: {}, Throttled and left pending: {}, From translation memory: {}, From journal: {}, Write failures: {} for token: {}", 
+                processedCount, successCount, failureCount, throttledCount, rememberedRows.size(), journaledRows.size(),
+                resultSink.getFailedCount(), authToken);
+            translationMemory.logStatistics();
+            MetricsRegistry.getInstance().logSummary(batchStart);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Future<List<TranslationRow>> future : pending.keySet()) {
+                future.cancel(true);
+            }
+            logger.logError("Translation procedure interrupted for token: {}, cancelled {} batches", authToken, pending.size());
+            throw new TranslationException("Translation procedure interrupted", e);
         } catch (Exception e) {
             logger.logError("Translation procedure failed for token: {}", authToken, e);
             throw new TranslationException("Translation procedure failed", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (journal != null) {
+                journal.close();
+            }
         }
     }
 
-    // Process individual translation with success tracking
-    private boolean processTranslation(ResultSet rs) throws SQLException {
-        int translationId = rs.getInt("translationTextID");
-        logger.logDebug("Processing translation for ID: {}", translationId);
-        
-        try {
-            String sourceText = rs.getString("texttotranslate");
-            String targetLanguage = rs.getString("language");
-            
-            logger.logDebug("Translating text (ID: {}) to language: {}", translationId, targetLanguage);
-            
-            String translatedText = translationServiceProvider.translateText(sourceText, targetLanguage);
-            
-            updateTranslationStatus(translationId, translatedText);
-            updateCampusText(translationId);
-            return true;
-        } catch (Exception e) {
-            logger.logError("Translation failed for ID {}: {}", translationId, e.getMessage());
-            updateTranslationStatus(translationId, null);
-            updateCampusText(translationId);
+    // True to leave a throttled row for the next run, false once it has been deferred too often
+    private boolean deferThrottled(TranslationRow row) {
+        if (!journal.isEnabled()) {
+            // Without the journal the runs cannot be counted
+            logger.logError("Translation for ID {} throttled and the text journal is off, completing it as failed",
+                row.translationTextID);
             return false;
         }
+        int runs = journal.getThrottledRuns(row.translationTextID, row.targetLanguage, row.sourceText) + 1;
+        if (runs < config.getTextMaxThrottledRuns()) {
+            return true;
+        }
+        logger.logError("Translation for ID {} throttled in {} runs, completing it as failed", row.translationTextID, runs);
+        return false;
     }
 
-    // Update translation status in the database
-    private void updateTranslationStatus(int translationTextID, String translatedText) throws SQLException {
-        logger.logDebug("Updating translation status for ID: {}", translationTextID);
-        System.out.println("Updating translation status for ID: " + translationTextID);
-        
-        try (PreparedStatement stmt = connection.prepareStatement(SQL_UPDATE_TRANSLATION)) {
-            if (translatedText == null || StringUtils.isBlank(translatedText)) {
-                logger.logWarn("No translated text for ID: {}. Setting to null.", translationTextID);
-                stmt.setNull(1, Types.NVARCHAR);
-            } else {
-                // Sanitize and escape the HTML content
-              //  String sanitizedText = sanitizeAndEscapeHtml(translatedText.trim());
-              translatedText = translatedText.replaceAll("'","''").trim();
-
-                System.out.println("Setting translated text:"+translatedText); 
-            
-                logger.logDebug("Sanitized translated text: {}", translatedText);
-                System.out.println("Sanitized translated text: "+translatedText);
-                stmt.setString(1, translatedText);
-            }
-            stmt.setInt(2, translationTextID);
-
-            int rowsUpdated = stmt.executeUpdate();
-            System.out.println("Rows updated: " + rowsUpdated);
-            if (rowsUpdated > 0) {
-                logger.logDebug("Translation ID {} completed successfully", translationTextID);
+    private void recordDeferred(List<TranslationRow> deferredRows) {
+        if (deferredRows.isEmpty()) {
+            return;
+        }
+        List<TranslationJournal.Entry> entries = new ArrayList<>(deferredRows.size());
+        List<Integer> ids = new ArrayList<>(deferredRows.size());
+        for (TranslationRow row : deferredRows) {
+            entries.add(new TranslationJournal.Entry(row.translationTextID,
+                TranslationJournal.sourceDigest(row.targetLanguage, row.sourceText), null, null));
+            ids.add(row.translationTextID);
+        }
+        journal.recordThrottled(entries);
+        logger.logWarn("Leaving {} throttled rows for the next run of token {}: {}", ids.size(), authToken, ids);
+    }
+
+    // Take the rows an interrupted earlier run already translated out of the list
+    private List<TranslationRow> applyJournal(List<TranslationRow> rows) {
+        List<TranslationRow> journaledRows = new ArrayList<>();
+        Map<Integer, TranslationJournal.Entry> entries = journal.replay();
+        if (entries.isEmpty()) {
+            return journaledRows;
+        }
+        Iterator<TranslationRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            TranslationRow row = iterator.next();
+            TranslationJournal.Entry entry = entries.get(row.translationTextID);
+            if (entry != null && entry.matches(row.targetLanguage, row.sourceText)) {
+                row.translatedText = entry.getTranslatedText();
+                row.translated = true;
+                row.provider = entry.getProvider();
+                journaledRows.add(row);
+                iterator.remove();
+            }
+        }
+        logger.logInfo("Resuming token {} with {} translations from the journal", authToken, journaledRows.size());
+        return journaledRows;
+    }
+
+    // Runs on a worker thread as soon as the provider has answered
+    private void recordInJournal(List<TranslationRow> unit) {
+        List<TranslationJournal.Entry> entries = new ArrayList<>(unit.size());
+        for (TranslationRow row : unit) {
+            if (row.translated && row.translatedText != null) {
+                entries.add(new TranslationJournal.Entry(row.translationTextID,
+                    TranslationJournal.sourceDigest(row.targetLanguage, row.sourceText), row.translatedText, row.provider));
+            }
+        }
+        journal.record(entries);
+    }
+
+    // Read all pending rows so the result set is closed before any provider call is made
+    private List<TranslationRow> fetchTranslationRows() throws SQLException {
+        List<TranslationRow> rows = new ArrayList<>();
+        try (CallableStatement stmt = connection.prepareCall(SQL_GET_TRANSLATIONS)) {
+            stmt.setString(1, authToken);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new TranslationRow(
+                        rs.getInt("translationTextID"),
+                        rs.getString("texttotranslate"),
+                        rs.getString("language")));
+                }
+            }
+        }
+        logger.logDebug("Fetched {} translation rows for token: {}", rows.size(), authToken);
+        return rows;
+    }
+
+    // Group rows by language, answer what we can from translation memory and split the rest into batches
+    private List<List<TranslationRow>> buildWorkUnits(List<TranslationRow> rows, List<TranslationRow> emptyRows,
+            List<TranslationRow> rememberedRows) {
+        Map<String, List<TranslationRow>> groups = new LinkedHashMap<>();
+        for (TranslationRow row : rows) {
+            if (StringUtils.isBlank(row.sourceText) || StringUtils.isBlank(row.targetLanguage)) {
+                emptyRows.add(row);
+                continue;
+            }
+            List<TranslationRow> group = groups.get(row.targetLanguage);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(row.targetLanguage, group);
+            }
+            group.add(row);
+        }
+
+        int batchSize = Math.max(1, config.getTranslationBatchSize());
+        List<List<TranslationRow>> units = new ArrayList<>();
+        for (Map.Entry<String, List<TranslationRow>> languageGroup : groups.entrySet()) {
+            List<TranslationRow> group = applyTranslationMemory(languageGroup.getKey(), languageGroup.getValue(), rememberedRows);
+            for (int start = 0; start < group.size(); start += batchSize) {
+                units.add(new ArrayList<>(group.subList(start, Math.min(start + batchSize, group.size()))));
+            }
+        }
+        return units;
+    }
+
+    // Returns the rows that still need the provider; each provider the config allows is asked in order of preference
+    private List<TranslationRow> applyTranslationMemory(String targetLanguage, List<TranslationRow> group,
+            List<TranslationRow> rememberedRows) {
+        if (!translationMemory.isEnabled()) {
+            return group;
+        }
+        List<TranslationRow> remaining = group;
+        for (String provider : memoryProviders) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            List<String> texts = new ArrayList<>(remaining.size());
+            for (TranslationRow row : remaining) {
+                texts.add(row.sourceText);
+            }
+            Map<Integer, String> remembered = translationMemory.lookup(connection, provider, targetLanguage, texts);
+            if (remembered.isEmpty()) {
+                continue;
+            }
+
+            List<TranslationRow> stillRemaining = new ArrayList<>(remaining.size() - remembered.size());
+            for (int i = 0; i < remaining.size(); i++) {
+                TranslationRow row = remaining.get(i);
+                String translated = remembered.get(i);
+                if (translated != null) {
+                    row.translatedText = translated;
+                    row.translated = true;
+                    row.provider = provider;
+                    rememberedRows.add(row);
+                } else {
+                    stillRemaining.add(row);
+                }
+            }
+            logger.logDebug("Translation memory of {} answered {} of {} rows for language: {}",
+                provider, remembered.size(), remaining.size(), targetLanguage);
+            remaining = stillRemaining;
+        }
+        return remaining;
+    }
+
+    // Kept under the provider that made the translation, so a routed batch never files one provider's text under another
+    private void storeInMemory(TranslationMemory.Writer memoryWriter, TranslationRow row) {
+        if (row.provider != null) {
+            memoryWriter.store(row.provider, row.targetLanguage, row.sourceText, row.translatedText);
+        }
+    }
+
+    private String servedBy() {
+        String provider = translationServiceProvider.getServedBy();
+        return provider != null ? provider : serviceProviderName;
+    }
+
+    // Runs on a worker thread; must not touch the connection
+    private List<TranslationRow> translateUnit(List<TranslationRow> unit) {
+        String targetLanguage = unit.get(0).targetLanguage;
+        List<String> texts = new ArrayList<>(unit.size());
+        for (TranslationRow row : unit) {
+            texts.add(row.sourceText);
+        }
+
+        logger.logDebugSampled("Translating batch of {} rows to language: {}", unit.size(), targetLanguage);
+        try {
+            List<String> results = translationServiceProvider.translateBatch(texts, targetLanguage);
+            if (results == null || results.size() != unit.size()) {
+                throw new IllegalStateException("Provider returned " + (results == null ? 0 : results.size())
+                    + " translations for " + unit.size() + " texts");
+            }
+            String provider = servedBy();
+            for (int i = 0; i < unit.size(); i++) {
+                unit.get(i).translatedText = results.get(i);
+                unit.get(i).translated = true;
+                unit.get(i).provider = provider;
+            }
+        } catch (Exception e) {
+            // Requests of the batch that did succeed are kept; only the rest is tried again
+            List<TranslationRow> remaining = applyPartialResults(unit, PartialBatchException.find(e), servedBy());
+            if (ProviderThrottledException.isThrottled(e)) {
+                // Sending the rows one by one would only add to the throttling
+                logger.logWarn("Batch translation to {} throttled, leaving {} rows for the next run", targetLanguage, remaining.size());
+                for (TranslationRow row : remaining) {
+                    row.throttled = true;
+                }
             } else {
-                logger.logWarn("Translation ID {} not found or not updated", translationTextID);
+                // Fall back to one call per row so a single bad segment only fails its own row
+                logger.logWarn("Batch translation to {} failed, retrying {} rows individually: {}",
+                    targetLanguage, remaining.size(), e.getMessage());
+                for (TranslationRow row : remaining) {
+                    translateSingle(row);
+                }
             }
         }
+        recordInJournal(unit);
+        return unit;
     }
-//update campus translation text
-private void updateCampusText(int translatedTextID) throws SQLException {
-    if(SQL_UPDATE_CAMPUS == null || SQL_UPDATE_CAMPUS.isEmpty()) {
-        logger.logDebug("SQL_UPDATE_CAMPUS is not set. Cannot update campus translation text.");
-        return;
+
+    // Returns the rows the partial results do not cover, all of them if there are none
+    private List<TranslationRow> applyPartialResults(List<TranslationRow> unit, PartialBatchException partial, String provider) {
+        if (partial == null || partial.getResults().size() != unit.size()) {
+            return unit;
+        }
+        List<TranslationRow> remaining = new ArrayList<>();
+        for (int i = 0; i < unit.size(); i++) {
+            String result = partial.getResults().get(i);
+            if (result != null) {
+                unit.get(i).translatedText = result;
+                unit.get(i).translated = true;
+                unit.get(i).provider = provider;
+            } else {
+                remaining.add(unit.get(i));
+            }
+        }
+        return remaining;
     }
-    logger.logDebug("Updating campus translation text for ID: {}", translatedTextID);
-    try (PreparedStatement stmt = connection.prepareStatement(SQL_UPDATE_CAMPUS)) {
-        stmt.setInt(1, translatedTextID);
-        stmt.executeUpdate();
-        logger.logDebug("The OnComplete SQL for translation text ID {} completed successfully", translatedTextID);
+
+    private void translateSingle(TranslationRow row) {
+        logger.logDebugSampled("Translating text (ID: {}) to language: {}", row.translationTextID, row.targetLanguage);
+        try {
+            row.translatedText = translationServiceProvider.translateText(row.sourceText, row.targetLanguage);
+            row.translated = true;
+            row.provider = servedBy();
+        } catch (Exception e) {
+            logger.logError("Translation failed for ID {}: {}", row.translationTextID, e.getMessage());
+            row.translatedText = null;
+            row.translated = false;
+            row.throttled = ProviderThrottledException.isThrottled(e);
+        }
     }
 
-}
+    // Queue the outcome of a row for the result sink; the onComplete SQL runs when the sink flushes
+    private boolean writeTranslation(ResultSink resultSink, TranslationRow row) throws SQLException {
+        logger.logDebugSampled("Processing translation for ID: {}", row.translationTextID);
+        String outputData = null;
+        if (row.translated && !StringUtils.isBlank(row.translatedText)) {
+            outputData = row.translatedText.replaceAll("'","''").trim();
+        } else {
+            logger.logWarnSampled("No translated text for ID: {}. Setting to null.", row.translationTextID);
+        }
+        resultSink.add(row.translationTextID, outputData, row.translationTextID);
+        return row.translated;
+    }
 
 
     // Closing method with comprehensive logging
@@ -1,24 +1,67 @@
 package com.infinitecampus.ccs.lingo.utility;
 
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Blob;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 
 
 import com.infinitecampus.ccs.lingo.settings.Configuration;
 
 
+/**
+ * Decides whether a Backpack document needs translating again by comparing it with the
+ * version recorded in dbo.Document_ChangeHistory. The history keeps a SHA-256 digest of the
+ * normalized document text and one digest per page next to the previous document:
+ *
+ * <pre>
+ * ALTER TABLE dbo.Document_ChangeHistory ADD
+ *     doc_textDigest   CHAR(64)     NULL,
+ *     doc_pageDigests  VARCHAR(MAX) NULL
+ * </pre>
+ *
+ * The skip check only reads the digests. The previous document itself is read only by
+ * auditChange, and once for rows recorded before the digests existed.
+ *
+ * For incremental re-translation the last translation of each language is kept together
+ * with the page digests of the document it was translated from:
+ *
+ * <pre>
+ * CREATE TABLE dbo.Document_TranslationHistory (
+ *     doc_id                INT            NOT NULL,
+ *     fullLanguage          VARCHAR(100)   NOT NULL,
+ *     change_date           DATETIME       NOT NULL DEFAULT GETDATE(),
+ *     doc_pageDigests       VARCHAR(MAX)   NOT NULL,
+ *     doc_translatedObject  VARBINARY(MAX) NOT NULL,
+ *     CONSTRAINT PK_Document_TranslationHistory PRIMARY KEY (doc_id, fullLanguage)
+ * )
+ * </pre>
+ */
 public class DocumentChangeHistoryManager {
     private Connection connection;
     private final LogHelper logger;
     private int documentID;
+    private String fingerprintedFile;
+    private PdfFingerprint fingerprint;
+
+    // SQL Server: Invalid column name, Invalid object name
+    private static final int ERROR_INVALID_COLUMN = 207;
+    private static final int ERROR_INVALID_OBJECT = 208;
+
+    // Switched off when the digest columns have not been added to the table yet
+    private static volatile boolean digestColumnsAvailable = true;
+    // Switched off when Document_TranslationHistory does not exist
+    private static volatile boolean translationHistoryAvailable = true;
 
     // SQL Queries
     private static final String SQL_GET_TRANSLATED_DOC= "SELECT scheduletran.scheduleID, s.schedule_name, d.doc_personID, s.schedule_access " +
@@ -27,6 +70,32 @@ public class DocumentChangeHistoryManager {
         "INNER JOIN Schedule scheduletran ON scheduletran.schedule_name LIKE CONCAT('%',?,'%') " +
         "WHERE doc_id = ?";
     private static final String SQL_FETCH_PREVIOUS_DOCUMENT = "SELECT doc_Previousobject FROM [dbo].[Document_ChangeHistory] WHERE doc_id = ?";
+    private static final String SQL_FETCH_PREVIOUS_DIGEST = "SELECT doc_textDigest FROM [dbo].[Document_ChangeHistory] WHERE doc_id = ?";
+    private static final String SQL_UPSERT_CHANGEHISTORY_DIGEST = "MERGE INTO [dbo].[Document_ChangeHistory] AS Target " +
+        "USING (SELECT ? AS doc_id, ? AS doc_Previousobject, ? AS doc_textDigest, ? AS doc_pageDigests) AS Source " +
+        "ON Target.doc_ID = Source.doc_id  " +
+        "WHEN MATCHED THEN " +
+        "    UPDATE SET " +
+        "        change_date = GETDATE(), " +
+        "        doc_Previousobject = Source.doc_Previousobject, " +
+        "        doc_textDigest = Source.doc_textDigest, " +
+        "        doc_pageDigests = Source.doc_pageDigests " +
+        "WHEN NOT MATCHED THEN " +
+        "    INSERT (change_date, doc_id, doc_Previousobject, doc_textDigest, doc_pageDigests) " +
+        "    VALUES (GETDATE(), Source.doc_id, Source.doc_Previousobject, Source.doc_textDigest, Source.doc_pageDigests);";
+    private static final String SQL_FETCH_TRANSLATION_HISTORY = "SELECT doc_pageDigests, doc_translatedObject " +
+        "FROM [dbo].[Document_TranslationHistory] WHERE doc_id = ? AND fullLanguage = ?";
+    private static final String SQL_UPSERT_TRANSLATION_HISTORY = "MERGE INTO [dbo].[Document_TranslationHistory] AS Target " +
+        "USING (SELECT ? AS doc_id, ? AS fullLanguage, ? AS doc_pageDigests, ? AS doc_translatedObject) AS Source " +
+        "ON Target.doc_id = Source.doc_id AND Target.fullLanguage = Source.fullLanguage " +
+        "WHEN MATCHED THEN " +
+        "    UPDATE SET " +
+        "        change_date = GETDATE(), " +
+        "        doc_pageDigests = Source.doc_pageDigests, " +
+        "        doc_translatedObject = Source.doc_translatedObject " +
+        "WHEN NOT MATCHED THEN " +
+        "    INSERT (doc_id, fullLanguage, change_date, doc_pageDigests, doc_translatedObject) " +
+        "    VALUES (Source.doc_id, Source.fullLanguage, GETDATE(), Source.doc_pageDigests, Source.doc_translatedObject);";
     private static final String SQL_UPSERT_CHANGEHISTORY = "MERGE INTO [dbo].[Document_ChangeHistory] AS Target " +
         "USING (SELECT ? AS doc_id, ? AS doc_Previousobject) AS Source " +
         "ON Target.doc_ID = Source.doc_id  " +
@@ -63,22 +132,47 @@ public class DocumentChangeHistoryManager {
             return true;
        }
 
-        byte[] pdfPreviousDoc = retrievePreviousDocumentBytes();
-        
-        // If no previous document exists, translation is needed
-        if (pdfPreviousDoc == null) {
-           // System.out.println("^^^^^^HIT2");     
-            return true;
+        PdfFingerprint current = getFingerprint(requestedDocumentFile);
+        if (current != null && digestColumnsAvailable) {
+            try {
+                HistoryDigest previous = retrievePreviousDigest();
+                // If no previous document exists, translation is needed
+                if (previous == null) {
+                    return true;
+                }
+                if (previous.textDigest != null) {
+                    return !previous.textDigest.equalsIgnoreCase(current.getTextDigest());
+                }
+                logger.logDebug("No digest recorded for document {}, comparing text", documentID);
+            } catch (SQLException e) {
+                if (isSchemaError(e)) {
+                    disableDigestColumns(e);
+                } else {
+                    logger.logWarn("Reading the digest of document {} failed, comparing text: {}", documentID, e.getMessage());
+                }
+            }
         }
-     
 
+        // Recorded before digests were kept; the next updateChangeHistory stores them
+        return auditChange(requestedDocumentFile);
+    }
 
-        // Compare current document with previous document
-        try {
-            return !PDFHelper.comparePdfText(
-                FileUtilityHelper.getPDFBytes(requestedDocumentFile), 
-                pdfPreviousDoc
-            );
+    /**
+     * Compares the full text of the current document with the previous document stored in
+     * change history. This reads the stored document, so it is meant for audits and rows
+     * without digests rather than for the regular skip check.
+     * @param requestedDocumentFile Path to the current document
+     * @return true if the text differs or there is no previous document
+     */
+    public boolean auditChange(String requestedDocumentFile) {
+        try (SpillBuffer pdfPreviousDoc = retrievePreviousDocument()) {
+            // If no previous document exists, translation is needed
+            if (pdfPreviousDoc == null) {
+                return true;
+            }
+
+            // Compare current document with previous document
+            return !PDFHelper.comparePdfText(requestedDocumentFile, pdfPreviousDoc);
         } catch (Exception e) {
             logger.logError("Error comparing PDF documents: {}", e.getMessage());
             return true; // Default to translating if comparison fails
@@ -86,13 +180,149 @@ public class DocumentChangeHistoryManager {
     }
 
     /**
-     * Retrieves previous document bytes from change history
-     * @param keyID Document key ID
-     * @return byte array of previous document or null
+     * Digests of the current document, computed once per file.
+     * @return the fingerprint, or null if the document text could not be read
      */
-    private byte[] retrievePreviousDocumentBytes() {
-        byte[] pdfPreviousDoc = null;
-        
+    public PdfFingerprint getFingerprint(String requestedDocumentFile) {
+        if (fingerprint == null || !requestedDocumentFile.equals(fingerprintedFile)) {
+            try {
+                fingerprint = PDFHelper.fingerprint(requestedDocumentFile);
+                fingerprintedFile = requestedDocumentFile;
+            } catch (Exception e) {
+                logger.logError("Error computing document digest: {}", e.getMessage());
+                return null;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static class HistoryDigest {
+        private final String textDigest;
+
+        HistoryDigest(String textDigest) {
+            this.textDigest = textDigest;
+        }
+    }
+
+    /**
+     * Reads the digests recorded for the previous document.
+     * @return the digests, which are null for rows recorded before digests were kept,
+     *         or null if there is no previous document
+     */
+    private HistoryDigest retrievePreviousDigest() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SQL_FETCH_PREVIOUS_DIGEST)) {
+            stmt.setInt(1, documentID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new HistoryDigest(rs.getString("doc_textDigest"));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the last translation of the document into the given language to a file.
+     * @param fullLanguage Language of the translation
+     * @param destinationFile Path the previous translation is written to
+     * @return page digests of the document that translation was made from, or null if
+     *         there is no previous translation
+     */
+    public List<String> retrievePreviousTranslation(String fullLanguage, String destinationFile) {
+        if (!translationHistoryAvailable) {
+            return null;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(SQL_FETCH_TRANSLATION_HISTORY)) {
+            stmt.setInt(1, documentID);
+            stmt.setString(2, fullLanguage);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                String pageDigests = rs.getString("doc_pageDigests");
+                try (InputStream in = rs.getBinaryStream("doc_translatedObject")) {
+                    if (pageDigests == null || in == null) {
+                        return null;
+                    }
+                    FileUtilityHelper.copyToFile(in, destinationFile);
+                }
+                return PdfFingerprint.decodePageDigests(pageDigests);
+            }
+        } catch (SQLException e) {
+            handleTranslationHistoryError("read previous translation", e);
+        } catch (IOException e) {
+            logger.logError("Failed to read previous translation: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Records a translation together with the page digests of the document it was made from.
+     * @param fullLanguage Language of the translation
+     * @param requestedDocumentFile Path to the document that was translated
+     * @param translatedDocumentFile Path to the translated document
+     */
+    public void updateTranslationHistory(String fullLanguage, String requestedDocumentFile, String translatedDocumentFile) {
+        if (!translationHistoryAvailable) {
+            return;
+        }
+        PdfFingerprint current = getFingerprint(requestedDocumentFile);
+        if (current == null) {
+            return;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(SQL_UPSERT_TRANSLATION_HISTORY)) {
+            File translatedFile = new File(translatedDocumentFile);
+            try (InputStream in = new FileInputStream(translatedFile)) {
+                stmt.setInt(1, documentID);
+                stmt.setString(2, fullLanguage);
+                stmt.setString(3, current.encodePageDigests());
+                stmt.setBinaryStream(4, in, translatedFile.length());
+                stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            handleTranslationHistoryError("update translation history", e);
+        } catch (IOException e) {
+            logger.logError("Failed to update translation history: {}", e.getMessage());
+        }
+    }
+
+    // Switches the table off only when it does not exist; any other error fails this call alone
+    private void handleTranslationHistoryError(String action, SQLException e) {
+        if (!hasErrorCode(e, ERROR_INVALID_OBJECT)) {
+            logger.logError("Failed to {}: {}", action, e.getMessage());
+            return;
+        }
+        translationHistoryAvailable = false;
+        logger.logWarn("Document_TranslationHistory unavailable, documents will be translated in full: {}", e.getMessage());
+    }
+
+    // Only a missing table or column means the schema is behind; anything else is a one-off failure
+    private static boolean isSchemaError(SQLException e) {
+        return hasErrorCode(e, ERROR_INVALID_COLUMN, ERROR_INVALID_OBJECT);
+    }
+
+    private static boolean hasErrorCode(SQLException e, int... codes) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            for (int code : codes) {
+                if (next.getErrorCode() == code) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void disableDigestColumns(SQLException e) {
+        digestColumnsAvailable = false;
+        logger.logWarn("Document_ChangeHistory digest columns unavailable, comparing document text instead: {}", e.getMessage());
+    }
+
+    /**
+     * Streams the previous document from change history into a buffer that spills to
+     * disk for large documents.
+     * @return buffer holding the previous document, or null if there is none
+     */
+    private SpillBuffer retrievePreviousDocument() {
         try (PreparedStatement stmt = connection.prepareStatement(SQL_FETCH_PREVIOUS_DOCUMENT)) {
             
             stmt.setInt(1, documentID);
@@ -101,7 +331,7 @@ public class DocumentChangeHistoryManager {
                 if (rs.next()) {
                     Blob blob = rs.getBlob("doc_Previousobject");
                     if (blob != null) {
-                        pdfPreviousDoc = blobToByteArray(blob);
+                        return blobToBuffer(blob);
                     }
                 }
             }
@@ -109,7 +339,7 @@ public class DocumentChangeHistoryManager {
             logger.logError("Failed to retrieve previous document: {}", e.getMessage());
         }
         
-        return pdfPreviousDoc;
+        return null;
     }
     private boolean GetTranslatedDocument(String fullLanguage) throws SQLException{
 
@@ -126,45 +356,73 @@ public class DocumentChangeHistoryManager {
 
 
     /**
-     * Converts Blob to byte array
+     * Copies a Blob into a spill buffer
      * @param blob Input Blob
-     * @return byte array representation of the blob
+     * @return buffer holding the blob content
      */
-    private byte[] blobToByteArray(Blob blob) throws SQLException {
+    private SpillBuffer blobToBuffer(Blob blob) throws SQLException {
         if (blob == null) return null;
         
-        try (InputStream inputStream = blob.getBinaryStream()) {
-            long blobLength = blob.length();
-            byte[] bytes = new byte[(int) blobLength];
-            
+        SpillBuffer buffer = new SpillBuffer();
+        try (InputStream inputStream = blob.getBinaryStream();
+             OutputStream outputStream = buffer.getOutputStream()) {
+            byte[] chunk = new byte[8192];
             int bytesRead;
-            int offset = 0;
-            while (offset < bytes.length && 
-                   (bytesRead = inputStream.read(bytes, offset, bytes.length - offset)) != -1) {
-                offset += bytesRead;
+            while ((bytesRead = inputStream.read(chunk)) != -1) {
+                outputStream.write(chunk, 0, bytesRead);
             }
-            
-            return bytes;
+            return buffer;
         } catch (IOException e) {
-            logger.logError("Error converting blob to byte array: {}", e.getMessage());
+            buffer.close();
+            logger.logError("Error reading blob: {}", e.getMessage());
             return null;
         }
     }
 
     /**
      * Updates or inserts a change history record
-     * @param keyID Document key ID
      * @param requestedDocumentFile Path to the current document
      */
     public void updateChangeHistory(String requestedDocumentFile) {
-        try (PreparedStatement updateStmt = connection.prepareStatement(SQL_UPSERT_CHANGEHISTORY)) {
-            
-            updateStmt.setInt(1, documentID);                                                    
-            updateStmt.setBytes(2, FileUtilityHelper.getPDFBytes(requestedDocumentFile));                   
-            
-            updateStmt.executeUpdate();                                                
-        } catch (SQLException e) {
+        PdfFingerprint current = digestColumnsAvailable ? getFingerprint(requestedDocumentFile) : null;
+        if (current != null) {
+            try {
+                upsertChangeHistory(SQL_UPSERT_CHANGEHISTORY_DIGEST, requestedDocumentFile, current);
+                return;
+            } catch (SQLException e) {
+                if (!isSchemaError(e)) {
+                    // Writing the document without its digests would leave the old digest next to it
+                    logger.logError("Failed to update change history: {}", e.getMessage());
+                    return;
+                }
+                disableDigestColumns(e);
+            } catch (IOException e) {
+                logger.logError("Failed to update change history: {}", e.getMessage());
+                return;
+            }
+        }
+        try {
+            upsertChangeHistory(SQL_UPSERT_CHANGEHISTORY, requestedDocumentFile, null);
+        } catch (SQLException | IOException e) {
             logger.logError("Failed to update change history: {}", e.getMessage());
         }
     }
+
+    private void upsertChangeHistory(String sql, String requestedDocumentFile, PdfFingerprint current)
+            throws SQLException, IOException {
+        try (PreparedStatement updateStmt = connection.prepareStatement(sql)) {
+            
+            File documentFile = new File(requestedDocumentFile);
+            try (InputStream in = new FileInputStream(documentFile)) {
+                updateStmt.setInt(1, documentID);                                                    
+                updateStmt.setBinaryStream(2, in, documentFile.length());
+                if (current != null) {
+                    updateStmt.setString(3, current.getTextDigest());
+                    updateStmt.setString(4, current.encodePageDigests());
+                }
+                
+                updateStmt.executeUpdate();                                                
+            }
+        }
+    }
 }
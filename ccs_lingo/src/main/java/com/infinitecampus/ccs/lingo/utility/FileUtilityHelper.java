@@ -4,6 +4,7 @@ package com.infinitecampus.ccs.lingo.utility;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
@@ -213,15 +214,46 @@ public class FileUtilityHelper {
       return testDir + File.separator;
   }
 
+  /**
+   * Copies a file channel to channel so the content is moved by the OS instead of through the heap.
+   */
   public static void copyPdfFiles(String Source,String Destination) throws IOException {
       Path sourcePath = Paths.get(Source);
       Path destinationPath = Paths.get(Destination);
-      try {
-          Files.copy(sourcePath, destinationPath, StandardCopyOption.REPLACE_EXISTING);
+      try (FileChannel in = FileChannel.open(sourcePath, StandardOpenOption.READ);
+           FileChannel out = FileChannel.open(destinationPath, StandardOpenOption.CREATE,
+               StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+          long size = in.size();
+          long position = 0;
+          // transferTo may move fewer bytes than requested, so keep going until done
+          while (position < size) {
+              position += in.transferTo(position, size - position, out);
+          }
       } catch (IOException e) {
           throw new IOException("Error copying file: " + e.getMessage(), e);
       }
    }
+
+  /**
+   * Streams the content to a file, replacing it if it exists. A partially written file is
+   * removed if the copy fails.
+   *
+   * @return number of bytes written
+   */
+  public static long copyToFile(InputStream in, String Destination) throws IOException {
+      Path destinationPath = Paths.get(Destination);
+      try {
+          return Files.copy(in, destinationPath, StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+          Files.deleteIfExists(destinationPath);
+          throw e;
+      }
+   }
+
+    /**
+     * Reads a whole file into memory. Prefer streaming the file (copyPdfFiles, copyToFile,
+     * PreparedStatement.setBinaryStream) for documents, which can be hundreds of MB.
+     */
     public static byte[] getPDFBytes(String filelocation) {
             try (InputStream stream = new FileInputStream(filelocation);
                 ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
@@ -0,0 +1,179 @@
+package com.infinitecampus.ccs.lingo.utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+
+/**
+ * Holds TrueType font bytes for the whole JVM and hands out fonts bound to a single document.
+ * A PDFont belongs to the PDDocument it was loaded into, so fonts are never shared between
+ * documents; only the raw bytes are. Fonts are looked up by the script of the target language,
+ * first in the fontDirectory setting, then on the classpath under /fonts.
+ *
+ * Latin, Greek and Cyrillic languages work with no setup: when NotoSans-Regular.ttf is in
+ * neither place, the Liberation Sans font that ships inside the PDFBox jar is used instead.
+ * The fonts of the other scripts (the files registered below, from https://github.com/notofonts)
+ * have to be put in fontDirectory or under /fonts. A language whose font is missing fails with
+ * an error naming the file, instead of being drawn in the Latin font as question marks. Missing
+ * fonts are looked for again on the next document, so installing one takes effect without a restart.
+ */
+public class FontAssetManager {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(FontAssetManager.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    // Local font path in resources
+    private static final String FONT_RESOURCE_DIRECTORY = "/fonts/";
+    private static final String DEFAULT_FONT_FILE = "NotoSans-Regular.ttf";
+    // Latin, Greek and Cyrillic font bundled with PDFBox, used when NotoSans is not installed
+    private static final String PDFBOX_LATIN_FONT_RESOURCE = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    private static final Map<String, String> FONT_FILE_BY_LANGUAGE = new HashMap<>();
+    // Only fonts that were found; a missing one is looked for again on the next request
+    private static final Map<String, byte[]> fontBytes = new ConcurrentHashMap<>();
+
+    static {
+        // Latin, Greek, Cyrillic and Vietnamese are covered by the default font
+        register("NotoSansArabic-Regular.ttf", "ar", "fa", "ur", "ps", "prs", "ku", "sd", "ug");
+        register("NotoSansHebrew-Regular.ttf", "he", "iw", "yi");
+        register("NotoSansDevanagari-Regular.ttf", "hi", "mr", "ne", "sa");
+        register("NotoSansBengali-Regular.ttf", "bn", "as");
+        register("NotoSansGurmukhi-Regular.ttf", "pa");
+        register("NotoSansGujarati-Regular.ttf", "gu");
+        register("NotoSansTamil-Regular.ttf", "ta");
+        register("NotoSansTelugu-Regular.ttf", "te");
+        register("NotoSansKannada-Regular.ttf", "kn");
+        register("NotoSansMalayalam-Regular.ttf", "ml");
+        register("NotoSansSinhala-Regular.ttf", "si");
+        register("NotoSansThai-Regular.ttf", "th");
+        register("NotoSansLao-Regular.ttf", "lo");
+        register("NotoSansKhmer-Regular.ttf", "km");
+        register("NotoSansMyanmar-Regular.ttf", "my");
+        register("NotoSansEthiopic-Regular.ttf", "am", "ti");
+        register("NotoSansArmenian-Regular.ttf", "hy");
+        register("NotoSansGeorgian-Regular.ttf", "ka");
+        register("NotoSansSC-Regular.ttf", "zh", "zh-cn", "zh-hans", "zh-sg");
+        register("NotoSansTC-Regular.ttf", "zh-tw", "zh-hant", "zh-hk", "zh-mo");
+        register("NotoSansJP-Regular.ttf", "ja");
+        register("NotoSansKR-Regular.ttf", "ko");
+    }
+
+    private FontAssetManager() {
+    }
+
+    private static void register(String fontFile, String... languages) {
+        for (String language : languages) {
+            FONT_FILE_BY_LANGUAGE.put(language, fontFile);
+        }
+    }
+
+    /**
+     * Returns the font file name used for the target language.
+     */
+    public static String getFontFileName(String targetLanguage) {
+        if (targetLanguage == null) {
+            return DEFAULT_FONT_FILE;
+        }
+        String language = targetLanguage.trim().toLowerCase(Locale.ROOT).replace('_', '-');
+        String fontFile = FONT_FILE_BY_LANGUAGE.get(language);
+        if (fontFile == null && language.indexOf('-') > 0) {
+            fontFile = FONT_FILE_BY_LANGUAGE.get(language.substring(0, language.indexOf('-')));
+        }
+        return fontFile != null ? fontFile : DEFAULT_FONT_FILE;
+    }
+
+    /**
+     * Loads a subsetting Type 0 font for the target language into the given document.
+     *
+     * @throws IOException if the font of the language's script is not installed
+     */
+    public static PDFont loadFont(PDDocument document, String targetLanguage) throws IOException {
+        String fontFile = getFontFileName(targetLanguage);
+        byte[] bytes = getFontBytes(fontFile);
+        if (bytes == null) {
+            String fontDirectory = Configuration.getInstance().getFontDirectory();
+            throw new IOException("Font " + fontFile + " for language " + targetLanguage + " is not installed; add it to "
+                + (fontDirectory == null || fontDirectory.trim().isEmpty()
+                    ? "the directory named by the fontDirectory setting, which is not set"
+                    : "the fontDirectory " + fontDirectory));
+        }
+        try (InputStream in = new ByteArrayInputStream(bytes)) {
+            return PDType0Font.load(document, in, true);
+        }
+    }
+
+    /**
+     * Returns the cached bytes of a font file, loading them on first use.
+     *
+     * @return the bytes, or null if the font is not installed
+     */
+    public static byte[] getFontBytes(String fontFile) {
+        return fontBytes.computeIfAbsent(fontFile, FontAssetManager::readFontBytes);
+    }
+
+    private static byte[] readFontBytes(String fontFile) {
+        String fontDirectory = Configuration.getInstance().getFontDirectory();
+        if (fontDirectory != null && !fontDirectory.trim().isEmpty()) {
+            File file = new File(fontDirectory, fontFile);
+            if (file.isFile()) {
+                try {
+                    logger.logInfo("Loading font {} from {}", fontFile, file.getParent());
+                    return Files.readAllBytes(file.toPath());
+                } catch (IOException e) {
+                    logger.logWarn("Unable to read font file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+
+        try (InputStream in = FontAssetManager.class.getResourceAsStream(FONT_RESOURCE_DIRECTORY + fontFile)) {
+            if (in != null) {
+                logger.logInfo("Loading font {} from classpath", fontFile);
+                return readFully(in);
+            }
+        } catch (IOException e) {
+            logger.logWarn("Unable to read font resource {}: {}", fontFile, e.getMessage());
+        }
+
+        if (DEFAULT_FONT_FILE.equals(fontFile)) {
+            try (InputStream in = PDDocument.class.getResourceAsStream(PDFBOX_LATIN_FONT_RESOURCE)) {
+                if (in != null) {
+                    logger.logInfo("Font {} is not installed, using the Liberation Sans font bundled with PDFBox", fontFile);
+                    return readFully(in);
+                }
+            } catch (IOException e) {
+                logger.logWarn("Unable to read font resource {}: {}", PDFBOX_LATIN_FONT_RESOURCE, e.getMessage());
+            }
+        }
+        logger.logError("Font {} is neither in the fontDirectory nor on the classpath", fontFile);
+        return null;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+        byte[] buffer = new byte[8192];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            out.write(buffer, 0, bytesRead);
+        }
+        return out.toByteArray();
+    }
+}
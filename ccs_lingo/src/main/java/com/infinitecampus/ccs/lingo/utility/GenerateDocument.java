@@ -15,7 +15,6 @@ package com.infinitecampus.ccs.lingo.utility;
  */
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Blob;
@@ -373,29 +372,21 @@ private void processRequest(ResultSet rs) throws GenerateException, SQLException
     logger.logInfo("Processing request - ID: [{}], Document: [{}], Type: [{}]", requestId, documentName, type);
 
     try {
-        byte[] pdfContent = null;
+        String outputPath = outputFileLocation + File.separator + documentName;
+        long pdfSize;
         
+        // Content is streamed straight to the output file rather than held in memory
         if (type.equalsIgnoreCase("backpack")) {
             logger.logDebug("Retrieving Backpack document for request ID: [{}]", requestId);
-            pdfContent = retrieveBackpackPDF(rs.getInt("keyid"));
+            pdfSize = retrieveBackpackPDF(rs.getInt("keyid"), outputPath);
         } else {
             logger.logDebug("Generating Campus document for request ID: [{}]", requestId);
             //get rid of trailing and leading "/""
-            pdfContent = generateCampusDocument(baseUrl.replaceAll("/+$", "") + "/" +  path.replaceAll("^/+", ""));
+            pdfSize = generateCampusDocument(baseUrl.replaceAll("/+$", "") + "/" +  path.replaceAll("^/+", ""), outputPath);
         }
        
-        if (pdfContent != null) {
-            String outputPath = outputFileLocation + File.separator + documentName;
-            logger.logDebug("Saving PDF to: [{}]", outputPath);
-            
-            try (FileOutputStream fos = new FileOutputStream(outputPath)) {
-                fos.write(pdfContent);
-                logger.logDebug("Successfully saved PDF, size: {} bytes", pdfContent.length);
-            } catch (Exception e) {
-                logger.logError("Error saving PDF to file: {}", e.getMessage(), e);
-                throw new GenerateException("Error saving PDF to file: " + e.getMessage(), e);
-            }
-            
+        if (pdfSize >= 0) {
+            logger.logDebug("Successfully saved PDF to: [{}], size: {} bytes", outputPath, pdfSize);
             logger.logInfo("Document successfully generated and saved: [{}]", documentName);
             markRequest(requestId, documentName);
             
@@ -450,7 +441,12 @@ private void markRequest(int requestID, String completedName) throws GenerateExc
         throw new GenerateException("General error during request update: " + e.getMessage(), e);
     }
 }
-private byte[] retrieveBackpackPDF(int docId) throws IOException, SQLException, GenerateException {
+/**
+ * Streams the Backpack document to the output file.
+ *
+ * @return number of bytes written, or -1 if there is no document
+ */
+private long retrieveBackpackPDF(int docId, String outputPath) throws IOException, SQLException, GenerateException {
     logger.logDebug("Starting Backpack PDF retrieval for document ID: [{}]", docId);
     PreparedStatement stmt = null;
     ResultSet rs = null;    
@@ -478,28 +474,18 @@ private byte[] retrieveBackpackPDF(int docId) throws IOException, SQLException,
             
             if (blob != null) {
                 logger.logDebug("Retrieved blob of size: {} bytes", blob.length());
-                //System.out.println("Blob size: " + blob.length());
                 try (InputStream inputStream = blob.getBinaryStream()) {
-                    long blobLength = blob.length();
-                    byte[] blobData = new byte[(int)blobLength];
-            
-                    int bytesRead = 0;
-                    int offset = 0;
-                    while (offset < blobData.length && 
-                           (bytesRead = inputStream.read(blobData, offset, blobData.length - offset)) != -1) {
-                        offset += bytesRead;
-                    }
-                    
-                    logger.logInfo("Successfully retrieved Backpack PDF, size: {} bytes", offset);
-                    return blobData;
+                    long written = FileUtilityHelper.copyToFile(inputStream, outputPath);
+                    logger.logInfo("Successfully retrieved Backpack PDF, size: {} bytes", written);
+                    return written;
                 }
             } else {
                 logger.logError("Null blob returned for Backpack document ID: [{}]", docId);
-                return null;
+                return -1;
             }
         } else {
             logger.logError("No record found for Backpack document ID: [{}]", docId);
-            return null;
+            return -1;
         }
     } catch (SQLException | IOException e) {
         logger.logError("Error retrieving Backpack PDF for document ID [{}]: {}", docId, e.getMessage(), e);
@@ -509,7 +495,12 @@ private byte[] retrieveBackpackPDF(int docId) throws IOException, SQLException,
     }
 }
 
-private byte[] generateCampusDocument(String url) throws IOException, GenerateException {
+/**
+ * Streams the generated Campus report to the output file.
+ *
+ * @return number of bytes written, or -1 if the report could not be generated
+ */
+private long generateCampusDocument(String url, String outputPath) throws IOException, GenerateException {
     logger.logDebug("Starting Campus document generation from URL: [{}]", url);    
     HttpGet httpGet = new HttpGet(url);
 
@@ -544,16 +535,21 @@ private byte[] generateCampusDocument(String url) throws IOException, GenerateEx
     if (statusCode == 200) {
         HttpEntity entity = response.getEntity();        
         if (entity.getContentType() != null && entity.getContentType().getValue().contains("application/pdf")) {
-            byte[] content = EntityUtils.toByteArray(entity);
-            logger.logInfo("Successfully generated PDF document, size: {} bytes", content.length);
-            return content;
+            long written;
+            try (InputStream content = entity.getContent()) {
+                written = FileUtilityHelper.copyToFile(content, outputPath);
+            }
+            logger.logInfo("Successfully generated PDF document, size: {} bytes", written);
+            return written;
         } else {
             logger.logError("Invalid content type received: [{}]", entity.getContentType().getValue());
-            return null;
+            EntityUtils.consumeQuietly(entity);
+            return -1;
         } 
     } else {
         logger.logError("Document generation failed with status code: [{}]", statusCode);
-        return null;
+        EntityUtils.consumeQuietly(response.getEntity());
+        return -1;
     }
 }
 
@@ -1,18 +1,44 @@
 package com.infinitecampus.ccs.lingo.utility;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 import com.infinitecampus.ccs.lingo.settings.Configuration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.StackLocatorUtil;
 
 /**
  * Helper class for consistent logging across the application.
  * Provides logging with class name and line number information.
  * Respects debug mode settings except for error logs which always get logged.
+ *
+ * Nothing is formatted and no caller location is captured unless the level is enabled.
+ * Parameters are handed to Log4j unformatted. The caller location comes from Log4j's
+ * StackLocatorUtil, which walks only the frames it needs on Java 9 and later, and can be
+ * switched off with the logCallerLocation setting. The sampled methods are for messages
+ * logged once per row or segment: they let logSampledPerSecond messages per second
+ * through for each message text and report how many were dropped.
  */
 public class LogHelper {
+    private static final String FQCN = LogHelper.class.getName();
+    private static final long SAMPLE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Sampling state is dropped rather than grown past this many distinct messages
+    private static final int MAX_SAMPLED_MESSAGES = 1000;
+    private static final Map<Class<?>, LogHelper> classLoggers = new ConcurrentHashMap<>();
+
     private final Configuration config;
     private final Logger logger;
     private final String className;
+    private final Map<String, Sampler> samplers = new ConcurrentHashMap<>();
+
+    private static final class Sampler {
+        private long windowStart = System.nanoTime();
+        private int emitted;
+        private int suppressed;
+    }
 
     /**
      * Creates a LogHelper instance with default logger
@@ -45,37 +71,37 @@ public class LogHelper {
      * @return String in format "ClassName:LineNumber"
      */
     private String getCallerLocation() {
+        if (!config.isLogCallerLocation()) {
+            return className;
+        }
         try {
-            StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-            // Find the first element that's not part of the logging infrastructure
-            for (int i = 1; i < stackTrace.length; i++) {
-                String callerClassName = stackTrace[i].getClassName();
-                if (!callerClassName.equals(this.getClass().getName()) && 
-                    !callerClassName.contains("java.lang.Thread")) {
-                    return String.format("%s:%d", 
-                        callerClassName.substring(callerClassName.lastIndexOf('.') + 1),
-                        stackTrace[i].getLineNumber());
-                }
+            StackTraceElement caller = StackLocatorUtil.calcLocation(FQCN);
+            if (caller == null) {
+                return className;
             }
+            String callerClassName = caller.getClassName();
+            return callerClassName.substring(callerClassName.lastIndexOf('.') + 1) + ':' + caller.getLineNumber();
         } catch (Exception e) {
             // Fallback to just class name if we can't get line number
             return className;
         }
-        return className;
     }
 
     /**
      * Formats the message with caller location
      */
     private String formatMessage(String message) {
-        return String.format("[%s] %s", getCallerLocation(), message != null ? message : "null");
+        String location = getCallerLocation();
+        String text = message != null ? message : "null";
+        return new StringBuilder(location.length() + text.length() + 3)
+            .append('[').append(location).append("] ").append(text).toString();
     }
 
     /**
      * Logs a debug message if debug mode is enabled
      */
     public void logDebug(String message) {
-        if (config.getDebugMode() ) {
+        if (config.getDebugMode() && logger.isInfoEnabled()) {
             logger.info(formatMessage(message));
         }
     }
@@ -84,11 +110,24 @@ public class LogHelper {
      * Logs a debug message with parameters if debug mode is enabled
      */
     public void logDebug(String message, Object... params) {
-        if (config.getDebugMode() ) {
+        if (config.getDebugMode() && logger.isInfoEnabled()) {
             logger.info(formatMessage(message), params);
         }
     }
 
+    /**
+     * Logs a debug message that is written once per row or segment, at most
+     * logSampledPerSecond times per second for the same message text
+     */
+    public void logDebugSampled(String message, Object... params) {
+        if (config.getDebugMode() && logger.isInfoEnabled()) {
+            int suppressed = admit(message);
+            if (suppressed >= 0) {
+                logger.info(formatSampled(message, suppressed), params);
+            }
+        }
+    }
+
     /**
      * Logs an info message regardless of debug mode
      */
@@ -107,7 +146,20 @@ public class LogHelper {
         }
     }
 
- 
+    /**
+     * Logs an info message that is written once per row or segment, at most
+     * logSampledPerSecond times per second for the same message text
+     */
+    public void logInfoSampled(String message, Object... params) {
+        if (logger.isInfoEnabled()) {
+            int suppressed = admit(message);
+            if (suppressed >= 0) {
+                logger.info(formatSampled(message, suppressed), params);
+            }
+        }
+    }
+
+
    /**
      * Logs a warning message regardless of debug mode
      */
@@ -126,56 +178,109 @@ public class LogHelper {
         }
     }
 
+    /**
+     * Logs a warning that can repeat once per row or segment, at most
+     * logSampledPerSecond times per second for the same message text
+     */
+    public void logWarnSampled(String message, Object... params) {
+        if (logger.isWarnEnabled()) {
+            int suppressed = admit(message);
+            if (suppressed >= 0) {
+                logger.warn(formatSampled(message, suppressed), params);
+            }
+        }
+    }
+
 
     /**
      * Logs an error message - Always logs regardless of debug mode
      */
     public void logError(String message) {
-        //if (logger.isErrorEnabled()) {
+        if (logger.isErrorEnabled()) {
             logger.error(formatMessage(message));
-        //}
+        }
     }
 
     /**
      * Logs an error message with exception - Always logs regardless of debug mode
      */
     public void logError(String message, Throwable throwable) {
-       // if (logger.isErrorEnabled()) {
+        if (logger.isErrorEnabled()) {
             logger.error(formatMessage(message), throwable);
-        //}
+        }
     }
 
     /**
      * Logs an error message with parameters - Always logs regardless of debug mode
      */
     public void logError(String message, Object... params) {
-        //if (logger.isErrorEnabled()) {
+        if (logger.isErrorEnabled()) {
             logger.error(formatMessage(message), params);
-        //}
+        }
     }
 
     /**
      * Logs an error message with parameters and exception - Always logs regardless of debug mode
      */
     public void logError(String message, Throwable throwable, Object... params) {
-       // if (logger.isErrorEnabled()) {
+        if (logger.isErrorEnabled()) {
             String formattedMessage = formatMessage(message);
             if (params != null && params.length > 0) {
-                logger.error(formattedMessage, params, throwable);
+                // Log4j takes a trailing Throwable parameter as the exception
+                Object[] withThrowable = Arrays.copyOf(params, params.length + 1);
+                withThrowable[params.length] = throwable;
+                logger.error(formattedMessage, withThrowable);
             } else {
                 logger.error(formattedMessage, throwable);
             }
-        //}
+        }
+    }
+
+    // -1 if the message is dropped, otherwise how many were dropped since it was last written
+    private int admit(String message) {
+        int perSecond = config.getLogSampledPerSecond();
+        if (perSecond <= 0) {
+            return 0;
+        }
+        String key = message != null ? message : "null";
+        if (samplers.size() >= MAX_SAMPLED_MESSAGES && !samplers.containsKey(key)) {
+            samplers.clear();
+        }
+        Sampler sampler = samplers.computeIfAbsent(key, k -> new Sampler());
+        synchronized (sampler) {
+            long now = System.nanoTime();
+            if (now - sampler.windowStart >= SAMPLE_WINDOW_NANOS) {
+                sampler.windowStart = now;
+                sampler.emitted = 0;
+            }
+            if (sampler.emitted >= perSecond) {
+                sampler.suppressed++;
+                return -1;
+            }
+            sampler.emitted++;
+            int suppressed = sampler.suppressed;
+            sampler.suppressed = 0;
+            return suppressed;
+        }
+    }
+
+    private String formatSampled(String message, int suppressed) {
+        String formatted = formatMessage(message);
+        return suppressed == 0 ? formatted : formatted + " (" + suppressed + " similar messages suppressed)";
     }
 
     /**
-     * Creates a new LogHelper instance for a specific class
+     * Creates a new LogHelper instance for a specific class. Helpers for the shared
+     * configuration are cached, so classes that ask for one per instance share it.
      */
     public LogHelper createLogger(Class<?> clazz) {
         if (clazz == null) {
             throw new IllegalArgumentException("Class cannot be null");
         }
-        return new LogHelper(config, LogManager.getLogger(clazz));
+        if (config != Configuration.getInstance()) {
+            return new LogHelper(config, LogManager.getLogger(clazz));
+        }
+        return classLoggers.computeIfAbsent(clazz, c -> new LogHelper(config, LogManager.getLogger(c)));
     }
 
     /**
@@ -198,4 +303,4 @@ public class LogHelper {
     public String getClassName() {
         return className;
     }
-}
\ No newline at end of file
+}
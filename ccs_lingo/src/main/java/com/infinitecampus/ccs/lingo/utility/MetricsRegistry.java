@@ -0,0 +1,427 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * MetricsRegistry metrics = MetricsRegistry.getInstance();
+ * MetricsRegistry.Mark batchStart = metrics.mark();
+ * long start = System.nanoTime();
+ * ... call the provider ...
+ * metrics.histogram("provider.latency.azure.es").recordSince(start);
+ * metrics.counter("characters.translated.azure").add(text.length());
+ * metrics.gauge("text.queue.depth").set(pending.size());
+ * ...
+ * metrics.logSummary(batchStart);   // at the end of a batch, what changed since the mark
+ */
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+
+/**
+ * Counters, gauges and latency histograms of the lingo engine, shared by every batch in the
+ * JVM and built on the JDK only. Metrics are created on first use by name and live until
+ * reset. Everything is published as read-only attributes of the JMX bean
+ * com.infinitecampus.ccs.lingo:type=Metrics and can be written to the log with logSummary,
+ * either as totals or as the change since a mark taken when a batch started. Batches running
+ * at the same time in the JVM show up in each other's change.
+ *
+ * Histograms use log-linear buckets in the style of HdrHistogram: values are kept in
+ * microseconds with 16 buckets per power of two, so reported percentiles are within about
+ * 6% of the recorded value while recording stays lock free.
+ *
+ * Names in use:
+ * <ul>
+ * <li>provider.latency.[provider].[language], provider.calls.[provider], provider.errors.[provider]</li>
+ * <li>characters.translated.[provider]</li>
+ * <li>document.pages.rendered, document.pages.native, document.render.latency, document.ocr.latency</li>
+ * <li>document.encode.latency, document.image.bytes</li>
+ * <li>document.chunks.[provider], document.chunk.latency.[provider], document.chunk.retries.[provider]</li>
+ * <li>db.write.latency, db.rows.written</li>
+ * <li>text.queue.depth, document.pages.inflight, documents.inflight</li>
+ * </ul>
+ */
+public class MetricsRegistry {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(MetricsRegistry.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    public static final String OBJECT_NAME = "com.infinitecampus.ccs.lingo:type=Metrics";
+
+    private static volatile MetricsRegistry instance;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * A count that only goes up.
+     */
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * A value that is set, or moved up and down, by the code it describes.
+     */
+    public static class Gauge {
+        private final AtomicLong value = new AtomicLong();
+
+        public void set(long newValue) {
+            value.set(newValue);
+        }
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void decrement() {
+            value.decrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /**
+     * Latency distribution with log-linear buckets, recorded in microseconds.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // Values below this get a bucket each
+        private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+        private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram copy() {
+            Histogram copy = new Histogram();
+            for (int i = 0; i < BUCKETS; i++) {
+                copy.buckets.set(i, buckets.get(i));
+            }
+            copy.count.add(count.sum());
+            copy.sum.add(sum.sum());
+            copy.max.set(max.get());
+            return copy;
+        }
+
+        // What was recorded after the earlier copy; the max is the top of the highest bucket that grew
+        private Histogram since(Histogram earlier) {
+            Histogram delta = new Histogram();
+            long highest = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long added = buckets.get(i) - earlier.buckets.get(i);
+                if (added > 0) {
+                    delta.buckets.set(i, added);
+                    highest = bucketLimit(i);
+                }
+            }
+            delta.count.add(count.sum() - earlier.count.sum());
+            delta.sum.add(sum.sum() - earlier.sum.sum());
+            delta.max.set(Math.min(highest, max.get()));
+            return delta;
+        }
+
+        public void recordNanos(long nanos) {
+            long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+            buckets.incrementAndGet(bucketOf(micros));
+            count.increment();
+            sum.add(micros);
+            max.accumulateAndGet(micros, Math::max);
+        }
+
+        /**
+         * Records the time since a System.nanoTime() reading.
+         */
+        public void recordSince(long startNanos) {
+            recordNanos(System.nanoTime() - startNanos);
+        }
+
+        static int bucketOf(long micros) {
+            if (micros < LINEAR_LIMIT) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int mantissa = (int) (micros >>> (exponent - SUB_BUCKET_BITS));
+            return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+        }
+
+        // Highest value that falls in the bucket
+        static long bucketLimit(int bucket) {
+            if (bucket < LINEAR_LIMIT) {
+                return bucket;
+            }
+            int offset = bucket - LINEAR_LIMIT;
+            int exponent = offset / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+            long mantissa = offset % SUB_BUCKETS + SUB_BUCKETS;
+            return ((mantissa + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / 1000.0 / n;
+        }
+
+        public double getMaxMillis() {
+            return max.get() / 1000.0;
+        }
+
+        /**
+         * Latency in milliseconds at the given percentile, 0 when nothing was recorded.
+         *
+         * @param percentile between 0 and 1, for example 0.99
+         */
+        public double getPercentileMillis(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(percentile * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return Math.min(bucketLimit(i), max.get()) / 1000.0;
+                }
+            }
+            return getMaxMillis();
+        }
+    }
+
+    /**
+     * Counter and histogram values at a point in time, to log what changed after it.
+     */
+    public static class Mark {
+        private final Map<String, Long> counters = new HashMap<>();
+        private final Map<String, Histogram> histograms = new HashMap<>();
+    }
+
+    // Publishes the metrics that exist when JMX asks, so new metrics appear without re-registering
+    private class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = snapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Object> snapshot = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Object value = snapshot.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) {
+            throw new UnsupportedOperationException("Metrics are read only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : snapshot().entrySet()) {
+                attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                    entry.getKey(), true, false, false));
+            }
+            return new MBeanInfo(MetricsRegistry.class.getName(), "CCS lingo engine metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+
+    private MetricsRegistry() {
+        registerMBean();
+    }
+
+    public static MetricsRegistry getInstance() {
+        if (instance == null) {
+            synchronized (MetricsRegistry.class) {
+                if (instance == null) {
+                    instance = new MetricsRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            // A redeployed application replaces the bean of the previous class loader
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new MetricsMBean(), name);
+        } catch (Exception e) {
+            logger.logWarn("Unable to register metrics with JMX: {}", e.getMessage());
+        }
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, k -> new Gauge());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Current values by attribute name, sorted. Histograms contribute .count, .mean, .p50,
+     * .p90, .p99 and .max attributes, in milliseconds.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            String name = entry.getKey();
+            values.put(name + ".count", histogram.getCount());
+            values.put(name + ".mean", histogram.getMeanMillis());
+            values.put(name + ".p50", histogram.getPercentileMillis(0.5));
+            values.put(name + ".p90", histogram.getPercentileMillis(0.9));
+            values.put(name + ".p99", histogram.getPercentileMillis(0.99));
+            values.put(name + ".max", histogram.getMaxMillis());
+        }
+        return values;
+    }
+
+    /**
+     * Takes a mark to pass to logSummary later, for example when a batch starts.
+     */
+    public Mark mark() {
+        Mark mark = new Mark();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            mark.counters.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            mark.histograms.put(entry.getKey(), entry.getValue().copy());
+        }
+        return mark;
+    }
+
+    /**
+     * Writes every counter and gauge and a one line summary of every histogram to the log,
+     * as totals since the JVM started.
+     */
+    public void logSummary() {
+        logSummary(null);
+    }
+
+    /**
+     * Writes what changed since the mark: counters and histograms that moved, and every gauge
+     * as it is now.
+     */
+    public void logSummary(Mark since) {
+        StringBuilder summary = new StringBuilder(since == null ? "Lingo metrics:" : "Lingo metrics for this batch:");
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            long value = entry.getValue().get();
+            if (since != null) {
+                value -= since.counters.getOrDefault(entry.getKey(), 0L);
+                if (value == 0) {
+                    continue;
+                }
+            }
+            summary.append("\n  ").append(entry.getKey()).append(" = ").append(value);
+        }
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+            summary.append("\n  ").append(entry.getKey()).append(" = ").append(entry.getValue().get());
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (since != null) {
+                Histogram earlier = since.histograms.get(entry.getKey());
+                histogram = histogram.since(earlier != null ? earlier : new Histogram());
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+            }
+            summary.append(String.format("%n  %s count=%d mean=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                entry.getKey(), histogram.getCount(), histogram.getMeanMillis(), histogram.getPercentileMillis(0.5),
+                histogram.getPercentileMillis(0.9), histogram.getPercentileMillis(0.99), histogram.getMaxMillis()));
+        }
+        logger.logInfo(summary.toString());
+    }
+
+    /**
+     * Removes every metric.
+     */
+    public void reset() {
+        counters.clear();
+        gauges.clear();
+        histograms.clear();
+    }
+}
@@ -4,8 +4,14 @@ package com.infinitecampus.ccs.lingo.utility;
 //import org.apache.pdfbox.text.PDFTextStripper;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
+import com.itextpdf.text.io.RandomAccessSourceFactory;
 import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
 import com.itextpdf.text.pdf.parser.PdfTextExtractor;
 
 public class PDFHelper {
@@ -39,6 +45,62 @@ public class PDFHelper {
             return text1.equalsIgnoreCase(text2);
     }
 
+    /**
+     * Compares the text content of a PDF file with a buffered PDF document. The file is read
+     * through a memory-mapped source, and the buffer is read from disk once it has spilled,
+     * so neither document is copied into the heap as a whole.
+     *
+     * @param pdfFile Path of the first PDF document.
+     * @param pdf The second PDF document.
+     * @return true if the normalized text content is the same (case-insensitive), false otherwise.
+     * @throws Exception if an error occurs while reading the PDFs.
+     */
+    public static boolean comparePdfText(String pdfFile, SpillBuffer pdf) throws Exception {
+        String text1 = extractText(openReader(pdfFile));
+        String text2;
+        if (pdf.isSpilled()) {
+            text2 = extractText(openReader(pdf.getFile().getPath()));
+        } else {
+            try (InputStream in = pdf.openInputStream()) {
+                text2 = extractText(new PdfReader(in));
+            }
+        }
+        return text1.equalsIgnoreCase(text2);
+    }
+
+    /**
+     * Computes the text digest and per-page digests of a PDF file. The document digest covers
+     * the same normalized text comparePdfText compares, so equal digests mean equal text.
+     *
+     * @param pdfFile Path of the PDF document.
+     * @return the fingerprint of the document.
+     * @throws Exception if an error occurs while reading the PDF.
+     */
+    public static PdfFingerprint fingerprint(String pdfFile) throws Exception {
+        PdfReader reader = openReader(pdfFile);
+        try {
+            int pages = reader.getNumberOfPages();
+            StringBuilder text = new StringBuilder();
+            List<String> pageDigests = new ArrayList<>(pages);
+            for (int i = 1; i <= pages; i++) {
+                String pageText = PdfTextExtractor.getTextFromPage(reader, i);
+                text.append(pageText);
+                pageDigests.add(DigestHelper.sha256Hex(normalizeText(pageText)));
+            }
+            return new PdfFingerprint(DigestHelper.sha256Hex(normalizeText(text.toString())), pageDigests);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Opens a PDF file for partial reading; objects are only loaded when they are used.
+     */
+    private static PdfReader openReader(String pdfFile) throws IOException {
+        RandomAccessSourceFactory factory = new RandomAccessSourceFactory().setForceRead(false);
+        return new PdfReader(new RandomAccessFileOrArray(factory.createBestSource(pdfFile)), null);
+    }
+
     /**
      * Extracts and normalizes text from a PDF document.
      *
@@ -51,9 +113,14 @@ public class PDFHelper {
             return "";
         }
 
-        PdfReader reader = null;
+        return extractText(new PdfReader(new ByteArrayInputStream(pdf)));
+    }
+
+    /**
+     * Extracts and normalizes text from an open reader, closing it afterwards.
+     */
+    private static String extractText(PdfReader reader) throws Exception {
         try {
-            reader = new PdfReader(new ByteArrayInputStream(pdf));
             StringBuilder text = new StringBuilder();
             int pages = reader.getNumberOfPages();
             
@@ -0,0 +1,128 @@
+package com.infinitecampus.ccs.lingo.utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+
+/**
+ * Page level PDF operations used to re-translate only the pages of a document that changed,
+ * and to take the original text off a page that is translated in place. Page indexes are
+ * zero based.
+ */
+public class PDFPageHelper {
+    // Operators that draw text: Tj, TJ, ' and "
+    private static final Set<String> SHOW_TEXT_OPERATORS = new HashSet<>(Arrays.asList("Tj", "TJ", "'", "\""));
+
+    private PDFPageHelper() {
+    }
+
+    /**
+     * Writes the given pages of a document, in the given order, to a new PDF file.
+     */
+    public static void extractPages(String sourceFile, List<Integer> pages, String destinationFile) throws IOException {
+        try (PDDocument source = load(sourceFile);
+             PDDocument extracted = new PDDocument()) {
+            for (Integer page : pages) {
+                extracted.importPage(source.getPage(page));
+            }
+            extracted.save(destinationFile);
+        }
+    }
+
+    /**
+     * Builds a translated document from a previous translation and newly translated pages.
+     * Page i of the result is taken from the replacement document if i is listed in
+     * replacedPages, at the position it has in that list, and otherwise from page i of the
+     * previous translation.
+     *
+     * @param previousFile translation of the previous version of the document
+     * @param replacementFile translation of the changed pages, in the order of replacedPages
+     * @param replacedPages indexes of the pages taken from the replacement document
+     * @param pageCount number of pages in the result
+     * @param destinationFile path of the spliced document
+     */
+    public static void splicePages(String previousFile, String replacementFile, List<Integer> replacedPages,
+            int pageCount, String destinationFile) throws IOException {
+        try (PDDocument previous = load(previousFile);
+             PDDocument replacement = replacementFile != null ? load(replacementFile) : new PDDocument();
+             PDDocument spliced = new PDDocument()) {
+            if (replacement.getNumberOfPages() != replacedPages.size()) {
+                throw new IOException("Expected " + replacedPages.size() + " replacement pages but found "
+                    + replacement.getNumberOfPages());
+            }
+            for (int i = 0; i < pageCount; i++) {
+                int replacementIndex = replacedPages.indexOf(i);
+                PDPage page;
+                if (replacementIndex >= 0) {
+                    page = replacement.getPage(replacementIndex);
+                } else if (i < previous.getNumberOfPages()) {
+                    page = previous.getPage(i);
+                } else {
+                    throw new IOException("Page " + (i + 1) + " is neither in the previous translation nor replaced");
+                }
+                spliced.importPage(page);
+            }
+            spliced.save(destinationFile);
+        }
+    }
+
+    /**
+     * Rewrites the page's content stream without its text drawing operators, so the page keeps
+     * its graphics and images but no text. Text drawn inside form XObjects is left alone; the
+     * forms may be shared with other pages.
+     *
+     * @param document the document the page belongs to, which owns the new content stream
+     */
+    public static void removeText(PDDocument document, PDPage page) throws IOException {
+        PDFStreamParser parser = new PDFStreamParser(page);
+        parser.parse();
+        List<Object> tokens = parser.getTokens();
+        List<Object> kept = new ArrayList<>(tokens.size());
+        // Operands come before their operator, so they are dropped once the operator is seen
+        int operandsStart = 0;
+        for (Object token : tokens) {
+            if (token instanceof Operator && SHOW_TEXT_OPERATORS.contains(((Operator) token).getName())) {
+                kept.subList(operandsStart, kept.size()).clear();
+                continue;
+            }
+            kept.add(token);
+            if (token instanceof Operator) {
+                operandsStart = kept.size();
+            }
+        }
+
+        PDStream contents = new PDStream(document);
+        try (OutputStream out = contents.createOutputStream(COSName.FLATE_DECODE)) {
+            new ContentStreamWriter(out).writeTokens(kept);
+        }
+        page.setContents(contents);
+    }
+
+    /**
+     * Number of pages in a PDF file.
+     */
+    public static int getPageCount(String pdfFile) throws IOException {
+        try (PDDocument document = load(pdfFile)) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    private static PDDocument load(String pdfFile) throws IOException {
+        // Keep parsed streams in temporary files so large documents stay off the heap
+        return PDDocument.load(new File(pdfFile), MemoryUsageSetting.setupTempFileOnly());
+    }
+}
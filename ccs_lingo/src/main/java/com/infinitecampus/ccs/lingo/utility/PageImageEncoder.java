@@ -0,0 +1,206 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * PageImageEncoder encoder = PageImageEncoder.fromConfiguration(Configuration.getInstance());
+ * BufferedImage image = renderer.renderImage(pageIndex, encoder.getRenderScale(), encoder.getImageType());
+ * PageImageEncoder.EncodedPage page = encoder.encode(image);
+ * ... send page.getBytes() to OCR ...
+ * PDImageXObject xobject = JPEGFactory.createFromByteArray(document, page.getBytes());
+ */
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.tools.imageio.ImageIOUtil;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+
+/**
+ * Render settings for page images and their single JPEG encode. The same bytes are sent to OCR
+ * and embedded in the translated PDF, so a page is encoded once instead of once per use.
+ *
+ * Pages can be rendered in color, grayscale or black and white; OCR reads text as well from
+ * grayscale at a third of the raster size, and black and white is kept as a one-component JPEG
+ * because OCR accepts only JPEG and PNG and the PDF can embed JPEG bytes as they are. An
+ * encoded image over the byte limit is scaled down and encoded again until it fits.
+ */
+public class PageImageEncoder {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(PageImageEncoder.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final float POINTS_PER_INCH = 72f;
+    private static final int MAX_DOWNSCALES = 6;
+    // Aim a little under the limit, since JPEG size does not fall exactly with the pixel count
+    private static final double DOWNSCALE_MARGIN = 0.9;
+
+    /**
+     * How pages are rendered.
+     */
+    public enum ColorMode {
+        RGB(ImageType.RGB), GRAY(ImageType.GRAY), BINARY(ImageType.BINARY);
+
+        private final ImageType imageType;
+
+        ColorMode(ImageType imageType) {
+            this.imageType = imageType;
+        }
+
+        /**
+         * @return the mode named by the setting (rgb, gray, binary), or RGB if it is not one
+         */
+        public static ColorMode parse(String value) {
+            if (value != null) {
+                for (ColorMode mode : values()) {
+                    if (mode.name().equalsIgnoreCase(value.trim())) {
+                        return mode;
+                    }
+                }
+                if ("grayscale".equalsIgnoreCase(value.trim()) || "grey".equalsIgnoreCase(value.trim())) {
+                    return GRAY;
+                }
+                if ("bitonal".equalsIgnoreCase(value.trim())) {
+                    return BINARY;
+                }
+            }
+            return RGB;
+        }
+    }
+
+    /**
+     * A page image encoded as JPEG.
+     */
+    public static class EncodedPage {
+        private final byte[] bytes;
+        private final int width;
+        private final int height;
+
+        private EncodedPage(byte[] bytes, int width, int height) {
+            this.bytes = bytes;
+            this.width = width;
+            this.height = height;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Width in pixels, smaller than the rendered width if the image was scaled down.
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    private final int dpi;
+    private final ColorMode colorMode;
+    private final float quality;
+    private final long maxBytes;
+
+    /**
+     * @param dpi render resolution
+     * @param quality JPEG quality from 0 to 1
+     * @param maxBytes largest encoded image; 0 means no limit
+     */
+    public PageImageEncoder(int dpi, ColorMode colorMode, float quality, long maxBytes) {
+        if (dpi < 1 || quality <= 0 || quality > 1) {
+            throw new IllegalArgumentException("Invalid page image settings: " + dpi + " dpi, quality " + quality);
+        }
+        this.dpi = dpi;
+        this.colorMode = colorMode;
+        this.quality = quality;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Uses the documentRenderDpi, documentImageColor, documentJpegQuality and documentOcrMaxBytes settings.
+     */
+    public static PageImageEncoder fromConfiguration(Configuration config) {
+        return new PageImageEncoder(config.getDocumentRenderDpi(), ColorMode.parse(config.getDocumentImageColor()),
+            config.getDocumentJpegQuality() / 100f, config.getDocumentOcrMaxBytes());
+    }
+
+    /**
+     * Scale to pass to PDFRenderer.renderImage for the configured resolution.
+     */
+    public float getRenderScale() {
+        return dpi / POINTS_PER_INCH;
+    }
+
+    public ImageType getImageType() {
+        return colorMode.imageType;
+    }
+
+    /**
+     * Encodes the rendered page, scaling it down as often as needed to stay under the byte limit.
+     */
+    public EncodedPage encode(BufferedImage image) throws IOException {
+        BufferedImage current = colorMode == ColorMode.BINARY ? toGray(image) : image;
+        byte[] bytes = writeJpeg(current);
+        int downscales = 0;
+        while (maxBytes > 0 && bytes.length > maxBytes && downscales < MAX_DOWNSCALES) {
+            double factor = Math.sqrt((double) maxBytes / bytes.length) * DOWNSCALE_MARGIN;
+            int width = Math.max(1, (int) (current.getWidth() * factor));
+            int height = Math.max(1, (int) (current.getHeight() * factor));
+            logger.logDebug("Page image of {} bytes is over the {} byte limit, scaling {}x{} to {}x{}",
+                bytes.length, maxBytes, current.getWidth(), current.getHeight(), width, height);
+            current = resize(current, width, height);
+            bytes = writeJpeg(current);
+            downscales++;
+        }
+        if (maxBytes > 0 && bytes.length > maxBytes) {
+            throw new IOException("Page image is still " + bytes.length + " bytes after " + downscales
+                + " downscales, over the " + maxBytes + " byte limit");
+        }
+        return new EncodedPage(bytes, current.getWidth(), current.getHeight());
+    }
+
+    private byte[] writeJpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIOUtil.writeImage(image, "jpeg", out, dpi, quality)) {
+            throw new IOException("No JPEG writer available");
+        }
+        return out.toByteArray();
+    }
+
+    // JPEG has no one-bit form; a gray copy keeps it to one component instead of three
+    private static BufferedImage toGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return gray;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        int type = image.getType() == BufferedImage.TYPE_BYTE_GRAY ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+}
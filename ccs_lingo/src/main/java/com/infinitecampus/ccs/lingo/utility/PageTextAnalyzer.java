@@ -0,0 +1,329 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * PageTextAnalyzer analyzer = new PageTextAnalyzer(20, 30);
+ * List<PageTextAnalyzer.Line> lines = analyzer.analyze(document, pageIndex);
+ * if (lines == null) {
+ *     ... render the page and send it to OCR ...
+ * }
+ */
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetGraphicsStateParameters;
+import org.apache.pdfbox.contentstream.operator.state.SetMatrix;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDTransparencyGroup;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * Finds the lines of a page's native text layer, with bounding boxes in the same form OCR
+ * returns them: fractions of the page width and height measured from the top left of the crop
+ * box. Report PDFs generated by Campus already carry their text, so reading it here is much
+ * cheaper than rendering the page and recognizing it again.
+ *
+ * A line is the text PDFTextStripper puts on one row, broken again wherever the gap between two
+ * words is wider than the font size, so table columns stay separate. Boxes run from one font
+ * size above the baseline to a quarter of it below, which covers ascenders and descenders.
+ *
+ * A page is left to OCR when it has fewer native characters than the minimum, is rotated, or
+ * has text that does not run left to right. So is a page whose images cover more than the
+ * given share of the crop box: a scan with a typed header or page number still has most of
+ * its text in the image, which only OCR reads. Pages with text drawn inside form XObjects go
+ * to OCR as well, because the translated page can only take text out of the page's own content
+ * stream and the original would show through.
+ *
+ * Not thread-safe; use one instance per thread.
+ */
+public class PageTextAnalyzer {
+    // Share of the font size below the baseline included in a line box
+    private static final float DESCENT = 0.25f;
+
+    private final int minChars;
+    private final double maxImageCoverage;
+    private final LineCollector collector;
+    private final ImageCoverage imageCoverage;
+
+    /**
+     * A line of native text. Positions are fractions of the page size, from the top left.
+     */
+    public static class Line {
+        private final double left;
+        private final double top;
+        private final double width;
+        private final double height;
+        private final String text;
+
+        private Line(double left, double top, double width, double height, String text) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.text = text;
+        }
+
+        public double getLeft() {
+            return left;
+        }
+
+        public double getTop() {
+            return top;
+        }
+
+        public double getWidth() {
+            return width;
+        }
+
+        public double getHeight() {
+            return height;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * @param minChars non-whitespace characters a page needs for its text layer to be used
+     * @param maxImagePercent share of the crop box images may cover for the text layer to be used
+     */
+    public PageTextAnalyzer(int minChars, int maxImagePercent) throws IOException {
+        this.minChars = Math.max(1, minChars);
+        this.maxImageCoverage = Math.max(0, maxImagePercent) / 100.0;
+        this.collector = new LineCollector();
+        this.imageCoverage = new ImageCoverage();
+    }
+
+    /**
+     * Reads the text lines of a page.
+     *
+     * @param pageIndex zero based page index
+     * @return the lines in reading order, or null if the page has to be recognized from an image
+     */
+    public List<Line> analyze(PDDocument document, int pageIndex) throws IOException {
+        PDPage page = document.getPage(pageIndex);
+        if (page.getRotation() % 360 != 0) {
+            return null;
+        }
+        PDRectangle cropBox = page.getCropBox();
+        if (cropBox.getWidth() <= 0 || cropBox.getHeight() <= 0) {
+            return null;
+        }
+
+        collector.reset(cropBox.getWidth(), cropBox.getHeight());
+        collector.setStartPage(pageIndex + 1);
+        collector.setEndPage(pageIndex + 1);
+        collector.writeText(document, new StringWriter());
+
+        if (collector.unsupported || collector.characters < minChars) {
+            return null;
+        }
+        // Measured only for pages that would otherwise use their text layer
+        if (imageCoverage.measure(page) > maxImageCoverage || imageCoverage.textInForms) {
+            return null;
+        }
+        return collector.lines;
+    }
+
+    /**
+     * Adds up the part of the crop box covered by images, drawn directly or inside forms.
+     * Overlapping images are counted twice, so the result is capped at the whole page.
+     * Also notes whether any text is drawn inside a form.
+     */
+    private static class ImageCoverage extends PDFStreamEngine {
+        private PDRectangle cropBox;
+        private double coveredArea;
+        private boolean textInForms;
+        private int formDepth;
+
+        ImageCoverage() {
+            addOperator(new Concatenate());
+            addOperator(new DrawObject());
+            addOperator(new SetGraphicsStateParameters());
+            addOperator(new Save());
+            addOperator(new Restore());
+            addOperator(new SetMatrix());
+        }
+
+        // Share of the crop box covered, from 0 to 1
+        double measure(PDPage page) throws IOException {
+            cropBox = page.getCropBox();
+            coveredArea = 0;
+            textInForms = false;
+            formDepth = 0;
+            processPage(page);
+            return Math.min(1, coveredArea / (cropBox.getWidth() * cropBox.getHeight()));
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            String name = operator.getName();
+            if (formDepth > 0 && ("Tj".equals(name) || "TJ".equals(name) || "'".equals(name) || "\"".equals(name))) {
+                textInForms = true;
+            }
+            if ("BI".equals(name)) {
+                addImage();
+                return;
+            }
+            if ("Do".equals(name) && !operands.isEmpty() && operands.get(0) instanceof COSName) {
+                PDXObject xobject = getResources().getXObject((COSName) operands.get(0));
+                if (xobject instanceof PDImageXObject) {
+                    addImage();
+                    return;
+                }
+            }
+            super.processOperator(operator, operands);
+        }
+
+        @Override
+        public void showForm(PDFormXObject form) throws IOException {
+            formDepth++;
+            try {
+                super.showForm(form);
+            } finally {
+                formDepth--;
+            }
+        }
+
+        @Override
+        public void showTransparencyGroup(PDTransparencyGroup group) throws IOException {
+            formDepth++;
+            try {
+                super.showTransparencyGroup(group);
+            } finally {
+                formDepth--;
+            }
+        }
+
+        // An image fills the unit square of the current transformation
+        private void addImage() {
+            Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int corner = 0; corner < 4; corner++) {
+                Point2D.Float point = ctm.transformPoint(corner & 1, corner >> 1);
+                minX = Math.min(minX, point.x);
+                minY = Math.min(minY, point.y);
+                maxX = Math.max(maxX, point.x);
+                maxY = Math.max(maxY, point.y);
+            }
+            double width = Math.min(maxX, cropBox.getUpperRightX()) - Math.max(minX, cropBox.getLowerLeftX());
+            double height = Math.min(maxY, cropBox.getUpperRightY()) - Math.max(minY, cropBox.getLowerLeftY());
+            if (width > 0 && height > 0) {
+                coveredArea += width * height;
+            }
+        }
+    }
+
+    /**
+     * Gathers the words PDFTextStripper writes for a page into positioned lines.
+     */
+    private static class LineCollector extends PDFTextStripper {
+        private float pageWidth;
+        private float pageHeight;
+        private List<Line> lines;
+        private int characters;
+        private boolean unsupported;
+
+        // The line being built
+        private final StringBuilder text = new StringBuilder();
+        private float left;
+        private float right;
+        private float baseline;
+        private float size;
+
+        LineCollector() throws IOException {
+            setSortByPosition(true);
+        }
+
+        void reset(float width, float height) {
+            pageWidth = width;
+            pageHeight = height;
+            lines = new ArrayList<>();
+            characters = 0;
+            unsupported = false;
+            text.setLength(0);
+        }
+
+        @Override
+        protected void writeString(String word, List<TextPosition> positions) throws IOException {
+            if (positions.isEmpty()) {
+                return;
+            }
+            TextPosition first = positions.get(0);
+            float wordLeft = first.getXDirAdj();
+            if (text.length() > 0 && wordLeft - right > Math.max(size, fontSize(first))) {
+                endLine();
+            }
+            if (text.length() == 0) {
+                left = wordLeft;
+                right = wordLeft;
+                baseline = 0;
+                size = 0;
+            } else {
+                text.append(' ');
+            }
+            text.append(word);
+            for (TextPosition position : positions) {
+                if (position.getDir() != 0) {
+                    unsupported = true;
+                }
+                right = Math.max(right, position.getXDirAdj() + position.getWidthDirAdj());
+                baseline = Math.max(baseline, position.getYDirAdj());
+                size = Math.max(size, fontSize(position));
+            }
+            for (int i = 0; i < word.length(); i++) {
+                if (!Character.isWhitespace(word.charAt(i))) {
+                    characters++;
+                }
+            }
+        }
+
+        @Override
+        protected void writeLineSeparator() throws IOException {
+            endLine();
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            endLine();
+            super.endPage(page);
+        }
+
+        private void endLine() {
+            String lineText = text.toString().trim();
+            text.setLength(0);
+            if (lineText.isEmpty() || right <= left) {
+                return;
+            }
+            float top = Math.max(0, baseline - size);
+            float bottom = baseline + size * DESCENT;
+            lines.add(new Line(left / pageWidth, top / pageHeight, (right - left) / pageWidth,
+                (bottom - top) / pageHeight, lineText));
+        }
+
+        private static float fontSize(TextPosition position) {
+            float fontSize = position.getFontSizeInPt();
+            return fontSize > 0 ? fontSize : position.getHeightDir();
+        }
+    }
+}
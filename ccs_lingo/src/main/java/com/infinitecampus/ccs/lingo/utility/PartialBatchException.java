@@ -0,0 +1,43 @@
+package com.infinitecampus.ccs.lingo.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown by a provider batch call that sends its texts in several requests when some of those
+ * requests failed after others had already been translated, and billed. The cause is the first
+ * failure; the results hold what was translated so the caller only retries the rest.
+ */
+public class PartialBatchException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> results;
+
+    /**
+     * @param results one entry per source text in the same order, null where the text was not translated
+     */
+    public PartialBatchException(String message, List<String> results, Throwable cause) {
+        super(message, cause);
+        this.results = Collections.unmodifiableList(new ArrayList<>(results));
+    }
+
+    /**
+     * Translations in source order, null for the texts of the failed requests.
+     */
+    public List<String> getResults() {
+        return results;
+    }
+
+    /**
+     * The PartialBatchException among the exception and its causes, or null if there is none.
+     */
+    public static PartialBatchException find(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof PartialBatchException) {
+                return (PartialBatchException) t;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,323 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * PdfChunkTranslator chunker = new PdfChunkTranslator("google", Configuration.getInstance(),
+ *     (source, translated, language) -> translateWholeFile(source, translated, language));
+ * try (OutputStream out = new FileOutputStream(outputFilePath)) {
+ *     chunker.translate(inputFilePath, "es", out);
+ * }
+ * ...
+ * chunker.close();
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+
+/**
+ * Translates PDFs through a whole-document vendor API in page-range chunks so that large
+ * documents stay under the vendor's size and page limits. A document within the
+ * documentChunkMaxPages and documentChunkMaxBytes budget is sent as it is. A larger one is split
+ * into runs of at most documentChunkMaxPages pages, halving any run whose file is still over the
+ * byte budget, and the chunks are translated documentChunkConcurrency at a time. A failed chunk
+ * is retried up to documentChunkRetries times on its own; chunks that already succeeded are kept.
+ * The translated chunks are merged back in page order.
+ *
+ * Splitting and merging keep parsed streams in temporary files, and every chunk lives in a
+ * temporary directory that is removed when the document is done.
+ */
+public class PdfChunkTranslator implements AutoCloseable {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(PdfChunkTranslator.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Translates one PDF file into another through the provider's document API.
+     */
+    public interface ChunkTranslation {
+        void translate(File source, File translated, String targetLanguage) throws Exception;
+    }
+
+    private final String provider;
+    private final Configuration config;
+    private final ChunkTranslation chunkTranslation;
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private ExecutorService chunkPool;
+    private ExecutorService documentPool;
+    private final Set<CompletableFuture<Void>> outstanding = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param provider provider name (azure, google), used for thread and metric names
+     */
+    public PdfChunkTranslator(String provider, Configuration config, ChunkTranslation chunkTranslation) {
+        this.provider = provider;
+        this.config = config;
+        this.chunkTranslation = chunkTranslation;
+    }
+
+    /**
+     * Whether the document is over the page or byte budget and would be translated in chunks.
+     */
+    public boolean needsSplitting(String inputFilePath) throws IOException {
+        File inputFile = new File(inputFilePath);
+        if (inputFile.length() > config.getDocumentChunkMaxBytes()) {
+            return true;
+        }
+        return PDFPageHelper.getPageCount(inputFilePath) > config.getDocumentChunkMaxPages();
+    }
+
+    /**
+     * Translates the document and writes the translated PDF to the output. Blocks until every
+     * chunk is translated and merged.
+     */
+    public void translate(String inputFilePath, String targetLanguage, OutputStream translatedOutput) throws IOException {
+        File inputFile = new File(inputFilePath);
+        Path workDirectory = Files.createTempDirectory("ccs-lingo-chunks");
+        try {
+            List<Chunk> chunks = split(inputFile, workDirectory.toFile());
+            if (chunks.size() > 1) {
+                logger.logInfo("Translating {} in {} chunks", inputFile.getName(), chunks.size());
+            }
+            translateChunks(chunks, targetLanguage);
+            if (chunks.size() == 1) {
+                Files.copy(chunks.get(0).translated.toPath(), translatedOutput);
+            } else {
+                merge(chunks, translatedOutput);
+            }
+        } finally {
+            try {
+                FileUtilityHelper.deleteFolderContents(workDirectory);
+            } catch (IOException e) {
+                logger.logWarn("Could not remove chunk directory {}: {}", workDirectory, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Translates the document on a background thread, so a caller submitting several documents
+     * is not held up by one that has to be split. The translated PDF replaces outputFilePath.
+     */
+    public CompletableFuture<Void> submit(String inputFilePath, String targetLanguage, String outputFilePath) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        outstanding.add(result);
+        result.whenComplete((ignored, error) -> outstanding.remove(result));
+        try {
+            getDocumentPool().execute(() -> {
+                try {
+                    FileUtilityHelper.deleteFileIfExists(outputFilePath);
+                    try (OutputStream out = Files.newOutputStream(new File(outputFilePath).toPath())) {
+                        translate(inputFilePath, targetLanguage, out);
+                    }
+                    result.complete(null);
+                } catch (Exception e) {
+                    FileUtilityHelper.deleteFileIfExists(outputFilePath);
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IOException("Chunk translator closed before " + inputFilePath + " was submitted"));
+        }
+        return result;
+    }
+
+    /**
+     * A run of consecutive pages, zero based and inclusive, and the files it is translated between.
+     */
+    private static class Chunk {
+        private final int firstPage;
+        private final int lastPage;
+        private final File source;
+        private final File translated;
+
+        Chunk(int firstPage, int lastPage, File source, File translated) {
+            this.firstPage = firstPage;
+            this.lastPage = lastPage;
+            this.source = source;
+            this.translated = translated;
+        }
+
+        @Override
+        public String toString() {
+            return "pages " + (firstPage + 1) + "-" + (lastPage + 1);
+        }
+    }
+
+    private List<Chunk> split(File inputFile, File workDirectory) throws IOException {
+        int maxPages = config.getDocumentChunkMaxPages();
+        long maxBytes = config.getDocumentChunkMaxBytes();
+        String baseName = inputFile.getName().replaceFirst("(?i)\\.pdf$", "");
+        List<Chunk> chunks = new ArrayList<>();
+
+        try (PDDocument document = PDDocument.load(inputFile, MemoryUsageSetting.setupTempFileOnly())) {
+            int pageCount = document.getNumberOfPages();
+            if (pageCount <= maxPages && inputFile.length() <= maxBytes) {
+                chunks.add(new Chunk(0, Math.max(0, pageCount - 1), inputFile, new File(workDirectory, inputFile.getName())));
+                return chunks;
+            }
+            for (int first = 0; first < pageCount; first += maxPages) {
+                addChunks(document, first, Math.min(pageCount, first + maxPages) - 1, maxBytes, baseName, workDirectory, chunks);
+            }
+        }
+        metrics.counter("document.chunks." + provider).add(chunks.size());
+        return chunks;
+    }
+
+    // Writes the pages as one chunk, or as two halves recursively while the file is over the byte budget
+    private void addChunks(PDDocument document, int firstPage, int lastPage, long maxBytes, String baseName,
+            File workDirectory, List<Chunk> chunks) throws IOException {
+        String chunkName = baseName + "_pages" + (firstPage + 1) + "-" + (lastPage + 1) + ".pdf";
+        File source = new File(workDirectory, chunkName);
+        try (PDDocument chunk = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+            for (int i = firstPage; i <= lastPage; i++) {
+                chunk.importPage(document.getPage(i));
+            }
+            chunk.save(source);
+        }
+        if (source.length() > maxBytes && lastPage > firstPage) {
+            Files.delete(source.toPath());
+            int middle = (firstPage + lastPage) >>> 1;
+            addChunks(document, firstPage, middle, maxBytes, baseName, workDirectory, chunks);
+            addChunks(document, middle + 1, lastPage, maxBytes, baseName, workDirectory, chunks);
+            return;
+        }
+        if (source.length() > maxBytes) {
+            logger.logWarn("Page {} of {} is {} bytes on its own, over the {} byte chunk budget",
+                firstPage + 1, baseName, source.length(), maxBytes);
+        }
+        chunks.add(new Chunk(firstPage, lastPage, source, new File(workDirectory, "translated_" + chunkName)));
+    }
+
+    private void translateChunks(List<Chunk> chunks, String targetLanguage) throws IOException {
+        if (chunks.size() == 1) {
+            translateWithRetries(chunks.get(0), targetLanguage);
+            return;
+        }
+        ExecutorService pool = getChunkPool();
+        List<Future<?>> futures = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            futures.add(pool.submit(() -> {
+                translateWithRetries(chunk, targetLanguage);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while translating document chunks", e);
+        } finally {
+            // Once one chunk has failed for good the rest of the document is wasted work
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void translateWithRetries(Chunk chunk, String targetLanguage) throws IOException {
+        int maxRetries = config.getDocumentChunkRetries();
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                chunkTranslation.translate(chunk.source, chunk.translated, targetLanguage);
+                metrics.histogram("document.chunk.latency." + provider).recordSince(start);
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxRetries || Thread.currentThread().isInterrupted()) {
+                    throw new IOException("Translation of " + chunk + " failed after " + (attempt + 1)
+                        + " attempts: " + e.getMessage(), e);
+                }
+                long backoff = backoffMillis(attempt, e);
+                metrics.counter("document.chunk.retries." + provider).increment();
+                logger.logWarn("Translation of {} failed, retry {} of {} in {} ms: {}",
+                    chunk, attempt + 1, maxRetries, backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while retrying " + chunk, ie);
+                }
+            }
+        }
+    }
+
+    // Jittered exponential backoff on the provider retry settings, never shorter than a vendor Retry-After
+    private long backoffMillis(int attempt, Throwable error) {
+        long retryAfterMillis = 0;
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ProviderThrottledException) {
+                retryAfterMillis = ((ProviderThrottledException) t).getRetryAfterMillis();
+                break;
+            }
+        }
+        long ceiling = Math.min(config.getProviderRetryMaxMs(), (long) config.getProviderRetryBaseMs() << Math.min(attempt, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+        return Math.max(retryAfterMillis, jittered);
+    }
+
+    private void merge(List<Chunk> chunks, OutputStream translatedOutput) throws IOException {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        for (Chunk chunk : chunks) {
+            merger.addSource(chunk.translated);
+        }
+        merger.setDestinationStream(translatedOutput);
+        merger.mergeDocuments(MemoryUsageSetting.setupTempFileOnly());
+    }
+
+    private synchronized ExecutorService getChunkPool() {
+        if (chunkPool == null) {
+            chunkPool = Executors.newFixedThreadPool(config.getDocumentChunkConcurrency(),
+                new NamedThreadFactory("ccs-lingo-" + provider + "-chunk"));
+        }
+        return chunkPool;
+    }
+
+    private synchronized ExecutorService getDocumentPool() {
+        if (documentPool == null) {
+            documentPool = Executors.newSingleThreadExecutor(new NamedThreadFactory("ccs-lingo-" + provider + "-split"));
+        }
+        return documentPool;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (documentPool != null) {
+            documentPool.shutdownNow();
+            documentPool = null;
+        }
+        for (CompletableFuture<Void> pending : outstanding) {
+            pending.completeExceptionally(new IOException("Chunk translator closed before the document was translated"));
+        }
+        if (chunkPool != null) {
+            chunkPool.shutdownNow();
+            chunkPool = null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.infinitecampus.ccs.lingo.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SHA-256 digests of the normalized text of a PDF, for the whole document and for each page.
+ * Two documents with the same text digest are equal under PDFHelper.comparePdfText.
+ */
+public class PdfFingerprint {
+
+    private static final char PAGE_SEPARATOR = ',';
+
+    private final String textDigest;
+    private final List<String> pageDigests;
+
+    public PdfFingerprint(String textDigest, List<String> pageDigests) {
+        this.textDigest = textDigest;
+        this.pageDigests = Collections.unmodifiableList(new ArrayList<>(pageDigests));
+    }
+
+    public String getTextDigest() {
+        return textDigest;
+    }
+
+    /**
+     * Digests of each page in page order.
+     */
+    public List<String> getPageDigests() {
+        return pageDigests;
+    }
+
+    public int getPageCount() {
+        return pageDigests.size();
+    }
+
+    /**
+     * Indexes of the pages whose text differs from the page at the same position in a
+     * previous version, including pages the previous version did not have.
+     */
+    public List<Integer> changedPagesSince(List<String> previousPageDigests) {
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < pageDigests.size(); i++) {
+            if (i >= previousPageDigests.size() || !pageDigests.get(i).equalsIgnoreCase(previousPageDigests.get(i))) {
+                changed.add(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Page digests as a comma-separated string for storage.
+     */
+    public String encodePageDigests() {
+        StringBuilder encoded = new StringBuilder(pageDigests.size() * 65);
+        for (String digest : pageDigests) {
+            if (encoded.length() > 0) {
+                encoded.append(PAGE_SEPARATOR);
+            }
+            encoded.append(digest);
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Parses page digests written by encodePageDigests.
+     */
+    public static List<String> decodePageDigests(String encoded) {
+        List<String> digests = new ArrayList<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return digests;
+        }
+        int start = 0;
+        int separator;
+        while ((separator = encoded.indexOf(PAGE_SEPARATOR, start)) >= 0) {
+            digests.add(encoded.substring(start, separator));
+            start = separator + 1;
+        }
+        digests.add(encoded.substring(start));
+        return digests;
+    }
+}
@@ -0,0 +1,43 @@
+package com.infinitecampus.ccs.lingo.utility;
+
+/**
+ * Thrown by a provider call when the vendor rejected the request because of rate limits or
+ * quota (HTTP 429, AWS ThrottlingException, gRPC RESOURCE_EXHAUSTED). RequestRateLimiter.call
+ * backs off and retries these; one that escapes has used up its retries.
+ */
+public class ProviderThrottledException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String provider;
+    private final long retryAfterMillis;
+
+    /**
+     * @param provider provider name (azure, google, aws)
+     * @param retryAfterMillis the wait the vendor asked for, 0 if it gave none
+     */
+    public ProviderThrottledException(String provider, long retryAfterMillis, String message, Throwable cause) {
+        super(message, cause);
+        this.provider = provider;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * True if the exception or one of its causes is a ProviderThrottledException.
+     */
+    public static boolean isThrottled(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ProviderThrottledException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,231 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * RequestRateLimiter limiter = RequestRateLimiter.forProvider("aws", accessKey, config.getProviderRateLimit("aws"));
+ * TranslateTextResponse response = limiter.call(() -> {
+ *     try {
+ *         return client.translateText(request);
+ *     } catch (TranslateException e) {
+ *         if (e.isThrottlingException()) {
+ *             throw new ProviderThrottledException("aws", 0, e.getMessage(), e);
+ *         }
+ *         throw e;
+ *     }
+ * });
+ */
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+
+/**
+ * Token bucket for provider requests, shared by all threads in the JVM. There is one bucket
+ * per provider and credential, since vendors meter quota per key or account. The bucket
+ * refills at the configured requests per second and holds up to one second of requests.
+ *
+ * The rate adapts to throttling: each throttled response halves the current rate and pauses
+ * the bucket for the Retry-After the vendor sent, and each success adds back a twentieth of
+ * the configured rate until it is reached again. Throttled calls made through call() are
+ * retried with jittered exponential backoff, limited by providerMaxRetries per call and by a
+ * retry budget per bucket that refills with successful requests, so a sustained outage does
+ * not multiply the load on the vendor.
+ */
+public class RequestRateLimiter {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(RequestRateLimiter.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final ConcurrentHashMap<String, RequestRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    // The rate never drops below this share of the configured rate
+    private static final double MIN_RATE_FRACTION = 0.05;
+    private static final double RECOVERY_FRACTION = 0.05;
+    // Retries available to a bucket, and how many each successful request earns back
+    private static final double MAX_RETRY_BUDGET = 20;
+    private static final double RETRY_BUDGET_PER_SUCCESS = 0.1;
+
+    private final String name;
+    private double configuredRate;
+    private double currentRate;
+    private long theoreticalArrivalNanos = System.nanoTime();
+    private long pausedUntilNanos = System.nanoTime();
+    private double retryBudget = MAX_RETRY_BUDGET;
+
+    /**
+     * A provider call that reports vendor throttling as ProviderThrottledException.
+     */
+    public interface ThrottledCall<T> {
+        T call() throws Exception;
+    }
+
+    private RequestRateLimiter(String name, double permitsPerSecond) {
+        this.name = name;
+        setRate(permitsPerSecond);
+    }
+
+    /**
+     * Returns the shared limiter for a provider, updating its rate to the current setting.
+     *
+     * @param provider provider name (azure, google, aws)
+     * @param permitsPerSecond allowed requests per second, 0 or less for unlimited
+     */
+    public static RequestRateLimiter forProvider(String provider, double permitsPerSecond) {
+        return forProvider(provider, null, permitsPerSecond);
+    }
+
+    /**
+     * Returns the shared limiter for a provider and credential, updating its rate to the
+     * current setting. Only a digest of the credential is kept.
+     *
+     * @param provider provider name (azure, google, aws)
+     * @param credential the key or account the requests are billed to, null for the provider bucket
+     * @param permitsPerSecond allowed requests per second, 0 or less for unlimited
+     */
+    public static RequestRateLimiter forProvider(String provider, String credential, double permitsPerSecond) {
+        String key = credential == null
+            ? provider.toLowerCase()
+            : provider.toLowerCase() + '|' + DigestHelper.sha256Hex(credential);
+        RequestRateLimiter limiter = limiters.computeIfAbsent(key,
+            k -> new RequestRateLimiter(provider.toLowerCase(), permitsPerSecond));
+        limiter.setRate(permitsPerSecond);
+        return limiter;
+    }
+
+    /**
+     * Sets the configured rate. A rate lowered by throttling stays lower and recovers
+     * toward the new value.
+     */
+    public synchronized void setRate(double permitsPerSecond) {
+        double rate = Math.max(0, permitsPerSecond);
+        if (rate != configuredRate) {
+            currentRate = currentRate <= 0 || currentRate > rate ? rate : currentRate;
+            configuredRate = rate;
+        }
+    }
+
+    /**
+     * The rate currently allowed, in requests per second. 0 means unlimited.
+     */
+    public synchronized double getCurrentRate() {
+        return currentRate;
+    }
+
+    /**
+     * Blocks until the caller may send the next request.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, pausedUntilNanos);
+            if (currentRate > 0) {
+                long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / currentRate);
+                // Up to one second of requests may go out back to back
+                long burstNanos = Math.max(0, (long) Math.floor(currentRate) - 1) * intervalNanos;
+                long arrival = Math.max(theoreticalArrivalNanos, now);
+                start = Math.max(start, arrival - burstNanos);
+                theoreticalArrivalNanos = Math.max(arrival, start) + intervalNanos;
+            }
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Records a request the vendor accepted.
+     */
+    public synchronized void onSuccess() {
+        retryBudget = Math.min(MAX_RETRY_BUDGET, retryBudget + RETRY_BUDGET_PER_SUCCESS);
+        if (configuredRate > 0 && currentRate < configuredRate) {
+            currentRate = Math.min(configuredRate, currentRate + configuredRate * RECOVERY_FRACTION);
+        }
+    }
+
+    /**
+     * Records a throttled request: halves the rate and holds every caller of this bucket
+     * back for the given time.
+     */
+    public synchronized void onThrottled(long pauseMillis) {
+        if (configuredRate > 0) {
+            currentRate = Math.max(configuredRate * MIN_RATE_FRACTION, currentRate / 2);
+        }
+        pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pauseMillis));
+    }
+
+    private synchronized boolean takeRetry() {
+        if (retryBudget < 1) {
+            return false;
+        }
+        retryBudget--;
+        return true;
+    }
+
+    /**
+     * Runs a provider call under the limiter. Throttled attempts are retried after the
+     * vendor's Retry-After, or a jittered exponential backoff when it sent none.
+     *
+     * @throws ProviderThrottledException if the call is still throttled when its retries
+     *         or the bucket's retry budget run out
+     */
+    public <T> T call(ThrottledCall<T> call) throws Exception {
+        Configuration config = Configuration.getInstance();
+        int maxRetries = config.getProviderMaxRetries();
+        for (int attempt = 0; ; attempt++) {
+            acquire();
+            try {
+                T result = call.call();
+                onSuccess();
+                return result;
+            } catch (ProviderThrottledException e) {
+                long backoff = backoffMillis(attempt, e.getRetryAfterMillis(), config);
+                onThrottled(backoff);
+                if (attempt >= maxRetries || !takeRetry()) {
+                    logger.logWarn("{} request throttled, giving up after {} retries", name, attempt);
+                    throw e;
+                }
+                logger.logDebug("{} request throttled, retry {} of {} in {} ms", name, attempt + 1, maxRetries, backoff);
+            }
+        }
+    }
+
+    // Full jitter over the exponential step, but never shorter than what the vendor asked for
+    private static long backoffMillis(int attempt, long retryAfterMillis, Configuration config) {
+        long ceiling = Math.min(config.getProviderRetryMaxMs(), (long) config.getProviderRetryBaseMs() << Math.min(attempt, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+        return Math.max(retryAfterMillis, jittered);
+    }
+
+    /**
+     * Parses an HTTP Retry-After header, given either in seconds or as an HTTP date.
+     *
+     * @return the wait in milliseconds, 0 if the header is missing or invalid
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return 0;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // not a number of seconds, try a date
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * try (ResultSink sink = new ResultSink.Builder()
+ *         .withConnection(connection)
+ *         .withUpdateSql("UPDATE ... SET outputData = ? WHERE translationTextID = ?")
+ *         .withOnCompleteTemplate(tokenContext.getOnCompleteTemplate())
+ *         .build()) {
+ *     sink.add(translationTextID, translatedText, translationTextID);
+ *     ...
+ * }   // close() flushes what is left
+ */
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+
+/**
+ * Buffers completed request rows and writes them back as JDBC batches, one transaction per
+ * flush. A flush happens when resultFlushSize rows are buffered, when flushIfDue is called
+ * after resultFlushIntervalMs, and on close. The sink is used from a single writer thread and
+ * never touches the connection from anywhere else.
+ *
+ * The onComplete template is the onCompleteSQL of the translation config:
+ * <ul>
+ * <li>{selectedIDs} is replaced by a subquery over a session temp table holding the ids of
+ * the flushed rows, and the statement runs once per flush.</li>
+ * <li>A single {selectedID} compared with = after WHERE, as in "... WHERE id = {selectedID}",
+ * is rewritten to "IN" the same subquery, so existing configs run once per flush as well.</li>
+ * <li>Any other {selectedID} is replaced by a parameter and the statement runs as a JDBC batch
+ * with one entry per row. Such configs have to be moved to {selectedIDs} to run set-based.</li>
+ * <li>A template with neither placeholder does not depend on the rows and runs once per
+ * flush, not once per row.</li>
+ * </ul>
+ * If a batch fails the transaction is rolled back and its rows are retried one at a time, so
+ * a single bad row does not hold back the rest. Rows that still fail are logged and counted.
+ */
+public class ResultSink implements AutoCloseable {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(ResultSink.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final String SELECTED_ID = "{selectedID}";
+    private static final String SELECTED_IDS = "{selectedIDs}";
+    private static final String ID_TABLE = "#ccs_lingo_completed";
+    // Created with a plain statement so the temp table lives for the session, not just one prepared call
+    private static final String SQL_CREATE_ID_TABLE =
+        "IF OBJECT_ID('tempdb.." + ID_TABLE + "') IS NULL CREATE TABLE " + ID_TABLE + " (selectedID INT PRIMARY KEY)";
+    private static final String SQL_CLEAR_ID_TABLE = "DELETE FROM " + ID_TABLE;
+    private static final String SQL_INSERT_ID = "INSERT INTO " + ID_TABLE + " (selectedID) VALUES (?)";
+    private static final String SQL_SELECT_IDS = "SELECT selectedID FROM " + ID_TABLE;
+    // "= {selectedID}" in the WHERE clause; <=, >= and != are not equality predicates
+    private static final Pattern WHERE_EQUALS_SELECTED_ID =
+        Pattern.compile("(?is)(\\bWHERE\\b[^;]*?)(?<![<>!])=\\s*\\{selectedID\\}");
+
+    private final Connection connection;
+    private final String updateSql;
+    private final String onCompleteSql;
+    private final boolean setBasedOnComplete;
+    private final boolean perRowOnComplete;
+    private final int flushSize;
+    private final long flushIntervalMillis;
+    private final List<Row> pending = new ArrayList<>();
+    private boolean idTableCreated;
+    private long lastFlush = System.currentTimeMillis();
+    private int writtenCount;
+    private int failedCount;
+
+    private static class Row {
+        private final int id;
+        private final Object[] parameters;
+
+        Row(int id, Object[] parameters) {
+            this.id = id;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * Builder pattern implementation
+     */
+    public static class Builder {
+        private Connection connection;
+        private String updateSql;
+        private String onCompleteTemplate;
+        private int flushSize = Configuration.getInstance().getResultFlushSize();
+        private long flushIntervalMillis = Configuration.getInstance().getResultFlushIntervalMs();
+
+        public Builder withConnection(Connection connection) {
+            this.connection = connection;
+            return this;
+        }
+
+        /**
+         * The statement run for every row, with the parameters passed to add.
+         */
+        public Builder withUpdateSql(String updateSql) {
+            this.updateSql = updateSql;
+            return this;
+        }
+
+        /**
+         * The onCompleteSQL of the translation config, with its {selectedID} or {selectedIDs}
+         * placeholder still in place. Null or empty for none.
+         */
+        public Builder withOnCompleteTemplate(String onCompleteTemplate) {
+            this.onCompleteTemplate = onCompleteTemplate;
+            return this;
+        }
+
+        public Builder withFlushSize(int flushSize) {
+            this.flushSize = flushSize;
+            return this;
+        }
+
+        public Builder withFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+            return this;
+        }
+
+        public ResultSink build() {
+            if (connection == null || updateSql == null) {
+                throw new IllegalStateException("Connection and update SQL are required");
+            }
+            return new ResultSink(this);
+        }
+    }
+
+    private ResultSink(Builder builder) {
+        this.connection = builder.connection;
+        this.updateSql = builder.updateSql;
+        this.flushSize = Math.max(1, builder.flushSize);
+        this.flushIntervalMillis = Math.max(0, builder.flushIntervalMillis);
+        String template = builder.onCompleteTemplate;
+        String setBasedTemplate = template == null ? null : toSetBased(template);
+        if (template == null || template.trim().isEmpty()) {
+            this.onCompleteSql = null;
+            this.setBasedOnComplete = false;
+            this.perRowOnComplete = false;
+        } else if (template.contains(SELECTED_IDS)) {
+            this.onCompleteSql = template.replace(SELECTED_IDS, SQL_SELECT_IDS);
+            this.setBasedOnComplete = true;
+            this.perRowOnComplete = false;
+        } else if (setBasedTemplate != null) {
+            this.onCompleteSql = setBasedTemplate;
+            this.setBasedOnComplete = true;
+            this.perRowOnComplete = false;
+            logger.logDebug("Running onComplete SQL once per flush as: {}", onCompleteSql);
+        } else {
+            this.onCompleteSql = template.replace(SELECTED_ID, "?");
+            this.setBasedOnComplete = false;
+            this.perRowOnComplete = template.contains(SELECTED_ID);
+        }
+    }
+
+    // The template with its one "WHERE ... = {selectedID}" turned into IN the id table, or null
+    private static String toSetBased(String template) {
+        if (template.indexOf(SELECTED_ID) != template.lastIndexOf(SELECTED_ID)) {
+            return null;
+        }
+        Matcher matcher = WHERE_EQUALS_SELECTED_ID.matcher(template);
+        if (!matcher.find()) {
+            return null;
+        }
+        return template.substring(0, matcher.start()) + matcher.group(1)
+            + "IN (" + SQL_SELECT_IDS + ")" + template.substring(matcher.end());
+    }
+
+    /**
+     * Buffers a row. Null parameters are written as NULL.
+     *
+     * @param id the request row id passed to the onComplete SQL
+     * @param parameters the parameters of the update statement, in order
+     */
+    public void add(int id, Object... parameters) throws SQLException {
+        pending.add(new Row(id, parameters));
+        if (pending.size() >= flushSize) {
+            flush();
+        } else {
+            flushIfDue();
+        }
+    }
+
+    /**
+     * Flushes if rows have been waiting longer than the flush interval.
+     */
+    public void flushIfDue() throws SQLException {
+        if (!pending.isEmpty() && System.currentTimeMillis() - lastFlush >= flushIntervalMillis) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all buffered rows.
+     */
+    public void flush() throws SQLException {
+        lastFlush = System.currentTimeMillis();
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (setBasedOnComplete && !idTableCreated) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(SQL_CREATE_ID_TABLE);
+            }
+            idTableCreated = true;
+        }
+        List<Row> rows = new ArrayList<>(pending);
+        pending.clear();
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        long start = System.nanoTime();
+        try {
+            writeInTransaction(rows);
+            metrics.histogram("db.write.latency").recordSince(start);
+            metrics.counter("db.rows.written").add(rows.size());
+            writtenCount += rows.size();
+            logger.logDebug("Flushed {} result rows", rows.size());
+        } catch (SQLException e) {
+            if (rows.size() == 1) {
+                failedCount++;
+                logger.logError("Writing result for ID {} failed: {}", rows.get(0).id, e.getMessage());
+                return;
+            }
+            logger.logWarn("Writing {} result rows failed, retrying rows individually: {}", rows.size(), e.getMessage());
+            for (Row row : rows) {
+                try {
+                    writeInTransaction(Collections.singletonList(row));
+                    writtenCount++;
+                } catch (SQLException rowError) {
+                    failedCount++;
+                    logger.logError("Writing result for ID {} failed: {}", row.id, rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private void writeInTransaction(List<Row> rows) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try {
+            writeUpdates(rows);
+            runOnComplete(rows);
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                logger.logWarn("Rollback failed: {}", rollbackError.getMessage());
+            }
+            throw e;
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void writeUpdates(List<Row> rows) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(updateSql)) {
+            for (Row row : rows) {
+                for (int i = 0; i < row.parameters.length; i++) {
+                    setParameter(stmt, i + 1, row.parameters[i]);
+                }
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    logger.logWarn("Result for ID {} not found or not updated", rows.get(i).id);
+                }
+            }
+        }
+    }
+
+    private void runOnComplete(List<Row> rows) throws SQLException {
+        if (onCompleteSql == null) {
+            return;
+        }
+        if (setBasedOnComplete) {
+            fillIdTable(rows);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate(onCompleteSql);
+            }
+            return;
+        }
+        if (!perRowOnComplete) {
+            // No placeholder: the statement does not depend on the rows, run it once
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate(onCompleteSql);
+            }
+            return;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(onCompleteSql)) {
+            for (Row row : rows) {
+                stmt.setInt(1, row.id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void fillIdTable(List<Row> rows) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(SQL_CLEAR_ID_TABLE);
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(SQL_INSERT_ID)) {
+            for (Row row : rows) {
+                stmt.setInt(1, row.id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void setParameter(PreparedStatement stmt, int index, Object value) throws SQLException {
+        if (value == null) {
+            stmt.setNull(index, Types.NVARCHAR);
+        } else if (value instanceof String) {
+            stmt.setString(index, (String) value);
+        } else if (value instanceof Integer) {
+            stmt.setInt(index, (Integer) value);
+        } else {
+            stmt.setObject(index, value);
+        }
+    }
+
+    /**
+     * Number of rows written successfully so far.
+     */
+    public int getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * Number of rows that could not be written.
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        flush();
+    }
+}
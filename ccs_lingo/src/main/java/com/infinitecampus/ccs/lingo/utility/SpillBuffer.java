@@ -0,0 +1,186 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * try (SpillBuffer buffer = new SpillBuffer()) {
+ *     document.save(buffer.getOutputStream());
+ *     try (InputStream in = buffer.openInputStream()) {
+ *         stmt.setBinaryStream(1, in, buffer.length());
+ *         stmt.executeUpdate();
+ *     }
+ * }
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+
+/**
+ * Holds document content in memory until it grows past a threshold, then moves it to a
+ * temporary file. Large scanned PDFs therefore never sit in the heap as one array.
+ * Closing the buffer deletes the temporary file.
+ */
+public class SpillBuffer implements Closeable {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(SpillBuffer.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long threshold;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream(BUFFER_SIZE);
+    private File spillFile;
+    private OutputStream spillStream;
+    private long length;
+    private boolean writing;
+
+    /**
+     * Creates a buffer using the pdfSpillThresholdBytes setting.
+     */
+    public SpillBuffer() {
+        this(Configuration.getInstance().getPdfSpillThresholdBytes());
+    }
+
+    public SpillBuffer(long threshold) {
+        this.threshold = Math.max(0, threshold);
+    }
+
+    /**
+     * Returns the stream to write the content to. Closing it finishes writing but keeps
+     * the content available for reading.
+     */
+    public OutputStream getOutputStream() {
+        if (writing) {
+            throw new IllegalStateException("Output stream already open");
+        }
+        writing = true;
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                append(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (spillStream != null) {
+                    spillStream.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                finishWriting();
+            }
+        };
+    }
+
+    private void append(byte[] b, int off, int len) throws IOException {
+        if (spillStream == null && length + len > threshold) {
+            spill();
+        }
+        if (spillStream != null) {
+            spillStream.write(b, off, len);
+        } else {
+            memory.write(b, off, len);
+        }
+        length += len;
+    }
+
+    private void spill() throws IOException {
+        spillFile = File.createTempFile("ccs_lingo_", ".spill");
+        spillStream = new BufferedOutputStream(new FileOutputStream(spillFile), BUFFER_SIZE);
+        memory.writeTo(spillStream);
+        memory = null;
+        logger.logDebug("Spilled {} bytes to {}", length, spillFile);
+    }
+
+    private void finishWriting() throws IOException {
+        writing = false;
+        if (spillStream != null) {
+            spillStream.close();
+            spillStream = null;
+        }
+    }
+
+    /**
+     * Number of bytes written so far.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * True when the content lives in a temporary file rather than in memory.
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * The temporary file holding the content, or null if it is still in memory.
+     */
+    public File getFile() {
+        return spillFile;
+    }
+
+    /**
+     * Opens a new stream over the content. Each call starts from the beginning.
+     */
+    public InputStream openInputStream() throws IOException {
+        if (spillStream != null) {
+            spillStream.flush();
+        }
+        if (spillFile != null) {
+            return new BufferedInputStream(new FileInputStream(spillFile), BUFFER_SIZE);
+        }
+        return new ByteArrayInputStream(memory.toByteArray());
+    }
+
+    /**
+     * Writes the content to a file, replacing it if it exists.
+     */
+    public void writeTo(String filePath) throws IOException {
+        if (spillStream != null) {
+            spillStream.flush();
+        }
+        if (spillFile != null) {
+            FileUtilityHelper.copyPdfFiles(spillFile.getPath(), filePath);
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(filePath)) {
+            memory.writeTo(out);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            finishWriting();
+        } catch (IOException e) {
+            logger.logWarn("Error closing spill file {}: {}", spillFile, e.getMessage());
+        }
+        if (spillFile != null && spillFile.exists() && !spillFile.delete()) {
+            logger.logWarn("Unable to delete spill file {}", spillFile);
+        }
+        spillFile = null;
+        memory = null;
+    }
+}
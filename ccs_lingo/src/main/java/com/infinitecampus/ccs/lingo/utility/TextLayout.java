@@ -0,0 +1,279 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * TextLayout layout = new TextLayout(font);
+ * TextLayout.Fit fit = layout.fit(translatedText, boxWidth, boxHeight);
+ * contentStream.setFont(font, fit.getFontSize());
+ * for (String line : fit.getLines()) { ... }
+ */
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+
+/**
+ * Fits text into a box at the largest whole font size that keeps it inside, wrapping at spaces
+ * when one line would need a size below the minimum and the box is tall enough for more.
+ *
+ * Glyph advances are looked up from the font once per character and kept in primitive arrays,
+ * so a fit costs one pass over the text plus a binary search over sizes instead of a full
+ * getStringWidth call per size tried. Widths match PDFont.getStringWidth, which does not kern.
+ * Characters the font cannot encode are measured as '?'.
+ *
+ * Not thread-safe; like the PDFont it measures, an instance belongs to one document.
+ */
+public class TextLayout {
+    public static final int DEFAULT_MIN_FONT_SIZE = 6;
+    public static final int DEFAULT_MAX_FONT_SIZE = 36;
+
+    // Advances of the basic multilingual plane in pages of 256 characters, allocated on first use
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private static final float UNKNOWN = -1f;
+
+    private final PDFont font;
+    private final int minFontSize;
+    private final int maxFontSize;
+    private final float[][] advancePages = new float[1 << (16 - PAGE_SHIFT)][];
+    private final float lineHeightUnits;
+    private final float fallbackAdvance;
+
+    /**
+     * The font size and lines chosen for a piece of text.
+     */
+    public static class Fit {
+        private final int fontSize;
+        private final List<String> lines;
+        private final float lineHeight;
+        private final float textWidth;
+
+        private Fit(int fontSize, List<String> lines, float lineHeight, float textWidth) {
+            this.fontSize = fontSize;
+            this.lines = lines;
+            this.lineHeight = lineHeight;
+            this.textWidth = textWidth;
+        }
+
+        public int getFontSize() {
+            return fontSize;
+        }
+
+        /**
+         * The lines to show from top to bottom; one line unless the text was wrapped.
+         */
+        public List<String> getLines() {
+            return lines;
+        }
+
+        /**
+         * Distance between baselines in points.
+         */
+        public float getLineHeight() {
+            return lineHeight;
+        }
+
+        /**
+         * Width in points of the widest line.
+         */
+        public float getTextWidth() {
+            return textWidth;
+        }
+
+        public float getTextHeight() {
+            return lineHeight * lines.size();
+        }
+    }
+
+    public TextLayout(PDFont font) throws IOException {
+        this(font, DEFAULT_MIN_FONT_SIZE, DEFAULT_MAX_FONT_SIZE);
+    }
+
+    public TextLayout(PDFont font, int minFontSize, int maxFontSize) throws IOException {
+        if (minFontSize < 1 || maxFontSize < minFontSize) {
+            throw new IllegalArgumentException("Invalid font size range " + minFontSize + "-" + maxFontSize);
+        }
+        this.font = font;
+        this.minFontSize = minFontSize;
+        this.maxFontSize = maxFontSize;
+        this.lineHeightUnits = lineHeightUnits(font);
+        this.fallbackAdvance = fallbackAdvance(font);
+    }
+
+    public PDFont getFont() {
+        return font;
+    }
+
+    /**
+     * Width of the text in thousandths of the font size.
+     */
+    public float getStringWidth(String text) throws IOException {
+        float[] prefix = prefixWidths(text);
+        return prefix[text.length()];
+    }
+
+    /**
+     * Chooses the font size and line breaks for the text in a box of the given size in points.
+     * Text that does not fit even at the minimum size is set on one line at the minimum size.
+     */
+    public Fit fit(String text, float boxWidth, float boxHeight) throws IOException {
+        float[] prefix = prefixWidths(text);
+        float totalUnits = prefix[text.length()];
+
+        // One line: the size follows directly from the width and the height of the box
+        int size = Math.min(maxFontSize, Math.min(sizeFor(boxWidth, totalUnits), sizeFor(boxHeight, lineHeightUnits)));
+        if (size >= minFontSize) {
+            return singleLine(text, size, totalUnits);
+        }
+
+        // Wrapped: more lines need a smaller size, so the largest size that fits is found by bisection
+        if (sizeFor(boxHeight, lineHeightUnits) >= minFontSize && text.indexOf(' ') >= 0) {
+            int low = minFontSize;
+            int high = maxFontSize;
+            int best = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (fitsWrapped(text, prefix, mid, boxWidth, boxHeight)) {
+                    best = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (best > 0) {
+                List<String> lines = new ArrayList<>();
+                float widestUnits = wrap(text, prefix, boxWidth * 1000f / best, lines);
+                return new Fit(best, Collections.unmodifiableList(lines), lineHeightUnits / 1000f * best,
+                    widestUnits / 1000f * best);
+            }
+        }
+        return singleLine(text, minFontSize, totalUnits);
+    }
+
+    private Fit singleLine(String text, int size, float totalUnits) {
+        return new Fit(size, Collections.singletonList(text), lineHeightUnits / 1000f * size, totalUnits / 1000f * size);
+    }
+
+    private boolean fitsWrapped(String text, float[] prefix, int size, float boxWidth, float boxHeight) {
+        List<String> counted = new ArrayList<>();
+        if (wrap(text, prefix, boxWidth * 1000f / size, counted) < 0) {
+            return false;
+        }
+        return counted.size() * lineHeightUnits / 1000f * size <= boxHeight;
+    }
+
+    // Largest whole size at which the given units fit the given extent
+    private static int sizeFor(float extent, float units) {
+        if (units <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.floor(extent * 1000f / units);
+    }
+
+    /**
+     * Greedy word wrap at spaces into lines no wider than maxUnits.
+     *
+     * @return the width of the widest line in font units, or -1 if a single word is wider
+     */
+    private static float wrap(String text, float[] prefix, float maxUnits, List<String> lines) {
+        int n = text.length();
+        float widest = 0;
+        int start = 0;
+        while (start < n) {
+            while (start < n && text.charAt(start) == ' ') {
+                start++;
+            }
+            if (start >= n) {
+                break;
+            }
+            int i = start;
+            int lastSpace = -1;
+            while (i < n && prefix[i + 1] - prefix[start] <= maxUnits) {
+                if (text.charAt(i) == ' ') {
+                    lastSpace = i;
+                }
+                i++;
+            }
+            int end;
+            if (i >= n) {
+                end = n;
+            } else if (text.charAt(i) == ' ') {
+                end = i;
+            } else if (lastSpace > start) {
+                end = lastSpace;
+            } else {
+                return -1;
+            }
+            while (end > start && text.charAt(end - 1) == ' ') {
+                end--;
+            }
+            widest = Math.max(widest, prefix[end] - prefix[start]);
+            lines.add(text.substring(start, end));
+            start = end;
+        }
+        return widest;
+    }
+
+    // prefix[i] is the width in font units of the first i chars; a surrogate pair counts at its first char
+    private float[] prefixWidths(String text) throws IOException {
+        int n = text.length();
+        float[] prefix = new float[n + 1];
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                prefix[i + 1] = prefix[i] + measure(text.substring(i, i + 2));
+                prefix[i + 2] = prefix[i + 1];
+                i += 2;
+            } else {
+                prefix[i + 1] = prefix[i] + advance(c);
+                i++;
+            }
+        }
+        return prefix;
+    }
+
+    private float advance(char c) throws IOException {
+        float[] page = advancePages[c >>> PAGE_SHIFT];
+        if (page == null) {
+            page = new float[1 << PAGE_SHIFT];
+            Arrays.fill(page, UNKNOWN);
+            advancePages[c >>> PAGE_SHIFT] = page;
+        }
+        float width = page[c & PAGE_MASK];
+        if (width == UNKNOWN) {
+            width = Character.isSurrogate(c) ? fallbackAdvance : measure(String.valueOf(c));
+            page[c & PAGE_MASK] = width;
+        }
+        return width;
+    }
+
+    private float measure(String glyph) throws IOException {
+        try {
+            return font.getStringWidth(glyph);
+        } catch (IllegalArgumentException e) {
+            // Not in the font's encoding
+            return fallbackAdvance;
+        }
+    }
+
+    private static float lineHeightUnits(PDFont font) throws IOException {
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        PDRectangle box = descriptor == null ? null : descriptor.getFontBoundingBox();
+        if (box != null && box.getHeight() > 0) {
+            return box.getHeight();
+        }
+        return font.getBoundingBox().getHeight();
+    }
+
+    private static float fallbackAdvance(PDFont font) throws IOException {
+        try {
+            return font.getStringWidth("?");
+        } catch (IllegalArgumentException e) {
+            return font.getAverageFontWidth();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.infinitecampus.ccs.lingo.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs translation segments into request-sized chunks so a provider can
+ * send many segments in one call without exceeding its per-request limits.
+ */
+public class TranslationBatchHelper {
+
+    private TranslationBatchHelper() {
+    }
+
+    /**
+     * Splits the segments into consecutive index ranges. Each range holds at most
+     * maxSegments entries and at most maxCharacters characters (code points), except
+     * a single segment larger than maxCharacters, which is returned in a range of its own.
+     *
+     * @return list of {startInclusive, endExclusive} pairs in original order
+     */
+    public static List<int[]> partition(List<String> segments, int maxSegments, int maxCharacters) {
+        List<int[]> ranges = new ArrayList<>();
+        int start = 0;
+        int characters = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            int length = segment == null ? 0 : segment.codePointCount(0, segment.length());
+            boolean full = (i - start) >= maxSegments || characters + length > maxCharacters;
+            if (i > start && full) {
+                ranges.add(new int[] { start, i });
+                start = i;
+                characters = 0;
+            }
+            characters += length;
+        }
+        if (start < segments.size()) {
+            ranges.add(new int[] { start, segments.size() });
+        }
+        return ranges;
+    }
+}
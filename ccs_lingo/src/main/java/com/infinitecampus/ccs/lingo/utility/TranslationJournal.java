@@ -0,0 +1,303 @@
+package com.infinitecampus.ccs.lingo.utility;
+/* usage example:
+ * try (TranslationJournal journal = TranslationJournal.open(config.getRequestOutputDirectory(), token)) {
+ *     Map<Integer, TranslationJournal.Entry> previous = journal.replay();
+ *     ...
+ *     journal.record(entries);      // as soon as the provider answers
+ *     ...
+ *     journal.recordThrottled(rows);  // rows left for the next run
+ *     ...
+ *     journal.delete();             // once every result is in the database
+ * }
+ */
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+
+/**
+ * Append-only file of the translations a text batch has received from its provider, kept in
+ * requestOutputDirectory/textjournal/token.journal. If the JVM stops before the results reach
+ * the database, the next run of the same token replays the journal and only sends the rows
+ * that are missing to the provider.
+ *
+ * Each line holds the translationTextID, a SHA-256 of the target language and source text,
+ * the provider that translated it, the Base64 encoded translation and a CRC-32 of everything
+ * before it, separated by tabs. A line whose checksum is missing or does not match, such as
+ * one cut short by a crash, is ignored. Journal errors are logged and switch the journal
+ * off; they never fail a batch.
+ *
+ * A row left pending because its provider kept throttling it gets a line with its
+ * translationTextID, source digest and the word throttled, so the next run knows how many
+ * runs have already deferred it.
+ */
+public class TranslationJournal implements AutoCloseable {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(TranslationJournal.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final String JOURNAL_DIRECTORY = "textjournal";
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final char SEPARATOR = '\t';
+    // Hex digits of the CRC-32 that ends each line
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final String THROTTLED = "throttled";
+
+    private final File file;
+    private final Map<Integer, Deferral> deferrals = new HashMap<>();
+    private FileOutputStream out;
+    private boolean enabled;
+
+    // Runs that left a row pending for the same source text
+    private static class Deferral {
+        private final String sourceDigest;
+        private final int runs;
+
+        Deferral(String sourceDigest, int runs) {
+            this.sourceDigest = sourceDigest;
+            this.runs = runs;
+        }
+    }
+
+    /**
+     * A translation read back from the journal.
+     */
+    public static class Entry {
+        private final int translationTextID;
+        private final String sourceDigest;
+        private final String translatedText;
+        private final String provider;
+
+        public Entry(int translationTextID, String sourceDigest, String translatedText, String provider) {
+            this.translationTextID = translationTextID;
+            this.sourceDigest = sourceDigest;
+            this.translatedText = translatedText;
+            this.provider = provider;
+        }
+
+        public int getTranslationTextID() {
+            return translationTextID;
+        }
+
+        public String getTranslatedText() {
+            return translatedText;
+        }
+
+        /**
+         * Provider that made the translation, or null if it is not known.
+         */
+        public String getProvider() {
+            return provider;
+        }
+
+        /**
+         * True if the entry was recorded for the same source text and target language.
+         */
+        public boolean matches(String targetLanguage, String sourceText) {
+            return sourceDigest.equals(sourceDigest(targetLanguage, sourceText));
+        }
+    }
+
+    private TranslationJournal(File file, boolean enabled) {
+        this.file = file;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Opens the journal of a token. Returns a disabled journal if the textJournalEnabled
+     * setting is off or the journal directory cannot be created.
+     */
+    public static TranslationJournal open(String outputDirectory, String token) {
+        File directory = new File(outputDirectory, JOURNAL_DIRECTORY);
+        File file = new File(directory, token + JOURNAL_EXTENSION);
+        if (!Configuration.getInstance().isTextJournalEnabled()) {
+            return new TranslationJournal(file, false);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.logWarn("Unable to create journal directory {}, journaling is off", directory);
+            return new TranslationJournal(file, false);
+        }
+        return new TranslationJournal(file, true);
+    }
+
+    public static String sourceDigest(String targetLanguage, String sourceText) {
+        return DigestHelper.sha256Hex(targetLanguage + SEPARATOR + sourceText);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads the translations recorded by earlier runs of this token, by translationTextID.
+     * Later lines win over earlier ones for the same id. Also reads how often each row was
+     * deferred, for getThrottledRuns.
+     */
+    public Map<Integer, Entry> replay() {
+        Map<Integer, Entry> entries = new HashMap<>();
+        if (!enabled || !file.isFile()) {
+            return entries;
+        }
+        int skipped = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = parse(line);
+                if (entry == null) {
+                    if (!line.isEmpty()) {
+                        skipped++;
+                    }
+                } else if (entry.translatedText == null) {
+                    Deferral previous = deferrals.get(entry.translationTextID);
+                    int runs = previous != null && previous.sourceDigest.equals(entry.sourceDigest) ? previous.runs : 0;
+                    deferrals.put(entry.translationTextID, new Deferral(entry.sourceDigest, runs + 1));
+                } else {
+                    entries.put(entry.translationTextID, entry);
+                }
+            }
+        } catch (IOException e) {
+            logger.logWarn("Unable to read journal {}: {}", file, e.getMessage());
+        }
+        logger.logInfo("Replayed {} journaled translations from {}, skipped {} damaged lines",
+            entries.size(), file.getName(), skipped);
+        return entries;
+    }
+
+    // Null unless the line is whole: Base64 decodes a translation cut short without complaint
+    private static Entry parse(String line) {
+        int checksumStart = line.length() - CHECKSUM_LENGTH;
+        if (checksumStart < 1 || line.charAt(checksumStart - 1) != SEPARATOR) {
+            return null;
+        }
+        String content = line.substring(0, checksumStart - 1);
+        if (!checksum(content).equals(line.substring(checksumStart))) {
+            return null;
+        }
+        String[] fields = content.split(String.valueOf(SEPARATOR), -1);
+        if (fields.length == 3 && THROTTLED.equals(fields[2])) {
+            try {
+                return new Entry(Integer.parseInt(fields[0]), fields[1], null, null);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (fields.length != 4) {
+            return null;
+        }
+        try {
+            int id = Integer.parseInt(fields[0]);
+            String provider = fields[2].isEmpty() ? null : fields[2];
+            String text = new String(Base64.getDecoder().decode(fields[3]), StandardCharsets.UTF_8);
+            return new Entry(id, fields[1], text, provider);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String checksum(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Appends translations and forces them to disk before returning. Safe to call from
+     * several worker threads.
+     */
+    public synchronized void record(List<Entry> entries) {
+        if (!enabled || entries.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries) {
+            appendLine(lines, entry.translationTextID + String.valueOf(SEPARATOR)
+                + entry.sourceDigest + SEPARATOR
+                + (entry.provider == null ? "" : entry.provider) + SEPARATOR
+                + Base64.getEncoder().encodeToString(entry.translatedText.getBytes(StandardCharsets.UTF_8)));
+        }
+        write(lines);
+    }
+
+    /**
+     * Notes that the rows, given as entries without a translation, were left pending for the
+     * next run because their provider kept throttling them.
+     */
+    public synchronized void recordThrottled(List<Entry> entries) {
+        if (!enabled || entries.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries) {
+            appendLine(lines, entry.translationTextID + String.valueOf(SEPARATOR) + entry.sourceDigest + SEPARATOR + THROTTLED);
+        }
+        write(lines);
+    }
+
+    /**
+     * Number of earlier runs that left the row pending because it was throttled, counted
+     * while its source text and target language stayed the same. Read by replay.
+     */
+    public int getThrottledRuns(int translationTextID, String targetLanguage, String sourceText) {
+        Deferral deferral = deferrals.get(translationTextID);
+        if (deferral == null || !deferral.sourceDigest.equals(sourceDigest(targetLanguage, sourceText))) {
+            return 0;
+        }
+        return deferral.runs;
+    }
+
+    private static void appendLine(StringBuilder lines, String content) {
+        lines.append(content).append(SEPARATOR).append(checksum(content)).append('\n');
+    }
+
+    private void write(StringBuilder lines) {
+        try {
+            if (out == null) {
+                out = new FileOutputStream(file, true);
+            }
+            out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            out.getChannel().force(false);
+        } catch (IOException e) {
+            logger.logWarn("Unable to write journal {}, journaling is off: {}", file, e.getMessage());
+            enabled = false;
+        }
+    }
+
+    /**
+     * Removes the journal once all of its translations are stored in the database.
+     */
+    public synchronized void delete() {
+        close();
+        if (file.exists() && !file.delete()) {
+            logger.logWarn("Unable to delete journal {}", file);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.logWarn("Error closing journal {}: {}", file, e.getMessage());
+            }
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.infinitecampus.ccs.lingo.testsupport;
+/* usage example:
+ * try (AwsStandIn aws = new AwsStandIn(0, behavior)) {
+ *     aws.start();
+ *     // endpoint_override = aws.getBaseUrl()
+ * }
+ */
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Answers like Amazon Translate TranslateText and Textract DetectDocumentText over the JSON 1.1
+ * protocol the SDK speaks, so one stand-in serves both clients through endpoint_override.
+ * Request signatures are not checked. Textract reports the same lines for every page.
+ */
+public class AwsStandIn extends StandInServer {
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.1";
+    private static final String TRANSLATE_TEXT = "AWSShineFrontendService_20170701.TranslateText";
+    private static final String DETECT_DOCUMENT_TEXT = "Textract.DetectDocumentText";
+
+    private static final String[] PAGE_LINES = {
+        "Parent teacher conferences are on Thursday, October 16.",
+        "Please return the signed permission form by Friday.",
+        "Lunch account balances are available in the parent portal.",
+        "School will be closed on Monday for professional development.",
+        "Students should bring a water bottle and comfortable shoes.",
+        "Contact the office with any questions about bus routes."
+    };
+
+    private volatile int linesPerPage = PAGE_LINES.length;
+
+    public AwsStandIn(int port, StandInBehavior behavior) {
+        super("aws", port, behavior);
+    }
+
+    public void setLinesPerPage(int linesPerPage) {
+        this.linesPerPage = linesPerPage;
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws Exception {
+        String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+        String body = readBodyAsString(exchange);
+        if (TRANSLATE_TEXT.equals(target)) {
+            translateText(exchange, JsonParser.parseString(body).getAsJsonObject());
+        } else if (DETECT_DOCUMENT_TEXT.equals(target)) {
+            detectDocumentText(exchange);
+        } else {
+            sendAwsError(exchange, 400, "UnknownOperationException", "Unknown operation " + target);
+        }
+    }
+
+    private void translateText(HttpExchange exchange, JsonObject request) throws IOException {
+        String targetLanguage = request.get("TargetLanguageCode").getAsString();
+        JsonObject response = new JsonObject();
+        response.addProperty("TranslatedText", pseudoTranslate(request.get("Text").getAsString(), targetLanguage));
+        response.addProperty("SourceLanguageCode", request.has("SourceLanguageCode")
+            ? request.get("SourceLanguageCode").getAsString() : "en");
+        response.addProperty("TargetLanguageCode", targetLanguage);
+        send(exchange, 200, CONTENT_TYPE, response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void detectDocumentText(HttpExchange exchange) throws IOException {
+        JsonArray blocks = new JsonArray();
+        JsonObject page = new JsonObject();
+        page.addProperty("BlockType", "PAGE");
+        page.addProperty("Id", UUID.randomUUID().toString());
+        page.add("Geometry", geometry(0, 0, 1, 1));
+        blocks.add(page);
+
+        int lines = Math.min(linesPerPage, PAGE_LINES.length);
+        for (int i = 0; i < lines; i++) {
+            JsonObject line = new JsonObject();
+            line.addProperty("BlockType", "LINE");
+            line.addProperty("Id", UUID.randomUUID().toString());
+            line.addProperty("Confidence", 99.5);
+            line.addProperty("Text", PAGE_LINES[i]);
+            line.add("Geometry", geometry(0.1f, 0.08f + i * 0.05f, 0.75f, 0.02f));
+            blocks.add(line);
+        }
+
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("Pages", 1);
+        JsonObject response = new JsonObject();
+        response.add("DocumentMetadata", metadata);
+        response.add("Blocks", blocks);
+        response.addProperty("DetectDocumentTextModelVersion", "1.0");
+        send(exchange, 200, CONTENT_TYPE, response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JsonObject geometry(float left, float top, float width, float height) {
+        JsonObject box = new JsonObject();
+        box.addProperty("Width", width);
+        box.addProperty("Height", height);
+        box.addProperty("Left", left);
+        box.addProperty("Top", top);
+        JsonObject geometry = new JsonObject();
+        geometry.add("BoundingBox", box);
+        return geometry;
+    }
+
+    @Override
+    protected void sendThrottled(HttpExchange exchange, int retryAfterSeconds) throws IOException {
+        sendAwsError(exchange, 400, "ThrottlingException", "Rate exceeded");
+    }
+
+    @Override
+    protected void sendError(HttpExchange exchange) throws IOException {
+        sendAwsError(exchange, 500, "InternalServerException", "Internal server error");
+    }
+
+    private static void sendAwsError(HttpExchange exchange, int status, String type, String message) throws IOException {
+        exchange.getResponseHeaders().set("x-amzn-ErrorType", type);
+        JsonObject error = new JsonObject();
+        error.addProperty("__type", type);
+        error.addProperty("message", message);
+        send(exchange, status, CONTENT_TYPE, error.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
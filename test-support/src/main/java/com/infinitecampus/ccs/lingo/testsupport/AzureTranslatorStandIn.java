@@ -0,0 +1,209 @@
+package com.infinitecampus.ccs.lingo.testsupport;
+/* usage example:
+ * try (AzureTranslatorStandIn azure = new AzureTranslatorStandIn(0, behavior)) {
+ *     azure.start();
+ *     // text_translation_endpoint and document_translation_endpoint = azure.getBaseUrl()
+ * }
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.NamedThreadFactory;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Answers like the Azure Translator: POST /translate for text and the document batch API under
+ * /translator/document/batches. A document job copies the source blob to the target blob after
+ * the document processing time, so the blob endpoints in the job must be reachable; point
+ * document_storage_endpoint at a local Azurite for that.
+ */
+public class AzureTranslatorStandIn extends StandInServer {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(AzureTranslatorStandIn.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final String BATCHES_PATH = "/translator/document/batches";
+    private static final String BLOB_API_VERSION = "2021-08-06";
+
+    private final Map<String, DocumentJob> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService jobExecutor =
+        Executors.newScheduledThreadPool(2, new NamedThreadFactory("standin-azure-jobs"));
+    private volatile long documentProcessingMillis = 2000;
+
+    private static class DocumentJob {
+        private final String id;
+        private volatile String status = "NotStarted";
+        private volatile boolean failed;
+
+        private DocumentJob(String id) {
+            this.id = id;
+        }
+    }
+
+    public AzureTranslatorStandIn(int port, StandInBehavior behavior) {
+        super("azure", port, behavior);
+    }
+
+    /**
+     * How long a document job runs before its copy starts.
+     */
+    public void setDocumentProcessingMillis(long documentProcessingMillis) {
+        this.documentProcessingMillis = documentProcessingMillis;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        jobExecutor.shutdownNow();
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws Exception {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        if ("POST".equals(method) && path.endsWith("/translate")) {
+            translateText(exchange);
+        } else if ("POST".equals(method) && path.endsWith(BATCHES_PATH)) {
+            startDocumentJob(exchange);
+        } else if ("GET".equals(method) && path.contains(BATCHES_PATH + "/")) {
+            documentJobStatus(exchange, path.substring(path.lastIndexOf('/') + 1));
+        } else {
+            sendJson(exchange, 404, "{\"error\":{\"code\":\"NotFound\",\"message\":\"" + path + "\"}}");
+        }
+    }
+
+    private void translateText(HttpExchange exchange) throws IOException {
+        List<String> targets = queryParameters(exchange).getOrDefault("to", Collections.singletonList("es"));
+        JsonArray texts = JsonParser.parseString(readBodyAsString(exchange)).getAsJsonArray();
+        JsonArray response = new JsonArray();
+        for (JsonElement text : texts) {
+            JsonArray translations = new JsonArray();
+            for (String target : targets) {
+                JsonObject translation = new JsonObject();
+                translation.addProperty("text", pseudoTranslate(text.getAsJsonObject().get("Text").getAsString(), target));
+                translation.addProperty("to", target);
+                translations.add(translation);
+            }
+            JsonObject result = new JsonObject();
+            result.add("translations", translations);
+            response.add(result);
+        }
+        sendJson(exchange, 200, response.toString());
+    }
+
+    private void startDocumentJob(HttpExchange exchange) throws IOException {
+        JsonObject input = JsonParser.parseString(readBodyAsString(exchange)).getAsJsonObject()
+            .getAsJsonArray("inputs").get(0).getAsJsonObject();
+        String sourceUrl = input.getAsJsonObject("source").get("sourceUrl").getAsString();
+        String targetUrl = input.getAsJsonArray("targets").get(0).getAsJsonObject().get("targetUrl").getAsString();
+
+        DocumentJob job = new DocumentJob(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        jobExecutor.schedule(() -> runDocumentJob(job, sourceUrl, targetUrl), documentProcessingMillis, TimeUnit.MILLISECONDS);
+        job.status = "Running";
+
+        exchange.getResponseHeaders().set("Operation-Location",
+            getBaseUrl() + BATCHES_PATH.substring(1) + "/" + job.id);
+        JsonObject response = new JsonObject();
+        response.addProperty("id", job.id);
+        response.addProperty("status", job.status);
+        sendJson(exchange, 202, response.toString());
+    }
+
+    private void runDocumentJob(DocumentJob job, String sourceUrl, String targetUrl) {
+        try {
+            copyBlob(sourceUrl, targetUrl);
+        } catch (IOException e) {
+            logger.logWarn("Document job {} could not copy {}: {}", job.id, sourceUrl, e.getMessage());
+            job.failed = true;
+        }
+        job.status = "Succeeded";
+    }
+
+    private void documentJobStatus(HttpExchange exchange, String jobId) throws IOException {
+        DocumentJob job = jobs.get(jobId);
+        if (job == null) {
+            sendJson(exchange, 404, "{\"error\":{\"code\":\"NotFound\",\"message\":\"Job " + jobId + " not found\"}}");
+            return;
+        }
+        boolean done = "Succeeded".equals(job.status);
+        JsonObject summary = new JsonObject();
+        summary.addProperty("total", 1);
+        summary.addProperty("failed", done && job.failed ? 1 : 0);
+        summary.addProperty("success", done && !job.failed ? 1 : 0);
+        summary.addProperty("inProgress", done ? 0 : 1);
+        JsonObject response = new JsonObject();
+        response.addProperty("id", job.id);
+        response.addProperty("status", job.status);
+        response.add("summary", summary);
+        if (done) {
+            jobs.remove(jobId);
+        }
+        sendJson(exchange, 200, response.toString());
+    }
+
+    // The service reads the source and writes the target through the SAS URLs it was given
+    private static void copyBlob(String sourceUrl, String targetUrl) throws IOException {
+        byte[] content;
+        HttpURLConnection source = (HttpURLConnection) new URL(sourceUrl).openConnection();
+        try {
+            source.setRequestProperty("x-ms-version", BLOB_API_VERSION);
+            if (source.getResponseCode() != 200) {
+                throw new IOException("Source blob returned " + source.getResponseCode());
+            }
+            try (InputStream in = source.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                content = out.toByteArray();
+            }
+        } finally {
+            source.disconnect();
+        }
+
+        HttpURLConnection target = (HttpURLConnection) new URL(targetUrl).openConnection();
+        try {
+            target.setRequestMethod("PUT");
+            target.setDoOutput(true);
+            target.setFixedLengthStreamingMode(content.length);
+            target.setRequestProperty("x-ms-version", BLOB_API_VERSION);
+            target.setRequestProperty("x-ms-blob-type", "BlockBlob");
+            target.setRequestProperty("Content-Type", "application/pdf");
+            try (OutputStream out = target.getOutputStream()) {
+                out.write(content);
+            }
+            if (target.getResponseCode() != 201) {
+                throw new IOException("Target blob returned " + target.getResponseCode());
+            }
+        } finally {
+            target.disconnect();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.infinitecampus.ccs.lingo.testsupport;
+/* usage example:
+ * try (CampusStandIn campus = new CampusStandIn(0, behavior, "campus", 4)) {
+ *     campus.start();
+ *     // CCS_RequestConfig.url = campus.getBaseUrl()
+ * }
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Answers the calls GenerateDocument makes against Campus: the login page, the verify.jsp form
+ * post that sets JSESSIONID and XSRF-TOKEN, and any other GET with a known session as a report
+ * PDF. Every report is the same generated document of the given page count.
+ */
+public class CampusStandIn extends StandInServer {
+    private final String appName;
+    private final byte[] report;
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+
+    public CampusStandIn(int port, StandInBehavior behavior, String appName, int reportPages) throws IOException {
+        super("campus", port, behavior);
+        this.appName = appName;
+        this.report = createReport(reportPages);
+    }
+
+    /**
+     * The bytes every report request returns, for comparing with what the engine saved.
+     */
+    public byte[] getReport() {
+        return report.clone();
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws Exception {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        if ("GET".equals(method) && path.endsWith("/" + appName + ".jsp")) {
+            send(exchange, 200, "text/html; charset=utf-8",
+                "<html><body><form action=\"verify.jsp\" method=\"post\"></form></body></html>".getBytes(StandardCharsets.UTF_8));
+        } else if ("POST".equals(method) && path.endsWith("/verify.jsp")) {
+            verify(exchange);
+        } else if ("GET".equals(method) && hasSession(exchange)) {
+            send(exchange, 200, "application/pdf", report);
+        } else {
+            send(exchange, 401, "text/plain", "Not logged in".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void verify(HttpExchange exchange) throws IOException {
+        String form = readBodyAsString(exchange);
+        String username = formValue(form, "username");
+        if (username == null || username.isEmpty()) {
+            send(exchange, 200, "text/html; charset=utf-8",
+                "<html><body>Login failed</body></html>".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String session = UUID.randomUUID().toString().replace("-", "");
+        sessions.add(session);
+        exchange.getResponseHeaders().add("Set-Cookie", "JSESSIONID=" + session + "; Path=/; HttpOnly");
+        exchange.getResponseHeaders().add("Set-Cookie", "XSRF-TOKEN=" + UUID.randomUUID() + "; Path=/");
+        exchange.getResponseHeaders().set("Location", getBaseUrl() + appName + "/main.xsl");
+        send(exchange, 302, null, null);
+    }
+
+    private boolean hasSession(HttpExchange exchange) {
+        List<String> cookieHeaders = exchange.getRequestHeaders().get("Cookie");
+        if (cookieHeaders == null) {
+            return false;
+        }
+        for (String header : cookieHeaders) {
+            for (String cookie : header.split(";")) {
+                String trimmed = cookie.trim();
+                if (trimmed.startsWith("JSESSIONID=") && sessions.contains(trimmed.substring("JSESSIONID=".length()))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String formValue(String form, String name) throws IOException {
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && name.equals(URLDecoder.decode(pair.substring(0, equals), "UTF-8"))) {
+                return URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    private static byte[] createReport(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 11);
+                    content.setLeading(16);
+                    content.newLineAtOffset(72, 720);
+                    for (int line = 0; line < 40; line++) {
+                        content.showText("Page " + (p + 1) + ", line " + (line + 1)
+                            + ": progress report details for the student and guardian.");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.infinitecampus.ccs.lingo.testsupport;
+/* usage example:
+ * java -Dharness.jdbcUrl="jdbc:sqlserver://localhost:1433;databaseName=lingo;user=sa;password=...;encrypt=false" \
+ *      -Dharness.provider=aws -Dharness.mode=text -Dharness.batches=50 -Dharness.concurrency=8 \
+ *      -Dstandin.latencyMs=80 -Dstandin.jitterMs=40 -Dstandin.throttleRate=0.02 \
+ *      -jar target/test-support.jar
+ */
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonObject;
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.translationrequest.TranslateDocument;
+import com.infinitecampus.ccs.lingo.translationrequest.TranslateText;
+import com.infinitecampus.ccs.lingo.utility.GenerateDocument;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.MetricsRegistry;
+import com.infinitecampus.ccs.lingo.utility.NamedThreadFactory;
+
+/**
+ * Drives TranslateText or TranslateDocument against the stand-ins and a SchemaFixture database
+ * and reports throughput and batch latency percentiles. Each batch gets its own token and its own
+ * connection, the way separate scheduled tasks would run in Campus.
+ *
+ * Settings are system properties: harness.jdbcUrl (required), harness.provider (azure, google,
+ * aws), harness.mode (text, document), harness.batches, harness.concurrency, harness.rows (texts
+ * or documents per batch), harness.language and harness.reportPages. The vendor stand-in takes
+ * its behavior from standin.*, the Campus stand-in from campus.*; see
+ * StandInBehavior.fromSystemProperties.
+ *
+ * Azure documents go through blob storage, which is not stood in: run Azurite, create the source
+ * and target containers and pass harness.azure.storageEndpoint, harness.azure.sourceSas and
+ * harness.azure.targetSas.
+ */
+public class LoadHarness {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(LoadHarness.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final String APP_NAME = "campus";
+    private static final String REPORT_PATH = "campus/reports/progressReport.pdf";
+    // Azurite's well-known development account
+    private static final String AZURITE_ACCOUNT = "devstoreaccount1";
+    private static final String AZURITE_KEY =
+        "Eby8vdM02xNOcqFlqUwJPLlmEtlCDXJ1OUzFT50uSRZ6IFsuFq2UVErCz4I6tq/K1SZFPTOtr/KBHBeksoGMGw==";
+    private static final String[] SENTENCES = {
+        "Your student has a new assignment posted in the portal.",
+        "The attendance office recorded an absence for today.",
+        "Report cards for the first quarter are now available.",
+        "Please update your emergency contact information.",
+        "The bus route will change starting next Monday."
+    };
+
+    private final String provider;
+    private final String mode;
+    private final int batches;
+    private final int concurrency;
+    private final int rows;
+    private final String language;
+    private final String jdbcUrl;
+    private MetricsRegistry.Histogram batchLatency;
+    private final AtomicInteger failedBatches = new AtomicInteger();
+
+    private LoadHarness() {
+        this.jdbcUrl = System.getProperty("harness.jdbcUrl");
+        this.provider = System.getProperty("harness.provider", "azure").toLowerCase();
+        this.mode = System.getProperty("harness.mode", "text").toLowerCase();
+        this.batches = Integer.getInteger("harness.batches", 20);
+        this.concurrency = Integer.getInteger("harness.concurrency", 4);
+        this.rows = Integer.getInteger("harness.rows", "text".equals(mode) ? 200 : 2);
+        this.language = System.getProperty("harness.language", "es");
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadHarness harness = new LoadHarness();
+        if (harness.jdbcUrl == null || harness.jdbcUrl.isEmpty()) {
+            logger.logError("Set harness.jdbcUrl to an empty SQL Server database");
+            System.exit(2);
+        }
+        harness.run();
+    }
+
+    private void run() throws Exception {
+        File outputDirectory = Files.createTempDirectory("lingo-harness").toFile();
+        StandInBehavior vendorBehavior = StandInBehavior.fromSystemProperties("standin");
+        StandInBehavior campusBehavior = StandInBehavior.fromSystemProperties("campus");
+
+        try (StandInServer vendor = createVendorStandIn(vendorBehavior);
+             CampusStandIn campus = new CampusStandIn(0, campusBehavior, APP_NAME,
+                 Integer.getInteger("harness.reportPages", 4));
+             Connection connection = DriverManager.getConnection(jdbcUrl)) {
+            vendor.start();
+            campus.start();
+
+            SchemaFixture fixture = new SchemaFixture(connection);
+            fixture.create();
+            Map<String, String> settings = new LinkedHashMap<>();
+            settings.put("version", "standin");
+            settings.put("requestOutputDirectory", outputDirectory.getAbsolutePath());
+            settings.put("documentFilePath", new File(outputDirectory, "documents").getAbsolutePath());
+            // Outside Campus the document copy has to take the debug path
+            settings.put("debugMode", "true");
+            fixture.seedConfiguration(settings);
+            Configuration.getInstance().loadConfiguration(connection, APP_NAME);
+
+            int configID = fixture.createTranslationConfig(provider, serviceAccount(vendor));
+            List<String> tokens = "text".equals(mode)
+                ? seedTextBatches(fixture, configID)
+                : seedDocumentBatches(fixture, configID, campus);
+
+            MetricsRegistry.getInstance().reset();
+            batchLatency = MetricsRegistry.getInstance().histogram("harness." + mode + ".batch");
+            long started = System.nanoTime();
+            runBatches(tokens);
+            long elapsedNanos = System.nanoTime() - started;
+
+            report(elapsedNanos, vendor);
+        }
+    }
+
+    private StandInServer createVendorStandIn(StandInBehavior behavior) {
+        switch (provider) {
+            case "azure":
+                return new AzureTranslatorStandIn(0, behavior);
+            case "google":
+                return new GoogleTranslateStandIn(0, behavior);
+            case "aws":
+                return new AwsStandIn(0, behavior);
+            default:
+                throw new IllegalArgumentException("Unsupported provider: " + provider);
+        }
+    }
+
+    private String serviceAccount(StandInServer vendor) throws Exception {
+        if (vendor instanceof GoogleTranslateStandIn) {
+            return ((GoogleTranslateStandIn) vendor).serviceAccountJson("standin-project");
+        }
+        JsonObject account = new JsonObject();
+        if (vendor instanceof AwsStandIn) {
+            account.addProperty("access_key", "standin");
+            account.addProperty("secret_key", "standin");
+            account.addProperty("endpoint_override", vendor.getBaseUrl());
+            return account.toString();
+        }
+        account.addProperty("translator_key_id", "standin");
+        account.addProperty("text_translation_endpoint", vendor.getBaseUrl());
+        account.addProperty("text_translation_apiversion", "3.0");
+        account.addProperty("text_translation_location", "eastus");
+        account.addProperty("document_translation_endpoint", vendor.getBaseUrl());
+        account.addProperty("document_storage_name", AZURITE_ACCOUNT);
+        account.addProperty("document_storage_key_id", AZURITE_KEY);
+        account.addProperty("document_storage_endpoint",
+            System.getProperty("harness.azure.storageEndpoint", "http://127.0.0.1:10000/" + AZURITE_ACCOUNT));
+        account.addProperty("document_source_storage_name", "source");
+        account.addProperty("document_target_storage_name", "target");
+        account.addProperty("source_sasToken", System.getProperty("harness.azure.sourceSas", ""));
+        account.addProperty("target_sasToken", System.getProperty("harness.azure.targetSas", ""));
+        return account.toString();
+    }
+
+    // Rows differ per batch so translation memory does not answer them
+    private List<String> seedTextBatches(SchemaFixture fixture, int configID) throws Exception {
+        List<String> tokens = new ArrayList<>(batches);
+        for (int b = 0; b < batches; b++) {
+            List<String> texts = new ArrayList<>(rows);
+            for (int r = 0; r < rows; r++) {
+                texts.add(SENTENCES[r % SENTENCES.length] + " (" + b + "-" + r + ")");
+            }
+            tokens.add(fixture.createTextBatch(configID, texts, language));
+        }
+        logger.logInfo("Seeded {} text batches of {} rows", batches, rows);
+        return tokens;
+    }
+
+    // Campus reports are generated before the clock starts; only the translation is measured
+    private List<String> seedDocumentBatches(SchemaFixture fixture, int configID, CampusStandIn campus) throws Exception {
+        int requestConfigID = fixture.createRequestConfig(campus.getBaseUrl(), "standin", "standin");
+        MetricsRegistry.Histogram generateLatency = MetricsRegistry.getInstance().histogram("harness.generate.batch");
+        List<String> tokens = new ArrayList<>(batches);
+        for (int b = 0; b < batches; b++) {
+            String requestToken = fixture.createCampusRequests(requestConfigID, rows, "ProgressReport", REPORT_PATH);
+            long start = System.nanoTime();
+            try (Connection connection = DriverManager.getConnection(jdbcUrl);
+                 GenerateDocument generator = new GenerateDocument.Builder()
+                     .withConnection(connection)
+                     .withBackpackConnection(connection)
+                     .withToken(requestToken)
+                     .withConfiguration(Configuration.getInstance())
+                     .build()) {
+                generator.procedure();
+            }
+            generateLatency.recordSince(start);
+            tokens.add(fixture.createDocumentBatch(configID, requestToken, language, "Spanish"));
+        }
+        logger.logInfo("Generated {} Campus request batches of {} documents, p99 {} ms",
+            batches, rows, generateLatency.getPercentileMillis(0.99));
+        return tokens;
+    }
+
+    private void runBatches(List<String> tokens) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("harness"));
+        for (String token : tokens) {
+            executor.submit(() -> runBatch(token));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+    }
+
+    private void runBatch(String token) {
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(jdbcUrl)) {
+            if ("text".equals(mode)) {
+                try (TranslateText translateText = new TranslateText.Builder()
+                        .withConnection(connection)
+                        .withToken(token)
+                        .withConfiguration(Configuration.getInstance())
+                        .build()) {
+                    translateText.procedure();
+                }
+            } else {
+                try (TranslateDocument translateDocument = new TranslateDocument.Builder()
+                        .withCampusConnection(connection)
+                        .withBackpackConnection(connection)
+                        .withToken(token)
+                        .withConfiguration(Configuration.getInstance())
+                        .build()) {
+                    translateDocument.procedure();
+                }
+            }
+            batchLatency.recordSince(start);
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            logger.logError("Batch {} failed: {}", token, e.getMessage(), e);
+        }
+    }
+
+    private void report(long elapsedNanos, StandInServer vendor) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        long completed = batchLatency.getCount();
+        logger.logInfo(String.format("%s %s via %s: %d batches (%d failed) of %d in %.1fs, %.1f items/s, "
+                + "batch p50=%.0fms p95=%.0fms p99=%.0fms max=%.0fms; stand-in saw %d requests, %d throttled, %d errors",
+            provider, mode, vendor.getBehavior(), completed, failedBatches.get(), rows, seconds,
+            completed * rows / seconds, batchLatency.getPercentileMillis(0.5), batchLatency.getPercentileMillis(0.95),
+            batchLatency.getPercentileMillis(0.99), batchLatency.getMaxMillis(),
+            vendor.getRequestCount(), vendor.getThrottledCount(), vendor.getErrorCount()));
+        MetricsRegistry.getInstance().logSummary();
+    }
+}
@@ -0,0 +1,224 @@
+package com.infinitecampus.ccs.lingo.testsupport;
+/* usage example:
+ * try (Connection connection = DriverManager.getConnection(jdbcUrl)) {
+ *     SchemaFixture fixture = new SchemaFixture(connection);
+ *     fixture.create();
+ *     fixture.seedConfiguration(settings);
+ *     int configID = fixture.createTranslationConfig("azure", serviceAccountJson);
+ *     String token = fixture.createTextBatch(configID, texts, "es");
+ * }
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+
+/**
+ * Creates the ccs_lng tables and procedures the engine uses and seeds translation work.
+ *
+ * SQL Server cannot run embedded, so this targets a throwaway local instance, for example
+ * docker run -e ACCEPT_EULA=Y -e MSSQL_SA_PASSWORD=... -p 1433:1433 mcr.microsoft.com/mssql/server:2022-latest
+ * with an empty database. create() drops and recreates every object it owns.
+ */
+public class SchemaFixture {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(SchemaFixture.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private static final String SCHEMA_RESOURCE = "/ccs_lng_schema.sql";
+
+    private static final String SQL_INSERT_SETTING =
+        "INSERT INTO ccs_lng.CCS_LingoConfiguration (settingName, settingValue, active) VALUES (?, ?, 1)";
+    private static final String SQL_INSERT_TRANSLATION_CONFIG =
+        "INSERT INTO ccs_lng.CCS_TranslationConfig (name, active, serviceprovider, serviceAccount) VALUES (?, 1, ?, ?)";
+    private static final String SQL_INSERT_TRANSLATION_TEXT =
+        "INSERT INTO ccs_lng.CCS_TranslationText (token, translationConfigID, textToTranslate, language) VALUES (?, ?, ?, ?)";
+    private static final String SQL_INSERT_REQUEST_CONFIG =
+        "INSERT INTO ccs_lng.CCS_RequestConfig (url, username, password, encryptionversion) VALUES (?, ?, ?, 0)";
+    private static final String SQL_INSERT_REQUEST =
+        "INSERT INTO ccs_lng.CCS_Request (token, requestconfigID, [type], requestData) VALUES (?, ?, 'campus', ?)";
+    // One translation per generated document of the request token
+    private static final String SQL_INSERT_TRANSLATION_DOCUMENTS =
+        "INSERT INTO ccs_lng.CCS_TranslationDocument (token, translationConfigID, requestID, language, fullLanguage, " +
+        "personID, keyID, [type]) " +
+        "SELECT ?, ?, requestID, ?, ?, requestID, CAST(requestID AS VARCHAR(50)), [type] " +
+        "FROM ccs_lng.CCS_Request WHERE token = TRY_CAST(? AS UNIQUEIDENTIFIER) AND completed = 1";
+
+    private final Connection connection;
+
+    public SchemaFixture(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Drops and recreates the ccs_lng objects from the schema script.
+     */
+    public void create() throws SQLException, IOException {
+        String script = readResource(SCHEMA_RESOURCE);
+        int batches = 0;
+        try (Statement stmt = connection.createStatement()) {
+            StringBuilder batch = new StringBuilder();
+            for (String line : script.split("\r?\n")) {
+                if (line.trim().equalsIgnoreCase("GO")) {
+                    if (batch.toString().trim().length() > 0) {
+                        stmt.execute(batch.toString());
+                        batches++;
+                    }
+                    batch.setLength(0);
+                } else {
+                    batch.append(line).append('\n');
+                }
+            }
+            if (batch.toString().trim().length() > 0) {
+                stmt.execute(batch.toString());
+                batches++;
+            }
+        }
+        logger.logInfo("Created ccs_lng schema fixture in {} batches", batches);
+    }
+
+    /**
+     * Writes the CCS_LingoConfiguration rows Configuration.loadConfiguration reads.
+     */
+    public void seedConfiguration(Map<String, String> settings) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT_SETTING)) {
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                pstmt.setString(1, setting.getKey());
+                pstmt.setString(2, setting.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * @return the translationConfigID of the new active config
+     */
+    public int createTranslationConfig(String serviceProvider, String serviceAccountJson) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT_TRANSLATION_CONFIG,
+                Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, "standin-" + serviceProvider);
+            pstmt.setString(2, serviceProvider);
+            pstmt.setString(3, serviceAccountJson);
+            pstmt.executeUpdate();
+            return generatedKey(pstmt);
+        }
+    }
+
+    /**
+     * Queues the texts for translation under a new token.
+     *
+     * @return the token TranslateText is built with
+     */
+    public String createTextBatch(int translationConfigID, List<String> texts, String language) throws SQLException {
+        String token = UUID.randomUUID().toString();
+        try (PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT_TRANSLATION_TEXT)) {
+            for (String text : texts) {
+                pstmt.setString(1, token);
+                pstmt.setInt(2, translationConfigID);
+                pstmt.setString(3, text);
+                pstmt.setString(4, language);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        return token;
+    }
+
+    /**
+     * @return the requestconfigID GenerateDocument logs in with
+     */
+    public int createRequestConfig(String campusUrl, String username, String password) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT_REQUEST_CONFIG,
+                Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, campusUrl);
+            pstmt.setString(2, username);
+            pstmt.setString(3, password);
+            pstmt.executeUpdate();
+            return generatedKey(pstmt);
+        }
+    }
+
+    /**
+     * Queues Campus reports for GenerateDocument under a new token.
+     *
+     * @param reportPath the report path relative to the Campus base URL
+     * @return the token GenerateDocument is built with
+     */
+    public String createCampusRequests(int requestConfigID, int count, String documentName, String reportPath)
+            throws SQLException {
+        String token = UUID.randomUUID().toString();
+        try (PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT_REQUEST)) {
+            for (int i = 0; i < count; i++) {
+                pstmt.setString(1, token);
+                pstmt.setInt(2, requestConfigID);
+                pstmt.setString(3, String.format("{\"documentname\":\"%s\",\"path\":\"%s\",\"keyid\":\"%d\"}",
+                    documentName, reportPath, i + 1));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        return token;
+    }
+
+    /**
+     * Queues a translation of every document GenerateDocument completed for the request token.
+     *
+     * @return the token TranslateDocument is built with
+     */
+    public String createDocumentBatch(int translationConfigID, String requestToken, String language,
+            String fullLanguage) throws SQLException {
+        String token = UUID.randomUUID().toString();
+        try (PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT_TRANSLATION_DOCUMENTS)) {
+            pstmt.setString(1, token);
+            pstmt.setInt(2, translationConfigID);
+            pstmt.setString(3, language);
+            pstmt.setString(4, fullLanguage);
+            pstmt.setString(5, requestToken);
+            int rows = pstmt.executeUpdate();
+            logger.logDebug("Queued {} documents of request {} for translation", rows, requestToken);
+        }
+        return token;
+    }
+
+    private static int generatedKey(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet keys = pstmt.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No generated key returned");
+            }
+            return keys.getInt(1);
+        }
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = SchemaFixture.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
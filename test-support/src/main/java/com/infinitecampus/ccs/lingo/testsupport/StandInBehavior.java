@@ -0,0 +1,122 @@
+package com.infinitecampus.ccs.lingo.testsupport;
+/* usage example:
+ * StandInBehavior behavior = new StandInBehavior.Builder()
+ *     .withLatencyMillis(120)
+ *     .withJitterMillis(40)
+ *     .withThrottleRate(0.02)
+ *     .withErrorRate(0.005)
+ *     .build();
+ */
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a stand-in answers: a fixed latency plus uniform jitter, and the share of calls that
+ * are throttled or fail with a server error. Throttled calls carry retryAfterSeconds.
+ */
+public class StandInBehavior {
+    public static final StandInBehavior IMMEDIATE = new Builder().build();
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double throttleRate;
+    private final double errorRate;
+    private final int retryAfterSeconds;
+
+    public enum Outcome {
+        OK, THROTTLED, ERROR
+    }
+
+    public static class Builder {
+        private long latencyMillis;
+        private long jitterMillis;
+        private double throttleRate;
+        private double errorRate;
+        private int retryAfterSeconds = 1;
+
+        public Builder withLatencyMillis(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+            return this;
+        }
+
+        public Builder withJitterMillis(long jitterMillis) {
+            this.jitterMillis = jitterMillis;
+            return this;
+        }
+
+        public Builder withThrottleRate(double throttleRate) {
+            this.throttleRate = throttleRate;
+            return this;
+        }
+
+        public Builder withErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Builder withRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+            return this;
+        }
+
+        public StandInBehavior build() {
+            if (latencyMillis < 0 || jitterMillis < 0) {
+                throw new IllegalArgumentException("Latency and jitter must not be negative");
+            }
+            if (throttleRate < 0 || errorRate < 0 || throttleRate + errorRate > 1) {
+                throw new IllegalArgumentException("Throttle and error rates must be between 0 and 1 together");
+            }
+            return new StandInBehavior(this);
+        }
+    }
+
+    private StandInBehavior(Builder builder) {
+        this.latencyMillis = builder.latencyMillis;
+        this.jitterMillis = builder.jitterMillis;
+        this.throttleRate = builder.throttleRate;
+        this.errorRate = builder.errorRate;
+        this.retryAfterSeconds = builder.retryAfterSeconds;
+    }
+
+    /**
+     * Reads the behavior from system properties named prefix.latencyMs, prefix.jitterMs,
+     * prefix.throttleRate, prefix.errorRate and prefix.retryAfterSeconds.
+     */
+    public static StandInBehavior fromSystemProperties(String prefix) {
+        return new Builder()
+            .withLatencyMillis(Long.getLong(prefix + ".latencyMs", 0))
+            .withJitterMillis(Long.getLong(prefix + ".jitterMs", 0))
+            .withThrottleRate(Double.parseDouble(System.getProperty(prefix + ".throttleRate", "0")))
+            .withErrorRate(Double.parseDouble(System.getProperty(prefix + ".errorRate", "0")))
+            .withRetryAfterSeconds(Integer.getInteger(prefix + ".retryAfterSeconds", 1))
+            .build();
+    }
+
+    /**
+     * Sleeps for this call's latency and picks how the call ends.
+     */
+    public Outcome delayAndDecide() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        double roll = random.nextDouble();
+        if (roll < throttleRate) {
+            return Outcome.THROTTLED;
+        }
+        if (roll < throttleRate + errorRate) {
+            return Outcome.ERROR;
+        }
+        return Outcome.OK;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("latency=%dms, jitter=%dms, throttle=%.3f, error=%.3f",
+            latencyMillis, jitterMillis, throttleRate, errorRate);
+    }
+}
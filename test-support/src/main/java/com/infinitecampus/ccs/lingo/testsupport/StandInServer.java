@@ -0,0 +1,229 @@
+package com.infinitecampus.ccs.lingo.testsupport;
+/* usage example:
+ * try (AwsStandIn aws = new AwsStandIn(behavior)) {
+ *     aws.start();
+ *     String endpoint = aws.getBaseUrl();
+ * }
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.infinitecampus.ccs.lingo.settings.Configuration;
+import com.infinitecampus.ccs.lingo.utility.LogHelper;
+import com.infinitecampus.ccs.lingo.utility.NamedThreadFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An HTTP server on the loopback interface that answers like one of the services the engine
+ * calls. Every request first goes through the StandInBehavior, which delays it and may turn it
+ * into a throttle or a server error; subclasses answer the rest and shape those two responses
+ * the way their service does.
+ */
+public abstract class StandInServer implements AutoCloseable {
+    private static final LogHelper logger;
+
+    static {
+        try {
+            logger = new LogHelper(Configuration.getInstance()).createLogger(StandInServer.class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Failed to initialize logger: " + e.getMessage());
+        }
+    }
+
+    private final String name;
+    private final int port;
+    private volatile StandInBehavior behavior;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    /**
+     * @param port the port to listen on, or 0 for any free port
+     */
+    protected StandInServer(String name, int port, StandInBehavior behavior) {
+        this.name = name;
+        this.port = port;
+        this.behavior = behavior == null ? StandInBehavior.IMMEDIATE : behavior;
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newCachedThreadPool(new NamedThreadFactory("standin-" + name));
+        server.setExecutor(executor);
+        server.createContext("/", this::dispatch);
+        server.start();
+        logger.logInfo("{} stand-in listening on {} ({})", name, getBaseUrl(), behavior);
+    }
+
+    /**
+     * The base URL with a trailing slash, for example http://127.0.0.1:54321/
+     */
+    public String getBaseUrl() {
+        if (server == null) {
+            throw new IllegalStateException(name + " stand-in is not started");
+        }
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/";
+    }
+
+    public void setBehavior(StandInBehavior behavior) {
+        this.behavior = behavior == null ? StandInBehavior.IMMEDIATE : behavior;
+    }
+
+    public StandInBehavior getBehavior() {
+        return behavior;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            logger.logInfo("{} stand-in stopped after {} requests ({} throttled, {} errors)",
+                name, requestCount.get(), throttledCount.get(), errorCount.get());
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            // Calls the service answers without delay, such as token exchanges, skip the behavior
+            if (!isExempt(exchange)) {
+                StandInBehavior current = behavior;
+                switch (current.delayAndDecide()) {
+                    case THROTTLED:
+                        throttledCount.incrementAndGet();
+                        sendThrottled(exchange, current.getRetryAfterSeconds());
+                        return;
+                    case ERROR:
+                        errorCount.incrementAndGet();
+                        sendError(exchange);
+                        return;
+                    default:
+                        break;
+                }
+            }
+            handle(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "text/plain", "Stand-in stopping".getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            logger.logError("{} stand-in failed on {} {}: {}", name, exchange.getRequestMethod(),
+                exchange.getRequestURI(), e.getMessage(), e);
+            send(exchange, 500, "text/plain", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers a request the behavior let through.
+     */
+    protected abstract void handle(HttpExchange exchange) throws Exception;
+
+    protected boolean isExempt(HttpExchange exchange) {
+        return false;
+    }
+
+    protected void sendThrottled(HttpExchange exchange, int retryAfterSeconds) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        sendJson(exchange, 429, "{\"error\":{\"code\":429,\"message\":\"Too many requests\"}}");
+    }
+
+    protected void sendError(HttpExchange exchange) throws IOException {
+        sendJson(exchange, 500, "{\"error\":{\"code\":500,\"message\":\"Internal server error\"}}");
+    }
+
+    protected static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, "application/json; charset=utf-8", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        if (body == null || body.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    protected static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    protected static String readBodyAsString(HttpExchange exchange) throws IOException {
+        return new String(readBody(exchange), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The query parameters of the request; a repeated parameter keeps every value.
+     */
+    protected static Map<String, List<String>> queryParameters(HttpExchange exchange) throws IOException {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            parameters.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return parameters;
+    }
+
+    /**
+     * A stand-in translation: the text tagged with the target language, so output can be told
+     * from input without a real model.
+     */
+    protected static String pseudoTranslate(String text, String targetLanguage) {
+        return "[" + targetLanguage + "] " + text;
+    }
+}
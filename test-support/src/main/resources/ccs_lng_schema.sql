@@ -0,0 +1,157 @@
+-- The ccs_lng objects the lingo engine reads and writes, reconstructed from the engine's own
+-- queries for local load tests. Not the production DDL: only the columns the engine touches are
+-- here, and the procedures return what the engine reads without the Campus side effects.
+-- Batches are separated by GO; SchemaFixture runs them in order against an empty database.
+
+IF SCHEMA_ID('ccs_lng') IS NULL EXEC('CREATE SCHEMA ccs_lng')
+GO
+
+IF OBJECT_ID('ccs_lng.CCS_Get_OLR_TranslationText', 'P') IS NOT NULL DROP PROCEDURE ccs_lng.CCS_Get_OLR_TranslationText
+IF OBJECT_ID('ccs_lng.CCS_Get_TranslationDocument', 'P') IS NOT NULL DROP PROCEDURE ccs_lng.CCS_Get_TranslationDocument
+IF OBJECT_ID('ccs_lng.CCS_Create_SPED_StapleDocument', 'P') IS NOT NULL DROP PROCEDURE ccs_lng.CCS_Create_SPED_StapleDocument
+IF OBJECT_ID('ccs_lng.CCS_Create_Backpack_TranslationText', 'P') IS NOT NULL DROP PROCEDURE ccs_lng.CCS_Create_Backpack_TranslationText
+IF OBJECT_ID('ccs_lng.CCS_TranslationDocument', 'U') IS NOT NULL DROP TABLE ccs_lng.CCS_TranslationDocument
+IF OBJECT_ID('ccs_lng.CCS_TranslationText', 'U') IS NOT NULL DROP TABLE ccs_lng.CCS_TranslationText
+IF OBJECT_ID('ccs_lng.CCS_Request', 'U') IS NOT NULL DROP TABLE ccs_lng.CCS_Request
+IF OBJECT_ID('ccs_lng.CCS_RequestConfig', 'U') IS NOT NULL DROP TABLE ccs_lng.CCS_RequestConfig
+IF OBJECT_ID('ccs_lng.CCS_TranslationConfig', 'U') IS NOT NULL DROP TABLE ccs_lng.CCS_TranslationConfig
+IF OBJECT_ID('ccs_lng.CCS_TranslationMemory', 'U') IS NOT NULL DROP TABLE ccs_lng.CCS_TranslationMemory
+IF OBJECT_ID('ccs_lng.CCS_LingoConfiguration', 'U') IS NOT NULL DROP TABLE ccs_lng.CCS_LingoConfiguration
+GO
+
+CREATE TABLE ccs_lng.CCS_LingoConfiguration (
+    lingoConfigurationID INT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+    settingName          VARCHAR(100)  NOT NULL,
+    settingValue         NVARCHAR(MAX) NULL,
+    active               BIT           NOT NULL DEFAULT 1
+)
+
+CREATE TABLE ccs_lng.CCS_TranslationConfig (
+    translationConfigID INT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+    name                VARCHAR(100)  NULL,
+    active              BIT           NOT NULL DEFAULT 1,
+    serviceprovider     VARCHAR(100)  NOT NULL,
+    serviceAccount      NVARCHAR(MAX) NULL,
+    onCompleteSQL       NVARCHAR(MAX) NULL
+)
+
+CREATE TABLE ccs_lng.CCS_TranslationText (
+    translationTextID   INT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+    token               UNIQUEIDENTIFIER NOT NULL,
+    translationConfigID INT           NOT NULL REFERENCES ccs_lng.CCS_TranslationConfig (translationConfigID),
+    textToTranslate     NVARCHAR(MAX) NOT NULL,
+    language            VARCHAR(20)   NOT NULL,
+    translationData     NVARCHAR(MAX) NULL,
+    outputData          NVARCHAR(MAX) NULL,
+    completed           BIT           NOT NULL DEFAULT 0,
+    completedDate       DATETIME      NULL,
+    createdDate         DATETIME      NOT NULL DEFAULT GETDATE()
+)
+CREATE INDEX IX_CCS_TranslationText_token ON ccs_lng.CCS_TranslationText (token, completed)
+
+CREATE TABLE ccs_lng.CCS_RequestConfig (
+    requestconfigID   INT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+    url               VARCHAR(400)  NOT NULL,
+    username          VARCHAR(100)  NOT NULL,
+    password          VARCHAR(400)  NOT NULL,
+    encryptionversion INT           NOT NULL DEFAULT 0
+)
+
+CREATE TABLE ccs_lng.CCS_Request (
+    requestID       INT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+    token           UNIQUEIDENTIFIER NOT NULL,
+    requestconfigID INT           NOT NULL REFERENCES ccs_lng.CCS_RequestConfig (requestconfigID),
+    [type]          VARCHAR(20)   NOT NULL,
+    requestData     NVARCHAR(MAX) NOT NULL,
+    completed       BIT           NOT NULL DEFAULT 0,
+    completedDate   DATETIME      NULL,
+    completedName   VARCHAR(400)  NULL
+)
+CREATE INDEX IX_CCS_Request_token ON ccs_lng.CCS_Request (token, completed)
+
+CREATE TABLE ccs_lng.CCS_TranslationDocument (
+    translationDocumentID INT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+    token               UNIQUEIDENTIFIER NOT NULL,
+    translationConfigID INT           NOT NULL REFERENCES ccs_lng.CCS_TranslationConfig (translationConfigID),
+    requestID           INT           NOT NULL REFERENCES ccs_lng.CCS_Request (requestID),
+    language            VARCHAR(20)   NOT NULL,
+    fullLanguage        VARCHAR(100)  NOT NULL,
+    personID            INT           NOT NULL,
+    keyID               VARCHAR(50)   NOT NULL,
+    [type]              VARCHAR(20)   NOT NULL,
+    completed           BIT           NOT NULL DEFAULT 0,
+    completedDate       DATETIME      NULL,
+    completedName       VARCHAR(400)  NULL,
+    notes               NVARCHAR(MAX) NULL
+)
+CREATE INDEX IX_CCS_TranslationDocument_token ON ccs_lng.CCS_TranslationDocument (token, completed)
+
+CREATE TABLE ccs_lng.CCS_TranslationMemory (
+    sourceHash      CHAR(64)      NOT NULL,
+    targetLanguage  VARCHAR(20)   NOT NULL,
+    provider        VARCHAR(20)   NOT NULL,
+    translatedText  NVARCHAR(MAX) NOT NULL,
+    createdDate     DATETIME      NOT NULL DEFAULT GETDATE(),
+    expiresDate     DATETIME      NULL,
+    CONSTRAINT PK_CCS_TranslationMemory PRIMARY KEY (sourceHash, targetLanguage, provider)
+)
+GO
+
+CREATE PROCEDURE ccs_lng.CCS_Get_OLR_TranslationText
+    @token VARCHAR(36)
+AS
+BEGIN
+    SET NOCOUNT ON
+    SELECT tt.translationTextID, tt.textToTranslate [texttotranslate], tt.language
+    FROM ccs_lng.CCS_TranslationText tt
+    INNER JOIN ccs_lng.CCS_TranslationConfig tc ON tt.translationConfigID = tc.translationConfigID
+    WHERE tt.token = TRY_CAST(@token AS UNIQUEIDENTIFIER) AND tt.completed = 0 AND tc.active = 1
+    ORDER BY tt.translationTextID
+END
+GO
+
+CREATE PROCEDURE ccs_lng.CCS_Get_TranslationDocument
+    @token VARCHAR(36)
+AS
+BEGIN
+    SET NOCOUNT ON
+    SELECT td.translationDocumentID, CAST(r.token AS VARCHAR(36)) [requesttoken],
+        r.completedName [requestcompletedName], td.language, td.personID, td.keyID,
+        td.fullLanguage, td.[type]
+    FROM ccs_lng.CCS_TranslationDocument td
+    INNER JOIN ccs_lng.CCS_Request r ON td.requestID = r.requestID
+    INNER JOIN ccs_lng.CCS_TranslationConfig tc ON td.translationConfigID = tc.translationConfigID
+    WHERE td.token = TRY_CAST(@token AS UNIQUEIDENTIFIER) AND td.completed = 0 AND r.completed = 1
+        AND tc.active = 1
+    ORDER BY td.translationDocumentID
+END
+GO
+
+-- In Campus this staples the translation into the student's documents; here it only succeeds.
+-- The engine copies the file itself, which needs debugMode on outside Campus
+CREATE PROCEDURE ccs_lng.CCS_Create_SPED_StapleDocument
+    @translationDocumentID INT
+AS
+BEGIN
+    SET NOCOUNT ON
+    RETURN 0
+END
+GO
+
+CREATE PROCEDURE ccs_lng.CCS_Create_Backpack_TranslationText
+    @keyID INT,
+    @text NVARCHAR(MAX),
+    @language VARCHAR(20),
+    @type VARCHAR(50),
+    @token VARCHAR(36) OUTPUT
+AS
+BEGIN
+    SET NOCOUNT ON
+    DECLARE @newToken UNIQUEIDENTIFIER = NEWID()
+    INSERT INTO ccs_lng.CCS_TranslationText (token, translationConfigID, textToTranslate, language, translationData)
+    SELECT TOP 1 @newToken, translationConfigID, @text, @language,
+        CONCAT('{"keyID":"', @keyID, '","type":"', @type, '"}')
+    FROM ccs_lng.CCS_TranslationConfig WHERE active = 1 ORDER BY translationConfigID
+    SET @token = CAST(@newToken AS VARCHAR(36))
+END
+GO